@@ -16,6 +16,7 @@ import com.squareup.javapoet.TypeVariableName;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +49,7 @@ import org.corfudb.runtime.object.ICorfuSMRProxy;
 import org.corfudb.runtime.object.ICorfuSMRUpcallTarget;
 import org.corfudb.runtime.object.IUndoFunction;
 import org.corfudb.runtime.object.IUndoRecordFunction;
+import org.corfudb.runtime.object.SMRMethodIds;
 
 /** <p>The annotation processor, which takes annotated Corfu objects and
  * generates a class which can be used by the runtime instead of requiring
@@ -419,6 +421,7 @@ public class ObjectAnnotationProcessor extends AbstractProcessor {
                 .collect(Collectors.toCollection(HashSet::new));
 
         checkOverloadConflicts(upCalls);
+        checkSmrMethodIds(upCalls);
 
         // Gather methods that reference upcall methods (i.e. mutators that require no upcalls)
         Set<SmrMethodInfo> noUpcalls = methodSet.stream()
@@ -662,6 +665,23 @@ public class ObjectAnnotationProcessor extends AbstractProcessor {
         }
     }
 
+    /** Verify that the SMR methods of the object have distinct ids, since updates are
+     * logged with the id of their method instead of its name.
+     * @param upCalls Methods that are mutators and require upcalls
+     */
+    void checkSmrMethodIds(Set<SmrMethodInfo> upCalls) {
+        Map<Integer, String> methodNames = new HashMap<>();
+        for (SmrMethodInfo smrMethodInfo : upCalls) {
+            String methodName = getSmrFunctionName(smrMethodInfo.method);
+            String other = methodNames.putIfAbsent(SMRMethodIds.getId(methodName), methodName);
+            if (other != null && !other.equals(methodName)) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Error SMR methods " + methodName + " and " + other
+                                + " have the same id, one of them must be renamed");
+            }
+        }
+    }
+
     /** Add the reset set and the getter for the set.
      *
      * @param typeSpecBuilder   The typespec builder to add the reset set to
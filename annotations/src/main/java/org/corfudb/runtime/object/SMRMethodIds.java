@@ -0,0 +1,67 @@
+package org.corfudb.runtime.object;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Numeric ids of SMR methods, which can be logged instead of the method names
+ * (see CorfuRuntimeParameters#smrMethodIdsEnabled).
+ *
+ * <p>The id of a method is a function of its name only, so it is the same on
+ * every client and stays the same as long as the method keeps its name. The
+ * annotation processor checks that the SMR methods of an object have distinct
+ * ids.
+ *
+ * <p>Objects resolve ids to their own methods. This class also keeps the names
+ * of the methods seen by this process, to resolve the ids of entries which are
+ * read outside of an object.
+ */
+public final class SMRMethodIds {
+
+    /** The names of the methods seen by this process, by id. */
+    private static final Map<Integer, String> NAMES =
+            new ConcurrentHashMap<>();
+
+    /** Ids shared by several method names, which can't be resolved. */
+    private static final Set<Integer> AMBIGUOUS =
+            ConcurrentHashMap.newKeySet();
+
+    /** Prevent instantiation of this class. */
+    private SMRMethodIds() {
+    }
+
+    /** Get the id of an SMR method.
+     * @param smrMethod The name of the method.
+     * @return The (non-negative) id of the method.
+     */
+    public static int getId(final String smrMethod) {
+        return smrMethod.hashCode() & Integer.MAX_VALUE;
+    }
+
+    /** Record the name of an SMR method, so its id can be resolved.
+     * @param smrMethod The name of the method.
+     * @return The id of the method.
+     */
+    public static int register(final String smrMethod) {
+        final int id = getId(smrMethod);
+        String name = NAMES.get(id);
+        if (name == null) {
+            name = NAMES.putIfAbsent(id, smrMethod);
+        }
+        if (name != null && !name.equals(smrMethod)) {
+            AMBIGUOUS.add(id);
+        }
+        return id;
+    }
+
+    /** Get the name of an SMR method seen by this process.
+     * @param id The id of the method.
+     * @return The name of the method, or null if it is unknown or ambiguous.
+     */
+    public static String getName(final int id) {
+        if (AMBIGUOUS.contains(id)) {
+            return null;
+        }
+        return NAMES.get(id);
+    }
+}
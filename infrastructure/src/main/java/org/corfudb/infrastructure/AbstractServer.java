@@ -20,7 +20,7 @@ public abstract class AbstractServer {
     volatile boolean shutdown;
 
     static final ExecutorService sharedExecutor = Executors
-            .newFixedThreadPool(BatchWriter.BATCH_SIZE + Runtime.getRuntime().availableProcessors(),
+            .newFixedThreadPool(2 * Runtime.getRuntime().availableProcessors(),
                     new ServerThreadFactory("SharedServerThread-",
                             new ServerThreadFactory.ExceptionHandler()));
 
@@ -59,6 +59,7 @@ public abstract class AbstractServer {
     public void handleMessage(CorfuMsg msg, ChannelHandlerContext ctx, IServerRouter r) {
         if (!getHandler().handle(msg, ctx, r)) {
             log.warn("Received unhandled message type {}", msg.getMsgType());
+            msg.detach();
         }
     }
 
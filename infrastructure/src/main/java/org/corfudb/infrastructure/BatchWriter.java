@@ -1,24 +1,29 @@
 package org.corfudb.infrastructure;
 
-import com.github.benmanes.caffeine.cache.CacheWriter;
-import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nonnull;
 
+import lombok.Builder;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import org.corfudb.infrastructure.BatchWriterOperation.Type;
 import org.corfudb.infrastructure.log.StreamLog;
+import org.corfudb.infrastructure.log.StreamLogFiles;
 import org.corfudb.protocols.wireprotocol.LogData;
 import org.corfudb.protocols.wireprotocol.TailsResponse;
 import org.corfudb.protocols.wireprotocol.Token;
@@ -26,25 +31,36 @@ import org.corfudb.runtime.exceptions.WrongEpochException;
 import org.corfudb.runtime.exceptions.unrecoverable.UnrecoverableCorfuInterruptedError;
 
 /**
- * BatchWriter is a class that will intercept write-through calls to batch and
- * sync writes.
+ * BatchWriter is a class that batches and syncs writes (group commit). Writes are
+ * asynchronous, the future returned for a write completes once the batch that
+ * contains it has been synced to secondary storage.
+ *
+ * <p>Operations are sharded by log segment across one or more write lanes. Each lane
+ * has its own queue and writer thread, so writes to different segments are appended
+ * and synced in parallel. Operations that span segments (range writes, prefix trims,
+ * seals, resets and tails queries) are queued on every lane and applied once all the
+ * lanes have synced the operations queued before them. If a lane doesn't reach such an
+ * operation within the barrier timeout, the operation fails without being applied.
  */
 @Slf4j
-public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
-
-    static final int BATCH_SIZE = 50;
+public class BatchWriter implements AutoCloseable {
 
     final boolean sync;
 
+    /**
+     * The group commit window, a batch is synced once it reaches any of the limits in
+     * this window, or when there are no more operations queued.
+     */
+    private final GroupCommitConfig groupCommit;
+
     private StreamLog streamLog;
 
-    private BlockingQueue<BatchWriterOperation> operationsQueue;
+    /**
+     * The operation queues of the write lanes, one per lane.
+     */
+    private final List<BlockingQueue<BatchWriterOperation>> laneQueues;
 
-    final ExecutorService writerService = Executors
-            .newSingleThreadExecutor(new ThreadFactoryBuilder()
-                    .setDaemon(false)
-                    .setNameFormat("LogUnit-Write-Processor-%d")
-                    .build());
+    final ExecutorService writerService;
 
     /**
      * The sealEpoch is the epoch up to which all operations have been sealed. Any
@@ -52,57 +68,117 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
      * is completed exceptionally with a WrongEpochException.
      * This is persisted in the ServerContext by the LogUnitServer to withstand restarts.
      */
-    private long sealEpoch;
+    private volatile long sealEpoch;
 
     /**
      * Returns a new BatchWriter for a stream log.
      *
-     * @param streamLog      stream log for writes (can be in memory or file)
-     * @param sealEpoch All operations stamped with epoch less than the epochWaterMark are
-     *                       discarded.
      * @param streamLog stream log for writes (can be in memory or file)
-     * @param sync    If true, the batch writer will sync writes to secondary storage
+     * @param sealEpoch All operations stamped with epoch less than the epochWaterMark are
+     *                  discarded.
+     * @param sync      If true, the batch writer will sync writes to secondary storage
      */
     public BatchWriter(StreamLog streamLog, long sealEpoch, boolean sync) {
+        this(streamLog, sealEpoch, sync, GroupCommitConfig.builder().build());
+    }
+
+    /**
+     * Returns a new BatchWriter for a stream log.
+     *
+     * @param streamLog   stream log for writes (can be in memory or file)
+     * @param sealEpoch   All operations stamped with epoch less than the epochWaterMark are
+     *                    discarded.
+     * @param sync        If true, the batch writer will sync writes to secondary storage
+     * @param groupCommit the limits of a batch
+     */
+    public BatchWriter(StreamLog streamLog, long sealEpoch, boolean sync,
+                       GroupCommitConfig groupCommit) {
+        this(streamLog, sealEpoch, sync, groupCommit, 1);
+    }
+
+    /**
+     * Returns a new BatchWriter for a stream log.
+     *
+     * @param streamLog   stream log for writes (can be in memory or file)
+     * @param sealEpoch   All operations stamped with epoch less than the epochWaterMark are
+     *                    discarded.
+     * @param sync        If true, the batch writer will sync writes to secondary storage
+     * @param groupCommit the limits of a batch
+     * @param numLanes    number of write lanes, log segments are assigned to lanes
+     *                    round-robin
+     */
+    public BatchWriter(StreamLog streamLog, long sealEpoch, boolean sync,
+                       GroupCommitConfig groupCommit, int numLanes) {
+        if (numLanes < 1) {
+            throw new IllegalArgumentException("The number of write lanes must be positive, was "
+                    + numLanes);
+        }
         this.sealEpoch = sealEpoch;
         this.sync = sync;
         this.streamLog = streamLog;
-        operationsQueue = new LinkedBlockingQueue<>();
-        writerService.submit(this::batchWriteProcessor);
+        this.groupCommit = groupCommit;
+        writerService = Executors.newFixedThreadPool(numLanes, new ThreadFactoryBuilder()
+                .setDaemon(false)
+                .setNameFormat("LogUnit-Write-Processor-%d")
+                .build());
+        laneQueues = new ArrayList<>(numLanes);
+        for (int lane = 0; lane < numLanes; lane++) {
+            BlockingQueue<BatchWriterOperation> queue = new LinkedBlockingQueue<>();
+            laneQueues.add(queue);
+            writerService.submit(() -> batchWriteProcessor(queue));
+        }
     }
 
-    @Override
-    public void write(@Nonnull K key, @Nonnull V value) {
-        try {
-            CompletableFuture<Void> cf = new CompletableFuture();
-            operationsQueue.add(new BatchWriterOperation(BatchWriterOperation.Type.WRITE,
-                    (Long) key, (LogData) value, ((LogData) value).getEpoch(), null, cf));
-            cf.get();
-        } catch (Exception e) {
-            log.trace("Write Exception {}", e);
-            if (e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
-            } else {
-                throw new RuntimeException(e);
-            }
-        }
+    /**
+     * Get the queue of the lane that owns the segment of an address.
+     */
+    private BlockingQueue<BatchWriterOperation> getLaneQueue(long address) {
+        long segment = address / StreamLogFiles.RECORDS_PER_LOG_FILE;
+        return laneQueues.get((int) (segment % laneQueues.size()));
     }
 
-    public void bulkWrite(List<LogData> entries, long epoch) {
-        try {
-            CompletableFuture<Void> cf = new CompletableFuture();
-            operationsQueue.add(new BatchWriterOperation(BatchWriterOperation.Type.RANGE_WRITE,
-                    null, null, epoch, entries, cf));
-        } catch (Exception e) {
-            log.trace("Write Exception {}", e);
-            if (e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
-            } else {
-                throw new RuntimeException(e);
-            }
+    /**
+     * Queue an operation on every lane. Dispatching is serialized so that all the lanes
+     * see the barrier operations in the same order.
+     */
+    private synchronized void submitToAllLanes(BatchWriterOperation operation) {
+        operation.setBarrier(new CyclicBarrier(laneQueues.size(),
+                () -> processBarrierOperation(operation)));
+        for (BlockingQueue<BatchWriterOperation> queue : laneQueues) {
+            queue.add(operation);
         }
     }
 
+    /**
+     * Write an entry to the log.
+     *
+     * @param address log address to write to
+     * @param logData entry to write
+     * @return a future that completes once the entry has been synced, or completes
+     *         exceptionally if the write fails
+     */
+    public CompletableFuture<Void> write(long address, @Nonnull LogData logData) {
+        CompletableFuture<Void> cf = new CompletableFuture<>();
+        getLaneQueue(address).add(new BatchWriterOperation(BatchWriterOperation.Type.WRITE,
+                address, logData, logData.getEpoch(), null, cf));
+        return cf;
+    }
+
+    /**
+     * Write a range of consecutive entries to the log.
+     *
+     * @param entries entries to write
+     * @param epoch   epoch at which the write request is received
+     * @return a future that completes once the entries have been synced, or completes
+     *         exceptionally if the write fails
+     */
+    public CompletableFuture<Void> bulkWrite(List<LogData> entries, long epoch) {
+        CompletableFuture<Void> cf = new CompletableFuture<>();
+        submitToAllLanes(new BatchWriterOperation(BatchWriterOperation.Type.RANGE_WRITE,
+                null, null, epoch, entries, cf));
+        return cf;
+    }
+
     /**
      * Trim an address from the log.
      *
@@ -112,7 +188,7 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
     public void trim(@Nonnull long address, @Nonnull long epoch) {
         try {
             CompletableFuture<Void> cf = new CompletableFuture();
-            operationsQueue.add(new BatchWriterOperation(BatchWriterOperation.Type.TRIM,
+            getLaneQueue(address).add(new BatchWriterOperation(BatchWriterOperation.Type.TRIM,
                     address, null, epoch, null, cf));
             cf.get();
         } catch (Exception e) {
@@ -128,7 +204,7 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
     public void prefixTrim(@Nonnull Token address) {
         try {
             CompletableFuture<Void> cf = new CompletableFuture();
-            operationsQueue.add(new BatchWriterOperation(BatchWriterOperation.Type.PREFIX_TRIM,
+            submitToAllLanes(new BatchWriterOperation(BatchWriterOperation.Type.PREFIX_TRIM,
                     address.getSequence(), null, address.getEpoch(), null, cf));
             cf.get();
         } catch (Exception e) {
@@ -151,7 +227,7 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
     public void waitForSealComplete(long epoch) {
         try {
             CompletableFuture<Void> cf = new CompletableFuture<>();
-            operationsQueue.add(new BatchWriterOperation(Type.SEAL, null, null, epoch, null, cf));
+            submitToAllLanes(new BatchWriterOperation(Type.SEAL, null, null, epoch, null, cf));
             cf.get();
         } catch (Exception e) {
             if (e.getCause() instanceof RuntimeException) {
@@ -168,7 +244,7 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
     public void reset(@Nonnull long epoch) {
         try {
             CompletableFuture<Void> cf = new CompletableFuture<>();
-            operationsQueue.add(new BatchWriterOperation(Type.RESET, null, null, epoch, null, cf));
+            submitToAllLanes(new BatchWriterOperation(Type.RESET, null, null, epoch, null, cf));
             cf.get();
         } catch (Exception e) {
             if (e.getCause() instanceof RuntimeException) {
@@ -179,10 +255,17 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
         }
     }
 
+    /**
+     * Query the log tails. The query is queued on all the lanes, so that the tails include
+     * every write queued before the query, and these writes are synced.
+     *
+     * @param epoch epoch at which the query is received
+     * @return the global and stream tails of the log
+     */
     public TailsResponse queryTails(long epoch) {
         try {
             CompletableFuture<TailsResponse> cf = new CompletableFuture<>();
-            operationsQueue.add(new BatchWriterOperation(Type.TAILS_QUERY, null,
+            submitToAllLanes(new BatchWriterOperation(Type.TAILS_QUERY, null,
                     null, epoch, null, cf));
             return cf.get();
         } catch (Exception e) {
@@ -194,10 +277,6 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
         }
     }
 
-    @Override
-    public void delete(K key, V value, RemovalCause removalCause) {
-    }
-
     private void handleOperationResults(BatchWriterOperation operation) {
         if (operation.getException() == null && !operation.getFuture().isDone()) {
             operation.getFuture().complete(null);
@@ -206,35 +285,207 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
         }
     }
 
-    private void batchWriteProcessor() {
+    /**
+     * Get the number of payload bytes an operation writes.
+     */
+    private static long getWriteSize(BatchWriterOperation operation) {
+        switch (operation.getType()) {
+            case WRITE:
+                return getWriteSize(operation.getLogData());
+            case RANGE_WRITE:
+                long size = 0;
+                for (LogData entry : operation.getEntries()) {
+                    size += getWriteSize(entry);
+                }
+                return size;
+            default:
+                return 0;
+        }
+    }
+
+    private static long getWriteSize(LogData entry) {
+        return entry.getDataSize();
+    }
+
+    /**
+     * Wait for the next operation of the current batch. If the batch is full, or its
+     * window has elapsed, this only returns an operation that is already queued.
+     *
+     * @param operationsQueue the queue of the lane
+     * @param batchDeadline   the time (in nanoseconds) at which the batch window closes
+     * @param batchFull       true if the batch has reached its size limits
+     * @return the next operation or null if there are none
+     */
+    private BatchWriterOperation pollOperation(BlockingQueue<BatchWriterOperation> operationsQueue,
+                                               long batchDeadline, boolean batchFull)
+            throws InterruptedException {
+        long remaining = batchDeadline - System.nanoTime();
+        if (batchFull || remaining <= 0) {
+            return operationsQueue.poll();
+        }
+        return operationsQueue.poll(remaining, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Apply an operation to the stream log.
+     *
+     * @param currOp operation to apply
+     * @return true if the operation has to be completed once the log is synced
+     */
+    private boolean processOperation(BatchWriterOperation currOp) {
+        if (currOp.getType() == Type.SEAL && currOp.getEpoch() >= sealEpoch) {
+            sealEpoch = currOp.getEpoch();
+        } else if (currOp.getEpoch() != sealEpoch) {
+            log.warn("batchWriteProcessor: wrong epoch on {} msg, seal epoch is {}",
+                    currOp.getType(), currOp.getEpoch());
+            currOp.setException(new WrongEpochException(sealEpoch));
+        } else {
+            try {
+                switch (currOp.getType()) {
+                    case TRIM:
+                        streamLog.trim(currOp.getAddress());
+                        break;
+                    case PREFIX_TRIM:
+                        streamLog.prefixTrim(currOp.getAddress());
+                        break;
+                    case WRITE:
+                        streamLog.append(currOp.getAddress(), currOp.getLogData());
+                        break;
+                    case RANGE_WRITE:
+                        streamLog.append(currOp.getEntries());
+                        break;
+                    case RESET:
+                        streamLog.reset();
+                        break;
+                    case TAILS_QUERY:
+                        TailsResponse tails = streamLog.getTails();
+                        currOp.getFuture().complete(tails);
+                        return false;
+                    default:
+                        log.warn("Unknown BatchWriterOperation {}", currOp);
+                        return false;
+                }
+            } catch (Exception e) {
+                currOp.setException(e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply an operation that was queued on all the lanes. This runs on the last lane
+     * to reach the barrier, after all the lanes have synced their pending batches.
+     */
+    private void processBarrierOperation(BatchWriterOperation operation) {
+        try {
+            if (!processOperation(operation)) {
+                return;
+            }
+            streamLog.sync(sync);
+        } catch (Exception e) {
+            operation.setException(e);
+        }
+        handleOperationResults(operation);
+    }
+
+    /**
+     * Wait until all the lanes reach an operation queued on all of them. If a lane doesn't
+     * reach it in time, the barrier is broken for all the lanes and the operation fails
+     * without being applied.
+     *
+     * @param operation operation queued on all the lanes
+     */
+    private void awaitBarrier(BatchWriterOperation operation) throws InterruptedException {
+        try {
+            operation.getBarrier().await(groupCommit.getBarrierTimeoutMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | BrokenBarrierException e) {
+            log.error("batchWriteProcessor: {} failed, not all the write lanes reached it",
+                    operation.getType());
+            operation.getFuture().completeExceptionally(new IllegalStateException(
+                    "Write lanes did not reach " + operation.getType(), e));
+        }
+    }
+
+    /**
+     * Sync a batch, and complete its operations.
+     *
+     * @param batch operations applied since the last sync
+     */
+    private void syncBatch(List<BatchWriterOperation> batch) {
+        try {
+            streamLog.sync(sync);
+        } catch (Exception e) {
+            log.error("batchWriteProcessor: failed to sync {} operations", batch.size(), e);
+            for (BatchWriterOperation operation : batch) {
+                operation.setException(e);
+            }
+        }
+
+        for (BatchWriterOperation operation : batch) {
+            handleOperationResults(operation);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Fail the operations of a lane which stopped, including the operations that are
+     * queued on all the lanes, which the other lanes would otherwise wait for.
+     *
+     * @param operationsQueue the queue of the lane
+     * @param batch           operations applied since the last sync
+     * @param cause           the reason the lane stopped
+     */
+    private void failLane(BlockingQueue<BatchWriterOperation> operationsQueue,
+                          List<BatchWriterOperation> batch, Exception cause) {
+        List<BatchWriterOperation> operations = new ArrayList<>(batch);
+        operationsQueue.drainTo(operations);
+        for (BatchWriterOperation operation : operations) {
+            if (operation == BatchWriterOperation.SHUTDOWN) {
+                continue;
+            }
+            if (operation.getBarrier() != null) {
+                operation.getBarrier().reset();
+            }
+            operation.getFuture().completeExceptionally(cause);
+        }
+    }
+
+    private void batchWriteProcessor(BlockingQueue<BatchWriterOperation> operationsQueue) {
 
         if (!sync) {
             log.warn("batchWriteProcessor: writes configured to not sync with secondary storage");
         }
 
+        final long batchWindowNanos = TimeUnit.MICROSECONDS.toNanos(groupCommit.getWindowMicros());
+        List<BatchWriterOperation> res = new LinkedList<>();
+
         try {
             BatchWriterOperation lastOp = null;
             int processed = 0;
-            List<BatchWriterOperation> res = new LinkedList<>();
+            long processedBytes = 0;
+            long batchDeadline = 0;
 
             while (true) {
                 BatchWriterOperation currOp;
 
                 if (lastOp == null) {
                     currOp = operationsQueue.take();
+                    batchDeadline = System.nanoTime() + batchWindowNanos;
                 } else {
-                    currOp = operationsQueue.poll();
+                    boolean batchFull = processed >= groupCommit.getMaxEntries()
+                            || processedBytes >= groupCommit.getMaxBytes();
+                    currOp = pollOperation(operationsQueue, batchDeadline, batchFull);
 
-                    if (currOp == null || processed == BATCH_SIZE
-                            || currOp == BatchWriterOperation.SHUTDOWN) {
-                        streamLog.sync(sync);
-                        log.trace("Sync'd {} writes", processed);
+                    if (currOp == null || batchFull
+                            || currOp == BatchWriterOperation.SHUTDOWN
+                            || currOp.getBarrier() != null) {
+                        syncBatch(res);
+                        log.trace("Sync'd {} writes, {} bytes", processed, processedBytes);
 
-                        for (BatchWriterOperation operation : res) {
-                            handleOperationResults(operation);
-                        }
-                        res.clear();
                         processed = 0;
+                        processedBytes = 0;
+                        batchDeadline = System.nanoTime() + batchWindowNanos;
                     }
                 }
 
@@ -244,65 +495,31 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
                     log.trace("Shutting down the write processor");
                     streamLog.sync(true);
                     break;
-                } else if (currOp.getType() == Type.SEAL && currOp.getEpoch() >= sealEpoch) {
-                    sealEpoch = currOp.getEpoch();
-                    res.add(currOp);
-                    processed++;
-                    lastOp = currOp;
-                } else if (currOp.getEpoch() != sealEpoch) {
-                    log.warn("batchWriteProcessor: wrong epoch on {} msg, seal epoch is {}",
-                            currOp.getType(), currOp.getEpoch());
-                    currOp.setException(new WrongEpochException(sealEpoch));
-                    res.add(currOp);
-                    processed++;
-                    lastOp = currOp;
+                } else if (currOp.getBarrier() != null) {
+                    // This lane's batch is synced, the last lane to reach the
+                    // barrier applies the operation.
+                    awaitBarrier(currOp);
+                    lastOp = null;
                 } else {
-                    try {
-                        switch (currOp.getType()) {
-                            case TRIM:
-                                streamLog.trim(currOp.getAddress());
-                                res.add(currOp);
-                                break;
-                            case PREFIX_TRIM:
-                                streamLog.prefixTrim(currOp.getAddress());
-                                res.add(currOp);
-                                break;
-                            case WRITE:
-                                streamLog.append(currOp.getAddress(), currOp.getLogData());
-                                res.add(currOp);
-                                break;
-                            case RANGE_WRITE:
-                                streamLog.append(currOp.getEntries());
-                                res.add(currOp);
-                                break;
-                            case RESET:
-                                streamLog.reset();
-                                res.add(currOp);
-                                break;
-                            case TAILS_QUERY:
-                                TailsResponse tails = streamLog.getTails();
-                                currOp.getFuture().complete(tails);
-                                break;
-                            default:
-                                log.warn("Unknown BatchWriterOperation {}", currOp);
-                        }
-                    } catch (Exception e) {
-                        currOp.setException(e);
+                    if (processOperation(currOp)) {
                         res.add(currOp);
                     }
-
                     processed++;
+                    processedBytes += getWriteSize(currOp);
                     lastOp = currOp;
                 }
             }
         } catch (Exception e) {
             log.error("Caught exception in the write processor ", e);
+            failLane(operationsQueue, res, e);
         }
     }
 
     @Override
     public void close() {
-        operationsQueue.add(BatchWriterOperation.SHUTDOWN);
+        for (BlockingQueue<BatchWriterOperation> queue : laneQueues) {
+            queue.add(BatchWriterOperation.SHUTDOWN);
+        }
         writerService.shutdown();
         try {
             writerService.awaitTermination(ServerContext.SHUTDOWN_TIMER.toMillis(),
@@ -312,4 +529,29 @@ public class BatchWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
         }
     }
 
+    /**
+     * The limits of a batch (group commit window). A batch is synced as soon as it
+     * reaches maxEntries operations or maxBytes of payload, or when the queue is
+     * empty and windowMicros have elapsed since the batch started. An operation queued
+     * on all the write lanes fails if the lanes don't all reach it within
+     * barrierTimeoutMillis.
+     */
+    @Builder
+    @Getter
+    public static class GroupCommitConfig {
+        public static final int DEFAULT_MAX_ENTRIES = 50;
+        public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+        public static final long DEFAULT_WINDOW_MICROS = 0;
+        public static final long DEFAULT_BARRIER_TIMEOUT_MILLIS = 60_000;
+
+        @Builder.Default
+        private final int maxEntries = DEFAULT_MAX_ENTRIES;
+        @Builder.Default
+        private final long maxBytes = DEFAULT_MAX_BYTES;
+        @Builder.Default
+        private final long windowMicros = DEFAULT_WINDOW_MICROS;
+        @Builder.Default
+        private final long barrierTimeoutMillis = DEFAULT_BARRIER_TIMEOUT_MILLIS;
+    }
+
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package org.corfudb.infrastructure;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
 
 import lombok.Data;
 
@@ -32,6 +33,12 @@ public class BatchWriterOperation {
     private final CompletableFuture future;
     private Exception exception;
 
+    /**
+     * Set for operations that are dispatched to all the write lanes of a BatchWriter,
+     * the operation is applied once every lane has synced the operations queued before it.
+     */
+    private CyclicBarrier barrier;
+
 
     public static BatchWriterOperation SHUTDOWN = new BatchWriterOperation(Type.SHUTDOWN,
             null, null, null, null, null);
@@ -219,11 +219,13 @@ public class CorfuMsgHandler {
         return (msg, ctx, r) -> {
             if (server.isShutdown()) {
                 log.warn("Server received {} but is shutdown.", msg.getMsgType().toString());
+                msg.detach();
                 return;
             }
 
             if (!server.isServerReadyToHandleMsg(msg)) {
                 r.sendResponse(ctx, msg, CorfuMsgType.NOT_READY.msg());
+                msg.detach();
                 return;
             }
 
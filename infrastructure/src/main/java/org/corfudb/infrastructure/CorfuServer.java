@@ -87,7 +87,10 @@ public class CorfuServer {
                     + "<truststore_password_file>] [-b] [-g -o <username_file> -j <password_file>] "
                     + "[-k <seqcache>] [-T <threads>] [-B <size>] [-i <channel-implementation>] "
                     + "[-H <seconds>] [-I <cluster-id>] [-x <ciphers>] [-z <tls-protocols>]] "
-                    + "[-P <prefix>] [-R <retention>] [--agent] <port>\n"
+                    + "[-P <prefix>] [-R <retention>] [--mmap-reads] "
+                    + "[--write-batch-entries=<entries>] [--write-batch-bytes=<bytes>] "
+                    + "[--write-batch-window=<micros>] [--write-lanes=<lanes>] "
+                    + "[--sequencer-threads=<threads>] [--agent] <port>\n"
                     + "\n"
                     + "Options:\n"
                     + " -l <path>, --log-path=<path>                                             "
@@ -136,6 +139,9 @@ public class CorfuServer {
                     + "                                                                          "
                     + " -k <seqcache>, --sequencer-cache-size=<seqcache>                         "
                     + "               The size of the sequencer's cache. [default: 250000].\n    "
+                    + " --sequencer-threads=<threads>                                            "
+                    + "              Number of threads serving sequencer requests, token requests "
+                    + "on different streams are served in parallel [default: 1].\n"
                     + " -B <size> --batch-size=<size>                                            "
                     + "              The read/write batch size used for data transfer operations [default: 100].\n"
                     + " -R <retention>, --metadata-retention=<retention>                         "
@@ -153,6 +159,20 @@ public class CorfuServer {
                     + "              Disable checksum computation and verification.\n"
                     + " -N, --no-sync                                                            "
                     + "              Disable syncing writes to secondary storage.\n"
+                    + " --mmap-reads                                                             "
+                    + "              Serve reads of complete log segments from memory-mapped files.\n"
+                    + " --write-batch-entries=<entries>                                          "
+                    + "              Maximum number of writes synced together in a batch "
+                    + "[default: 50].\n"
+                    + " --write-batch-bytes=<bytes>                                              "
+                    + "              Maximum number of payload bytes synced together in a batch "
+                    + "[default: 8388608].\n"
+                    + " --write-batch-window=<micros>                                            "
+                    + "              Time in microseconds a batch waits for more writes before "
+                    + "it is synced [default: 0].\n"
+                    + " --write-lanes=<lanes>                                                    "
+                    + "              Number of log segment write lanes that append and sync "
+                    + "in parallel [default: 1].\n"
                     + " -e, --enable-tls                                                         "
                     + "              Enable TLS.\n"
                     + " -u <keystore>, --keystore=<keystore>                                     "
@@ -15,6 +15,7 @@ import org.corfudb.infrastructure.log.StreamLogFiles;
 import org.corfudb.protocols.wireprotocol.CorfuMsg;
 import org.corfudb.protocols.wireprotocol.CorfuMsgType;
 import org.corfudb.protocols.wireprotocol.CorfuPayloadMsg;
+import org.corfudb.protocols.wireprotocol.ExceptionMsg;
 import org.corfudb.protocols.wireprotocol.FillHoleRequest;
 import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.protocols.wireprotocol.LogData;
@@ -22,6 +23,8 @@ import org.corfudb.protocols.wireprotocol.MultipleReadRequest;
 import org.corfudb.protocols.wireprotocol.RangeWriteMsg;
 import org.corfudb.protocols.wireprotocol.ReadRequest;
 import org.corfudb.protocols.wireprotocol.ReadResponse;
+import org.corfudb.protocols.wireprotocol.StreamAddressRequest;
+import org.corfudb.protocols.wireprotocol.StreamAddressResponse;
 import org.corfudb.protocols.wireprotocol.TailsResponse;
 import org.corfudb.protocols.wireprotocol.Token;
 import org.corfudb.protocols.wireprotocol.TrimRequest;
@@ -31,11 +34,13 @@ import org.corfudb.runtime.exceptions.DataOutrankedException;
 import org.corfudb.runtime.exceptions.OverwriteException;
 import org.corfudb.runtime.exceptions.TrimmedException;
 import org.corfudb.runtime.exceptions.ValueAdoptedException;
+import org.corfudb.runtime.view.Address;
 import org.corfudb.util.Utils;
 
 import java.lang.invoke.MethodHandles;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 
@@ -62,6 +67,12 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class LogUnitServer extends AbstractServer {
 
+    /**
+     * The maximum number of addresses returned for a stream address request, the rest of
+     * the range is returned for a request which continues from the last address returned.
+     */
+    private static final int MAX_STREAM_ADDRESSES = 1 << 14;
+
     /**
      * The options map.
      */
@@ -86,7 +97,14 @@ public class LogUnitServer extends AbstractServer {
     private final LoadingCache<Long, ILogData> dataCache;
     private final StreamLog streamLog;
     private final StreamLogCompaction logCleaner;
-    private final BatchWriter<Long, ILogData> batchWriter;
+    private final BatchWriter batchWriter;
+
+    /**
+     * Every address up to this one is written, hole filled or trimmed in the stream log.
+     * It is only advanced once the writes complete, so the handlers read it without
+     * touching the stream log.
+     */
+    private volatile long contiguousTail = Address.NON_ADDRESS;
 
     /**
      * Returns a new LogUnitServer.
@@ -105,19 +123,22 @@ public class LogUnitServer extends AbstractServer {
                     .convertToByteStringRepresentation(config.getMaxCacheSize()));
             streamLog = new InMemoryStreamLog();
         } else {
-            streamLog = new StreamLogFiles(serverContext, config.isNoVerify());
+            streamLog = new StreamLogFiles(serverContext, config.isNoVerify(),
+                    config.isMmapReads());
         }
 
-        batchWriter = new BatchWriter<>(streamLog, serverContext.getServerEpoch(), !config.isNoSync());
+        batchWriter = new BatchWriter(streamLog, serverContext.getServerEpoch(),
+                !config.isNoSync(), config.getGroupCommit(), config.getWriteLanes());
 
         dataCache = Caffeine.newBuilder()
                 .<Long, ILogData>weigher((k, v) -> ((LogData) v).getData() == null ? 1 : ((LogData) v).getData().length)
                 .maximumWeight(config.getMaxCacheSize())
                 .removalListener(this::handleEviction)
-                .writer(batchWriter)
                 .build(this::handleRetrieval);
 
         logCleaner = new StreamLogCompaction(streamLog, 10, 45, TimeUnit.MINUTES, ServerContext.SHUTDOWN_TIMER);
+
+        recoverContiguousTail();
     }
 
     /**
@@ -137,27 +158,136 @@ public class LogUnitServer extends AbstractServer {
         r.sendResponse(ctx, msg, CorfuMsgType.TRIM_MARK_RESPONSE.payloadMsg(streamLog.getTrimMark()));
     }
 
+    /**
+     * Service an incoming request for the contiguous tail of this log unit. In chain
+     * replication, every address up to the contiguous tail of the chain tail is committed,
+     * so clients may read those addresses from any unit of the chain.
+     */
+    @ServerHandler(type = CorfuMsgType.CONTIGUOUS_TAIL_REQUEST)
+    public void handleContiguousTailRequest(CorfuMsg msg, ChannelHandlerContext ctx,
+                                            IServerRouter r) {
+        r.sendResponse(ctx, msg,
+                CorfuMsgType.CONTIGUOUS_TAIL_RESPONSE.payloadMsg(contiguousTail));
+    }
+
+    /**
+     * Service an incoming request for the addresses of a stream in a range. The range is
+     * only resolved up to the contiguous tail, since the addresses above it which are not
+     * written yet may belong to the stream.
+     */
+    @ServerHandler(type = CorfuMsgType.STREAM_ADDRESS_REQUEST)
+    public void handleStreamAddressRequest(CorfuPayloadMsg<StreamAddressRequest> msg,
+                                           ChannelHandlerContext ctx, IServerRouter r) {
+        StreamAddressRequest request = msg.getPayload();
+        // Every address up to the contiguous tail is indexed, since the stream
+        // addresses are indexed before the entries are visible.
+        long resolvedTail = Math.min(request.getEnd(), contiguousTail);
+        long continuation = Address.NON_ADDRESS;
+        long[] addresses = streamLog.getStreamAddresses(request.getStreamId(),
+                request.getStart(), resolvedTail, MAX_STREAM_ADDRESSES);
+        if (addresses == null) {
+            // The index doesn't cover the stream from the start of the range
+            addresses = new long[0];
+            resolvedTail = request.getStart() - 1;
+        } else if (addresses.length == MAX_STREAM_ADDRESSES) {
+            resolvedTail = addresses[addresses.length - 1];
+            continuation = resolvedTail + 1;
+        }
+        log.trace("handleStreamAddressRequest: {} addresses of stream {} in [{}, {}]",
+                addresses.length, request.getStreamId(), request.getStart(), resolvedTail);
+        r.sendResponse(ctx, msg, CorfuMsgType.STREAM_ADDRESS_RESPONSE.payloadMsg(
+                new StreamAddressResponse(streamLog.getTrimMark(), resolvedTail, continuation,
+                        addresses)));
+    }
+
+    /**
+     * Recover the contiguous tail from the stream log when the server starts, by scanning
+     * the log from the trim mark up to the first address which is not written.
+     */
+    private synchronized void recoverContiguousTail() {
+        long next = Math.max(contiguousTail + 1, streamLog.getTrimMark());
+        while (streamLog.contains(next)) {
+            next++;
+        }
+        contiguousTail = next - 1;
+    }
+
+    /**
+     * Advance the contiguous tail once the write of an address has completed. Only a write
+     * which closes the gap above the contiguous tail advances it, past that address and the
+     * addresses above it whose writes completed before, so every address is only checked
+     * once it is written. This runs in the completion path of the batch writer.
+     *
+     * @param address the address whose write (or hole fill) completed
+     */
+    private synchronized void advanceContiguousTail(long address) {
+        long next = Math.max(contiguousTail + 1, streamLog.getTrimMark());
+        if (address != next) {
+            // Either already below the contiguous tail, or above a gap which is not written yet,
+            // in which case it is picked up once the write closing the gap completes.
+            return;
+        }
+
+        while (streamLog.contains(next)) {
+            next++;
+        }
+        contiguousTail = next - 1;
+    }
+
     /**
      * Service an incoming write request.
+     *
+     * <p>The write is handed off to the batch writer, and the response is sent (and the
+     * entry cached) once the batch containing the write has been synced. The handler
+     * thread is not blocked while the write is in flight.
+     *
+     * <p>The payload of the entry is written straight from the buffer it was received
+     * in, and only copied out of it once the write has completed.
      */
     @ServerHandler(type = CorfuMsgType.WRITE)
     public void write(CorfuPayloadMsg<WriteRequest> msg, ChannelHandlerContext ctx, IServerRouter r) {
         log.debug("log write: global: {}, streams: {}, backpointers: {}", msg
                 .getPayload().getGlobalAddress(), msg.getPayload().getData().getBackpointerMap());
 
-        try {
-            LogData logData = (LogData) msg.getPayload().getData();
-            logData.setEpoch(msg.getEpoch());
-            dataCache.put(msg.getPayload().getGlobalAddress(), logData);
-            r.sendResponse(ctx, msg, CorfuMsgType.WRITE_OK.msg());
-
-        } catch (OverwriteException ex) {
-            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_OVERWRITE.payloadMsg(ex.getOverWriteCause().getId()));
-        } catch (DataOutrankedException e) {
+        final long address = msg.getPayload().getGlobalAddress();
+        LogData logData = (LogData) msg.getPayload().getData();
+        logData.setEpoch(msg.getEpoch());
+        batchWriter.write(address, logData).whenComplete((v, ex) -> {
+            logData.detachData();
+            if (ex == null) {
+                dataCache.put(address, logData);
+                advanceContiguousTail(address);
+                r.sendResponse(ctx, msg, CorfuMsgType.WRITE_OK.msg());
+            } else {
+                handleWriteException(msg, ctx, r, ex);
+            }
+        });
+    }
+
+    /**
+     * Send the error response for a write (or hole fill) that failed.
+     *
+     * @param msg the write request
+     * @param ctx the channel handler context
+     * @param r   the server router
+     * @param ex  the exception the write was completed with
+     */
+    private void handleWriteException(CorfuMsg msg, ChannelHandlerContext ctx, IServerRouter r,
+                                      Throwable ex) {
+        Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+
+        if (cause instanceof OverwriteException) {
+            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_OVERWRITE
+                    .payloadMsg(((OverwriteException) cause).getOverWriteCause().getId()));
+        } else if (cause instanceof DataOutrankedException) {
             r.sendResponse(ctx, msg, CorfuMsgType.ERROR_DATA_OUTRANKED.msg());
-        } catch (ValueAdoptedException e) {
-            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_VALUE_ADOPTED.payloadMsg(e
-                    .getReadResponse()));
+        } else if (cause instanceof ValueAdoptedException) {
+            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_VALUE_ADOPTED
+                    .payloadMsg(((ValueAdoptedException) cause).getReadResponse()));
+        } else {
+            log.error("handleWriteException: write failed for {}", msg.getMsgType(), cause);
+            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_SERVER_EXCEPTION
+                    .payloadMsg(new ExceptionMsg(cause)));
         }
     }
 
@@ -204,23 +334,19 @@ public class LogUnitServer extends AbstractServer {
     @ServerHandler(type = CorfuMsgType.FILL_HOLE)
     private void fillHole(CorfuPayloadMsg<FillHoleRequest> msg, ChannelHandlerContext ctx,
                           IServerRouter r) {
-        try {
-            Token address = msg.getPayload().getAddress();
-            log.debug("fillHole: filling address {}, epoch {}", address, msg.getEpoch());
-            LogData hole = LogData.getHole(address.getSequence());
-            hole.setEpoch(msg.getEpoch());
-            dataCache.put(address.getSequence(), hole);
-            r.sendResponse(ctx, msg, CorfuMsgType.WRITE_OK.msg());
-
-        } catch (OverwriteException e) {
-            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_OVERWRITE.payloadMsg(e.getOverWriteCause().getId()));
-        } catch (DataOutrankedException e) {
-            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_DATA_OUTRANKED.msg());
-        } catch (ValueAdoptedException e) {
-
-            r.sendResponse(ctx, msg, CorfuMsgType.ERROR_VALUE_ADOPTED.payloadMsg(e
-                    .getReadResponse()));
-        }
+        Token address = msg.getPayload().getAddress();
+        log.debug("fillHole: filling address {}, epoch {}", address, msg.getEpoch());
+        LogData hole = LogData.getHole(address.getSequence());
+        hole.setEpoch(msg.getEpoch());
+        batchWriter.write(address.getSequence(), hole).whenComplete((v, ex) -> {
+            if (ex == null) {
+                dataCache.put(address.getSequence(), hole);
+                advanceContiguousTail(address.getSequence());
+                r.sendResponse(ctx, msg, CorfuMsgType.WRITE_OK.msg());
+            } else {
+                handleWriteException(msg, ctx, r, ex);
+            }
+        });
     }
 
     @ServerHandler(type = CorfuMsgType.TRIM)
@@ -237,6 +363,9 @@ public class LogUnitServer extends AbstractServer {
         try {
             TrimRequest req = msg.getPayload();
             batchWriter.prefixTrim(req.getAddress());
+            // A trim past a gap lets the contiguous tail advance past the addresses
+            // written above the gap, which no later write would otherwise pick up.
+            advanceContiguousTail(streamLog.getTrimMark());
             r.sendResponse(ctx, msg, CorfuMsgType.ACK.msg());
         } catch (TrimmedException ex) {
             r.sendResponse(ctx, msg, CorfuMsgType.ERROR_TRIMMED.msg());
@@ -273,8 +402,14 @@ public class LogUnitServer extends AbstractServer {
     private void rangeWrite(CorfuPayloadMsg<RangeWriteMsg> msg,
                                   ChannelHandlerContext ctx, IServerRouter r) {
         List<LogData> entries = msg.getPayload().getEntries();
-        batchWriter.bulkWrite(entries, msg.getEpoch());
-        r.sendResponse(ctx, msg, CorfuMsgType.WRITE_OK.msg());
+        batchWriter.bulkWrite(entries, msg.getEpoch()).whenComplete((v, ex) -> {
+            if (ex == null) {
+                entries.forEach(entry -> advanceContiguousTail(entry.getGlobalAddress()));
+                r.sendResponse(ctx, msg, CorfuMsgType.WRITE_OK.msg());
+            } else {
+                handleWriteException(msg, ctx, r, ex);
+            }
+        });
     }
 
     /**
@@ -310,6 +445,7 @@ public class LogUnitServer extends AbstractServer {
             serverContext.setLogUnitEpochWaterMark(msg.getPayload());
             batchWriter.reset(msg.getPayload());
             dataCache.invalidateAll();
+            contiguousTail = Address.NON_ADDRESS;
             log.info("LogUnit Server Reset.");
         } else {
             log.info("LogUnit Server Reset request received but reset already done.");
@@ -327,13 +463,13 @@ public class LogUnitServer extends AbstractServer {
      *     the read() and append(). Any address that cannot be retrieved should be returned as
      *     unwritten (null).
      */
-    public synchronized ILogData handleRetrieval(long address) {
+    public ILogData handleRetrieval(long address) {
         LogData entry = streamLog.read(address);
         log.trace("Retrieved[{} : {}]", address, entry);
         return entry;
     }
 
-    public synchronized void handleEviction(long address, ILogData entry, RemovalCause cause) {
+    public void handleEviction(long address, ILogData entry, RemovalCause cause) {
         log.trace("Eviction[{}]: {}", address, cause);
         streamLog.release(address, (LogData) entry);
     }
@@ -369,6 +505,9 @@ public class LogUnitServer extends AbstractServer {
         private final boolean memoryMode;
         private final boolean noVerify;
         private final boolean noSync;
+        private final boolean mmapReads;
+        private final BatchWriter.GroupCommitConfig groupCommit;
+        private final int writeLanes;
 
         /**
          * Parse legacy configuration options
@@ -385,6 +524,13 @@ public class LogUnitServer extends AbstractServer {
                     .memoryMode(Boolean.valueOf(opts.get("--memory").toString()))
                     .noVerify((Boolean) opts.get("--no-verify"))
                     .noSync((Boolean) opts.get("--no-sync"))
+                    .mmapReads((Boolean) opts.get("--mmap-reads"))
+                    .groupCommit(BatchWriter.GroupCommitConfig.builder()
+                            .maxEntries(Integer.parseInt((String) opts.get("--write-batch-entries")))
+                            .maxBytes(Long.parseLong((String) opts.get("--write-batch-bytes")))
+                            .windowMicros(Long.parseLong((String) opts.get("--write-batch-window")))
+                            .build())
+                    .writeLanes(Integer.parseInt((String) opts.get("--write-lanes")))
                     .build();
         }
     }
@@ -128,6 +128,7 @@ public class NettyServerRouter extends ChannelInboundHandlerAdapter implements I
             if (handler == null) {
                 // The message was unregistered, we are dropping it.
                 log.warn("Received unregistered message {}, dropping", m);
+                m.detach();
             } else {
                 if (validateEpoch(m, ctx)) {
                     // Route the message to the handler.
@@ -139,6 +140,7 @@ public class NettyServerRouter extends ChannelInboundHandlerAdapter implements I
                         try {
                             handler.handleMessage(m, ctx, this);
                         } catch (Throwable t) {
+                            m.detach();
                             log.error("channelRead: Handling {} failed due to {}:{}",
                                     m != null ? m.getMsgType() : "UNKNOWN",
                                     t.getClass().getSimpleName(),
@@ -146,6 +148,8 @@ public class NettyServerRouter extends ChannelInboundHandlerAdapter implements I
                                     t);
                         }
                     });
+                } else {
+                    m.detach();
                 }
             }
         } catch (Exception e) {
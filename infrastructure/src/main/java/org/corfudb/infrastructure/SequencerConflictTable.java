@@ -0,0 +1,304 @@
+package org.corfudb.infrastructure;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded table of the latest global address at which each conflict parameter was
+ * written, used by the sequencer for transaction conflict resolution.
+ *
+ * <p>Entries are keyed by the 128-bit stream id and the 64-bit fingerprint of the conflict
+ * parameter computed by the runtime, and stored in primitive open-addressing arrays, so
+ * lookups and updates don't allocate. Two parameters of a stream with the same fingerprint
+ * share an entry, which can only cause false aborts, never missed conflicts.
+ *
+ * <p>The table is split into segments that are locked independently. Once the table holds
+ * more than maxSize entries, the entry with the lowest address in a small random sample is
+ * evicted, and its address is passed to the eviction listener. The listener runs under the
+ * lock of the segment, before the entry is removed, so a lookup which misses the entry
+ * always observes the effect of the listener (the sequencer raises its conflict wildcard).
+ */
+@ThreadSafe
+public class SequencerConflictTable {
+
+    /**
+     * Returned by {@link #get(UUID, long)} for conflict parameters that are not in the table.
+     */
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    private static final int SEGMENTS = 64;
+
+    private static final int SEGMENT_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final long maxSize;
+
+    private final LongConsumer evictionListener;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Returns a new conflict table.
+     *
+     * @param maxSize          maximum number of entries in the table
+     * @param evictionListener consumer of the addresses of evicted and invalidated entries,
+     *                         called before they are removed
+     */
+    public SequencerConflictTable(long maxSize, LongConsumer evictionListener) {
+        this.maxSize = maxSize;
+        this.evictionListener = evictionListener;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(MIN_SEGMENT_CAPACITY);
+        }
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long keyHash(long msb, long lsb, long paramHash) {
+        return fmix64(msb ^ fmix64(lsb ^ paramHash));
+    }
+
+    private Segment segmentFor(long keyHash) {
+        return segments[(int) (keyHash >>> SEGMENT_SHIFT)];
+    }
+
+    /**
+     * Get the latest address at which a conflict parameter was written.
+     *
+     * @param streamId      stream of the conflict parameter
+     * @param conflictParam fingerprint of the conflict parameter
+     * @return the address, or {@link #ABSENT} if the parameter is not in the table
+     */
+    public long get(UUID streamId, long conflictParam) {
+        long msb = streamId.getMostSignificantBits();
+        long lsb = streamId.getLeastSignificantBits();
+        long keyHash = keyHash(msb, lsb, conflictParam);
+        return segmentFor(keyHash).get(msb, lsb, conflictParam, keyHash);
+    }
+
+    /**
+     * Set the latest address at which a conflict parameter was written, evicting an entry
+     * if the table is full.
+     *
+     * @param streamId      stream of the conflict parameter
+     * @param conflictParam fingerprint of the conflict parameter
+     * @param address       global address of the write
+     */
+    public void put(UUID streamId, long conflictParam, long address) {
+        long msb = streamId.getMostSignificantBits();
+        long lsb = streamId.getLeastSignificantBits();
+        long keyHash = keyHash(msb, lsb, conflictParam);
+        if (segmentFor(keyHash).put(msb, lsb, conflictParam, keyHash, address)
+                && size.incrementAndGet() > maxSize) {
+            evictOne((int) (keyHash >>> SEGMENT_SHIFT));
+        }
+    }
+
+    private void evictOne(int startSegment) {
+        for (int i = 0; i < SEGMENTS; i++) {
+            if (segments[(startSegment + i) % SEGMENTS].evict(evictionListener)) {
+                size.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries with an address lower than a trim mark.
+     *
+     * @param trimMark entries below this address are removed
+     * @return the number of removed entries
+     */
+    public long invalidateBelow(long trimMark) {
+        long removed = 0;
+        for (Segment segment : segments) {
+            removed += segment.removeBelow(trimMark, evictionListener);
+        }
+        size.addAndGet(-removed);
+        return removed;
+    }
+
+    /**
+     * Returns the number of entries in the table.
+     */
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * A linear probing hash table, addresses[i] == ABSENT marks an empty slot.
+     */
+    private static final class Segment {
+        private long[] msbs;
+        private long[] lsbs;
+        private long[] paramHashes;
+        private long[] addresses;
+        private int count;
+
+        Segment(int capacity) {
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            msbs = new long[capacity];
+            lsbs = new long[capacity];
+            paramHashes = new long[capacity];
+            addresses = new long[capacity];
+            Arrays.fill(addresses, ABSENT);
+            count = 0;
+        }
+
+        private int home(long msb, long lsb, long paramHash) {
+            return (int) keyHash(msb, lsb, paramHash) & (addresses.length - 1);
+        }
+
+        private int find(long msb, long lsb, long paramHash, long keyHash) {
+            int mask = addresses.length - 1;
+            int i = (int) keyHash & mask;
+            while (addresses[i] != ABSENT) {
+                if (paramHashes[i] == paramHash && msbs[i] == msb && lsbs[i] == lsb) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1 - i;
+        }
+
+        synchronized long get(long msb, long lsb, long paramHash, long keyHash) {
+            int i = find(msb, lsb, paramHash, keyHash);
+            return i < 0 ? ABSENT : addresses[i];
+        }
+
+        /**
+         * Returns true if a new entry was added.
+         */
+        synchronized boolean put(long msb, long lsb, long paramHash, long keyHash,
+                                 long address) {
+            int i = find(msb, lsb, paramHash, keyHash);
+            if (i >= 0) {
+                addresses[i] = address;
+                return false;
+            }
+
+            i = -1 - i;
+            msbs[i] = msb;
+            lsbs[i] = lsb;
+            paramHashes[i] = paramHash;
+            addresses[i] = address;
+            count++;
+            // Keep the load factor under 1/2
+            if (count * 2 > addresses.length) {
+                rehash(addresses.length * 2, Long.MIN_VALUE, null);
+            }
+            return true;
+        }
+
+        /**
+         * Evict the entry with the lowest address in a random sample of entries, passing
+         * its address to the listener before it is removed.
+         *
+         * @return true if an entry was evicted, false if the segment is empty
+         */
+        synchronized boolean evict(LongConsumer listener) {
+            if (count == 0) {
+                return false;
+            }
+
+            int mask = addresses.length - 1;
+            int i = ThreadLocalRandom.current().nextInt(addresses.length);
+            int victim = -1;
+            int sampled = 0;
+            for (int scanned = 0; scanned < addresses.length && sampled < EVICTION_SAMPLES;
+                 scanned++, i = (i + 1) & mask) {
+                if (addresses[i] != ABSENT) {
+                    if (victim < 0 || addresses[i] < addresses[victim]) {
+                        victim = i;
+                    }
+                    sampled++;
+                }
+            }
+
+            listener.accept(addresses[victim]);
+            delete(victim);
+            return true;
+        }
+
+        /**
+         * Delete a slot, shifting back the entries of its probe sequence.
+         */
+        private void delete(int slot) {
+            int mask = addresses.length - 1;
+            int i = slot;
+            addresses[i] = ABSENT;
+            count--;
+            for (int j = (i + 1) & mask; addresses[j] != ABSENT; j = (j + 1) & mask) {
+                int home = home(msbs[j], lsbs[j], paramHashes[j]);
+                // The entry at j can be moved to i unless its home is cyclically in (i, j]
+                boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!reachable) {
+                    msbs[i] = msbs[j];
+                    lsbs[i] = lsbs[j];
+                    paramHashes[i] = paramHashes[j];
+                    addresses[i] = addresses[j];
+                    addresses[j] = ABSENT;
+                    i = j;
+                }
+            }
+        }
+
+        synchronized long removeBelow(long trimMark, LongConsumer listener) {
+            int before = count;
+            rehash(addresses.length, trimMark, listener);
+            return before - count;
+        }
+
+        /**
+         * Rebuild the segment with a new capacity, dropping the entries below a trim mark.
+         */
+        private void rehash(int capacity, long trimMark, LongConsumer listener) {
+            long[] oldMsbs = msbs;
+            long[] oldLsbs = lsbs;
+            long[] oldParamHashes = paramHashes;
+            long[] oldAddresses = addresses;
+            allocate(capacity);
+
+            int mask = capacity - 1;
+            for (int j = 0; j < oldAddresses.length; j++) {
+                if (oldAddresses[j] == ABSENT) {
+                    continue;
+                }
+                if (oldAddresses[j] < trimMark) {
+                    // The segment is locked until the entries are dropped
+                    listener.accept(oldAddresses[j]);
+                    continue;
+                }
+                int i = home(oldMsbs[j], oldLsbs[j], oldParamHashes[j]);
+                while (addresses[i] != ABSENT) {
+                    i = (i + 1) & mask;
+                }
+                msbs[i] = oldMsbs[j];
+                lsbs[i] = oldLsbs[j];
+                paramHashes[i] = oldParamHashes[j];
+                addresses[i] = oldAddresses[j];
+                count++;
+            }
+        }
+    }
+}
@@ -4,11 +4,9 @@ import static org.corfudb.protocols.wireprotocol.TokenType.TX_ABORT_NEWSEQ;
 import static org.corfudb.protocols.wireprotocol.TokenType.TX_ABORT_SEQ_OVERFLOW;
 
 import com.codahale.metrics.Timer;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Striped;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.Getter;
 import lombok.Setter;
@@ -20,6 +18,8 @@ import org.corfudb.protocols.wireprotocol.SequencerMetrics;
 import org.corfudb.protocols.wireprotocol.SequencerMetrics.SequencerStatus;
 import org.corfudb.protocols.wireprotocol.SequencerTailsRecoveryMsg;
 import org.corfudb.protocols.wireprotocol.Token;
+import org.corfudb.protocols.wireprotocol.TokenBatchRequest;
+import org.corfudb.protocols.wireprotocol.TokenBatchResponse;
 import org.corfudb.protocols.wireprotocol.TokenRequest;
 import org.corfudb.protocols.wireprotocol.TokenResponse;
 import org.corfudb.protocols.wireprotocol.TokenType;
@@ -36,22 +36,25 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * This server implements the sequencer functionality of Corfu.
  *
- * <p>It currently supports a single operation, which is a incoming request:
+ * <p>It currently supports a single operation, which is a incoming request, alone or batched:
  *
  * <p>TOKEN_REQ - Request the next address.
  *
+ * <p>TOKEN_BATCH_REQ - A batch of token requests, served in order in a single pass.
+ *
  * <p>The sequencer server maintains the current tail of the log, the current
  * tail of every stream, and a cache of timestamps of updates on recent
  * conflict-parameters.
@@ -81,6 +84,10 @@ import java.util.concurrent.atomic.AtomicReference;
  * commits, the sequencer updates the tails of all the streams and the cache
  * of conflict parameters.
  *
+ * <p>Token requests are not serialized by a global monitor. Allocations lock only the
+ * stripes of the streams they touch (and check for conflicts on), raw tokens and queries
+ * take no stripe locks. Bootstrap and cache trims exclude all token requests.
+ *
  * <p>Created by mwei on 12/8/15.
  */
 @Slf4j
@@ -104,7 +111,7 @@ public class SequencerServer extends AbstractServer {
     private final AtomicLong globalLogTail = new AtomicLong(Address
             .getMinAddress());
 
-    private long trimMark = Address.NON_ADDRESS;
+    private volatile long trimMark = Address.NON_ADDRESS;
 
     /**
      * - {@link SequencerServer::streamTailToGlobalTailMap}:
@@ -131,11 +138,27 @@ public class SequencerServer extends AbstractServer {
      * the primary sequencer. This means that any snapshot timestamp below this
      * actual threshold would abort due to NEW_SEQUENCER cause.
      */
-    private final Cache<String, Long> conflictToGlobalTailCache;
+    private final SequencerConflictTable conflictToGlobalTailCache;
+
+    private final AtomicLong maxConflictWildcard = new AtomicLong(Address.NOT_FOUND);
 
-    private long maxConflictWildcard = Address.NOT_FOUND;
+    private volatile long maxConflictNewSequencer = Address.NOT_FOUND;
+
+    /**
+     * Number of lock stripes for stream state.
+     */
+    private static final int STREAM_LOCK_STRIPES = 256;
+
+    /**
+     * Locks the tail and conflict parameters of streams while a token is allocated
+     * or a transaction is resolved.
+     */
+    private final Striped<Lock> streamLocks = Striped.lock(STREAM_LOCK_STRIPES);
 
-    private long maxConflictNewSequencer = Address.NOT_FOUND;
+    /**
+     * Token requests hold the read lock, bootstrap and cache trims hold the write lock.
+     */
+    private final ReadWriteLock sequencerLock = new ReentrantReadWriteLock();
 
     /**
      * A map to cache the name of timers to avoid creating timer names on each call.
@@ -168,7 +191,7 @@ public class SequencerServer extends AbstractServer {
     ThreadFactory threadFactory = new ServerThreadFactory("sequencer-",
             new ServerThreadFactory.ExceptionHandler());
 
-    ExecutorService executor = Executors.newSingleThreadExecutor(threadFactory);
+    final ExecutorService executor;
 
     @Override
     public ExecutorService getExecutor() {
@@ -195,18 +218,17 @@ public class SequencerServer extends AbstractServer {
             cacheSize = Long.parseLong((String) opts.get("--sequencer-cache-size"));
 
         }
-        conflictToGlobalTailCache = Caffeine.newBuilder()
-                .maximumSize(cacheSize)
-                .removalListener((String k, Long v, RemovalCause cause) -> {
-                    if (!RemovalCause.REPLACED.equals(cause)) {
-                         log.trace("Updating maxConflictWildcard. Old value = '{}', new value='{}'"
-                                        + " conflictParam = '{}'. Removal cause = '{}'",
-                                maxConflictWildcard, v, k, cause);
-                        maxConflictWildcard = Math.max(v, maxConflictWildcard);
-                    }
-                })
-                .recordStats()
-                .build();
+        conflictToGlobalTailCache = new SequencerConflictTable(cacheSize, v -> {
+            log.trace("Updating maxConflictWildcard. Old value = '{}', new value='{}'",
+                    maxConflictWildcard, v);
+            maxConflictWildcard.accumulateAndGet(v, Math::max);
+        });
+
+        int threads = 1;
+        if (opts.get("--sequencer-threads") != null) {
+            threads = Integer.parseInt((String) opts.get("--sequencer-threads"));
+        }
+        executor = Executors.newFixedThreadPool(threads, threadFactory);
 
         setUpTimerNameCache();
     }
@@ -222,33 +244,20 @@ public class SequencerServer extends AbstractServer {
         timerNameCache.put(TokenRequest.TK_TX, CorfuComponent.INFRA_SEQUENCER + "tx-token");
     }
 
-    /**
-    * Get the conflict hash code for a stream ID and conflict param.
-    *
-    * @param streamId      The stream ID.
-    * @param conflictParam The conflict parameter.
-    * @return A conflict hash code.
-    */
-    private String getConflictHashCode(UUID streamId, byte[] conflictParam) {
-        return streamId.toString() + Utils.bytesToHex(conflictParam);
-    }
-
     /**
      * If the request submits a timestamp (a global offset) that is less than one of the
      * global offsets of a streams specified in the request, then abort; otherwise commit.
+     * The caller must hold the locks of the streams in the conflict set.
      *
-     * @param txInfo      info provided by corfuRuntime for conflict resolultion:
-     *                    - timestamp : the snapshot (global) offset that this TX reads
-     *                    - conflictSet: conflict set of the txn.
-     *                    if any conflict-param (or stream, if empty) in this set has a later
-     *                    timestamp than the snapshot, abort
-     * @param conflictKey is a return parameter that signals to the consumer which key was
-     *                    responsible for unsuccessful allocation af a token.
-     * @return Returns the type of token reponse based on whether the txn commits, or the abort
-     *     cause.
+     * @param txInfo info provided by corfuRuntime for conflict resolultion:
+     *               - timestamp : the snapshot (global) offset that this TX reads
+     *               - conflictSet: conflict set of the txn.
+     *               if any conflict-param (or stream, if empty) in this set has a later
+     *               timestamp than the snapshot, abort
+     * @return null if the txn can commit, otherwise the abort response, with the key that
+     *     was responsible for the abort (if any)
      */
-    private TokenType txnCanCommit(TxResolutionInfo txInfo, /** Input. */
-                                  AtomicReference<byte[]> conflictKey /** Output. */) {
+    private TokenResponse txnCanCommit(TxResolutionInfo txInfo) {
         log.trace("Commit-req[{}]", txInfo);
         final Token txSnapshotTimestamp = txInfo.getSnapshotTimestamp();
 
@@ -258,41 +267,33 @@ public class SequencerServer extends AbstractServer {
         if (txSnapshotTimestamp.getEpoch() != sequencerEpoch) {
             log.debug("ABORT[{}] snapshot-ts[{}] current epoch[{}]", txInfo,
                     txSnapshotTimestamp, sequencerEpoch);
-            return TokenType.TX_ABORT_NEWSEQ;
+            return abortResponse(TokenType.TX_ABORT_NEWSEQ, TokenResponse.NO_CONFLICT_KEY);
         }
 
         if (txSnapshotTimestamp.getSequence() < trimMark) {
             log.debug("ABORT[{}] snapshot-ts[{}] trimMark-ts[{}]", txInfo,
                     txSnapshotTimestamp, trimMark);
-            return TokenType.TX_ABORT_SEQ_TRIM;
+            return abortResponse(TokenType.TX_ABORT_SEQ_TRIM, TokenResponse.NO_CONFLICT_KEY);
         }
 
-        AtomicReference<TokenType> response = new AtomicReference<>(TokenType.NORMAL);
-
-        for (Map.Entry<UUID, Set<byte[]>> entry : txInfo.getConflictSet().entrySet()) {
-            if (response.get() != TokenType.NORMAL) {
-                break;
-            }
-
+        for (Map.Entry<UUID, long[]> entry : txInfo.getConflictSet().entrySet()) {
             // if conflict-parameters are present, check for conflict based on conflict-parameter
             // updates
-            Set<byte[]> conflictParamSet = entry.getValue();
-            if (conflictParamSet != null && conflictParamSet.size() > 0) {
+            long[] conflictParamSet = entry.getValue();
+            if (conflictParamSet != null && conflictParamSet.length > 0) {
                 // for each key pair, check for conflict;
                 // if not present, check against the wildcard
-                for (byte[] conflictParam : conflictParamSet) {
+                for (long conflictParam : conflictParamSet) {
 
-                    String conflictKeyHash = getConflictHashCode(entry.getKey(),
-                            conflictParam);
-                    Long v = conflictToGlobalTailCache.getIfPresent(conflictKeyHash);
+                    long v = conflictToGlobalTailCache.get(entry.getKey(), conflictParam);
 
                     log.trace("Commit-ck[{}] conflict-key[{}](ts={})", txInfo, conflictParam, v);
 
-                    if (v != null && v > txSnapshotTimestamp.getSequence()) {
+                    if (v != SequencerConflictTable.ABSENT
+                            && v > txSnapshotTimestamp.getSequence()) {
                         log.debug("ABORT[{}] conflict-key[{}](ts={})", txInfo, conflictParam, v);
-                        conflictKey.set(conflictParam);
-                        response.set(TokenType.TX_ABORT_CONFLICT);
-                        break;
+                        return abortResponse(TokenType.TX_ABORT_CONFLICT,
+                                Utils.longToBigEndianByteArray(conflictParam));
                     }
 
                     // The maxConflictNewSequencer is modified whenever a server is elected
@@ -303,37 +304,38 @@ public class SequencerServer extends AbstractServer {
                     if (txSnapshotTimestamp.getSequence() < maxConflictNewSequencer) {
                         log.debug("ABORT[{}] snapshot-ts[{}] WILDCARD New Sequencer ts=[{}]",
                                 txInfo, txSnapshotTimestamp, maxConflictNewSequencer);
-                        response.set(TX_ABORT_NEWSEQ);
-                        break;
+                        return abortResponse(TX_ABORT_NEWSEQ, TokenResponse.NO_CONFLICT_KEY);
                     }
 
                     // If the txSnapshotTimestamp did not fall under the new sequencer threshold
                     // but it does fall under the latest evicted timestamp we report the cause of
                     // abort as SEQUENCER_OVERFLOW
-                    if (txSnapshotTimestamp.getSequence() < maxConflictWildcard) {
+                    if (txSnapshotTimestamp.getSequence() < maxConflictWildcard.get()) {
                         log.debug("ABORT[{}] snapshot-ts[{}] WILDCARD ts=[{}]",
                                 txInfo, txSnapshotTimestamp, maxConflictWildcard);
-                        response.set(TX_ABORT_SEQ_OVERFLOW);
-                        break;
+                        return abortResponse(TX_ABORT_SEQ_OVERFLOW, TokenResponse.NO_CONFLICT_KEY);
                     }
                 }
             } else { // otherwise, check for conflict based on streams updates
                 UUID streamId = entry.getKey();
-                streamTailToGlobalTailMap.compute(streamId, (k, v) -> {
-                    if (v == null) {
-                        return null;
-                    }
-                    if (v > txSnapshotTimestamp.getSequence()) {
-                        log.debug("ABORT[{}] conflict-stream[{}](ts={})",
-                                txInfo, Utils.toReadableId(streamId), v);
-                        response.set(TokenType.TX_ABORT_CONFLICT);
-                    }
-                    return v;
-                });
+                Long v = streamTailToGlobalTailMap.get(streamId);
+                if (v != null && v > txSnapshotTimestamp.getSequence()) {
+                    log.debug("ABORT[{}] conflict-stream[{}](ts={})",
+                            txInfo, Utils.toReadableId(streamId), v);
+                    return abortResponse(TokenType.TX_ABORT_CONFLICT,
+                            TokenResponse.NO_CONFLICT_KEY);
+                }
             }
         }
 
-        return response.get();
+        return null;
+    }
+
+    private TokenResponse abortResponse(TokenType tokenType, byte[] conflictKey) {
+        // If the txn aborts, then DO NOT hand out a token.
+        Token token = new Token(sequencerEpoch, Address.ABORTED);
+        return new TokenResponse(tokenType, conflictKey, token, Collections.emptyMap(),
+                Collections.emptyList());
     }
 
     /**
@@ -342,13 +344,10 @@ public class SequencerServer extends AbstractServer {
      * <p>This returns information about the tail of the
      * log and/or streams without changing/allocating anything.
      *
-     * @param msg corfu message containing token query
-     * @param ctx netty ChannelHandlerContext
-     * @param r   server router
+     * @param req token query
+     * @return the token response
      */
-    private void handleTokenQuery(CorfuPayloadMsg<TokenRequest> msg,
-                                  ChannelHandlerContext ctx, IServerRouter r) {
-        TokenRequest req = msg.getPayload();
+    private TokenResponse handleTokenQuery(TokenRequest req) {
         List<UUID> streams = req.getStreams();
         List<Long> streamTails;
         Token token;
@@ -362,36 +361,35 @@ public class SequencerServer extends AbstractServer {
             streamTails = Collections.emptyList();
         } else {
             // multiple stream query, the token is populated with the global tail and the tail queries are stored in
-            // streamTails
-            token = new Token(sequencerEpoch, globalLogTail.get() - 1);
+            // streamTails. The stream tails are read first, so that the global tail is never
+            // behind them while allocations proceed concurrently.
             streamTails = new ArrayList<>(streams.size());
             for (int x = 0; x < streams.size(); x++) {
                 streamTails.add(streamTailToGlobalTailMap.getOrDefault(streams.get(x), Address.NON_EXIST));
             }
+            token = new Token(sequencerEpoch, globalLogTail.get() - 1);
         }
 
-        r.sendResponse(ctx, msg, CorfuMsgType.TOKEN_RES.payloadMsg(new TokenResponse(
-                TokenType.NORMAL, TokenResponse.NO_CONFLICT_KEY, token, Collections.emptyMap(),
-                streamTails)));
-
+        return new TokenResponse(TokenType.NORMAL, TokenResponse.NO_CONFLICT_KEY, token,
+                Collections.emptyMap(), streamTails);
     }
 
 
     @ServerHandler(type = CorfuMsgType.SEQUENCER_TRIM_REQ)
-    public synchronized void trimCache(CorfuPayloadMsg<Long> msg,
-                                       ChannelHandlerContext ctx, IServerRouter r) {
+    public void trimCache(CorfuPayloadMsg<Long> msg,
+                          ChannelHandlerContext ctx, IServerRouter r) {
         log.info("trimCache: Starting cache eviction");
-        if (trimMark < msg.getPayload()) {
-            // Advance the trim mark, if the new trim request has a higher trim mark.
-            trimMark = msg.getPayload();
-        }
-
-        long entries = 0;
-        for (Map.Entry<String, Long> entry : conflictToGlobalTailCache.asMap().entrySet()) {
-            if (entry.getValue() < trimMark) {
-                conflictToGlobalTailCache.invalidate(entry.getKey());
-                entries++;
+        long entries;
+        sequencerLock.writeLock().lock();
+        try {
+            if (trimMark < msg.getPayload()) {
+                // Advance the trim mark, if the new trim request has a higher trim mark.
+                trimMark = msg.getPayload();
             }
+
+            entries = conflictToGlobalTailCache.invalidateBelow(trimMark);
+        } finally {
+            sequencerLock.writeLock().unlock();
         }
         log.info("trimCache: Evicted {} entries", entries);
         r.sendResponse(ctx, msg, CorfuMsgType.ACK.msg());
@@ -401,8 +399,18 @@ public class SequencerServer extends AbstractServer {
      * Service an incoming request to reset the sequencer.
      */
     @ServerHandler(type = CorfuMsgType.BOOTSTRAP_SEQUENCER)
-    public synchronized void resetServer(CorfuPayloadMsg<SequencerTailsRecoveryMsg> msg,
-                                         ChannelHandlerContext ctx, IServerRouter r) {
+    public void resetServer(CorfuPayloadMsg<SequencerTailsRecoveryMsg> msg,
+                            ChannelHandlerContext ctx, IServerRouter r) {
+        sequencerLock.writeLock().lock();
+        try {
+            resetServerUnsafe(msg, ctx, r);
+        } finally {
+            sequencerLock.writeLock().unlock();
+        }
+    }
+
+    private void resetServerUnsafe(CorfuPayloadMsg<SequencerTailsRecoveryMsg> msg,
+                                   ChannelHandlerContext ctx, IServerRouter r) {
         long initialToken = msg.getPayload().getGlobalTail();
         final Map<UUID, Long> streamTails = msg.getPayload().getStreamTails();
         final long bootstrapMsgEpoch = msg.getPayload().getSequencerEpoch();
@@ -441,12 +449,9 @@ public class SequencerServer extends AbstractServer {
         // Note, this is correct, but conservative (may lead to false abort).
         // It is necessary because we reset the sequencer.
         if (!bootstrapWithoutTailsUpdate) {
-            // Evict all entries from the cache. This eviction triggers the callback modifying the maxConflictWildcard.
-            conflictToGlobalTailCache.cleanUp();
-
             globalLogTail.set(initialToken);
-            maxConflictWildcard = initialToken - 1;
-            maxConflictNewSequencer = maxConflictWildcard;
+            maxConflictWildcard.set(initialToken - 1);
+            maxConflictNewSequencer = initialToken - 1;
 
             // Clear the existing map as it could have been populated by an earlier reset.
             streamTailToGlobalTailMap.clear();
@@ -479,29 +484,96 @@ public class SequencerServer extends AbstractServer {
      * Service an incoming token request.
      */
     @ServerHandler(type = CorfuMsgType.TOKEN_REQ)
-    public synchronized void tokenRequest(CorfuPayloadMsg<TokenRequest> msg,
-                                          ChannelHandlerContext ctx, IServerRouter r) {
-        TokenRequest req = msg.getPayload();
+    public void tokenRequest(CorfuPayloadMsg<TokenRequest> msg,
+                             ChannelHandlerContext ctx, IServerRouter r) {
+        TokenResponse response;
+        sequencerLock.readLock().lock();
+        try {
+            response = serveToken(msg.getPayload());
+        } finally {
+            sequencerLock.readLock().unlock();
+        }
+        r.sendResponse(ctx, msg, CorfuMsgType.TOKEN_RES.payloadMsg(response));
+    }
+
+    /**
+     * Service an incoming batch of token requests.
+     *
+     * <p>The requests are served in order in a single pass, each one with its own
+     * backpointers and conflict resolution, as if they had been sent one at a time.
+     */
+    @ServerHandler(type = CorfuMsgType.TOKEN_BATCH_REQ)
+    public void tokenBatchRequest(CorfuPayloadMsg<TokenBatchRequest> msg,
+                                  ChannelHandlerContext ctx, IServerRouter r) {
+        final List<TokenRequest> requests = msg.getPayload().getRequests();
+        final List<TokenResponse> responses = new ArrayList<>(requests.size());
+        sequencerLock.readLock().lock();
+        try {
+            for (TokenRequest req : requests) {
+                responses.add(serveToken(req));
+            }
+        } finally {
+            sequencerLock.readLock().unlock();
+        }
+        r.sendResponse(ctx, msg, CorfuMsgType.TOKEN_BATCH_RES.payloadMsg(
+                new TokenBatchResponse(responses)));
+    }
+
+    /**
+     * Serve a single token request, the caller must hold the read lock.
+     *
+     * @param req token request
+     * @return the token response
+     */
+    private TokenResponse serveToken(TokenRequest req) {
         final Timer timer = getTimer(req.getReqType());
 
         // dispatch request handler according to request type while collecting the timer metrics
         try (Timer.Context context = MetricsUtils.getConditionalContext(timer)) {
             switch (req.getReqType()) {
                 case TokenRequest.TK_QUERY:
-                    handleTokenQuery(msg, ctx, r);
-                    return;
+                    return handleTokenQuery(req);
 
                 case TokenRequest.TK_RAW:
-                    handleRawToken(msg, ctx, r);
-                    return;
-
-                case TokenRequest.TK_TX:
-                    handleTxToken(msg, ctx, r);
-                    return;
+                    return handleRawToken(req);
 
                 default:
-                    handleAllocation(msg, ctx, r);
-                    return;
+                    return handleStreamToken(req);
+            }
+        }
+    }
+
+    /**
+     * Serve a token request that allocates addresses on streams (multi-stream and
+     * transaction tokens) while holding the locks of all the streams it touches, so
+     * that the conflict checks, the allocation and the tail updates are atomic with
+     * respect to other requests on those streams.
+     *
+     * @param req token request
+     * @return the token response
+     */
+    private TokenResponse handleStreamToken(TokenRequest req) {
+        final TxResolutionInfo txInfo = req.getTxnResolution();
+
+        Iterable<UUID> streams = req.getStreams();
+        if (txInfo != null) {
+            streams = Iterables.concat(streams, txInfo.getConflictSet().keySet(),
+                    txInfo.getWriteConflictParams().keySet());
+        }
+
+        Iterable<Lock> locks = streamLocks.bulkGet(streams);
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+        try {
+            if (req.getReqType() == TokenRequest.TK_TX) {
+                return handleTxToken(req);
+            } else {
+                return handleAllocation(req);
+            }
+        } finally {
+            for (Lock lock : locks) {
+                lock.unlock();
             }
         }
     }
@@ -523,18 +595,13 @@ public class SequencerServer extends AbstractServer {
      * this method serves log-tokens for a raw log implementation.
      * it simply extends the global log tail and returns the global-log token
      *
-     * @param msg corfu message containing raw token
-     * @param ctx netty ChannelHandlerContext
-     * @param r   server router
+     * @param req raw token request
+     * @return the token response
      */
-    private void handleRawToken(CorfuPayloadMsg<TokenRequest> msg,
-                                ChannelHandlerContext ctx, IServerRouter r) {
-        final TokenRequest req = msg.getPayload();
-
+    private TokenResponse handleRawToken(TokenRequest req) {
         Token token = new Token(sequencerEpoch, globalLogTail.getAndAdd(req.getNumTokens()));
-        r.sendResponse(ctx, msg, CorfuMsgType.TOKEN_RES.payloadMsg(new TokenResponse(
-                TokenType.NORMAL, TokenResponse.NO_CONFLICT_KEY, token, Collections.emptyMap(), Collections.emptyList())));
-
+        return new TokenResponse(TokenType.NORMAL, TokenResponse.NO_CONFLICT_KEY, token,
+                Collections.emptyMap(), Collections.emptyList());
     }
 
     /**
@@ -546,35 +613,23 @@ public class SequencerServer extends AbstractServer {
      * - if the transaction may commit,
      * then a normal allocation of log position(s) is pursued.
      *
-     * @param msg corfu message containing transaction token
-     * @param ctx netty ChannelHandlerContext
-     * @param r   server router
+     * @param req transaction token request
+     * @return the token response
      */
-    private void handleTxToken(CorfuPayloadMsg<TokenRequest> msg,
-                               ChannelHandlerContext ctx, IServerRouter r) {
-        final TokenRequest req = msg.getPayload();
-
-        // Since Java does not allow an easy way for a function to return multiple values, this
-        // variable is passed to the consumer that will use it to indicate to us if/what key was
-        // responsible for an aborted transaction.
-        AtomicReference<byte[]> conflictKey = new AtomicReference(TokenResponse.NO_CONFLICT_KEY);
+    private TokenResponse handleTxToken(TokenRequest req) {
 
         // in the TK_TX request type, the sequencer is utilized for transaction conflict-resolution.
         // Token allocation is conditioned on commit.
         // First, we check if the transaction can commit.
-        TokenType tokenType = txnCanCommit(req.getTxnResolution(), conflictKey);
-        if (tokenType != TokenType.NORMAL) {
-            // If the txn aborts, then DO NOT hand out a token.
-            Token token = new Token(sequencerEpoch, Address.ABORTED);
-            r.sendResponse(ctx, msg, CorfuMsgType.TOKEN_RES.payloadMsg(new TokenResponse(tokenType,
-                    conflictKey.get(), token, Collections.emptyMap(), Collections.emptyList())));
-            return;
+        TokenResponse abortResponse = txnCanCommit(req.getTxnResolution());
+        if (abortResponse != null) {
+            return abortResponse;
         }
 
         // if we get here, this means the transaction can commit.
         // handleAllocation() does the actual allocation of log position(s)
         // and returns the reponse
-        handleAllocation(msg, ctx, r);
+        return handleAllocation(req);
     }
 
     /**
@@ -582,13 +637,10 @@ public class SequencerServer extends AbstractServer {
      * it also maintains stream-tails, returns a map of stream-tails for backpointers,
      * and maintains a conflict-parameters map.
      *
-     * @param msg corfu message containing allocation
-     * @param ctx netty ChannelHandlerContext
-     * @param r   server router
+     * @param req token request to allocate addresses for
+     * @return the token response
      */
-    private void handleAllocation(CorfuPayloadMsg<TokenRequest> msg,
-                                  ChannelHandlerContext ctx, IServerRouter r) {
-        final TokenRequest req = msg.getPayload();
+    private TokenResponse handleAllocation(TokenRequest req) {
 
         // extend the tail of the global log by the requested # of tokens
         // currentTail is the first available position in the global log
@@ -599,46 +651,43 @@ public class SequencerServer extends AbstractServer {
         //   1. obtain the last back-pointer for this streams, if exists; -1L otherwise.
         //   2. record the new global tail as back-pointer for this streams.
         //   3. extend the tail by the requested # tokens.
-        ImmutableMap.Builder<UUID, Long> backPointerMap = ImmutableMap.builder();
-        for (UUID id : req.getStreams()) {
-
-            // step 1. and 2. (comment above)
-            streamTailToGlobalTailMap.compute(id, (k, v) -> {
-                if (v == null) {
-                    backPointerMap.put(k, Address.NON_EXIST);
-                    return newTail - 1;
-                } else {
-                    backPointerMap.put(k, v);
-                    return newTail - 1;
-                }
-            });
+        // The stream locks are held, so the tails can't change between steps 1. and 2.
+        final List<UUID> streams = req.getStreams();
+        final Map<UUID, Long> backPointerMap;
+        if (streams.isEmpty()) {
+            backPointerMap = Collections.emptyMap();
+        } else if (streams.size() == 1) {
+            Long v = streamTailToGlobalTailMap.put(streams.get(0), newTail - 1);
+            backPointerMap = Collections.singletonMap(streams.get(0),
+                    v == null ? Address.NON_EXIST : v);
+        } else {
+            backPointerMap = new HashMap<>(streams.size() * 2);
+            for (UUID id : streams) {
+                // step 1. and 2. (comment above)
+                Long v = streamTailToGlobalTailMap.put(id, newTail - 1);
+                backPointerMap.put(id, v == null ? Address.NON_EXIST : v);
+            }
         }
 
         // update the cache of conflict parameters
         if (req.getTxnResolution() != null) {
-            req.getTxnResolution().getWriteConflictParams().entrySet()
-                    .stream()
-                    // for each entry
-                    .forEach(txEntry ->
-                            // and for each conflict param
-                            txEntry.getValue().stream().forEach(conflictParam ->
-                                    // insert an entry with the new timestamp
-                                    // using the hash code based on the param
-                                    // and the stream id.
-                                    conflictToGlobalTailCache.put(
-                                            getConflictHashCode(txEntry
-                                                    .getKey(), conflictParam),
-                                            newTail - 1)));
+            // for each entry
+            for (Map.Entry<UUID, long[]> txEntry
+                    : req.getTxnResolution().getWriteConflictParams().entrySet()) {
+                // and for each conflict param insert an entry with the new timestamp
+                for (long conflictParam : txEntry.getValue()) {
+                    conflictToGlobalTailCache.put(txEntry.getKey(), conflictParam,
+                            newTail - 1);
+                }
+            }
         }
 
-        log.trace("token {} backpointers {}",
-                currentTail, backPointerMap.build());
+        log.trace("token {} backpointers {}", currentTail, backPointerMap);
         // return the token response with the new global tail
         // and the streams backpointers
         Token token = new Token(sequencerEpoch, currentTail);
-        r.sendResponse(ctx, msg, CorfuMsgType.TOKEN_RES.payloadMsg(new TokenResponse(
-                TokenType.NORMAL, TokenResponse.NO_CONFLICT_KEY, token,
-                backPointerMap.build(), Collections.emptyList())));
+        return new TokenResponse(TokenType.NORMAL, TokenResponse.NO_CONFLICT_KEY, token,
+                backPointerMap, Collections.emptyList());
     }
 
     @Override
@@ -648,7 +697,7 @@ public class SequencerServer extends AbstractServer {
     }
 
     @VisibleForTesting
-    public Cache<String, Long> getConflictToGlobalTailCache() {
+    public SequencerConflictTable getConflictToGlobalTailCache() {
         return conflictToGlobalTailCache;
     }
 }
@@ -13,9 +13,12 @@ import org.corfudb.protocols.wireprotocol.CorfuPayloadMsg;
 import org.corfudb.protocols.wireprotocol.HandshakeMsg;
 import org.corfudb.protocols.wireprotocol.HandshakeResponse;
 import org.corfudb.protocols.wireprotocol.HandshakeState;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
 
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -117,8 +120,15 @@ public class ServerHandshakeHandler extends ChannelDuplexHandler {
         log.debug("channelRead: Sending handshake response: Node Id: {} Corfu Version: {}",
                 this.nodeId, this.corfuVersion);
 
+        // Log entries are stored as they are received, so any codec
+        // this version knows about can be accepted.
+        Set<PayloadCodec> payloadCodecs = EnumSet.of(PayloadCodec.NONE);
+        payloadCodecs.addAll(handshake.getPayload().getPayloadCodecs());
+        payloadCodecs.retainAll(PayloadCodec.SUPPORTED);
+
         CorfuMsg handshakeResponse = CorfuMsgType.HANDSHAKE_RESPONSE
-                .payloadMsg(new HandshakeResponse(this.nodeId, this.corfuVersion));
+                .payloadMsg(new HandshakeResponse(this.nodeId, this.corfuVersion,
+                        payloadCodecs));
         ctx.writeAndFlush(handshakeResponse);
 
         // Flush messages in queue
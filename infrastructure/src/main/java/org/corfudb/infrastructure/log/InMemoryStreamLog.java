@@ -45,8 +45,10 @@ public class InMemoryStreamLog implements StreamLog, StreamLogWithRankedAddressS
                 continue;
             }
 
-            logCache.put(entry.getGlobalAddress(), entry);
+            // The metadata is updated first, so that the stream addresses index every
+            // address which is visible
             logMetadata.update(entry);
+            logCache.put(entry.getGlobalAddress(), entry);
         }
     }
 
@@ -59,8 +61,8 @@ public class InMemoryStreamLog implements StreamLog, StreamLogWithRankedAddressS
         if (logCache.containsKey(address)) {
             throwLogUnitExceptionsIfNecessary(address, entry);
         }
-        logCache.put(address, entry);
         logMetadata.update(entry);
+        logCache.put(address, entry);
     }
 
     private boolean isTrimmed(long address) {
@@ -73,6 +75,7 @@ public class InMemoryStreamLog implements StreamLog, StreamLogWithRankedAddressS
             log.warn("prefixTrim: Ignoring repeated trim {}", address);
         } else {
             startingAddress = address + 1;
+            logMetadata.getStreamAddresses().prefixTrim(startingAddress);
         }
     }
 
@@ -85,6 +88,11 @@ public class InMemoryStreamLog implements StreamLog, StreamLogWithRankedAddressS
         return new TailsResponse(logMetadata.getGlobalTail(), tails);
     }
 
+    @Override
+    public long[] getStreamAddresses(UUID streamId, long start, long end, int limit) {
+        return logMetadata.getStreamAddresses().get(streamId, start, end, limit);
+    }
+
     @Override
     public long getTrimMark() {
         return startingAddress;
@@ -115,6 +123,11 @@ public class InMemoryStreamLog implements StreamLog, StreamLogWithRankedAddressS
         return logCache.get(address);
     }
 
+    @Override
+    public boolean contains(long address) {
+        return isTrimmed(address) || logCache.containsKey(address);
+    }
+
     @Override
     public void sync(boolean force){
         //no-op
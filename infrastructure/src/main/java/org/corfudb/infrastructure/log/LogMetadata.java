@@ -6,21 +6,24 @@ import lombok.extern.slf4j.Slf4j;
 import org.corfudb.protocols.wireprotocol.LogData;
 import org.corfudb.runtime.view.Address;
 
-import javax.annotation.concurrent.NotThreadSafe;
-import java.util.HashMap;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A container object that holds log tail offsets and the global
  * log tail that has been seen. Note that holes don't belong to any
  * stream therefore the globalTail needs to be tracked separately.
+ * The tails are updated concurrently by the write lanes of the log unit.
  *
  * <p>Created by maithem on 10/15/18.
  */
 
-@NotThreadSafe
+@ThreadSafe
 @ToString
 @Slf4j
 public class LogMetadata {
@@ -31,9 +34,13 @@ public class LogMetadata {
     @Getter
     private final Map<UUID, Long> streamTails;
 
+    @Getter
+    private final StreamAddressIndex streamAddresses;
+
     public LogMetadata() {
         this.globalTail = Address.NON_ADDRESS;
-        this.streamTails = new HashMap();
+        this.streamTails = new ConcurrentHashMap<>();
+        this.streamAddresses = new StreamAddressIndex();
     }
 
     public void update(List<LogData> entries) {
@@ -43,11 +50,27 @@ public class LogMetadata {
     }
 
     public void update(LogData entry) {
-        long entryAddress = entry.getGlobalAddress();
+        update(entry.getGlobalAddress(), entry.getStreams(), entry.hasCheckpointMetadata(),
+                entry.getCheckpointedStreamId(), entry.getCheckpointedStreamStartLogAddress());
+    }
+
+    /**
+     * Update the tails with a record which was indexed in a segment, without reading it.
+     *
+     * @param record the metadata of the record
+     */
+    public void update(RecordMetadata record) {
+        update(record.getAddress(), Arrays.asList(record.getStreams()),
+                record.hasCheckpointMetadata(), record.getCheckpointedStreamId(),
+                record.getCheckpointedStreamStartLogAddress());
+    }
+
+    private void update(long entryAddress, Collection<UUID> streams, boolean isCheckpoint,
+                        UUID checkpointedStreamId, long streamTailAtCP) {
         updateGlobalTail(entryAddress);
-        for (UUID streamId : entry.getStreams()) {
-            long currentStreamTail = streamTails.getOrDefault(streamId, Address.NON_ADDRESS);
-            streamTails.put(streamId, Math.max(currentStreamTail, entryAddress));
+        for (UUID streamId : streams) {
+            streamTails.merge(streamId, entryAddress, Math::max);
+            streamAddresses.add(streamId, entryAddress);
         }
 
         // We should also consider checkpoint metadata while updating the tails.
@@ -55,10 +78,7 @@ public class LogMetadata {
         // data on the checkpoint stream, but not entries on the regular stream.
         // If those streams are not updated, then clients would observe those
         // streams as empty, which is not correct.
-        if (entry.hasCheckpointMetadata()) {
-            UUID streamId = entry.getCheckpointedStreamId();
-            long streamTailAtCP = entry.getCheckpointedStreamStartLogAddress();
-
+        if (isCheckpoint) {
             if (Address.isAddress(streamTailAtCP)) {
                 // TODO(Maithem) This is needed to filter out checkpoints of empty streams,
                 // if the map has an entry (streamId, Address.Non_ADDRESS), then
@@ -66,13 +86,12 @@ public class LogMetadata {
                 // "think" that the tail is not empty and return Address.Non_ADDRESS
                 // instead of NON_EXIST. The sequencer, should handle both cases,
                 // but that can be addressed in another issue.
-                long currentStreamTail = streamTails.getOrDefault(streamId, Address.NON_ADDRESS);
-                streamTails.put(streamId, Math.max(currentStreamTail, streamTailAtCP));
+                streamTails.merge(checkpointedStreamId, streamTailAtCP, Math::max);
             }
         }
     }
 
-    public void updateGlobalTail(long newTail) {
+    public synchronized void updateGlobalTail(long newTail) {
         globalTail = Math.max(globalTail, newTail);
     }
 
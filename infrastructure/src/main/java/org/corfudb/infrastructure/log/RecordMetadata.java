@@ -0,0 +1,108 @@
+package org.corfudb.infrastructure.log;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import lombok.Getter;
+import org.corfudb.protocols.wireprotocol.LogData;
+import org.corfudb.runtime.view.Address;
+
+/**
+ * The part of a record that the log metadata is built from: the streams of the record,
+ * and the stream it checkpoints. It is kept in the index of a complete segment, so that
+ * the log metadata can be rebuilt on startup without reading the records of the segment.
+ */
+@Getter
+class RecordMetadata {
+
+    private static final UUID NO_STREAM = new UUID(0L, 0L);
+
+    private final long address;
+
+    private final UUID[] streams;
+
+    private final UUID checkpointedStreamId;
+
+    private final long checkpointedStreamStartLogAddress;
+
+    private RecordMetadata(long address, UUID[] streams, UUID checkpointedStreamId,
+                           long checkpointedStreamStartLogAddress) {
+        this.address = address;
+        this.streams = streams;
+        this.checkpointedStreamId = checkpointedStreamId;
+        this.checkpointedStreamStartLogAddress = checkpointedStreamStartLogAddress;
+    }
+
+    /**
+     * Get the metadata of a record.
+     *
+     * @param entry the entry of the record
+     * @return the metadata of the record
+     */
+    static RecordMetadata of(LogData entry) {
+        UUID[] streams = entry.getStreams().toArray(new UUID[0]);
+        if (entry.hasCheckpointMetadata() && entry.getCheckpointedStreamId() != null) {
+            return new RecordMetadata(entry.getGlobalAddress(), streams,
+                    entry.getCheckpointedStreamId(),
+                    entry.getCheckpointedStreamStartLogAddress());
+        }
+        return new RecordMetadata(entry.getGlobalAddress(), streams, NO_STREAM,
+                Address.NON_ADDRESS);
+    }
+
+    /**
+     * Whether the record is a checkpoint entry.
+     */
+    boolean hasCheckpointMetadata() {
+        return !NO_STREAM.equals(checkpointedStreamId);
+    }
+
+    /**
+     * The size of the metadata when serialized.
+     */
+    int getSerializedSize() {
+        // address, checkpointed stream, checkpoint start address, and streams
+        return Long.BYTES + 2 * Long.BYTES + Long.BYTES
+                + Integer.BYTES + streams.length * 2 * Long.BYTES;
+    }
+
+    /**
+     * Serialize the metadata to a buffer.
+     *
+     * @param buf buffer with at least {@link #getSerializedSize()} bytes remaining
+     */
+    void serialize(ByteBuffer buf) {
+        buf.putLong(address);
+        buf.putLong(checkpointedStreamId.getMostSignificantBits());
+        buf.putLong(checkpointedStreamId.getLeastSignificantBits());
+        buf.putLong(checkpointedStreamStartLogAddress);
+        buf.putInt(streams.length);
+        for (UUID stream : streams) {
+            buf.putLong(stream.getMostSignificantBits());
+            buf.putLong(stream.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Deserialize metadata from a buffer.
+     *
+     * @param buf buffer positioned at serialized metadata
+     * @return the deserialized metadata
+     * @throws java.nio.BufferUnderflowException if the buffer is truncated
+     */
+    static RecordMetadata deserialize(ByteBuffer buf) {
+        long address = buf.getLong();
+        UUID checkpointedStreamId = new UUID(buf.getLong(), buf.getLong());
+        long checkpointedStreamStartLogAddress = buf.getLong();
+        int numStreams = buf.getInt();
+        if (numStreams < 0 || numStreams * 2L * Long.BYTES > buf.remaining()) {
+            throw new IllegalArgumentException("Invalid number of streams " + numStreams);
+        }
+        UUID[] streams = new UUID[numStreams];
+        for (int i = 0; i < numStreams; i++) {
+            streams[i] = new UUID(buf.getLong(), buf.getLong());
+        }
+        return new RecordMetadata(address, streams, checkpointedStreamId,
+                checkpointedStreamStartLogAddress);
+    }
+}
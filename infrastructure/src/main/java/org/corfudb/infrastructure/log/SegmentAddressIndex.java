@@ -0,0 +1,209 @@
+package org.corfudb.infrastructure.log;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A compact index of the records of a log segment. A segment holds a dense range of
+ * addresses, so instead of a map of boxed addresses the metadata of each record is kept
+ * in primitive slabs indexed by the address offset within the segment.
+ *
+ * <p>Lookups are lock-free. Updates are serialized by the segment write lock (or happen
+ * before the segment handle is published), an overwrite of an existing record (i.e. a
+ * ranked write) marks the record as being updated so that concurrent readers retry
+ * instead of observing a torn record.
+ */
+@ThreadSafe
+class SegmentAddressIndex {
+
+    private static final long NO_OFFSET = -1L;
+
+    private static final long UPDATING = -2L;
+
+    private static final long INT_MASK = 0xFFFFFFFFL;
+
+    private final long firstAddress;
+
+    private final int capacity;
+
+    /**
+     * File channel offset of each record, or NO_OFFSET if the address is unknown.
+     */
+    private final AtomicLongArray offsets;
+
+    /**
+     * Length (high word) and checksum (low word) of each record.
+     */
+    private final AtomicLongArray records;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Returns an empty index for a segment.
+     *
+     * @param firstAddress first address of the segment
+     * @param capacity     number of addresses in the segment
+     */
+    SegmentAddressIndex(long firstAddress, int capacity) {
+        this.firstAddress = firstAddress;
+        this.capacity = capacity;
+        this.offsets = new AtomicLongArray(capacity);
+        this.records = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            offsets.set(i, NO_OFFSET);
+        }
+    }
+
+    private static int toIndex(long firstAddress, int capacity, long address) {
+        long index = address - firstAddress;
+        if (index < 0 || index >= capacity) {
+            throw new IllegalArgumentException("Address " + address + " is not in segment ["
+                    + firstAddress + ", " + (firstAddress + capacity) + ")");
+        }
+        return (int) index;
+    }
+
+    /**
+     * Returns true if a record is known for this address.
+     */
+    boolean contains(long address) {
+        return offsets.get(toIndex(firstAddress, capacity, address)) != NO_OFFSET;
+    }
+
+    /**
+     * Get the metadata of the record written at an address.
+     *
+     * @param address address to look up
+     * @return the record metadata, or null if the address is unknown
+     */
+    @Nullable
+    AddressMetaData get(long address) {
+        int index = toIndex(firstAddress, capacity, address);
+        while (true) {
+            long offset = offsets.get(index);
+            if (offset == NO_OFFSET) {
+                return null;
+            } else if (offset == UPDATING) {
+                Thread.yield();
+                continue;
+            }
+
+            long record = records.get(index);
+            // Offsets of overwritten records always change, so an unchanged offset
+            // means the record was read consistently.
+            if (offsets.get(index) == offset) {
+                return new AddressMetaData((int) (record & INT_MASK), (int) (record >>> 32),
+                        offset);
+            }
+        }
+    }
+
+    /**
+     * Add or replace the metadata of the record written at an address.
+     *
+     * @param address  address of the record
+     * @param checksum checksum of the record payload
+     * @param length   length of the record
+     * @param offset   file channel offset of the record
+     */
+    void put(long address, int checksum, int length, long offset) {
+        int index = toIndex(firstAddress, capacity, address);
+        long record = ((long) length << 32) | (checksum & INT_MASK);
+        if (offsets.get(index) == NO_OFFSET) {
+            records.set(index, record);
+            offsets.set(index, offset);
+            size.incrementAndGet();
+        } else {
+            offsets.set(index, UPDATING);
+            records.set(index, record);
+            offsets.set(index, offset);
+        }
+    }
+
+    /**
+     * Returns the number of known addresses.
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Apply an action to every known address, in ascending order.
+     */
+    void forEach(LongConsumer action) {
+        for (int i = 0; i < capacity; i++) {
+            if (offsets.get(i) != NO_OFFSET) {
+                action.accept(firstAddress + i);
+            }
+        }
+    }
+
+    /**
+     * A concurrent bitset of the addresses of a segment.
+     */
+    @ThreadSafe
+    static class AddressSet {
+
+        private final long firstAddress;
+
+        private final int capacity;
+
+        private final AtomicLongArray words;
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        AddressSet(long firstAddress, int capacity) {
+            this.firstAddress = firstAddress;
+            this.capacity = capacity;
+            this.words = new AtomicLongArray((capacity + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        /**
+         * Add an address to the set.
+         *
+         * @return true if the address was not already in the set
+         */
+        boolean add(long address) {
+            int index = toIndex(firstAddress, capacity, address);
+            int word = index / Long.SIZE;
+            long mask = 1L << index;
+            while (true) {
+                long current = words.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+                if (words.compareAndSet(word, current, current | mask)) {
+                    size.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+
+        boolean contains(long address) {
+            int index = toIndex(firstAddress, capacity, address);
+            return (words.get(index / Long.SIZE) & (1L << index)) != 0;
+        }
+
+        int size() {
+            return size.get();
+        }
+
+        /**
+         * Apply an action to every address in the set, in ascending order.
+         */
+        void forEach(LongConsumer action) {
+            for (int word = 0; word < words.length(); word++) {
+                long bits = words.get(word);
+                while (bits != 0) {
+                    int bit = Long.numberOfTrailingZeros(bits);
+                    action.accept(firstAddress + (long) word * Long.SIZE + bit);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+}
@@ -1,18 +1,19 @@
 package org.corfudb.infrastructure.log;
 
+import io.netty.util.internal.PlatformDependent;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The global log is partition into segments, each segment contains a range of consecutive
@@ -40,14 +41,55 @@ class SegmentHandle {
     @NonNull
     String fileName;
 
-    private final Map<Long, AddressMetaData> knownAddresses = new ConcurrentHashMap<>();
-    private final Set<Long> trimmedAddresses = Collections.newSetFromMap(new ConcurrentHashMap<>());
-    private final Set<Long> pendingTrims = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final SegmentAddressIndex knownAddresses;
+    private final SegmentAddressIndex.AddressSet trimmedAddresses;
+    private final SegmentAddressIndex.AddressSet pendingTrims;
     private volatile int refCount = 0;
 
+    /**
+     * Whether the handle was closed, after which it can't be retained anymore.
+     */
+    @Setter(AccessLevel.NONE)
+    private volatile boolean closed = false;
 
-    public synchronized void retain() {
+    /**
+     * A read-only mapping of the segment file. It is only created once the segment
+     * is complete, after which its records are immutable and can be read concurrently
+     * without going through the read channel.
+     */
+    private volatile MappedByteBuffer mappedReadBuffer;
+
+    /**
+     * Returns a handle to a segment with empty address indexes.
+     */
+    SegmentHandle(long segment, @NonNull FileChannel writeChannel,
+                  @NonNull FileChannel readChannel, @NonNull FileChannel trimmedChannel,
+                  @NonNull FileChannel pendingTrimChannel, @NonNull String fileName) {
+        this.segment = segment;
+        this.writeChannel = writeChannel;
+        this.readChannel = readChannel;
+        this.trimmedChannel = trimmedChannel;
+        this.pendingTrimChannel = pendingTrimChannel;
+        this.fileName = fileName;
+
+        final int capacity = StreamLogFiles.RECORDS_PER_LOG_FILE;
+        final long firstAddress = segment * capacity;
+        this.knownAddresses = new SegmentAddressIndex(firstAddress, capacity);
+        this.trimmedAddresses = new SegmentAddressIndex.AddressSet(firstAddress, capacity);
+        this.pendingTrims = new SegmentAddressIndex.AddressSet(firstAddress, capacity);
+    }
+
+    /**
+     * Retain the handle, unless it is closed.
+     *
+     * @return true if the handle was retained, false if it is closed
+     */
+    public synchronized boolean tryRetain() {
+        if (closed) {
+            return false;
+        }
         refCount++;
+        return true;
     }
 
     public synchronized void release() {
@@ -55,9 +97,35 @@ class SegmentHandle {
             throw new IllegalStateException("refCount cannot be less than 0, segment " + segment);
         }
         refCount--;
+        if (closed && refCount == 0) {
+            unmapReadBuffer();
+        }
     }
 
+    /**
+     * Unmap the read-only mapping of the segment, if there is one. This must only
+     * be done once no reader can access the mapping anymore.
+     */
+    private void unmapReadBuffer() {
+        MappedByteBuffer mapped = mappedReadBuffer;
+        mappedReadBuffer = null;
+        if (mapped != null) {
+            PlatformDependent.freeDirectBuffer(mapped);
+        }
+    }
+
+    /**
+     * Close the channels of the segment. The read-only mapping of the segment is
+     * unmapped now, or once the handle is released by its last reader.
+     */
     public void close() {
+        synchronized (this) {
+            closed = true;
+            if (refCount == 0) {
+                unmapReadBuffer();
+            }
+        }
+
         Set<FileChannel> channels = new HashSet<>(
                 Arrays.asList(writeChannel, readChannel, trimmedChannel, pendingTrimChannel)
         );
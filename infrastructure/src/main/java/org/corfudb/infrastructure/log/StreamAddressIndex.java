@@ -0,0 +1,227 @@
+package org.corfudb.infrastructure.log;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.extern.slf4j.Slf4j;
+import org.corfudb.runtime.view.Address;
+
+/**
+ * An index of the addresses of each stream written to a log unit, which lets clients
+ * resolve the addresses of a stream without following its backpointers.
+ *
+ * <p>The addresses of a stream are kept sorted in a primitive array. Entries are mostly
+ * appended in ascending order, so an insertion usually only appends to the array.
+ *
+ * <p>The index is held on heap and is not persisted, it is rebuilt from the log when the
+ * log unit starts. Each address takes 8 bytes (up to twice that while an array grows), so
+ * the number of addresses it holds is bounded. Once the bound is exceeded, the coldest
+ * streams, those whose last address is the lowest, are evicted until a quarter of the
+ * bound is free. The addresses of an evicted stream are no longer known, so the index
+ * only covers the addresses above the eviction mark of the streams which are created
+ * after an eviction. Ranges which start below the covered addresses of a stream are not
+ * resolved, and are left to be resolved by following backpointers.
+ */
+@ThreadSafe
+@Slf4j
+public class StreamAddressIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The default bound of the number of indexed addresses, which takes about 32MB.
+     */
+    public static final long DEFAULT_MAX_ADDRESSES = 1 << 22;
+
+    private final Map<UUID, Addresses> streams = new ConcurrentHashMap<>();
+
+    private final long maxAddresses;
+
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Every address of the evicted streams is lower than or equal to this address.
+     */
+    private volatile long evictionMark = Address.NON_ADDRESS;
+
+    public StreamAddressIndex() {
+        this(DEFAULT_MAX_ADDRESSES);
+    }
+
+    public StreamAddressIndex(long maxAddresses) {
+        this.maxAddresses = maxAddresses;
+    }
+
+    /**
+     * Add an address to the index of a stream.
+     *
+     * @param streamId stream the address belongs to
+     * @param address  global address of the entry
+     */
+    public void add(UUID streamId, long address) {
+        // Adding under the map lock of the stream, so that a concurrent trim or eviction
+        // doesn't remove the addresses of the stream while the address is added
+        streams.compute(streamId, (id, addresses) -> {
+            Addresses result = addresses == null ? new Addresses(evictionMark + 1) : addresses;
+            if (result.add(address)) {
+                size.incrementAndGet();
+            }
+            return result;
+        });
+
+        if (size.get() > maxAddresses) {
+            evict();
+        }
+    }
+
+    /**
+     * Get the addresses of a stream in a range, up to a limit.
+     *
+     * @param streamId stream to look up
+     * @param start    first address of the range, inclusive
+     * @param end      last address of the range, inclusive
+     * @param limit    maximum number of addresses to return
+     * @return the first addresses of the stream in the range, in ascending order, or null
+     *         if the index doesn't cover the addresses of the stream from the start of the
+     *         range
+     */
+    @Nullable
+    public long[] get(UUID streamId, long start, long end, int limit) {
+        Addresses addresses = streams.get(streamId);
+        long coveredFrom = addresses == null ? evictionMark + 1 : addresses.coveredFrom;
+        if (start < coveredFrom) {
+            return null;
+        }
+        if (addresses == null || start > end) {
+            return new long[0];
+        }
+        return addresses.range(start, end, limit);
+    }
+
+    /**
+     * Remove all the addresses lower than a trim mark.
+     *
+     * @param trimMark addresses below this address are removed
+     */
+    public void prefixTrim(long trimMark) {
+        for (UUID streamId : streams.keySet()) {
+            streams.computeIfPresent(streamId, (id, addresses) -> {
+                size.addAndGet(-addresses.removeBelow(trimMark));
+                return addresses.isEmpty() ? null : addresses;
+            });
+        }
+    }
+
+    /**
+     * Evict the coldest streams, until a quarter of the bound is free.
+     */
+    private synchronized void evict() {
+        if (size.get() <= maxAddresses) {
+            return;
+        }
+
+        List<Map.Entry<UUID, Long>> lastAddresses = new ArrayList<>(streams.size());
+        streams.forEach((id, addresses) ->
+                lastAddresses.add(new AbstractMap.SimpleEntry<>(id, addresses.last())));
+        lastAddresses.sort(Comparator.comparingLong(Map.Entry::getValue));
+
+        final long target = maxAddresses - maxAddresses / 4;
+        int evicted = 0;
+        for (Map.Entry<UUID, Long> stream : lastAddresses) {
+            if (size.get() <= target) {
+                break;
+            }
+            streams.computeIfPresent(stream.getKey(), (id, addresses) -> {
+                // The mark is raised before the stream is removed, so that the addresses
+                // of the stream indexed from now on are only covered above it
+                evictionMark = Math.max(evictionMark, addresses.last());
+                size.addAndGet(-addresses.size());
+                return null;
+            });
+            evicted++;
+        }
+        log.debug("evict: evicted {} streams, eviction mark {}", evicted, evictionMark);
+    }
+
+    /**
+     * Returns the number of indexed streams.
+     */
+    public int size() {
+        return streams.size();
+    }
+
+    /**
+     * A sorted set of addresses.
+     */
+    private static final class Addresses {
+        /** The addresses of the stream from this one on are all indexed. */
+        private final long coveredFrom;
+        private long[] addresses = new long[INITIAL_CAPACITY];
+        private int size = 0;
+
+        Addresses(long coveredFrom) {
+            this.coveredFrom = coveredFrom;
+        }
+
+        synchronized boolean add(long address) {
+            int index = size;
+            if (size > 0 && addresses[size - 1] >= address) {
+                index = Arrays.binarySearch(addresses, 0, size, address);
+                if (index >= 0) {
+                    return false;
+                }
+                index = -1 - index;
+            }
+
+            if (size == addresses.length) {
+                addresses = Arrays.copyOf(addresses, size * 2);
+            }
+            System.arraycopy(addresses, index, addresses, index + 1, size - index);
+            addresses[index] = address;
+            size++;
+            return true;
+        }
+
+        private int ceilingIndex(long address) {
+            int index = Arrays.binarySearch(addresses, 0, size, address);
+            return index >= 0 ? index : -1 - index;
+        }
+
+        synchronized long[] range(long start, long end, int limit) {
+            int from = ceilingIndex(start);
+            int to = end == Long.MAX_VALUE ? size : ceilingIndex(end + 1);
+            return Arrays.copyOfRange(addresses, from, from + Math.min(to - from, limit));
+        }
+
+        synchronized int removeBelow(long trimMark) {
+            int from = ceilingIndex(trimMark);
+            if (from > 0) {
+                size -= from;
+                System.arraycopy(addresses, from, addresses, 0, size);
+            }
+            return from;
+        }
+
+        synchronized long last() {
+            return size == 0 ? Address.NON_ADDRESS : addresses[size - 1];
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.corfudb.infrastructure.log;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.UUID;
 
 import org.corfudb.protocols.wireprotocol.LogData;
 import org.corfudb.protocols.wireprotocol.TailsResponse;
@@ -38,6 +39,14 @@ public interface StreamLog {
      */
     LogData read(long address);
 
+    /**
+     * Check whether an address is written (with data or a hole) or trimmed, without
+     * reading its entry.
+     * @param address  address to check
+     * @return True, if a read of the address would return an entry
+     */
+    boolean contains(long address);
+
     /**
      * Mark a StreamLog address as trimmed.
      * @param address  address to trim from the log
@@ -60,6 +69,18 @@ public interface StreamLog {
      */
     TailsResponse getTails();
 
+    /**
+     * Get the addresses written to a stream in a range, from the index of the stream
+     * addresses maintained as entries are appended.
+     * @param streamId stream to look up
+     * @param start    first address of the range, inclusive
+     * @param end      last address of the range, inclusive
+     * @param limit    maximum number of addresses to return
+     * @return the first addresses of the stream in the range, in ascending order, or null
+     *         if the index doesn't cover the stream from the start of the range
+     */
+    long[] getStreamAddresses(UUID streamId, long start, long end, int limit);
+
     /**
      * Get the first untrimmed address in the address space.
      */
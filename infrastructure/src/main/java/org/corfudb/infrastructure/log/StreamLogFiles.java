@@ -4,8 +4,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import com.google.protobuf.AbstractMessage;
-import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +22,7 @@ import org.corfudb.infrastructure.ServerContext;
 import org.corfudb.protocols.logprotocol.CheckpointEntry;
 import org.corfudb.protocols.wireprotocol.IMetadata;
 import org.corfudb.protocols.wireprotocol.LogData;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
 import org.corfudb.protocols.wireprotocol.TailsResponse;
 import org.corfudb.runtime.exceptions.DataCorruptionException;
 import org.corfudb.runtime.exceptions.OverwriteCause;
@@ -32,7 +35,9 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
@@ -43,6 +48,7 @@ import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -76,12 +82,27 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
             .getSerializedSize();
     public static int VERSION = 2;
     public static int RECORDS_PER_LOG_FILE = 10000;
+    public static final int INDEX_VERSION = 2;
+    // version, log file size and number of records
+    private static final int INDEX_HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    // address, offset, length and checksum
+    private static final int INDEX_RECORD_SIZE = Long.BYTES + Long.BYTES
+            + Integer.BYTES + Integer.BYTES;
+    // number of record metadata entries which follow the records, if they are indexed
+    private static final int NO_RECORD_METADATA = -1;
     public static int TRIM_THRESHOLD = (int) (.25 * RECORDS_PER_LOG_FILE);
     public final String logDir;
     private final boolean noVerify;
+    private final boolean mmapReads;
     private final ServerContext serverContext;
-    private Map<String, SegmentHandle> writeChannels;
-    private Set<FileChannel> channelsToSync;
+    private final Map<String, SegmentHandle> writeChannels = new ConcurrentHashMap<>();
+
+    /**
+     * Channels written since the last sync, tracked per writer thread so that each
+     * write lane only syncs the channels it has written to.
+     */
+    private final ThreadLocal<Set<FileChannel>> channelsToSync =
+            ThreadLocal.withInitial(HashSet::new);
     private MultiReadWriteLock segmentLocks = new MultiReadWriteLock();
 
     //=================Log Metadata=================
@@ -89,8 +110,9 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
     // by a reset API that clears the state of this class, on reset
     // a new instance of this class should be created after deleting
     // the files of the old instance
-    private LogMetadata logMetadata;
+    private volatile LogMetadata logMetadata;
     private long lastSegment;
+    private final Object tailSegmentLock = new Object();
     private volatile long startingAddress;
 
 
@@ -101,15 +123,25 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
      * @param noVerify       Disable checksum if true
      */
     public StreamLogFiles(ServerContext serverContext, boolean noVerify) {
+        this(serverContext, noVerify, false);
+    }
+
+    /**
+     * Returns a file-based stream log object.
+     * @param serverContext  Context object that provides server state such as epoch,
+     *                       segment and start address
+     * @param noVerify       Disable checksum if true
+     * @param mmapReads      Serve reads on complete segments from a memory-mapped buffer
+     */
+    public StreamLogFiles(ServerContext serverContext, boolean noVerify, boolean mmapReads) {
         logDir = serverContext.getServerConfig().get("--log-path") + File.separator + "log";
         File dir = new File(logDir);
         if (!dir.exists()) {
             dir.mkdirs();
         }
 
-        writeChannels = new ConcurrentHashMap();
-        channelsToSync = new HashSet<>();
         this.noVerify = noVerify;
+        this.mmapReads = mmapReads;
         this.serverContext = serverContext;
         verifyLogs();
         // Starting address initialization should happen before
@@ -138,18 +170,33 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
     private LogMetadata initializeLogMetadata(long startSegment, long endSegment) {
         LogMetadata metadata = new LogMetadata();
         long start = System.currentTimeMillis();
+        int indexedSegments = 0;
         for (long currentSegment = startSegment; currentSegment <= endSegment; currentSegment++) {
             // TODO(Maithem): factor out getSegmentHandleForAddress to allow getting
             // segments by segment number
             SegmentHandle sh = getSegmentHandleForAddress(currentSegment * RECORDS_PER_LOG_FILE + 1);
             try {
-                for (Map.Entry<Long, AddressMetaData> record : sh.getKnownAddresses().entrySet()) {
-                    // skip trimmed entries
-                    if (record.getKey() < startingAddress) continue;
-                    LogData logEntry = read(record.getKey());
-                    metadata.update(logEntry);
+                // The record metadata of an indexed segment is read from its index,
+                // otherwise the records are read
+                List<RecordMetadata> records = readIndexedRecordMetadata(sh);
+                if (records != null) {
+                    indexedSegments++;
+                    records.forEach(record -> {
+                        // skip trimmed entries
+                        if (record.getAddress() >= startingAddress) {
+                            metadata.update(record);
+                        }
+                    });
+                } else {
+                    sh.getKnownAddresses().forEach(address -> {
+                        // skip trimmed entries
+                        if (address >= startingAddress) {
+                            metadata.update(read(address));
+                        }
+                    });
                 }
             } finally {
+                sh.release();
                 sh.close();
             }
         }
@@ -157,7 +204,9 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         // Open segment will add entries to the writeChannels map, therefore we need to clear it
         writeChannels.clear();
         long end = System.currentTimeMillis();
-        log.info("initializeStreamTails: took {} ms to load {}", end - start, metadata);
+        log.info("initializeStreamTails: took {} ms to load {}, {} of {} segments without reading"
+                        + " their records", end - start, metadata, indexedSegments,
+                endSegment - startSegment + 1);
         return metadata;
     }
 
@@ -169,6 +218,10 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         return segmentPath + ".trimmed";
     }
 
+    public static String getIndexFilePath(String segmentPath) {
+        return segmentPath + ".idx";
+    }
+
     /**
      * Write the header for a Corfu log file.
      *
@@ -198,15 +251,6 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
                 .build();
     }
 
-    public static ByteBuffer getByteBuffer(Metadata metadata, AbstractMessage message) {
-        ByteBuffer buf = ByteBuffer.allocate(metadata.getSerializedSize()
-                + message.getSerializedSize());
-        buf.put(metadata.toByteArray());
-        buf.put(message.toByteArray());
-        buf.flip();
-        return buf;
-    }
-
     public static ByteBuffer getByteBufferWithMetaData(AbstractMessage message) {
         Metadata metadata = getMetadata(message);
 
@@ -258,9 +302,11 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         // that case we will need to scan more than one segment
         logMetadata.updateGlobalTail(address);
         long segment = address / RECORDS_PER_LOG_FILE;
-        if (lastSegment < segment) {
-            serverContext.setTailSegment(segment);
-            lastSegment = segment;
+        synchronized (tailSegmentLock) {
+            if (lastSegment < segment) {
+                serverContext.setTailSegment(segment);
+                lastSegment = segment;
+            }
         }
     }
 
@@ -276,6 +322,7 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
             long newStartingAddress = address + 1;
             serverContext.setStartingAddress(newStartingAddress);
             startingAddress = newStartingAddress;
+            logMetadata.getStreamAddresses().prefixTrim(newStartingAddress);
             syncTailSegment(address);
             log.debug("Trimmed prefix, new starting address {}", newStartingAddress);
         }
@@ -326,20 +373,21 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
 
     @Override
     public void sync(boolean force) throws IOException {
+        Set<FileChannel> channels = channelsToSync.get();
         if (force) {
-            for (FileChannel ch : channelsToSync) {
+            for (FileChannel ch : channels) {
                 ch.force(true);
             }
         }
-        log.debug("Sync'd {} channels", channelsToSync.size());
-        channelsToSync.clear();
+        log.debug("Sync'd {} channels", channels.size());
+        channels.clear();
     }
 
     @Override
     public void trim(long address) {
         SegmentHandle handle = getSegmentHandleForAddress(address);
         try {
-            if (!handle.getKnownAddresses().containsKey(address)
+            if (!handle.getKnownAddresses().contains(address)
                     || handle.getPendingTrims().contains(address)) {
                 return;
             }
@@ -355,7 +403,7 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
             entry.writeDelimitedTo(outputStream);
             outputStream.flush();
             handle.getPendingTrims().add(address);
-            channelsToSync.add(handle.getPendingTrimChannel());
+            channelsToSync.get().add(handle.getPendingTrimChannel());
         } catch (IOException e) {
             log.warn("Exception while writing a trim entry {} : {}", address, e.toString());
         } finally {
@@ -372,6 +420,11 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         }
     }
 
+    @Override
+    public long[] getStreamAddresses(UUID streamId, long start, long end, int limit) {
+        return logMetadata.getStreamAddresses().get(streamId, start, end, limit);
+    }
+
     @Override
     public long getTrimMark() {
         return startingAddress;
@@ -406,15 +459,17 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
     private void spaseCompact() {
         //TODO(Maithem) Open all segment handlers?
         for (SegmentHandle sh : writeChannels.values()) {
-            Set<Long> pending = new HashSet(sh.getPendingTrims());
-            Set<Long> trimmed = sh.getTrimmedAddresses();
-
-            if (sh.getKnownAddresses().size() + trimmed.size() != RECORDS_PER_LOG_FILE) {
+            if (!isSegmentComplete(sh)) {
                 log.info("Log segment still not complete, skipping");
                 continue;
             }
 
-            pending.removeAll(trimmed);
+            Set<Long> pending = new HashSet<>();
+            sh.getPendingTrims().forEach(address -> {
+                if (!sh.getTrimmedAddresses().contains(address)) {
+                    pending.add(address);
+                }
+            });
 
             //what if pending size  == knownaddresses size ?
             if (pending.size() < TRIM_THRESHOLD) {
@@ -481,9 +536,15 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
 
         Files.move(Paths.get(filePath + ".copy"), Paths.get(filePath),
                 StandardCopyOption.ATOMIC_MOVE);
+        // The offsets of the compacted segment have changed, the index is rewritten
+        // when the segment is reloaded
+        Files.deleteIfExists(Paths.get(getIndexFilePath(filePath)));
 
         // Force the reload of the new segment
-        writeChannels.remove(filePath);
+        SegmentHandle compacted = writeChannels.remove(filePath);
+        if (compacted != null) {
+            compacted.close();
+        }
     }
 
     private CompactedEntry getCompactedEntries(String filePath, Set<Long> pendingTrim) throws IOException {
@@ -522,7 +583,7 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
                 LogEntry entry = LogEntry.parseFrom(logEntryBuf);
 
                 if (!noVerify) {
-                    if (metadata.getPayloadChecksum() != getChecksum(entry.toByteArray())) {
+                    if (metadata.getPayloadChecksum() != getChecksum(logEntryBuf)) {
                         log.error("Checksum mismatch detected while trying to read address {}",
                                 entry.getGlobalAddress());
                         throw new DataCorruptionException();
@@ -543,7 +604,7 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
     }
 
     private LogData getLogData(LogEntry entry) {
-        ByteBuf data = Unpooled.wrappedBuffer(entry.getData().toByteArray());
+        ByteBuf data = Unpooled.wrappedBuffer(entry.getData().asReadOnlyByteBuffer());
         LogData logData = new LogData(org.corfudb.protocols.wireprotocol
                 .DataType.typeMap.get((byte) entry.getDataType().getNumber()), data);
 
@@ -559,7 +620,9 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
             long msd = entry.getClientIdMostSignificant();
             logData.setClientId(new UUID(msd, lsd));
         }
-
+        if (entry.hasPayloadCodec()) {
+            logData.setPayloadCodec(PayloadCodec.typeMap.get((byte) entry.getPayloadCodec()));
+        }
 
 
         if (entry.hasCheckpointEntryType()) {
@@ -765,12 +828,242 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
                 return;
             }
 
-            sh.getKnownAddresses().put(entry.getGlobalAddress(),
-                    new AddressMetaData(metadata.getPayloadChecksum(),
-                            metadata.getLength(), channelOffset + METADATA_SIZE));
+            sh.getKnownAddresses().put(entry.getGlobalAddress(), metadata.getPayloadChecksum(),
+                    metadata.getLength(), channelOffset + METADATA_SIZE);
         }
     }
 
+    /**
+     * Read the index file of a complete segment. The index is only valid if its checksum
+     * is valid and the segment file has not changed since the index was written (i.e. no
+     * ranked overwrites were appended to the segment).
+     *
+     * @param sh segment handle of the index
+     * @return the index positioned after its records and limited to its checksum, or null
+     *         if the segment has no valid index
+     */
+    @Nullable
+    private ByteBuffer readSegmentIndex(SegmentHandle sh) throws IOException {
+        File indexFile = new File(getIndexFilePath(sh.getFileName()));
+        if (!indexFile.exists()) {
+            return null;
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+        if (buf.limit() < INDEX_HEADER_SIZE + Integer.BYTES) {
+            log.warn("readSegmentIndex: ignoring truncated index {}", indexFile);
+            return null;
+        }
+
+        int checksumOffset = buf.limit() - Integer.BYTES;
+        if (buf.getInt(checksumOffset) != Hashing.crc32c()
+                .hashBytes(buf.array(), 0, checksumOffset).asInt()) {
+            log.warn("readSegmentIndex: checksum mismatch in index {}", indexFile);
+            return null;
+        }
+
+        int version = buf.getInt();
+        long logFileSize = buf.getLong();
+        int numRecords = buf.getInt();
+        long recordsEnd = INDEX_HEADER_SIZE + (long) numRecords * INDEX_RECORD_SIZE;
+        if (version != INDEX_VERSION || numRecords < 0
+                || recordsEnd + Integer.BYTES > checksumOffset) {
+            log.warn("readSegmentIndex: ignoring index {} with version {}", indexFile, version);
+            return null;
+        }
+
+        if (sh.getWriteChannel().size() != logFileSize) {
+            log.info("readSegmentIndex: {} changed since it was indexed, scanning segment",
+                    sh.getFileName());
+            return null;
+        }
+
+        buf.position((int) recordsEnd);
+        buf.limit(checksumOffset);
+        return buf;
+    }
+
+    /**
+     * Parse the record metadata which follows the records of a segment index.
+     *
+     * @param buf index positioned after its records
+     * @return the metadata of the records, or null if it wasn't indexed
+     * @throws BufferUnderflowException if the record metadata is truncated
+     * @throws IllegalArgumentException if the record metadata is malformed
+     */
+    @Nullable
+    private static List<RecordMetadata> parseRecordMetadata(ByteBuffer buf) {
+        int numRecordMetadata = buf.getInt();
+        if (numRecordMetadata == NO_RECORD_METADATA) {
+            return null;
+        }
+        List<RecordMetadata> records =
+                new ArrayList<>(Math.min(numRecordMetadata, RECORDS_PER_LOG_FILE));
+        for (int i = 0; i < numRecordMetadata; i++) {
+            records.add(RecordMetadata.deserialize(buf));
+        }
+        if (buf.hasRemaining()) {
+            throw new IllegalArgumentException("Trailing bytes after record metadata");
+        }
+        return records;
+    }
+
+    /**
+     * Load the address space of a complete segment from its index file.
+     *
+     * @param sh segment handle to load
+     * @return true if the index was loaded, false if the segment has to be scanned
+     */
+    private boolean loadSegmentIndex(SegmentHandle sh) throws IOException {
+        ByteBuffer buf = readSegmentIndex(sh);
+        if (buf == null) {
+            return false;
+        }
+
+        // The record metadata is only read when the log metadata is initialized, but
+        // the index is rejected as a whole if it is malformed
+        try {
+            parseRecordMetadata(buf);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("loadSegmentIndex: ignoring malformed record metadata in index of {}",
+                    sh.getFileName(), e);
+            return false;
+        }
+
+        long logFileSize = buf.getLong(Integer.BYTES);
+        int numRecords = buf.getInt(Integer.BYTES + Long.BYTES);
+        buf.position(INDEX_HEADER_SIZE);
+        for (int i = 0; i < numRecords; i++) {
+            long address = buf.getLong();
+            long offset = buf.getLong();
+            int length = buf.getInt();
+            int checksum = buf.getInt();
+            sh.getKnownAddresses().put(address, checksum, length, offset);
+        }
+
+        sh.getWriteChannel().position(logFileSize);
+        return true;
+    }
+
+    /**
+     * Read the metadata of the records of a segment from its index, so that the log
+     * metadata can be built without reading the records.
+     *
+     * @param sh segment handle to read the record metadata of
+     * @return the metadata of the records, or null if the segment has no valid index or
+     *         the index doesn't hold the record metadata
+     */
+    @Nullable
+    private List<RecordMetadata> readIndexedRecordMetadata(SegmentHandle sh) {
+        if (!isSegmentComplete(sh)) {
+            return null;
+        }
+        try {
+            ByteBuffer buf = readSegmentIndex(sh);
+            return buf == null ? null : parseRecordMetadata(buf);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("readIndexedRecordMetadata: failed to read index of {}",
+                    sh.getFileName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the index file of a segment once a new record completes it.
+     */
+    private void indexIfComplete(SegmentHandle sh) {
+        if (isSegmentComplete(sh)) {
+            writeSegmentIndex(sh);
+        }
+    }
+
+    /**
+     * Write the index file of a complete segment, so that the segment can be loaded
+     * without reading all of its records. The index holds the location of each record,
+     * then the metadata of the records that the log metadata is built from on startup.
+     * The record metadata isn't kept in memory while the segment is written, it is
+     * derived from the records once the segment is complete, which reads the segment
+     * once. The index is written to a temporary file that is atomically moved in place.
+     *
+     * @param sh segment handle to index
+     */
+    private void writeSegmentIndex(SegmentHandle sh) {
+        String indexPath = getIndexFilePath(sh.getFileName());
+        try (MultiReadWriteLock.AutoCloseableLock ignored =
+                     segmentLocks.acquireWriteLock(sh.getSegment())) {
+            SegmentAddressIndex index = sh.getKnownAddresses();
+            List<RecordMetadata> records = deriveRecordMetadata(sh);
+            int recordMetadataSize = Integer.BYTES;
+            if (records != null) {
+                for (RecordMetadata record : records) {
+                    recordMetadataSize += record.getSerializedSize();
+                }
+            }
+            ByteBuffer buf = ByteBuffer.allocate(INDEX_HEADER_SIZE
+                    + index.size() * INDEX_RECORD_SIZE + recordMetadataSize + Integer.BYTES);
+            buf.putInt(INDEX_VERSION);
+            buf.putLong(sh.getWriteChannel().size());
+            buf.putInt(index.size());
+            index.forEach(address -> {
+                AddressMetaData metaData = index.get(address);
+                buf.putLong(address);
+                buf.putLong(metaData.offset);
+                buf.putInt(metaData.length);
+                buf.putInt(metaData.checksum);
+            });
+            if (records == null) {
+                buf.putInt(NO_RECORD_METADATA);
+            } else {
+                buf.putInt(records.size());
+                records.forEach(record -> record.serialize(buf));
+            }
+            buf.putInt(Hashing.crc32c().hashBytes(buf.array(), 0, buf.position()).asInt());
+            buf.flip();
+
+            String tmpPath = indexPath + ".tmp";
+            try (FileChannel fc = FileChannel.open(Paths.get(tmpPath),
+                    EnumSet.of(StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                            StandardOpenOption.CREATE))) {
+                while (buf.hasRemaining()) {
+                    fc.write(buf);
+                }
+                fc.force(true);
+            }
+            Files.move(Paths.get(tmpPath), Paths.get(indexPath),
+                    StandardCopyOption.ATOMIC_MOVE);
+            log.debug("writeSegmentIndex: indexed {} records of {}", index.size(),
+                    sh.getFileName());
+        } catch (IOException e) {
+            // The index is only an optimization, the segment will be scanned on startup
+            log.warn("writeSegmentIndex: failed to write index {}", indexPath, e);
+        }
+    }
+
+    /**
+     * Derive the metadata of the records of a segment from the records.
+     *
+     * @param sh segment handle to read the records of
+     * @return the metadata of the records, or null if a record can't be read
+     */
+    @Nullable
+    private List<RecordMetadata> deriveRecordMetadata(SegmentHandle sh) {
+        List<RecordMetadata> records = new ArrayList<>(sh.getKnownAddresses().size());
+        try {
+            for (long address = sh.getSegment() * RECORDS_PER_LOG_FILE;
+                 address < (sh.getSegment() + 1) * RECORDS_PER_LOG_FILE; address++) {
+                LogData entry = readRecord(sh, address);
+                if (entry != null) {
+                    records.add(RecordMetadata.of(entry));
+                }
+            }
+        } catch (IOException | DataCorruptionException e) {
+            log.warn("deriveRecordMetadata: failed to read the records of {}",
+                    sh.getFileName(), e);
+            return null;
+        }
+        return records;
+    }
+
     /**
      * Read a log entry in a file.
      *
@@ -788,14 +1081,86 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         }
 
         try {
-            ByteBuffer entryBuf = ByteBuffer.allocate(metaData.length);
+            ByteBuffer mapped = getMappedReadBuffer(sh);
+            ByteBuffer entryBuf;
+            if (mapped != null && metaData.offset + metaData.length <= mapped.limit()) {
+                // Records that were appended after the segment was mapped (i.e. ranked
+                // overwrites) are past the mapped limit and are read from the channel.
+                // The entry is copied out of the mapping, which is unmapped once the
+                // segment is closed and released, even if the entry is still in use.
+                entryBuf = mapped.duplicate();
+                entryBuf.position((int) metaData.offset);
+                entryBuf.limit((int) metaData.offset + metaData.length);
+                return getLogData(parseLogEntry(entryBuf, false));
+            }
+            entryBuf = ByteBuffer.allocate(metaData.length);
             fc.read(entryBuf, metaData.offset);
-            return getLogData(LogEntry.parseFrom(entryBuf.array()));
+            entryBuf.flip();
+            return getLogData(parseLogEntry(entryBuf, true));
         } catch (InvalidProtocolBufferException e) {
             throw new DataCorruptionException();
         }
     }
 
+    /**
+     * Parse a log entry from a buffer. If aliasing is enabled, the parsed entry aliases
+     * the buffer instead of copying the payload, so the buffer must not be modified while
+     * the entry is in use.
+     *
+     * @param buf   buffer positioned at the beginning of the entry
+     * @param alias whether the entry can alias the buffer
+     * @return the parsed LogEntry
+     * @throws IOException
+     */
+    private static LogEntry parseLogEntry(ByteBuffer buf, boolean alias) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(buf);
+        input.enableAliasing(alias);
+        return LogEntry.parseFrom(input);
+    }
+
+    /**
+     * A segment is complete when all of its addresses have been either written or trimmed.
+     *
+     * @param sh segment handle to check
+     * @return true if no more addresses can be appended to this segment
+     */
+    private boolean isSegmentComplete(SegmentHandle sh) {
+        return sh.getKnownAddresses().size() + sh.getTrimmedAddresses().size()
+                == RECORDS_PER_LOG_FILE;
+    }
+
+    /**
+     * Get the read-only mapping of a segment, mapping it the first time it is requested
+     * after the segment is complete. Mappings are only used if memory-mapped reads are
+     * enabled and they are unmapped once the segment handle is closed and released.
+     *
+     * @param sh segment handle to map
+     * @return the mapped buffer, or null if the segment can't be mapped (yet)
+     * @throws IOException
+     */
+    private @Nullable ByteBuffer getMappedReadBuffer(SegmentHandle sh) throws IOException {
+        MappedByteBuffer mapped = sh.getMappedReadBuffer();
+        if (mapped != null || !mmapReads || !isSegmentComplete(sh)) {
+            return mapped;
+        }
+
+        synchronized (sh) {
+            mapped = sh.getMappedReadBuffer();
+            if (mapped == null && !sh.isClosed()) {
+                long size = sh.getReadChannel().size();
+                if (size > Integer.MAX_VALUE) {
+                    log.warn("getMappedReadBuffer: segment {} is too large to be mapped, size {}",
+                            sh.getFileName(), size);
+                    return null;
+                }
+                mapped = sh.getReadChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+                sh.setMappedReadBuffer(mapped);
+                log.debug("getMappedReadBuffer: mapped segment {}, size {}", sh.getFileName(), size);
+            }
+        }
+        return mapped;
+    }
+
     private @Nullable FileChannel getChannel(String filePath, boolean readOnly) throws IOException {
         try {
 
@@ -839,13 +1204,39 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
      * @return The FileChannel for that address.
      */
     @VisibleForTesting
-    synchronized SegmentHandle getSegmentHandleForAddress(long address) {
+    SegmentHandle getSegmentHandleForAddress(long address) {
         String filePath = logDir + File.separator;
         long segment = address / RECORDS_PER_LOG_FILE;
         filePath += segment;
         filePath += ".log";
 
-        SegmentHandle handle = writeChannels.computeIfAbsent(filePath, a -> {
+        // Lookups of open segments don't need to serialize with opening
+        // a new segment, which can take a while because it reads the
+        // whole segment file.
+        while (true) {
+            SegmentHandle handle = writeChannels.get(filePath);
+            if (handle == null) {
+                handle = openSegmentHandle(filePath, segment);
+            }
+
+            if (handle.tryRetain()) {
+                return handle;
+            }
+            // The handle was closed (i.e. the segment was trimmed) after it was looked
+            // up, it is replaced by a new handle unless it has been already
+            writeChannels.remove(filePath, handle);
+        }
+    }
+
+    /**
+     * Opens the segment handle for a segment file, creating it if it doesn't exist.
+     *
+     * @param filePath path of the segment file
+     * @param segment  segment number
+     * @return the opened segment handle
+     */
+    private synchronized SegmentHandle openSegmentHandle(String filePath, long segment) {
+        return writeChannels.computeIfAbsent(filePath, a -> {
             FileChannel writeCh = null;
             FileChannel readCh = null;
             FileChannel trimmedCh = null;
@@ -863,11 +1254,18 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
                 pendingTrimmedCh = getChannel(getPendingTrimsFilePath(a), false);
 
                 SegmentHandle sh = new SegmentHandle(segment, writeCh, readCh, trimmedCh, pendingTrimmedCh, a);
-                // The first time we open a file we should read to the end, to load the
-                // map of entries we already have.
+                // The first time we open a file we should load the map of entries we
+                // already have, from the index file of a complete segment if there is a
+                // valid one, otherwise by reading the segment to the end.
                 // Once the segment address space is loaded, it should be ready to accept writes.
-                readAddressSpace(sh);
+                boolean indexLoaded = loadSegmentIndex(sh);
+                if (!indexLoaded) {
+                    readAddressSpace(sh);
+                }
                 loadTrimAddresses(sh);
+                if (!indexLoaded && isSegmentComplete(sh)) {
+                    writeSegmentIndex(sh);
+                }
                 return sh;
             } catch (IOException e) {
                 log.error("Error opening file {}", a, e);
@@ -878,9 +1276,6 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
                 throw new RuntimeException(e);
             }
         });
-
-        handle.retain();
-        return handle;
     }
 
     private void loadTrimAddresses(SegmentHandle sh) throws IOException {
@@ -951,16 +1346,13 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         return strUUIds;
     }
 
-    LogEntry getLogEntry(long address, LogData entry) {
-        byte[] data = new byte[0];
-
-        if (entry.getData() != null) {
-            data = entry.getData();
-        }
-
+    /**
+     * Build the log entry of a record, without its data, which is written separately
+     * by {@link #getRecord(LogEntry, ByteBuf, List)}.
+     */
+    LogEntry getLogEntryHeader(long address, LogData entry) {
         LogEntry.Builder logEntryBuilder = LogEntry.newBuilder()
                 .setDataType(Types.DataType.forNumber(entry.getType().ordinal()))
-                .setData(ByteString.copyFrom(data))
                 .setGlobalAddress(address)
                 .addAllStreams(getStrUUID(entry.getStreams()))
                 .putAllBackpointers(getStrLongMap(entry.getBackpointerMap()));
@@ -978,6 +1370,10 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
             logEntryBuilder.setThreadId(entry.getThreadId());
         }
 
+        if (entry.getPayloadCodec() != PayloadCodec.NONE) {
+            logEntryBuilder.setPayloadCodec(entry.getPayloadCodec().asByte());
+        }
+
         if (entry.hasCheckpointMetadata()) {
             logEntryBuilder.setCheckpointEntryType(
                     Types.CheckpointEntryType.forNumber(
@@ -1020,55 +1416,109 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
     }
 
     /**
-     * Write a list of LogData entries to the log file.
+     * Get the buffers a record is written from: the metadata and the log entry without its
+     * data, serialized on the heap, then the data itself, which is not copied. The data is
+     * encoded as the last field of the log entry, so the payload of the record parses
+     * as the complete log entry.
+     *
+     * @param header the log entry of the record, without its data
+     * @param data   the data of the record, or null if it has none
+     * @param record the list to add the buffers of the record to
+     * @return the metadata of the record
+     */
+    static Metadata getRecord(LogEntry header, @Nullable ByteBuf data,
+                              List<ByteBuffer> record) {
+        ByteBuffer[] dataBuffers = data == null ? new ByteBuffer[0] : data.nioBuffers();
+        int dataLength = data == null ? 0 : data.readableBytes();
+
+        byte[] headerBytes = header.toByteArray();
+        int dataFieldSize = CodedOutputStream.computeTagSize(LogEntry.DATA_FIELD_NUMBER)
+                + CodedOutputStream.computeUInt32SizeNoTag(dataLength);
+        int length = headerBytes.length + dataFieldSize + dataLength;
+
+        byte[] recordHeader = new byte[METADATA_SIZE + headerBytes.length + dataFieldSize];
+        try {
+            CodedOutputStream out = CodedOutputStream.newInstance(recordHeader,
+                    METADATA_SIZE, headerBytes.length + dataFieldSize);
+            out.writeRawBytes(headerBytes);
+            out.writeTag(LogEntry.DATA_FIELD_NUMBER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(dataLength);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize record header", e);
+        }
+
+        Hasher hasher = Hashing.crc32c().newHasher();
+        hasher.putBytes(recordHeader, METADATA_SIZE, recordHeader.length - METADATA_SIZE);
+        for (ByteBuffer dataBuffer : dataBuffers) {
+            hasher.putBytes(dataBuffer.duplicate());
+        }
+
+        Metadata metadata = Metadata.newBuilder()
+                .setPayloadChecksum(hasher.hash().asInt())
+                .setLengthChecksum(getChecksum(length))
+                .setLength(length)
+                .build();
+        System.arraycopy(metadata.toByteArray(), 0, recordHeader, 0, METADATA_SIZE);
+
+        record.add(ByteBuffer.wrap(recordHeader));
+        Collections.addAll(record, dataBuffers);
+        return metadata;
+    }
+
+    /**
+     * Write a list of LogData entries to the log file and add them to the segment index.
+     * The records are written with a single gathering write, and the data of the entries
+     * is written straight from their buffers.
      * @param sh segment handle to the logfile
      * @param entries list of LogData entries to write.
-     * @return A map of AddressMetaData for the written records
      * @throws IOException
      */
-    private Map<Long, AddressMetaData> writeRecords(SegmentHandle sh,
-                                             List<LogData> entries) throws IOException {
-        Map<Long, AddressMetaData> recordsMap = new HashMap<>();
+    private void writeRecords(SegmentHandle sh, List<LogData> entries) throws IOException {
+        long[] offsets = new long[entries.size()];
 
-        List<ByteBuffer> entryBuffs = new ArrayList<>();
-        int totalBytes = 0;
+        List<ByteBuf> dataBufs = new ArrayList<>(entries.size());
+        List<ByteBuffer> recordBuffs = new ArrayList<>();
+        List<Metadata> metadataList = new ArrayList<>(entries.size());
 
-        List<Metadata> metadataList = new ArrayList<>();
+        try {
+            for (int ind = 0; ind < entries.size(); ind++) {
+                LogData curr = entries.get(ind);
+                ByteBuf data = curr.getDataBuffer();
+                if (data != null) {
+                    dataBufs.add(data);
+                }
+                metadataList.add(getRecord(getLogEntryHeader(curr.getGlobalAddress(), curr),
+                        data, recordBuffs));
+            }
 
-        for (int ind = 0; ind < entries.size(); ind++) {
-            LogData curr = entries.get(ind);
-            LogEntry logEntry = getLogEntry(curr.getGlobalAddress(), curr);
-            Metadata metadata = getMetadata(logEntry);
-            metadataList.add(metadata);
-            ByteBuffer record = getByteBuffer(metadata, logEntry);
-            totalBytes += record.limit();
-            entryBuffs.add(record);
-        }
+            try (MultiReadWriteLock.AutoCloseableLock ignored =
+                         segmentLocks.acquireWriteLock(sh.getSegment())) {
+                long channelOffset = sh.getWriteChannel().position();
+                for (int ind = 0; ind < entries.size(); ind++) {
+                    offsets[ind] = channelOffset + METADATA_SIZE;
+                    channelOffset += METADATA_SIZE + metadataList.get(ind).getLength();
+                }
 
-        ByteBuffer allRecordsBuf = ByteBuffer.allocate(totalBytes);
+                safeWrite(sh.getWriteChannel(),
+                        recordBuffs.toArray(new ByteBuffer[recordBuffs.size()]));
+                // The stream addresses are indexed before the records are visible, so that
+                // every address which is known to be written is indexed
+                logMetadata.update(entries);
 
-        try (MultiReadWriteLock.AutoCloseableLock ignored =
-                     segmentLocks.acquireWriteLock(sh.getSegment())) {
-            for (int ind = 0; ind < entryBuffs.size(); ind++) {
-                long channelOffset = sh.getWriteChannel().position()
-                        + allRecordsBuf.position() + METADATA_SIZE;
-                allRecordsBuf.put(entryBuffs.get(ind));
-                Metadata metadata = metadataList.get(ind);
-                recordsMap.put(entries.get(ind).getGlobalAddress(),
-                        new AddressMetaData(metadata.getPayloadChecksum(),
-                                metadata.getLength(), channelOffset));
+                for (int ind = 0; ind < entries.size(); ind++) {
+                    Metadata metadata = metadataList.get(ind);
+                    sh.getKnownAddresses().put(entries.get(ind).getGlobalAddress(),
+                            metadata.getPayloadChecksum(), metadata.getLength(), offsets[ind]);
+                }
+                channelsToSync.get().add(sh.getWriteChannel());
+                // Sync the global and stream tail(s)
+                // TODO(Maithem): on ioexceptions the StreamLogFiles needs to be reinitialized
+                syncTailSegment(entries.get(entries.size() - 1).getGlobalAddress());
             }
-
-            allRecordsBuf.flip();
-            safeWrite(sh.getWriteChannel(), allRecordsBuf);
-            channelsToSync.add(sh.getWriteChannel());
-            // Sync the global and stream tail(s)
-            // TODO(Maithem): on ioexceptions the StreamLogFiles needs to be reinitialized
-            syncTailSegment(entries.get(entries.size() - 1).getGlobalAddress());
-            logMetadata.update(entries);
+        } finally {
+            dataBufs.forEach(ByteBuf::release);
         }
-
-        return recordsMap;
     }
 
     /**
@@ -1082,9 +1532,28 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
      * @throws IOException
      */
     private static void safeWrite(FileChannel channel, ByteBuffer buf) throws IOException {
+        safeWrite(channel, new ByteBuffer[]{buf});
+    }
+
+    /**
+     * Attempts to write buffers to a file channel with a gathering write, see
+     * {@link #safeWrite(FileChannel, ByteBuffer)}.
+     *
+     * @param channel the channel to write to
+     * @param bufs the buffers to write, in order
+     * @throws IOException
+     */
+    private static void safeWrite(FileChannel channel, ByteBuffer[] bufs) throws IOException {
         long prev = channel.position();
         try {
-            channel.write(buf);
+            // A gathering write may write only some of the buffers
+            long remaining = 0;
+            for (ByteBuffer buf : bufs) {
+                remaining += buf.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(bufs);
+            }
         } catch (IOException e) {
             // Write failed restore the channels position, so the subsequent writes
             // can overwrite the failed write.
@@ -1103,31 +1572,33 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
     }
 
     /**
-     * Write a log entry record to a file.
+     * Write a log entry record to a file and add it to the segment index.
      *
      * @param fh      The file handle to use.
      * @param address The address of the entry.
      * @param entry   The LogData to append.
-     * @return Returns metadata for the written record
      */
-    private AddressMetaData writeRecord(SegmentHandle fh, long address,
-                                        LogData entry) throws IOException {
-        LogEntry logEntry = getLogEntry(address, entry);
-        Metadata metadata = getMetadata(logEntry);
-
-        ByteBuffer record = getByteBuffer(metadata, logEntry);
+    private void writeRecord(SegmentHandle fh, long address,
+                             LogData entry) throws IOException {
+        ByteBuf data = entry.getDataBuffer();
         long channelOffset;
 
         try (MultiReadWriteLock.AutoCloseableLock ignored =
                      segmentLocks.acquireWriteLock(fh.getSegment())) {
+            List<ByteBuffer> record = new ArrayList<>();
+            Metadata metadata = getRecord(getLogEntryHeader(address, entry), data, record);
             channelOffset = fh.getWriteChannel().position() + METADATA_SIZE;
-            safeWrite(fh.getWriteChannel(), record);
-            channelsToSync.add(fh.getWriteChannel());
-            syncTailSegment(address);
+            safeWrite(fh.getWriteChannel(), record.toArray(new ByteBuffer[record.size()]));
             logMetadata.update(entry);
+            fh.getKnownAddresses().put(address, metadata.getPayloadChecksum(),
+                    metadata.getLength(), channelOffset);
+            channelsToSync.get().add(fh.getWriteChannel());
+            syncTailSegment(address);
+        } finally {
+            if (data != null) {
+                data.release();
+            }
         }
-
-        return new AddressMetaData(metadata.getPayloadChecksum(), metadata.getLength(), channelOffset);
     }
 
     long getSegment(LogData entry) {
@@ -1225,23 +1696,23 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
             LogData curr = entries.get(ind);
 
             if (getSegment(curr) == firstSh.getSegment() &&
-                    !firstSh.getKnownAddresses().containsKey(curr.getGlobalAddress())) {
+                    !firstSh.getKnownAddresses().contains(curr.getGlobalAddress())) {
                 segOneEntries.add(curr);
             } else if (getSegment(curr) == lastSh.getSegment() &&
-                    !lastSh.getKnownAddresses().containsKey(curr.getGlobalAddress())) {
+                    !lastSh.getKnownAddresses().contains(curr.getGlobalAddress())) {
                 segTwoEntries.add(curr);
             }
         }
 
         try {
             if (!segOneEntries.isEmpty()) {
-                Map<Long, AddressMetaData> firstSegAddresses = writeRecords(firstSh, segOneEntries);
-                firstSh.getKnownAddresses().putAll(firstSegAddresses);
+                writeRecords(firstSh, segOneEntries);
+                indexIfComplete(firstSh);
             }
 
             if (!segTwoEntries.isEmpty()) {
-                Map<Long, AddressMetaData> lastSegAddresses = writeRecords(lastSh, segTwoEntries);
-                lastSh.getKnownAddresses().putAll(lastSegAddresses);
+                writeRecords(lastSh, segTwoEntries);
+                indexIfComplete(lastSh);
             }
         } catch (IOException e) {
             log.error("Disk_write[{}-{}]: Exception", first.getGlobalAddress(),
@@ -1264,7 +1735,7 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         try {
             // make sure the entry doesn't currently exist...
             // (probably need a faster way to do this - high watermark?)
-            if (fh.getKnownAddresses().containsKey(address)
+            if (fh.getKnownAddresses().contains(address)
                     || fh.getTrimmedAddresses().contains(address)) {
                 if (entry.getRank() == null) {
                     OverwriteCause overwriteCause = getOverwriteCauseForAddress(address, entry);
@@ -1273,12 +1744,11 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
                 } else {
                     // the method below might throw DataOutrankedException or ValueAdoptedException
                     assertAppendPermittedUnsafe(address, entry);
-                    AddressMetaData addressMetaData = writeRecord(fh, address, entry);
-                    fh.getKnownAddresses().put(address, addressMetaData);
+                    writeRecord(fh, address, entry);
                 }
             } else {
-                AddressMetaData addressMetaData = writeRecord(fh, address, entry);
-                fh.getKnownAddresses().put(address, addressMetaData);
+                writeRecord(fh, address, entry);
+                indexIfComplete(fh);
             }
             log.trace("Disk_write[{}]: Written to disk.", address);
         } catch (IOException e) {
@@ -1308,13 +1778,31 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         }
     }
 
+    @Override
+    public boolean contains(long address) {
+        if (isTrimmed(address)) {
+            return true;
+        } else if (address > logMetadata.getGlobalTail()) {
+            return false;
+        }
+        SegmentHandle sh = getSegmentHandleForAddress(address);
+
+        try {
+            return sh.getKnownAddresses().contains(address)
+                    || sh.getTrimmedAddresses().contains(address)
+                    || sh.getPendingTrims().contains(address);
+        } finally {
+            sh.release();
+        }
+    }
+
     @Override
     public void close() {
         for (SegmentHandle fh : writeChannels.values()) {
             fh.close();
         }
 
-        writeChannels = new HashMap<>();
+        writeChannels.clear();
     }
 
     @Override
@@ -1335,7 +1823,7 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
                             sh.getRefCount());
                 }
                 sh.close();
-                writeChannels.remove(sh.getFileName());
+                writeChannels.remove(sh.getFileName(), sh);
             }
         }
     }
@@ -1394,7 +1882,9 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
         serverContext.setStartingAddress(0L);
         serverContext.setTailSegment(0L);
         startingAddress = 0L;
-        lastSegment = 0L;
+        synchronized (tailSegmentLock) {
+            lastSegment = 0L;
+        }
         logMetadata = new LogMetadata();
         writeChannels.clear();
         log.info("reset: Completed, end segment {}", endSegment);
@@ -1402,7 +1892,7 @@ public class StreamLogFiles implements StreamLog, StreamLogWithRankedAddressSpac
 
     @VisibleForTesting
     Set<FileChannel> getChannelsToSync() {
-        return channelsToSync;
+        return channelsToSync.get();
     }
 
     @VisibleForTesting
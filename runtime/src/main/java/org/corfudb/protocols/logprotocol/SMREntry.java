@@ -12,6 +12,7 @@ import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.ToString;
 import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.object.SMRMethodIds;
 import org.corfudb.util.serializer.ISerializer;
 import org.corfudb.util.serializer.Serializers;
 
@@ -26,12 +27,20 @@ public class SMREntry extends LogEntry implements ISMRConsumable {
 
     /**
      * The name of the SMR method. Note that this is limited to the size of a short.
+     * Entries which are logged with the id of their method only carry the id, the name
+     * is resolved on demand.
      */
     @Deprecated // TODO: Add replacement method that conforms to style
     @SuppressWarnings("checkstyle:MemberName") // Due to deprecation
-    @Getter
     private String SMRMethod;
 
+    /**
+     * The id of the SMR method, see {@link SMRMethodIds}.
+     */
+    @SuppressWarnings("checkstyle:MemberName") // Due to deprecation
+    @Getter
+    private int SMRMethodId;
+
     /**
      * The arguments to the SMR method, which could be 0.
      */
@@ -89,10 +98,25 @@ public class SMREntry extends LogEntry implements ISMRConsumable {
     public SMREntry(String smrMethod, @NonNull Object[] smrArguments, ISerializer serializer) {
         super(LogEntryType.SMR);
         this.SMRMethod = smrMethod;
+        this.SMRMethodId = SMRMethodIds.register(smrMethod);
         this.SMRArguments = smrArguments;
         this.serializerType = serializer;
     }
 
+    /**
+     * Get the name of the SMR method.
+     *
+     * @return The name of the method, or null if the entry was read from the log and
+     *     the method is unknown to this process.
+     */
+    @Deprecated // TODO: Add replacement method that conforms to style
+    public String getSMRMethod() {
+        if (SMRMethod == null) {
+            SMRMethod = SMRMethodIds.getName(SMRMethodId);
+        }
+        return SMRMethod;
+    }
+
     /**
      * This function provides the remaining buffer. Child entries
      * should initialize their contents based on the buffer.
@@ -102,10 +126,17 @@ public class SMREntry extends LogEntry implements ISMRConsumable {
     @Override
     void deserializeBuffer(ByteBuf b, CorfuRuntime rt) {
         super.deserializeBuffer(b, rt);
-        short methodLength = b.readShort();
-        byte[] methodBytes = new byte[methodLength];
-        b.readBytes(methodBytes, 0, methodLength);
-        SMRMethod = new String(methodBytes);
+        if (b.getShort(b.readerIndex()) < 0) {
+            // The method id, flagged by the sign bit
+            SMRMethodId = b.readInt() & Integer.MAX_VALUE;
+        } else {
+            // Legacy entries carry the method name
+            short methodLength = b.readShort();
+            byte[] methodBytes = new byte[methodLength];
+            b.readBytes(methodBytes, 0, methodLength);
+            SMRMethod = new String(methodBytes);
+            SMRMethodId = SMRMethodIds.register(SMRMethod);
+        }
         serializerType = Serializers.getSerializer(b.readByte());
         byte numArguments = b.readByte();
         Object[] arguments = new Object[numArguments];
@@ -121,15 +152,25 @@ public class SMREntry extends LogEntry implements ISMRConsumable {
     @Override
     public void serialize(ByteBuf b) {
         super.serialize(b);
-        b.writeShort(SMRMethod.length());
-        b.writeBytes(SMRMethod.getBytes());
+        // Entries are logged with method names unless method ids are enabled, since
+        // readers which predate method ids can't decode them. The name of an entry
+        // read with a method id may be unknown, then it is logged with its id.
+        final String method = getSMRMethod();
+        if (method == null || (runtime != null
+                && runtime.getParameters().isSmrMethodIdsEnabled())) {
+            // The sign bit distinguishes the id from the length of a method name
+            b.writeInt(SMRMethodId | Integer.MIN_VALUE);
+        } else {
+            b.writeShort(method.length());
+            b.writeBytes(method.getBytes());
+        }
         b.writeByte(serializerType.getType());
         b.writeByte(SMRArguments.length);
         Arrays.stream(SMRArguments)
                 .forEach(x -> {
                     int lengthIndex = b.writerIndex();
                     b.writeInt(0);
-                    serializerType.serialize(x, b);
+                    serializerType.serialize(x, b, runtime);
                     int length = b.writerIndex() - lengthIndex - 4;
                     b.writerIndex(lengthIndex);
                     b.writeInt(length);
@@ -5,11 +5,13 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.AttributeKey;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -17,7 +19,8 @@ import java.util.UUID;
  *
  * - Once the client connects to the server, it sends a handshake message that contains:
  *         its own id and the (asserted) server's node id.
- * - The server validates and replies with its node id and current version of Corfu.
+ * - The server validates and replies with its node id, current version of Corfu and the
+ *         payload codecs it accepts among those of the client.
  * - If validation is correct on both sides, message exchange is initiated between client-server,
  * otherwise, the handshake times out, and either server or client close the connection.
  *
@@ -33,6 +36,12 @@ public class ClientHandshakeHandler extends ChannelDuplexHandler {
     private final Queue<CorfuMsg> messages = new LinkedList<>();
     private static final String READ_TIMEOUT_HANDLER = "readTimeoutHandler";
 
+    /**
+     * The channel attribute holding the payload codecs the server accepts.
+     */
+    public static final AttributeKey<Set<PayloadCodec>> PAYLOAD_CODECS_ATTR_KEY =
+            AttributeKey.valueOf("PayloadCodecs");
+
     /** Events that the handshaker sends to downstream handlers.
      *
      */
@@ -129,6 +138,8 @@ public class ClientHandshakeHandler extends ChannelDuplexHandler {
         }
 
         log.info("channelRead: Handshake succeeded. Server Corfu Version: [{}]", corfuVersion);
+        ctx.channel().attr(PAYLOAD_CODECS_ATTR_KEY)
+                .set(handshakeResponse.getPayload().getPayloadCodecs());
         log.debug("channelRead: There are [{}] messages in queue to be flushed.", this.messages.size());
         // Flush messages in queue
         while (!messages.isEmpty()) {
@@ -154,7 +165,7 @@ public class ClientHandshakeHandler extends ChannelDuplexHandler {
 
         // Write the handshake & add a timeout listener.
         CorfuMsg handshake = CorfuMsgType.HANDSHAKE_INITIATE
-            .payloadMsg(new HandshakeMsg(this.clientId, this.nodeId));
+            .payloadMsg(new HandshakeMsg(this.clientId, this.nodeId, PayloadCodec.SUPPORTED));
 
         log.info("channelActive: Initiate handshake. Send handshake message.");
         ctx.writeAndFlush(handshake);
@@ -133,6 +133,14 @@ public class CorfuMsg {
         this.requestID = msg.requestID;
     }
 
+    /**
+     * Copy the message out of the buffer it was received in, if it holds on to it.
+     * Messages which are dropped without being handled must be detached.
+     */
+    public void detach() {
+        // Messages copy their fields out of the buffer by default.
+    }
+
     /**
      * Release the underlying buffer, if present.
      */
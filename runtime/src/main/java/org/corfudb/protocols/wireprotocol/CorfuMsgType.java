@@ -51,6 +51,8 @@ public enum CorfuMsgType {
     SEQUENCER_TRIM_REQ(23, new TypeToken<CorfuPayloadMsg<Long>>() {}),
     SEQUENCER_METRICS_REQUEST(24, TypeToken.of(CorfuMsg.class), true),
     SEQUENCER_METRICS_RESPONSE(25, new TypeToken<CorfuPayloadMsg<SequencerMetrics>>(){}, true),
+    TOKEN_BATCH_REQ(26, new TypeToken<CorfuPayloadMsg<TokenBatchRequest>>(){}),
+    TOKEN_BATCH_RES(27, new TypeToken<CorfuPayloadMsg<TokenBatchResponse>>(){}),
 
     // Logging Unit Messages
     WRITE(30, new TypeToken<CorfuPayloadMsg<WriteRequest>>() {}),
@@ -60,6 +62,8 @@ public enum CorfuMsgType {
     TRIM(33, new TypeToken<CorfuPayloadMsg<TrimRequest>>() {}),
     FILL_HOLE(34, new TypeToken<CorfuPayloadMsg<FillHoleRequest>>() {}),
     PREFIX_TRIM(38, new TypeToken<CorfuPayloadMsg<TrimRequest>>() {}),
+    STREAM_ADDRESS_REQUEST(39, new TypeToken<CorfuPayloadMsg<StreamAddressRequest>>() {}),
+    STREAM_ADDRESS_RESPONSE(40, new TypeToken<CorfuPayloadMsg<StreamAddressResponse>>() {}),
     TAIL_REQUEST(41, TypeToken.of(CorfuMsg.class)),
     TAIL_RESPONSE(42, new TypeToken<CorfuPayloadMsg<TailsResponse>>(){}),
     COMPACT_REQUEST(43, TypeToken.of(CorfuMsg.class), true),
@@ -67,6 +71,8 @@ public enum CorfuMsgType {
     TRIM_MARK_REQUEST(45, TypeToken.of(CorfuMsg.class)),
     TRIM_MARK_RESPONSE(46, new TypeToken<CorfuPayloadMsg<Long>>(){}),
     RESET_LOGUNIT(47, new TypeToken<CorfuPayloadMsg<Long>>(){}, true),
+    CONTIGUOUS_TAIL_REQUEST(48, TypeToken.of(CorfuMsg.class)),
+    CONTIGUOUS_TAIL_RESPONSE(49, new TypeToken<CorfuPayloadMsg<Long>>(){}),
 
     WRITE_OK(50, TypeToken.of(CorfuMsg.class)),
     ERROR_TRIMMED(51, TypeToken.of(CorfuMsg.class)),
@@ -46,6 +46,13 @@ public class CorfuPayloadMsg<T> extends CorfuMsg {
         ICorfuPayload.serialize(buffer, payload);
     }
 
+    @Override
+    public void detach() {
+        if (payload instanceof WriteRequest) {
+            ((WriteRequest) payload).detach();
+        }
+    }
+
     /**
      * Parse the rest of the message from the buffer. Classes that extend CorfuMsg
      * should parse their fields in this method.
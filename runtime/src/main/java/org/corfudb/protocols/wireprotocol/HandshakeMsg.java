@@ -2,6 +2,8 @@ package org.corfudb.protocols.wireprotocol;
 
 import io.netty.buffer.ByteBuf;
 
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
 
 import lombok.AllArgsConstructor;
@@ -19,6 +21,11 @@ public class HandshakeMsg implements ICorfuPayload<HandshakeMsg> {
     private UUID clientId;
     private UUID serverId;
 
+    /**
+     * The payload codecs the client can encode log entries with.
+     */
+    private Set<PayloadCodec> payloadCodecs;
+
     /**
      * Constructor to generate an initiating Handshake Message Payload.
      *
@@ -27,11 +34,16 @@ public class HandshakeMsg implements ICorfuPayload<HandshakeMsg> {
     public HandshakeMsg(ByteBuf buf) {
         clientId = ICorfuPayload.fromBuffer(buf, UUID.class);
         serverId = ICorfuPayload.fromBuffer(buf, UUID.class);
+        // Clients which predate payload codecs don't send any
+        payloadCodecs = buf.isReadable()
+                ? PayloadCodec.codecsFromBuffer(buf)
+                : EnumSet.of(PayloadCodec.NONE);
     }
 
     @Override
     public void doSerialize(ByteBuf buf) {
         ICorfuPayload.serialize(buf, clientId);
         ICorfuPayload.serialize(buf, serverId);
+        ICorfuPayload.serialize(buf, payloadCodecs);
     }
 }
@@ -2,6 +2,8 @@ package org.corfudb.protocols.wireprotocol;
 
 import io.netty.buffer.ByteBuf;
 
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
 
 import lombok.AllArgsConstructor;
@@ -19,14 +21,24 @@ public class HandshakeResponse implements ICorfuPayload<HandshakeResponse> {
     private UUID serverId;
     private String corfuVersion;
 
+    /**
+     * The payload codecs, among those of the client, the server accepts log entries in.
+     */
+    private Set<PayloadCodec> payloadCodecs;
+
     public HandshakeResponse(ByteBuf buf) {
         serverId = ICorfuPayload.fromBuffer(buf, UUID.class);
         corfuVersion = ICorfuPayload.fromBuffer(buf, String.class);
+        // Servers which predate payload codecs don't send any
+        payloadCodecs = buf.isReadable()
+                ? PayloadCodec.codecsFromBuffer(buf)
+                : EnumSet.of(PayloadCodec.NONE);
     }
 
     @Override
     public void doSerialize(ByteBuf buf) {
         ICorfuPayload.serialize(buf, serverId);
         ICorfuPayload.serialize(buf, corfuVersion);
+        ICorfuPayload.serialize(buf, payloadCodecs);
     }
 }
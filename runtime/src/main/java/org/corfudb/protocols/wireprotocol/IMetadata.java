@@ -218,6 +218,22 @@ public interface IMetadata {
         getMetadataMap().put(CHECKPOINTED_STREAM_START_LOG_ADDRESS, startLogAddress);
     }
 
+    /**
+     * Get the codec the payload of this entry is encoded with.
+     */
+    default PayloadCodec getPayloadCodec() {
+        return (PayloadCodec) getMetadataMap().getOrDefault(LogUnitMetadataType.PAYLOAD_CODEC,
+                PayloadCodec.NONE);
+    }
+
+    default void setPayloadCodec(PayloadCodec codec) {
+        if (codec == PayloadCodec.NONE) {
+            getMetadataMap().remove(LogUnitMetadataType.PAYLOAD_CODEC);
+        } else {
+            getMetadataMap().put(LogUnitMetadataType.PAYLOAD_CODEC, codec);
+        }
+    }
+
     @RequiredArgsConstructor
     public enum LogUnitMetadataType implements ITypedEnum {
         RANK(1, TypeToken.of(DataRank.class)),
@@ -230,7 +246,8 @@ public interface IMetadata {
         CHECKPOINTED_STREAM_START_LOG_ADDRESS(9, TypeToken.of(Long.class)),
         CLIENT_ID(10, TypeToken.of(UUID.class)),
         THREAD_ID(11, TypeToken.of(Long.class)),
-        EPOCH(12, TypeToken.of(Long.class))
+        EPOCH(12, TypeToken.of(Long.class)),
+        PAYLOAD_CODEC(13, TypeToken.of(PayloadCodec.class))
         ;
         final int type;
         @Getter
@@ -25,13 +25,24 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
     @Getter
     final DataType type;
 
-    @Getter
     byte[] data;
 
+    /**
+     * The payload of an entry decoded from a buffer without copying it: a retained slice
+     * of that buffer, which is released once the payload is copied out.
+     */
+    private ByteBuf dataBuf = null;
+
     private ByteBuf serializedCache = null;
 
     private int lastKnownSize = NOT_KNOWN;
 
+    /**
+     * The codec the payload was last encoded with by {@link #encodePayload(PayloadCodec)},
+     * or null if it wasn't encoded.
+     */
+    private PayloadCodec encodedWith = null;
+
     private final transient AtomicReference<Object> payload = new AtomicReference<>();
 
     public static LogData getTrimmed(long address) {
@@ -53,7 +64,7 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
     }
 
     /**
-     * Return the payload.
+     * Return the payload, decoding it with its codec the first time.
      */
     public Object getPayload(CorfuRuntime runtime) {
         Object value = payload.get();
@@ -61,10 +72,12 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
             synchronized (this.payload) {
                 value = this.payload.get();
                 if (value == null) {
+                    byte[] data = getData();
                     if (data == null) {
                         this.payload.set(null);
                     } else {
-                        ByteBuf copyBuf = Unpooled.wrappedBuffer(data);
+                        ByteBuf copyBuf =
+                                Unpooled.wrappedBuffer(getPayloadCodec().decompress(data));
                         final Object actualValue =
                                 Serializers.CORFU.deserialize(copyBuf, runtime);
                         // TODO: Remove circular dependency on logentry.
@@ -76,7 +89,7 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
                         this.payload.set(value);
                         copyBuf.release();
                         lastKnownSize = data.length;
-                        data = null;
+                        this.data = null;
                     }
                 }
             }
@@ -106,10 +119,66 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
         }
     }
 
+    /**
+     * Return the serialized payload, copying it out of the buffer the entry was
+     * decoded from if it wasn't copied yet.
+     */
+    public synchronized byte[] getData() {
+        if (dataBuf != null) {
+            data = byteArrayFromBuf(dataBuf);
+            dataBuf.release();
+            dataBuf = null;
+        }
+        return data;
+    }
+
+    /**
+     * Return the serialized payload without copying it.
+     *
+     * @return A buffer over the payload, which the caller must release, or null if
+     *     the entry has no serialized payload.
+     */
+    public synchronized ByteBuf getDataBuffer() {
+        if (dataBuf != null) {
+            return dataBuf.retainedDuplicate();
+        } else if (data != null) {
+            return Unpooled.wrappedBuffer(data);
+        }
+        return null;
+    }
+
+    /**
+     * Return the size of the serialized payload, without copying it.
+     *
+     * @return The size of the payload, or 0 if the entry has no serialized payload.
+     */
+    public synchronized int getDataSize() {
+        if (dataBuf != null) {
+            return dataBuf.readableBytes();
+        }
+        return data == null ? 0 : data.length;
+    }
+
+    /**
+     * Copy the payload out of the buffer the entry was decoded from, and release that
+     * buffer. Entries decoded without copying their payload must be detached before
+     * they outlive the message they were received in.
+     */
+    public void detachData() {
+        getData();
+    }
+
     @Override
     public int getSizeEstimate() {
-        byte[] tempData = data;
-        if (tempData != null) {
+        ByteBuf tempDataBuf;
+        byte[] tempData;
+        synchronized (this) {
+            tempDataBuf = dataBuf;
+            tempData = data;
+        }
+        if (tempDataBuf != null) {
+            return tempDataBuf.readableBytes();
+        } else if (tempData != null) {
             return tempData.length;
         } else if (lastKnownSize != NOT_KNOWN) {
             return lastKnownSize;
@@ -126,8 +195,21 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
      * Return the payload.
      */
     public LogData(ByteBuf buf) {
+        this(buf, false);
+    }
+
+    /**
+     * Decode an entry from a buffer.
+     *
+     * @param buf       The buffer to decode the entry from.
+     * @param sliceData Whether to keep a retained slice of the buffer as the payload
+     *                  instead of copying it, see {@link #detachData()}.
+     */
+    LogData(ByteBuf buf, boolean sliceData) {
         type = ICorfuPayload.fromBuffer(buf, DataType.class);
-        if (type == DataType.DATA) {
+        if (type == DataType.DATA && sliceData) {
+            dataBuf = ICorfuPayload.fromBuffer(buf, ByteBuf.class);
+        } else if (type == DataType.DATA) {
             data = ICorfuPayload.fromBuffer(buf, byte[].class);
         } else {
             data = null;
@@ -206,10 +288,10 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
         }
     }
 
-    void doSerializeInternal(ByteBuf buf) {
+    synchronized void doSerializeInternal(ByteBuf buf) {
         ICorfuPayload.serialize(buf, type);
         if (type == DataType.DATA) {
-            if (data == null) {
+            if (data == null && dataBuf == null) {
                 int lengthIndex = buf.writerIndex();
                 buf.writeInt(0);
                 Serializers.CORFU.serialize(payload.get(), buf);
@@ -217,6 +299,9 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
                 buf.writerIndex(lengthIndex);
                 buf.writeInt(size);
                 buf.writerIndex(lengthIndex + size + 4);
+            } else if (dataBuf != null) {
+                buf.writeInt(dataBuf.readableBytes());
+                buf.writeBytes(dataBuf, dataBuf.readerIndex(), dataBuf.readableBytes());
             } else {
                 ICorfuPayload.serialize(buf, data);
             }
@@ -226,6 +311,50 @@ public class LogData implements ICorfuPayload<LogData>, IMetadata, ILogData {
         }
     }
 
+    /**
+     * Serialize and compress the payload with the given codec when the entry is built,
+     * and set the codec of the entry to the one the payload was encoded with. The encoded
+     * payload is kept, so it is only compressed once however many times the entry is
+     * serialized. If compressing it doesn't save space, the payload is left uncompressed
+     * and the codec unset. An uncompressed payload is still serialized as the entry is.
+     * Entries which only hold a serialized payload are left as is.
+     *
+     * @param codec The codec to compress the payload with.
+     */
+    public synchronized void encodePayload(PayloadCodec codec) {
+        final Object value = payload.get();
+        if (type != DataType.DATA || value == null || codec == encodedWith) {
+            return;
+        }
+
+        if (codec == PayloadCodec.NONE) {
+            // Drop a payload encoded for an earlier attempt of the write
+            data = null;
+            encodedWith = null;
+            setPayloadCodec(PayloadCodec.NONE);
+            return;
+        }
+
+        ByteBuf serialized = Unpooled.buffer();
+        try {
+            Serializers.CORFU.serialize(value, serialized);
+            byte[] raw = new byte[serialized.readableBytes()];
+            serialized.readBytes(raw);
+            byte[] encoded = raw.length >= PayloadCodec.MIN_COMPRESSED_SIZE
+                    ? codec.compress(raw) : raw;
+            if (encoded.length < raw.length) {
+                data = encoded;
+                setPayloadCodec(codec);
+            } else {
+                data = raw;
+                setPayloadCodec(PayloadCodec.NONE);
+            }
+            encodedWith = codec;
+        } finally {
+            serialized.release();
+        }
+    }
+
     /**
      * LogData are considered equals if clientId and threadId are equal.
      * Here, it means or both of them are null or both of them are the same.
@@ -0,0 +1,161 @@
+package org.corfudb.protocols.wireprotocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * The codec the payload of a log entry is encoded with.
+ *
+ * <p>The payload is compressed by the runtime which writes it, stored as is by the log
+ * units and only decompressed by the runtimes which deserialize it. Which codecs a log
+ * unit accepts is negotiated during the handshake.
+ *
+ * <p>A compressed payload starts with the length of the uncompressed payload.
+ */
+@AllArgsConstructor
+public enum PayloadCodec implements ICorfuPayload<PayloadCodec> {
+    NONE(0) {
+        @Override
+        public byte[] compress(byte[] payload) {
+            return payload;
+        }
+
+        @Override
+        public byte[] decompress(byte[] encoded) {
+            return encoded;
+        }
+    },
+    DEFLATE(1) {
+        @Override
+        public byte[] compress(byte[] payload) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(payload);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length / 2 + 8);
+                writeLength(out, payload.length);
+                byte[] chunk = new byte[Math.min(payload.length + 64, CHUNK_SIZE)];
+                while (!deflater.finished()) {
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public byte[] decompress(byte[] encoded) {
+            Inflater inflater = new Inflater();
+            try {
+                byte[] payload = new byte[readLength(encoded)];
+                inflater.setInput(encoded, Integer.BYTES, encoded.length - Integer.BYTES);
+                int inflated = 0;
+                while (inflated < payload.length && !inflater.finished()) {
+                    int n = inflater.inflate(payload, inflated, payload.length - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != payload.length) {
+                    throw new IllegalStateException("Truncated payload, inflated "
+                            + inflated + " of " + payload.length + " bytes");
+                }
+                return payload;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupted payload", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    };
+
+    /**
+     * Payloads smaller than this are not worth compressing.
+     */
+    public static final int MIN_COMPRESSED_SIZE = 256;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * The codecs this version of Corfu can encode and decode.
+     */
+    public static final Set<PayloadCodec> SUPPORTED =
+            Collections.unmodifiableSet(EnumSet.allOf(PayloadCodec.class));
+
+    final int val;
+
+    public byte asByte() {
+        return (byte) val;
+    }
+
+    /**
+     * Encode a serialized payload.
+     *
+     * @param payload The serialized payload.
+     * @return The encoded payload.
+     */
+    public abstract byte[] compress(byte[] payload);
+
+    /**
+     * Decode a payload encoded by {@link #compress(byte[])}.
+     *
+     * @param encoded The encoded payload.
+     * @return The serialized payload.
+     */
+    public abstract byte[] decompress(byte[] encoded);
+
+    private static void writeLength(ByteArrayOutputStream out, int length) {
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+    }
+
+    private static int readLength(byte[] encoded) {
+        return ((encoded[0] & 0xFF) << 24) | ((encoded[1] & 0xFF) << 16)
+                | ((encoded[2] & 0xFF) << 8) | (encoded[3] & 0xFF);
+    }
+
+    /**
+     * Deserialize a set of codecs, skipping those which this version of Corfu
+     * doesn't know about.
+     *
+     * @param buf The buffer to deserialize.
+     * @return The known codecs of the set, which always include NONE.
+     */
+    public static Set<PayloadCodec> codecsFromBuffer(ByteBuf buf) {
+        Set<PayloadCodec> codecs = EnumSet.of(NONE);
+        int numEntries = buf.readInt();
+        for (int i = 0; i < numEntries; i++) {
+            PayloadCodec codec = typeMap.get(buf.readByte());
+            if (codec != null) {
+                codecs.add(codec);
+            }
+        }
+        return codecs;
+    }
+
+    @Override
+    public void doSerialize(ByteBuf buf) {
+        buf.writeByte(asByte());
+    }
+
+    public static final Map<Byte, PayloadCodec> typeMap =
+            Arrays.stream(PayloadCodec.values())
+                    .collect(Collectors.toMap(PayloadCodec::asByte, Function.identity()));
+}
@@ -0,0 +1,45 @@
+package org.corfudb.protocols.wireprotocol;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.UUID;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A request for the addresses of a stream in a range of the log, which a log unit
+ * resolves from its stream address index.
+ */
+@CorfuPayload
+@Data
+@RequiredArgsConstructor
+public class StreamAddressRequest implements ICorfuPayload<StreamAddressRequest> {
+
+    /** The stream to resolve. */
+    final UUID streamId;
+
+    /** The first address of the range, inclusive. */
+    final long start;
+
+    /** The last address of the range, inclusive. */
+    final long end;
+
+    /**
+     * Deserialization Constructor from ByteBuf to StreamAddressRequest.
+     *
+     * @param buf The buffer to deserialize
+     */
+    public StreamAddressRequest(ByteBuf buf) {
+        streamId = ICorfuPayload.fromBuffer(buf, UUID.class);
+        start = buf.readLong();
+        end = buf.readLong();
+    }
+
+    @Override
+    public void doSerialize(ByteBuf buf) {
+        ICorfuPayload.serialize(buf, streamId);
+        buf.writeLong(start);
+        buf.writeLong(end);
+    }
+}
@@ -0,0 +1,96 @@
+package org.corfudb.protocols.wireprotocol;
+
+import io.netty.buffer.ByteBuf;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The addresses of a stream in a range of the log, as resolved by a log unit.
+ *
+ * <p>The log unit only resolves the range up to its contiguous tail, since it cannot know
+ * which stream the addresses it has not seen yet belong to. A response carries a bounded
+ * number of addresses. When the range holds more, the resolved range ends at the last
+ * address returned, and the response carries the address to continue from.
+ *
+ * <p>On the wire, the addresses are encoded as the first address followed by variable
+ * length deltas, so a stream which is written densely takes about a byte per address.
+ */
+@CorfuPayload
+@Data
+@RequiredArgsConstructor
+public class StreamAddressResponse implements ICorfuPayload<StreamAddressResponse> {
+
+    private static final int VARINT_SHIFT = 7;
+
+    private static final int VARINT_MASK = 0x7F;
+
+    private static final int VARINT_MORE = 0x80;
+
+    /** The trim mark of the log unit, addresses below it are not resolved. */
+    final long trimMark;
+
+    /** The last address of the resolved range, below the start of the range if none is. */
+    final long resolvedTail;
+
+    /**
+     * The address a request for the rest of the range continues from, or
+     * {@link org.corfudb.runtime.view.Address#NON_ADDRESS} if the range was resolved up to
+     * the contiguous tail of the log unit.
+     */
+    final long continuation;
+
+    /** The addresses of the stream in the resolved range, in ascending order. */
+    final long[] addresses;
+
+    /**
+     * Deserialization Constructor from ByteBuf to StreamAddressResponse.
+     *
+     * @param buf The buffer to deserialize
+     */
+    public StreamAddressResponse(ByteBuf buf) {
+        trimMark = buf.readLong();
+        resolvedTail = buf.readLong();
+        continuation = buf.readLong();
+        addresses = new long[buf.readInt()];
+        if (addresses.length > 0) {
+            addresses[0] = buf.readLong();
+            for (int i = 1; i < addresses.length; i++) {
+                addresses[i] = addresses[i - 1] + readVarLong(buf);
+            }
+        }
+    }
+
+    @Override
+    public void doSerialize(ByteBuf buf) {
+        buf.writeLong(trimMark);
+        buf.writeLong(resolvedTail);
+        buf.writeLong(continuation);
+        buf.writeInt(addresses.length);
+        if (addresses.length > 0) {
+            buf.writeLong(addresses[0]);
+            for (int i = 1; i < addresses.length; i++) {
+                writeVarLong(buf, addresses[i] - addresses[i - 1]);
+            }
+        }
+    }
+
+    private static void writeVarLong(ByteBuf buf, long value) {
+        while ((value & ~VARINT_MASK) != 0) {
+            buf.writeByte((int) (value & VARINT_MASK) | VARINT_MORE);
+            value >>>= VARINT_SHIFT;
+        }
+        buf.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuf buf) {
+        long value = 0;
+        for (int shift = 0; ; shift += VARINT_SHIFT) {
+            byte b = buf.readByte();
+            value |= (long) (b & VARINT_MASK) << shift;
+            if ((b & VARINT_MORE) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -23,10 +23,16 @@ public class WriteRequest implements ICorfuPayload<WriteRequest>, IMetadata {
     @Getter
     final ILogData data;
 
+    /**
+     * Decode a write request. The payload of the entry is not copied out of the
+     * buffer, the entry must be detached once it has been written.
+     *
+     * @param buf The buffer to decode the request from.
+     */
     @SuppressWarnings("unchecked")
     public WriteRequest(ByteBuf buf) {
         writeMode = ICorfuPayload.fromBuffer(buf, WriteMode.class);
-        data = ICorfuPayload.fromBuffer(buf, LogData.class);
+        data = new LogData(buf, true);
     }
 
     public WriteRequest(WriteMode writeMode, Map<UUID, Long> streamAddresses, ByteBuf buf) {
@@ -39,6 +45,15 @@ public class WriteRequest implements ICorfuPayload<WriteRequest>, IMetadata {
         this.data = new LogData(dataType, buf);
     }
 
+    /**
+     * Copy the payload of the entry out of the buffer the request was decoded from.
+     */
+    public void detach() {
+        if (data instanceof LogData) {
+            ((LogData) data).detachData();
+        }
+    }
+
     public WriteRequest(ILogData data) {
         writeMode = WriteMode.NORMAL;
         this.data = data;
@@ -7,19 +7,28 @@ import static org.corfudb.recovery.RecoveryUtils.getLogData;
 import static org.corfudb.recovery.RecoveryUtils.getSnapShotAddressOfCheckPoint;
 import static org.corfudb.recovery.RecoveryUtils.getStartAddressOfCheckPoint;
 import static org.corfudb.recovery.RecoveryUtils.isCheckPointEntry;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
@@ -46,6 +55,8 @@ import org.corfudb.runtime.object.CorfuCompileProxy;
 import org.corfudb.runtime.view.Address;
 import org.corfudb.runtime.view.ObjectBuilder;
 import org.corfudb.util.CFUtils;
+import org.corfudb.util.CorfuComponent;
+import org.corfudb.util.MetricsUtils;
 import org.corfudb.util.Utils;
 import org.corfudb.util.serializer.ISerializer;
 import org.corfudb.util.serializer.Serializers;
@@ -63,6 +74,10 @@ import org.corfudb.util.serializer.Serializers;
  * list. In whitelist mode, only the streams present in streamsToLoad will be loaded. We make
  * sure to also include the checkpoint streams for each of them.
  *
+ * Up to numberOfPendingReads ranges of the log are read ahead of the one being processed,
+ * and their SMR updates are applied by numberOfApplyWorkers necromancers. Each stream is
+ * owned by a single necromancer, so the updates of a stream are applied in log order, while
+ * different streams are loaded in parallel.
  *
  * Created by rmichoud on 6/14/17.
  */
@@ -75,6 +90,8 @@ public class FastObjectLoader {
     static final int DEFAULT_TIMEOUT_MINUTES_FAST_LOADING = 30;
     static final int NUMBER_OF_ATTEMPT = 3;
     static final int STATUS_UPDATE_PACE = 10000;
+    static final int DEFAULT_NUMBER_OF_PENDING_READS = 4;
+    static final int DEFAULT_NUMBER_OF_APPLY_WORKERS = Runtime.getRuntime().availableProcessors();
 
     private CorfuRuntime runtime;
 
@@ -96,6 +113,20 @@ public class FastObjectLoader {
     @Getter
     private long batchReadSize = DEFAULT_BATCH_FOR_FAST_LOADER;
 
+    /**
+     * Number of ranges of batchReadSize addresses read ahead of the range being processed.
+     */
+    @Setter
+    @Getter
+    private int numberOfPendingReads = DEFAULT_NUMBER_OF_PENDING_READS;
+
+    /**
+     * Number of threads applying the SMR updates, each of them owns a partition of the streams.
+     */
+    @Setter
+    @Getter
+    private int numberOfApplyWorkers = DEFAULT_NUMBER_OF_APPLY_WORKERS;
+
     @Setter
     @Getter
     private int timeoutInMinutesForLoading = DEFAULT_TIMEOUT_MINUTES_FAST_LOADING;
@@ -175,8 +206,14 @@ public class FastObjectLoader {
 
     private long addressProcessed;
 
-    // In charge of summoning Corfu maps back in this world
-    private ExecutorService necromancer;
+    // Reads the ranges of the log ahead of the necromancers
+    private ExecutorService reader;
+
+    // In charge of summoning Corfu maps back in this world, one per partition of the streams
+    private ExecutorService[] necromancers;
+
+    // SMR updates of the range being processed, one list per necromancer
+    private List<List<Runnable>> pendingUpdates;
 
     private Map<UUID, StreamMetaData> streamsMetaData;
 
@@ -187,12 +224,27 @@ public class FastObjectLoader {
     private int retryIteration = 0;
     private long nextRead;
 
-    private List<Future> futureList;
+    private Deque<Future> futureList;
+
+    /**
+     * Metrics: throughput of the addresses read and of the SMR entries applied,
+     * latency of the range reads.
+     */
+    private final Meter meterAddressesRead;
+    private final Meter meterEntriesApplied;
+    private final Timer timerReadRange;
 
     public FastObjectLoader(@Nonnull final CorfuRuntime corfuRuntime) {
         this.runtime = corfuRuntime;
         loadInCache = !corfuRuntime.getParameters().isCacheDisabled();
         streamsMetaData = new HashMap<>();
+
+        MetricRegistry metrics = corfuRuntime.getMetrics() != null
+                ? corfuRuntime.getMetrics() : CorfuRuntime.getDefaultMetrics();
+        final String pfx = CorfuComponent.FAST_LOADER.toString();
+        meterAddressesRead = metrics.meter(pfx + "addresses-read");
+        meterEntriesApplied = metrics.meter(pfx + "entries-applied");
+        timerReadRange = metrics.timer(pfx + "read-range");
     }
 
     public void addStreamToIgnore(String streamName) {
@@ -215,32 +267,86 @@ public class FastObjectLoader {
      * what this thread is tasked with, bringing back the SMR Maps from their grave (the Log).
      *
      */
-    private void summonNecromancer() {
-        necromancer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
-                .setNameFormat("necromancer-%d").build());
-        futureList = new ArrayList<>();
+    private void summonNecromancers() {
+        reader = Executors.newFixedThreadPool(numberOfPendingReads, new ThreadFactoryBuilder()
+                .setDaemon(true).setNameFormat("necromancer-reader-%d").build());
+        ThreadFactory necromancerFactory = new ThreadFactoryBuilder()
+                .setNameFormat("necromancer-%d").build();
+        necromancers = new ExecutorService[numberOfApplyWorkers];
+        pendingUpdates = new ArrayList<>(numberOfApplyWorkers);
+        for (int i = 0; i < numberOfApplyWorkers; i++) {
+            necromancers[i] = Executors.newSingleThreadExecutor(necromancerFactory);
+            pendingUpdates.add(new ArrayList<>());
+        }
+        futureList = new ArrayDeque<>();
     }
 
-    private void invokeNecromancer(Map<Long, ILogData> logDataMap, BiConsumer<Long, ILogData> resurrectionSpell) {
-        futureList.add(necromancer.submit(() -> {
-            logDataMap.forEach((address, logData) -> {
-                resurrectionSpell.accept(address, logData);
-            });
-        }));
+    /**
+     * The necromancer in charge of a stream, all the updates of a stream
+     * are applied by the same one, in order.
+     */
+    private int necromancerOf(UUID streamId) {
+        return Math.floorMod(streamId.hashCode(), necromancers.length);
     }
 
-    private void killNecromancer() {
-        necromancer.shutdown();
+    /**
+     * Submit a spell to a necromancer. Once too many spells are pending, wait for
+     * the oldest one, so that the readers can't get arbitrarily ahead of the necromancers.
+     */
+    private void invokeNecromancer(int necromancer, Runnable resurrectionSpell) {
+        futureList.add(necromancers[necromancer].submit(resurrectionSpell));
+        while (futureList.size() > numberOfApplyWorkers * numberOfPendingReads) {
+            CFUtils.getUninterruptibly(futureList.poll());
+        }
+    }
+
+    /**
+     * Hand the SMR updates of the range just processed to their necromancers.
+     */
+    private void invokeNecromancers() {
+        for (int i = 0; i < necromancers.length; i++) {
+            final List<Runnable> updates = pendingUpdates.get(i);
+            if (!updates.isEmpty()) {
+                pendingUpdates.set(i, new ArrayList<>());
+                invokeNecromancer(i, () -> updates.forEach(Runnable::run));
+            }
+        }
+    }
+
+    /**
+     * Wait for every spell submitted so far.
+     */
+    private void awaitNecromancers() {
+        while (!futureList.isEmpty()) {
+            CFUtils.getUninterruptibly(futureList.poll());
+        }
+    }
+
+    private void killNecromancers() {
+        reader.shutdown();
+        for (ExecutorService necromancer : necromancers) {
+            necromancer.shutdown();
+        }
         try {
-            necromancer.awaitTermination(timeoutInMinutesForLoading, TimeUnit.MINUTES);
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(timeoutInMinutesForLoading);
+            for (ExecutorService necromancer : necromancers) {
+                necromancer.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            }
         } catch (InterruptedException e) {
             String msg = "Necromancer is taking too long to load the maps. Gave up.";
             log.error(msg);
             fail(msg);
         }
-        for (Future future : futureList) {
-            CFUtils.getUninterruptibly(future);
+        awaitNecromancers();
+    }
 
+    /**
+     * Stop the readers and necromancers which are still running, if loading failed.
+     */
+    private void banishNecromancers() {
+        reader.shutdownNow();
+        for (ExecutorService necromancer : necromancers) {
+            necromancer.shutdownNow();
         }
     }
 
@@ -371,30 +477,47 @@ public class FastObjectLoader {
             }
             CorfuCompileProxy cp = getCorfuCompileProxy(runtime, streamId, objectType);
             cp.getUnderlyingObject().applyUpdateToStreamUnsafe(entry, globalAddress);
+            meterEntriesApplied.mark();
         }
     }
 
-    private void applySmrEntryToStream(UUID streamId, SMREntry entry, long globalAddress) {
-        applySmrEntryToStream(streamId, entry, globalAddress, false);
-
+    /**
+     * Queue the entry for the necromancer in charge of its stream, it is
+     * applied once the range being processed is handed to the necromancers.
+     */
+    private void dispatchSmrEntryToStream(UUID streamId, SMREntry entry,
+                                          long globalAddress, boolean isCheckPointEntry) {
+        pendingUpdates.get(necromancerOf(streamId)).add(() ->
+                applySmrEntryToStream(streamId, entry, globalAddress, isCheckPointEntry));
     }
 
+    /**
+     * Where the SMR entries extracted from a log entry go, either applied
+     * in place or dispatched to the necromancer of their stream.
+     */
+    @FunctionalInterface
+    private interface SmrEntryApplier {
+        void apply(UUID streamId, SMREntry entry, long globalAddress, boolean isCheckPointEntry);
+    }
 
-    private void updateCorfuObjectWithSmrEntry(ILogData logData, LogEntry logEntry, long globalAddress) {
+    private void updateCorfuObjectWithSmrEntry(ILogData logData, LogEntry logEntry, long globalAddress,
+                                               SmrEntryApplier applier) {
         UUID streamId = logData.getStreams().iterator().next();
-        applySmrEntryToStream(streamId, (SMREntry) logEntry, globalAddress);
+        applier.apply(streamId, (SMREntry) logEntry, globalAddress, false);
     }
 
-    private void updateCorfuObjectWithMultiObjSmrEntry(LogEntry logEntry, long globalAddress) {
+    private void updateCorfuObjectWithMultiObjSmrEntry(LogEntry logEntry, long globalAddress,
+                                                       SmrEntryApplier applier) {
         MultiObjectSMREntry multiObjectLogEntry = (MultiObjectSMREntry) logEntry;
         multiObjectLogEntry.getEntryMap().forEach((streamId, multiSmrEntry) -> {
             multiSmrEntry.getSMRUpdates(streamId).forEach((smrEntry) -> {
-                applySmrEntryToStream(streamId, smrEntry, globalAddress);
+                applier.apply(streamId, smrEntry, globalAddress, false);
             });
         });
     }
 
-    private void updateCorfuObjectWithCheckPointEntry(ILogData logData, LogEntry logEntry) {
+    private void updateCorfuObjectWithCheckPointEntry(ILogData logData, LogEntry logEntry,
+                                                      SmrEntryApplier applier) {
         CheckpointEntry checkPointEntry = (CheckpointEntry) logEntry;
         // Just one stream, always
         UUID streamId = checkPointEntry.getStreamId();
@@ -408,7 +531,7 @@ public class FastObjectLoader {
         // We don't know in advance if there will be smrEntries
         if (checkPointEntry.getSmrEntries() != null) {
             checkPointEntry.getSmrEntries().getSMRUpdates(streamId).forEach((smrEntry) -> {
-                applySmrEntryToStream(checkPointEntry.getStreamId(), smrEntry,
+                applier.apply(checkPointEntry.getStreamId(), smrEntry,
                         startAddress, true);
             });
         }
@@ -418,8 +541,9 @@ public class FastObjectLoader {
      * Extract log entries from logData and update the Corfu Objects
      *
      * @param logData LogData received from Corfu server.
+     * @param applier where the extracted SMR entries go.
      */
-    private void updateCorfuObject(ILogData logData) {
+    private void updateCorfuObject(ILogData logData, SmrEntryApplier applier) {
         LogEntry logEntry;
         try {
             logEntry = deserializeLogData(runtime, logData);
@@ -434,13 +558,13 @@ public class FastObjectLoader {
 
         switch (logEntry.getType()) {
             case SMR:
-                updateCorfuObjectWithSmrEntry(logData, logEntry, globalAddress);
+                updateCorfuObjectWithSmrEntry(logData, logEntry, globalAddress, applier);
                 break;
             case MULTIOBJSMR:
-                updateCorfuObjectWithMultiObjSmrEntry(logEntry, globalAddress);
+                updateCorfuObjectWithMultiObjSmrEntry(logEntry, globalAddress, applier);
                 break;
             case CHECKPOINT:
-                updateCorfuObjectWithCheckPointEntry(logData, logEntry);
+                updateCorfuObjectWithCheckPointEntry(logData, logEntry, applier);
                 break;
             default:
                 log.warn("updateCorfuObject[address = {}]: Unknown data type");
@@ -507,6 +631,8 @@ public class FastObjectLoader {
     /**
      * Dispatch logData given it's type
      *
+     * The SMR entries are queued for the necromancers of their streams.
+     *
      * @param address
      * @param logData
      */
@@ -515,7 +641,7 @@ public class FastObjectLoader {
             case DATA:
                 // Checkpoint should have been processed first
                 if (!isCheckPointEntry(logData) && shouldLogDataBeProcessed(logData)) {
-                    updateCorfuObject(logData);
+                    updateCorfuObject(logData, this::dispatchSmrEntryToStream);
                 }
                 break;
             case HOLE:
@@ -611,24 +737,34 @@ public class FastObjectLoader {
      * Apply the checkPoints in parallel
      *
      * Since each checkpoint is mapped to a single stream, we can parallelize
-     * this operation.
+     * this operation. The checkpoint of a stream is read and applied by the
+     * necromancer in charge of this stream, by ranges of bulk reads.
      *
      */
     private void resurrectCheckpoints() {
-        streamsMetaData.entrySet().parallelStream()
-                .forEach(entry -> {
-                    CheckPoint checkPoint = entry.getValue().getLatestCheckPoint();
-                    if (checkPoint == null) {
-                        log.info("resurrectCheckpoints[{}]: Truncated checkpoint for this stream",
-                                Utils.toReadableId(entry.getKey()));
-                        return;
-                    }
+        summonNecromancers();
+        try {
+            streamsMetaData.forEach((streamId, streamMeta) -> {
+                CheckPoint checkPoint = streamMeta.getLatestCheckPoint();
+                if (checkPoint == null) {
+                    log.info("resurrectCheckpoints[{}]: Truncated checkpoint for this stream",
+                            Utils.toReadableId(streamId));
+                    return;
+                }
 
-                    // For now one by one read and apply
-                    for (long address : checkPoint.getAddresses()) {
-                        updateCorfuObject(getLogData(runtime, loadInCache, address));
+                invokeNecromancer(necromancerOf(streamId), () -> {
+                    for (List<Long> addresses : Lists.partition(checkPoint.getAddresses(),
+                            (int) batchReadSize * numberOfPendingReads)) {
+                        getLogData(runtime, loadInCache, addresses).values().forEach(logData ->
+                                updateCorfuObject(logData, this::applySmrEntryToStream));
+                        meterAddressesRead.mark(addresses.size());
                     }
                 });
+            });
+            killNecromancers();
+        } finally {
+            banishNecromancers();
+        }
     }
 
     /**
@@ -642,13 +778,13 @@ public class FastObjectLoader {
         // we can just do the last step. Risky, but the flag is
         // explicit enough.
         if (logHasNoCheckPoint) {
-            applyForEachAddress(this::processLogData);
+            applyForEachAddress(this::processLogData, true);
         } else {
-            applyForEachAddress(this::findCheckPointsInLogAddress);
+            applyForEachAddress(this::findCheckPointsInLogAddress, false);
             resurrectCheckpoints();
 
             resetAddressProcessed();
-            applyForEachAddress(this::processLogData);
+            applyForEachAddress(this::processLogData, true);
         }
 
     }
@@ -660,57 +796,132 @@ public class FastObjectLoader {
      */
     public void loadMaps() {
         log.info("loadMaps: Starting to resurrect maps");
+        final long startTime = System.nanoTime();
+        final long addressesRead = meterAddressesRead.getCount();
+        final long entriesApplied = meterEntriesApplied.getCount();
         initializeHeadAndTails();
         recoverRuntime();
 
+        final long elapsedMs = Math.max(1,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
         log.info("loadMaps[startAddress: {}, stopAddress (included): {}, addressProcessed: {}]",
                 logHead, logTail, addressProcessed);
+        log.info("loadMaps: read {} addresses and applied {} entries in {} ms ({} addresses/s)",
+                meterAddressesRead.getCount() - addressesRead,
+                meterEntriesApplied.getCount() - entriesApplied, elapsedMs,
+                (meterAddressesRead.getCount() - addressesRead) * 1000 / elapsedMs);
         log.info("loadMaps: Loading successful, Corfu maps are alive!");
     }
 
 
+    /**
+     * Read a range of addresses on a reader thread.
+     *
+     * If deserialize is set, the entries that will be applied are deserialized on
+     * the reader thread as well, so that the thread processing the ranges in order
+     * only has to dispatch their SMR entries.
+     *
+     * @param start start address of the range
+     * @param stopNotIncluded end address of the range (excluded)
+     * @param deserialize whether to deserialize the entries to apply
+     */
+    private CompletableFuture<Map<Long, ILogData>> readRange(long start, long stopNotIncluded,
+                                                             boolean deserialize) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Timer.Context context = MetricsUtils.getConditionalContext(timerReadRange)) {
+                Map<Long, ILogData> range = getLogData(runtime, start, stopNotIncluded);
+                if (deserialize) {
+                    range.values().forEach(this::deserializeIfProcessed);
+                }
+                meterAddressesRead.mark(range.size());
+                return range;
+            }
+        }, reader);
+    }
+
+    private void deserializeIfProcessed(ILogData logData) {
+        if (logData.getType() == DataType.DATA && !isCheckPointEntry(logData)
+                && shouldLogDataBeProcessed(logData)) {
+            try {
+                deserializeLogData(runtime, logData);
+            } catch (Exception e) {
+                // Reported when the entry is processed
+            }
+        }
+    }
+
+    /**
+     * Check that the range directly follows the last address processed.
+     *
+     * @param range range of addresses read
+     * @return false if an address of the range is trimmed, and loading must be retried.
+     */
+    private boolean canProcessRange(Map<Long, ILogData> range) {
+        for (Map.Entry<Long, ILogData> entry : range.entrySet()) {
+            long address = entry.getKey();
+            ILogData logData = entry.getValue();
+            if (address != addressProcessed + 1) {
+                fail("We missed an entry. It can lead to correctness issues.");
+            }
+            addressProcessed++;
+
+            if (logData.getType() == DataType.TRIMMED) {
+                log.warn("applyForEachAddress[{}, start={}] address is trimmed", address, logHead);
+                return false;
+            }
+
+            if (address % STATUS_UPDATE_PACE == 0) {
+                log.info("applyForEachAddress: read up to {} ({}%), {} addresses/s, {} entries/s",
+                        address, (address - logHead + 1) * 100 / (logTail - logHead + 1),
+                        (long) meterAddressesRead.getOneMinuteRate(),
+                        (long) meterEntriesApplied.getOneMinuteRate());
+            }
+        }
+        return true;
+    }
+
     /**
      * This method will apply for each address the consumer given in parameter.
      *
-     * The Necromancer thread is used to do the heavy lifting.
+     * The ranges are read ahead by the reader threads, numberOfPendingReads at a time,
+     * and handed to the consumer in order on this thread. The SMR entries it dispatches
+     * are applied by the necromancers, which do the heavy lifting.
+     *
      * @param logDataProcessor
+     * @param deserialize whether the reader threads deserialize the entries to apply
      */
-    private void applyForEachAddress(BiConsumer<Long, ILogData> logDataProcessor) {
+    private void applyForEachAddress(BiConsumer<Long, ILogData> logDataProcessor,
+                                     boolean deserialize) {
 
-        summonNecromancer();
-        nextRead = logHead;
-        while (nextRead <= logTail) {
-            final long start = nextRead;
-            final long stopNotIncluded = Math.min(start + batchReadSize, logTail + 1);
-            nextRead = stopNotIncluded;
-            final Map<Long, ILogData> range = getLogData(runtime, start, stopNotIncluded);
-
-            // Sanity
-            boolean canProcessRange = true;
-            for(Map.Entry<Long, ILogData> entry : range.entrySet()) {
-                long address = entry.getKey();
-                ILogData logData = entry.getValue();
-                if (address != addressProcessed + 1) {
-                    fail("We missed an entry. It can lead to correctness issues.");
+        summonNecromancers();
+        try {
+            Deque<CompletableFuture<Map<Long, ILogData>>> pendingReads = new ArrayDeque<>();
+            nextRead = logHead;
+            while (nextRead <= logTail || !pendingReads.isEmpty()) {
+                while (nextRead <= logTail && pendingReads.size() < numberOfPendingReads) {
+                    final long start = nextRead;
+                    final long stopNotIncluded = Math.min(start + batchReadSize, logTail + 1);
+                    nextRead = stopNotIncluded;
+                    pendingReads.add(readRange(start, stopNotIncluded, deserialize));
                 }
-                addressProcessed++;
 
-                if (logData.getType() == DataType.TRIMMED) {
-                    log.warn("applyForEachAddress[{}, start={}] address is trimmed", address, logHead);
+                final Map<Long, ILogData> range = CFUtils.getUninterruptibly(pendingReads.poll());
+                if (!canProcessRange(range)) {
+                    // The ranges read ahead are discarded, and the maps rebuilt from
+                    // scratch once the necromancers are done with the previous ranges.
+                    pendingReads.clear();
+                    awaitNecromancers();
                     handleRetry();
-                    canProcessRange = false;
-                    break;
+                    continue;
                 }
 
-                if(address % STATUS_UPDATE_PACE == 0) {
-                    log.info("applyForEachAddress: read up to {}", address);
-                }
-            }
-            if (canProcessRange) {
-                invokeNecromancer(range, logDataProcessor);
+                range.forEach(logDataProcessor);
+                invokeNecromancers();
             }
+            killNecromancers();
+        } finally {
+            banishNecromancers();
         }
-        killNecromancer();
     }
 
     @Data
@@ -14,6 +14,7 @@ import org.corfudb.runtime.view.ObjectsView;
 import org.corfudb.util.serializer.ISerializer;
 
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 
 import static org.corfudb.protocols.logprotocol.CheckpointEntry.CheckpointDictKey.SNAPSHOT_ADDRESS;
@@ -74,6 +75,21 @@ public class RecoveryUtils {
         }
     }
 
+    /**
+     * Fetch the LogData of several addresses from Corfu server
+     *
+     * @param addresses addresses to be fetched
+     * @return logData map ordered by addresses (increasing)
+     */
+    static Map<Long, ILogData> getLogData(CorfuRuntime runtime, boolean loadInCache,
+                                          Iterable<Long> addresses) {
+        if (loadInCache) {
+            return new TreeMap<>(runtime.getAddressSpaceView().read(addresses));
+        } else {
+            return new TreeMap<>(runtime.getAddressSpaceView().cacheFetch(addresses));
+        }
+    }
+
     /**
      * Get a range of LogData from the server
      *
@@ -89,8 +105,8 @@ public class RecoveryUtils {
      * @return logData map ordered by addresses (increasing)
      */
     static Map<Long, ILogData> getLogData(CorfuRuntime runtime, long start, long end) {
-        return runtime.getAddressSpaceView().
-                cacheFetch(ContiguousSet.create(Range.closedOpen(start, end), DiscreteDomain.longs()));
+        return new TreeMap<>(runtime.getAddressSpaceView().
+                cacheFetch(ContiguousSet.create(Range.closedOpen(start, end), DiscreteDomain.longs())));
     }
 
     /** Deserialize a logData by getting the logEntry
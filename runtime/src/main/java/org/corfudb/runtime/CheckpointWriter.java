@@ -237,6 +237,7 @@ public class CheckpointWriter<T extends Map> {
 
                 SMREntry smrEntry = new SMREntry("putAll", new Object[]{tmp}, serializer
                 );
+                smrEntry.setRuntime(rt);
                 MultiSMREntry smrEntries = new MultiSMREntry();
                 smrEntries.addTo(smrEntry);
 
@@ -260,10 +261,12 @@ public class CheckpointWriter<T extends Map> {
             for (List<Map.Entry> partition : partitions) {
                 MultiSMREntry smrEntries = new MultiSMREntry();
                 for (Map.Entry entry : partition) {
-                    smrEntries.addTo(new SMREntry("put",
+                    SMREntry smrEntry = new SMREntry("put",
                             new Object[]{keyMutator.apply(entry.getKey()),
                                     valueMutator.apply(entry.getValue())},
-                            serializer));
+                            serializer);
+                    smrEntry.setRuntime(rt);
+                    smrEntries.addTo(smrEntry);
                 }
 
                 CheckpointEntry cp = new CheckpointEntry(CheckpointEntry
@@ -34,6 +34,7 @@ import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 import org.corfudb.comm.ChannelImplementation;
 import org.corfudb.protocols.wireprotocol.MsgHandlingFilter;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
 import org.corfudb.protocols.wireprotocol.VersionInfo;
 import org.corfudb.recovery.FastObjectLoader;
 import org.corfudb.runtime.clients.BaseClient;
@@ -57,6 +58,7 @@ import org.corfudb.runtime.view.ManagementView;
 import org.corfudb.runtime.view.ObjectsView;
 import org.corfudb.runtime.view.SequencerView;
 import org.corfudb.runtime.view.StreamsView;
+import org.corfudb.runtime.view.replication.ReadRoutingPolicy;
 import org.corfudb.util.CFUtils;
 import org.corfudb.util.GitRepositoryState;
 import org.corfudb.util.MetricsUtils;
@@ -64,6 +66,7 @@ import org.corfudb.util.NodeLocator;
 import org.corfudb.util.Sleep;
 import org.corfudb.util.UuidUtils;
 import org.corfudb.util.Version;
+import org.corfudb.util.serializer.ClassRegistry;
 
 /**
  * Created by mwei on 12/9/15.
@@ -96,12 +99,30 @@ public class CorfuRuntime {
         @Default
         boolean optimisticUndoDisabled = false;
 
+        /**
+         * Whether SMR updates are logged with the id of their method instead of its name.
+         *
+         * <p>Clients which predate method ids can't read the updates logged with them, so
+         * this must only be enabled once every client of the cluster reads method ids.
+         */
+        @Default
+        boolean smrMethodIdsEnabled = false;
+
         /**
          * Max size for a write request.
          */
         @Default
         int maxWriteSize = 0;
 
+        /**
+         * The codec to compress the payload of log entries with.
+         *
+         * <p>Entries are only compressed when every log unit they are written to
+         * accepts the codec, and when compression makes them smaller.
+         */
+        @Default
+        PayloadCodec payloadCodec = PayloadCodec.NONE;
+
         /**
          * Use fast loader to restore objects on connection.
          *
@@ -118,6 +139,13 @@ public class CorfuRuntime {
         @Default
         int bulkReadSize = 10;
 
+        /**
+         * The maximum number of bulk reads a single read of many addresses issues
+         * concurrently.
+         */
+        @Default
+        int bulkReadConcurrency = 8;
+
         /**
          * How much time the Fast Loader has to get the maps up to date.
          *
@@ -126,6 +154,48 @@ public class CorfuRuntime {
          */
         @Default
         Duration fastLoaderTimeout = Duration.ofMinutes(30);
+
+        /**
+         * The number of ranges of bulkReadSize addresses the Fast Loader reads ahead
+         * of the range it is processing.
+         */
+        @Default
+        int fastLoaderPendingReads = 4;
+
+        /**
+         * The number of threads the Fast Loader applies updates with.
+         *
+         * <p>Each thread owns a partition of the streams, so the updates of a stream
+         * are applied in order.
+         */
+        @Default
+        int fastLoaderApplyWorkers = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * The number of threads which retry the asynchronous appends whose write failed.
+         * A retry blocks its thread until the append completes.
+         */
+        @Default
+        int appendRetryThreads = 4;
+
+        /**
+         * The maximum number of versions of each object retained for snapshot
+         * transactions, 0 to roll the object itself back to the snapshot.
+         *
+         * <p>Each retained version is a copy of the object, materialized over a stream
+         * of its own, so snapshot transactions at distinct versions don't roll back the
+         * object that other transactions use.
+         */
+        @Default
+        int maxSnapshotVersions = 0;
+
+        /**
+         * The maximum size of the versions of each object retained for snapshot
+         * transactions, in estimated bytes of the log entries applied to them. If zero,
+         * they are bounded by maxSnapshotVersions only.
+         */
+        @Default
+        long maxSnapshotBytes = 0;
         // endregion
 
         // region Address Space Parameters
@@ -146,16 +216,53 @@ public class CorfuRuntime {
         boolean cacheDisabled = false;
 
         /**
-         * The maximum size of the cache, in bytes.
+         * The maximum number of entries in the cache, unless it is bounded by maxCacheBytes.
          */
         @Default
         long numCacheEntries = 5000;
 
+        /**
+         * The maximum size of the cache, in estimated bytes of its entries. If zero,
+         * the cache is bounded by numCacheEntries instead.
+         */
+        @Default
+        long maxCacheBytes = 0;
+
+        /**
+         * The maximum size of the off-heap cache tier, which keeps the entries evicted
+         * from the cache serialized outside of the heap, in bytes. If zero, it is disabled.
+         */
+        @Default
+        long offHeapCacheBytes = 0;
+
         /**
          * Sets expireAfterAccess and expireAfterWrite in seconds.
          */
         @Default
         long cacheExpiryTime = Long.MAX_VALUE;
+
+        /**
+         * Whether chain replication writes the middle units of a chain concurrently
+         * once the head is written (the tail is still written last). Only chains longer
+         * than three units are written this way, since a chain of three has a single
+         * middle unit.
+         */
+        @Default
+        boolean parallelChainPropagation = false;
+
+        /**
+         * How chain replication reads of committed addresses are spread over the units of
+         * a chain. Addresses which are not known to be committed are read from the tail.
+         */
+        @Default
+        ReadRoutingPolicy readRoutingPolicy = ReadRoutingPolicy.TAIL;
+
+        /**
+         * Minimum interval between two queries of the committed tail of a chain,
+         * when reads are not routed to the tail only.
+         */
+        @Default
+        Duration readRoutingRefreshInterval = Duration.ofMillis(100);
         // endregion
 
         // region Handshake Parameters
@@ -173,6 +280,14 @@ public class CorfuRuntime {
         @Default
         boolean backpointersDisabled = false;
 
+        /**
+         * Whether streams are resolved from the stream address index of the log units,
+         * which returns the addresses of a stream in a single request. The addresses the
+         * index cannot resolve are still resolved by following backpointers.
+         */
+        @Default
+        boolean streamAddressIndexEnabled = false;
+
         /**
          * Whether or not hole filling should be disabled.
          */
@@ -192,6 +307,35 @@ public class CorfuRuntime {
          */
         @Default
         int trimRetry = 2;
+
+        /**
+         * Whether streams which are consumed sequentially prefetch the next entries of
+         * their read queue into the address space view cache.
+         */
+        @Default
+        boolean readAheadEnabled = false;
+
+        /**
+         * The maximum number of entries a stream prefetches ahead of its consumer.
+         */
+        @Default
+        int readAheadMaxEntries = 256;
+
+        /**
+         * The maximum estimated size of the entries a stream prefetches ahead of its
+         * consumer, in bytes.
+         */
+        @Default
+        long readAheadMaxBytes = 16L * 1024 * 1024;
+        // endregion
+
+        // region Sequencer Parameters
+        /**
+         * Maximum number of concurrent token requests coalesced into a single message to
+         * the sequencer. Token requests are sent one at a time if this is 1.
+         */
+        @Default
+        int tokenBatchSize = 1;
         // endregion
 
         //region        Security parameters
@@ -478,6 +622,11 @@ public class CorfuRuntime {
      */
     @Getter(lazy = true)
     private final ManagementView managementView = new ManagementView(this);
+    /**
+     * The dictionary of the classes serialized by the compact serializer in the cluster.
+     */
+    @Getter(lazy = true)
+    private final ClassRegistry classRegistry = new ClassRegistry(this);
 
     /**
      * A list of known layout servers.
@@ -688,6 +837,9 @@ public class CorfuRuntime {
 
         stop(true);
 
+        classRegistry.shutdown();
+        getStreamsView().shutdown();
+
         // Shutdown the event loop
         if (parameters.shutdownNettyEventLoop) {
             nettyEventLoop.shutdownGracefully();
@@ -988,6 +1140,8 @@ public class CorfuRuntime {
         if (parameters.isUseFastLoader()) {
             FastObjectLoader fastLoader = new FastObjectLoader(this)
                     .setBatchReadSize(parameters.getBulkReadSize())
+                    .setNumberOfPendingReads(parameters.getFastLoaderPendingReads())
+                    .setNumberOfApplyWorkers(parameters.getFastLoaderApplyWorkers())
                     .setTimeoutInMinutesForLoading((int) parameters.fastLoaderTimeout.toMinutes());
             fastLoader.loadMaps();
         }
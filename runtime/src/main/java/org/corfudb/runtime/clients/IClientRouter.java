@@ -2,10 +2,13 @@ package org.corfudb.runtime.clients;
 
 import io.netty.channel.ChannelHandlerContext;
 
+import java.util.EnumSet;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 import org.corfudb.protocols.wireprotocol.CorfuMsg;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
 
 /**
  * This is an interface in which all client routers must implement.
@@ -147,4 +150,12 @@ public interface IClientRouter {
      * @param timeoutResponse Response timeout in milliseconds.
      */
     void setTimeoutResponse(long timeoutResponse);
+
+    /**
+     * The payload codecs the server accepts log entries in, as negotiated
+     * during the handshake. Only NONE until the handshake completes.
+     */
+    default Set<PayloadCodec> getPayloadCodecs() {
+        return EnumSet.of(PayloadCodec.NONE);
+    }
 }
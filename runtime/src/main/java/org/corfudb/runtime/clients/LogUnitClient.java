@@ -19,6 +19,8 @@ import org.corfudb.protocols.wireprotocol.MultipleReadRequest;
 import org.corfudb.protocols.wireprotocol.RangeWriteMsg;
 import org.corfudb.protocols.wireprotocol.ReadRequest;
 import org.corfudb.protocols.wireprotocol.ReadResponse;
+import org.corfudb.protocols.wireprotocol.StreamAddressRequest;
+import org.corfudb.protocols.wireprotocol.StreamAddressResponse;
 import org.corfudb.protocols.wireprotocol.Token;
 import org.corfudb.protocols.wireprotocol.TailsResponse;
 import org.corfudb.protocols.wireprotocol.TrimRequest;
@@ -229,6 +231,29 @@ public class LogUnitClient extends AbstractClient {
         return sendMessageWithFuture(CorfuMsgType.TRIM_MARK_REQUEST.msg());
     }
 
+    /**
+     * Get the contiguous tail of a log unit, the highest address such that every address
+     * up to it is written, hole filled or trimmed on the log unit.
+     * @return A CompletableFuture for the contiguous tail
+     */
+    public CompletableFuture<Long> getContiguousTail() {
+        return sendMessageWithFuture(CorfuMsgType.CONTIGUOUS_TAIL_REQUEST.msg());
+    }
+
+    /**
+     * Get the addresses of a stream in a range, from the stream address index of a log unit.
+     * The log unit only resolves the range up to its contiguous tail.
+     * @param streamId  The stream to resolve.
+     * @param start     The first address of the range, inclusive.
+     * @param end       The last address of the range, inclusive.
+     * @return A CompletableFuture for the addresses of the stream in the resolved range
+     */
+    public CompletableFuture<StreamAddressResponse> getStreamAddresses(UUID streamId,
+                                                                      long start, long end) {
+        return sendMessageWithFuture(CorfuMsgType.STREAM_ADDRESS_REQUEST
+                .payloadMsg(new StreamAddressRequest(streamId, start, end)));
+    }
+
     /**
      * Send a hint to the logging unit that a stream can be trimmed.
      *
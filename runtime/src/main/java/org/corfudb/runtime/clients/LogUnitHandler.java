@@ -11,6 +11,7 @@ import org.corfudb.protocols.wireprotocol.CorfuMsg;
 import org.corfudb.protocols.wireprotocol.CorfuMsgType;
 import org.corfudb.protocols.wireprotocol.CorfuPayloadMsg;
 import org.corfudb.protocols.wireprotocol.ReadResponse;
+import org.corfudb.protocols.wireprotocol.StreamAddressResponse;
 import org.corfudb.protocols.wireprotocol.TailsResponse;
 import org.corfudb.runtime.exceptions.DataCorruptionException;
 import org.corfudb.runtime.exceptions.DataOutrankedException;
@@ -207,4 +208,30 @@ public class LogUnitHandler implements IClient, IHandler<LogUnitClient> {
                                              ChannelHandlerContext ctx, IClientRouter r) {
         return msg.getPayload();
     }
+
+    /**
+     * Handle a CONTIGUOUS_TAIL_RESPONSE message
+     * @param msg   Incoming Message
+     * @param ctx   Context
+     * @param r     Router
+     */
+    @ClientHandler(type=CorfuMsgType.CONTIGUOUS_TAIL_RESPONSE)
+    private static Object handleContiguousTailResponse(CorfuPayloadMsg<Long> msg,
+                                                       ChannelHandlerContext ctx,
+                                                       IClientRouter r) {
+        return msg.getPayload();
+    }
+
+    /**
+     * Handle a STREAM_ADDRESS_RESPONSE message
+     * @param msg   Incoming Message
+     * @param ctx   Context
+     * @param r     Router
+     */
+    @ClientHandler(type=CorfuMsgType.STREAM_ADDRESS_RESPONSE)
+    private static Object handleStreamAddressResponse(CorfuPayloadMsg<StreamAddressResponse> msg,
+                                                      ChannelHandlerContext ctx,
+                                                      IClientRouter r) {
+        return msg.getPayload();
+    }
 }
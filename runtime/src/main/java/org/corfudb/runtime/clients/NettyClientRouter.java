@@ -24,9 +24,11 @@ import io.netty.util.concurrent.GlobalEventExecutor;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -49,6 +51,7 @@ import org.corfudb.protocols.wireprotocol.CorfuMsgType;
 import org.corfudb.protocols.wireprotocol.InboundMsgFilterHandler;
 import org.corfudb.protocols.wireprotocol.NettyCorfuMessageDecoder;
 import org.corfudb.protocols.wireprotocol.NettyCorfuMessageEncoder;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
 import org.corfudb.runtime.CorfuRuntime;
 import org.corfudb.runtime.CorfuRuntime.CorfuRuntimeParameters;
 import org.corfudb.runtime.exceptions.NetworkException;
@@ -387,6 +390,17 @@ public class NettyClientRouter extends SimpleChannelInboundHandler<CorfuMsg>
         connectionFuture.completeExceptionally(new ShutdownException());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<PayloadCodec> getPayloadCodecs() {
+        final Channel currentChannel = channel;
+        Set<PayloadCodec> codecs = currentChannel == null ? null
+                : currentChannel.attr(ClientHandshakeHandler.PAYLOAD_CODECS_ATTR_KEY).get();
+        return codecs == null ? EnumSet.of(PayloadCodec.NONE) : codecs;
+    }
+
     /** {@inheritDoc}
      *  @deprecated  Deprecated, stopping a router without shutting it down is no longer supported.
      *               Please use {@link this#stop()}.
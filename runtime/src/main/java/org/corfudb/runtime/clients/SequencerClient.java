@@ -8,6 +8,8 @@ import java.util.concurrent.CompletableFuture;
 import org.corfudb.protocols.wireprotocol.CorfuMsgType;
 import org.corfudb.protocols.wireprotocol.SequencerMetrics;
 import org.corfudb.protocols.wireprotocol.SequencerTailsRecoveryMsg;
+import org.corfudb.protocols.wireprotocol.TokenBatchRequest;
+import org.corfudb.protocols.wireprotocol.TokenBatchResponse;
 import org.corfudb.protocols.wireprotocol.TokenRequest;
 import org.corfudb.protocols.wireprotocol.TokenResponse;
 import org.corfudb.protocols.wireprotocol.TxResolutionInfo;
@@ -59,6 +61,18 @@ public class SequencerClient extends AbstractClient {
                 new TokenRequest(numTokens, streamIDs, conflictInfo)));
     }
 
+    /**
+     * Fetches tokens for a batch of token requests in a single message.
+     *
+     * @param requests Token requests, served by the sequencer in this order.
+     * @return A completable future with the token responses, in the order of the requests.
+     */
+    public CompletableFuture<List<TokenResponse>> nextTokens(List<TokenRequest> requests) {
+        return this.<TokenBatchResponse>sendMessageWithFuture(CorfuMsgType.TOKEN_BATCH_REQ
+                .payloadMsg(new TokenBatchRequest(requests)))
+                .thenApply(TokenBatchResponse::getResponses);
+    }
+
     public CompletableFuture<Void> trimCache(Long address) {
         return sendMessageWithFuture(CorfuMsgType.SEQUENCER_TRIM_REQ.payloadMsg(address));
     }
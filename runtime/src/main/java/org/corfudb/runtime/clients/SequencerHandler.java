@@ -10,6 +10,7 @@ import lombok.Setter;
 import org.corfudb.protocols.wireprotocol.CorfuMsgType;
 import org.corfudb.protocols.wireprotocol.CorfuPayloadMsg;
 import org.corfudb.protocols.wireprotocol.SequencerMetrics;
+import org.corfudb.protocols.wireprotocol.TokenBatchResponse;
 import org.corfudb.protocols.wireprotocol.TokenResponse;
 
 
@@ -49,4 +50,10 @@ public class SequencerHandler implements IClient, IHandler<SequencerClient> {
                                               ChannelHandlerContext ctx, IClientRouter r) {
         return msg.getPayload();
     }
+
+    @ClientHandler(type = CorfuMsgType.TOKEN_BATCH_RES)
+    private static Object handleTokenBatchResponse(CorfuPayloadMsg<TokenBatchResponse> msg,
+                                                   ChannelHandlerContext ctx, IClientRouter r) {
+        return msg.getPayload();
+    }
 }
@@ -15,9 +15,11 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -37,6 +39,7 @@ import org.corfudb.annotations.CorfuObject;
 import org.corfudb.annotations.DontInstrument;
 import org.corfudb.annotations.Mutator;
 import org.corfudb.annotations.MutatorAccessor;
+import org.corfudb.annotations.PassThrough;
 import org.corfudb.annotations.TransactionalMethod;
 import org.corfudb.util.ImmuableListSetWrapper;
 
@@ -54,6 +57,16 @@ import org.corfudb.util.ImmuableListSetWrapper;
  * that can be done on a retrieval on the index. A common projection is to emit only the
  * values.
  *
+ * <p>Secondary indexes are hash indexes, which support exact-match lookups, or ordered indexes,
+ * which also support range, prefix and top-N lookups, returning the entries in the order of
+ * their index values. An ordered index is declared with the type of its index values, and
+ * doesn't index rows whose index value is null or of another type.
+ *
+ * <p>The primary mappings are kept in a hash map, or optionally in a {@link PersistentHashMap},
+ * so that each version of the table is an immutable snapshot of the mappings. A snapshot is
+ * taken in constant time, and is read without holding the object while it is updated: large
+ * scans of a table backed by a persistent map don't delay its updates.
+ *
  * @param <K>   The type of the primary key.
  * @param <V>   The type of the values to be mapped.
  */
@@ -104,20 +117,64 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
         // A flag representing whether a single indexer or a multi indexer
         private final boolean monoIndex;
 
+        // The type of the index values of an ordered index, or null for a hash index
+        private final Class<I> orderedType;
+
         public Index(CorfuTable.IndexName name, CorfuTable.IndexFunction<K, V, I> indexFunction) {
+            this(name, indexFunction, null);
+        }
+
+        /**
+         * Describe a single indexer.
+         *
+         * @param name          name of the index.
+         * @param indexFunction function computing the index value of a record.
+         * @param orderedType   the type of the index values, if the index keeps them ordered
+         *                      to support range queries, or null. Ordered indexes don't
+         *                      index null values, or values of another type.
+         */
+        public Index(CorfuTable.IndexName name, CorfuTable.IndexFunction<K, V, I> indexFunction,
+                     Class<I> orderedType) {
             this.name = name;
             this.indexFunction = indexFunction;
             this.multiValueIndexFunction =
                     (k, v) -> Collections.singletonList(indexFunction.apply(k, v));
-            monoIndex = true;
+            this.monoIndex = true;
+            this.orderedType = checkOrderedType(name, orderedType);
         }
 
         public Index(CorfuTable.IndexName name,
                      CorfuTable.MultiValueIndexFunction<K, V, I> indexFunction) {
+            this(name, indexFunction, null);
+        }
+
+        /**
+         * Describe a multi indexer.
+         *
+         * @param name          name of the index.
+         * @param indexFunction function computing the index values of a record.
+         * @param orderedType   the type of the index values, if the index keeps them ordered
+         *                      to support range queries, or null. Ordered indexes don't
+         *                      index null values, or values of another type.
+         */
+        public Index(CorfuTable.IndexName name,
+                     CorfuTable.MultiValueIndexFunction<K, V, I> indexFunction,
+                     Class<I> orderedType) {
             this.name = name;
             this.indexFunction = (k, v) -> indexFunction.apply(k, v).iterator().next();
             this.multiValueIndexFunction = indexFunction;
-            monoIndex = false;
+            this.monoIndex = false;
+            this.orderedType = checkOrderedType(name, orderedType);
+        }
+
+        private static <I> Class<I> checkOrderedType(CorfuTable.IndexName name,
+                                                     Class<I> orderedType) {
+            if (orderedType != null && (!Comparable.class.isAssignableFrom(orderedType)
+                    || orderedType == Comparable.class)) {
+                throw new IllegalArgumentException("Ordered index " + name.get()
+                        + " must have index values of a comparable type, not " + orderedType);
+            }
+            return orderedType;
         }
 
         public CorfuTable.IndexName getName() {
@@ -136,6 +193,18 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
             return monoIndex;
         }
 
+        public boolean isOrdered() {
+            return orderedType != null;
+        }
+
+        /**
+         * Whether an index value is kept in the index: ordered indexes only keep non-null
+         * values of their type, so that all their values are mutually comparable.
+         */
+        private boolean isIndexed(Object indexKey) {
+            return orderedType == null || orderedType.isInstance(indexKey);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -268,22 +337,39 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
     }
 
     /** The "main" map which contains the primary key-value mappings. */
-    private final Map<K,V> mainMap = new HashMap<>();
+    private final Map<K,V> mainMap;
     private Set<Index<K, V, ? extends Comparable>> indexSpec = new HashSet<>();
     private final Map<String, Map<Comparable, Map<K, V>>> secondaryIndexes = new HashMap<>();
 
+    /** True, if the main map is a persistent map. */
+    @Getter
+    private final boolean persistent;
+
     @Getter
     boolean indexGenerationFailed = false;
 
-    /** Generate a table with the given set of indexes. */
-    public CorfuTable(IndexRegistry<K, V> indices) {
+    /** Generate a table with the given set of indexes.
+     *
+     * @param indices       The secondary indexes of the table.
+     * @param persistent    True, to keep the mappings in a persistent map, which
+     *                      lets readers take snapshots of the table.
+     */
+    public CorfuTable(IndexRegistry<K, V> indices, boolean persistent) {
+        this.persistent = persistent;
+        this.mainMap = persistent ? new PersistentMainMap<>() : new HashMap<>();
         indices.forEach(index -> {
-            secondaryIndexes.put(index.getName().get(), new HashMap<>());
+            secondaryIndexes.put(index.getName().get(),
+                    index.isOrdered() ? new TreeMap<>() : new HashMap<>());
             indexSpec.add(index);
         });
         log.info("CorfuTable: creating CorfuTable with the following indexes: {}", secondaryIndexes.keySet().toString());
     }
 
+    /** Generate a table with the given set of indexes. */
+    public CorfuTable(IndexRegistry<K, V> indices) {
+        this(indices, false);
+    }
+
     /** Default constructor. Generates a table without any secondary indexes. */
     public CorfuTable() {
         this(IndexRegistry.empty());
@@ -350,7 +436,7 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
         if (secondaryIndexes.containsKey(secondaryIndex) &&
                 ((secondaryMap = secondaryIndexes.get(secondaryIndex)) != null)) {
             // If secondary index exists and function for this index is not null
-            Map<K, V> res = secondaryMap.get(indexKey);
+            Map<K, V> res = getSlot(secondaryMap, indexKey);
 
             return res == null ?
                     Collections.emptySet() :
@@ -383,10 +469,11 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
 
         if (secondaryIndexes.containsKey(secondaryIndex) &&
                 ((secondaryMap = secondaryIndexes.get(secondaryIndex)) != null)) {
-            if (secondaryMap.get(indexKey) == null) {
+            Map<K, V> slot = getSlot(secondaryMap, indexKey);
+            if (slot == null) {
                 entryStream = Stream.empty();
             } else {
-                entryStream = secondaryMap.get(indexKey).entrySet().stream();
+                entryStream = slot.entrySet().stream();
             }
 
             return entryStream.filter(entryPredicate).collect(Collectors.toCollection(ArrayList::new));
@@ -397,6 +484,127 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
         throw new IllegalArgumentException("Secondary Index " + secondaryIndex + " is not defined.");
     }
 
+    /**
+     * Get the entries whose index values are in a range, using an ordered index.
+     *
+     * @param indexName Name of the the ordered secondary index to query.
+     * @param from      The lowest index value of the range, inclusive, or null
+     *                  if the range has no lower bound.
+     * @param to        The highest index value of the range, exclusive, or null
+     *                  if the range has no upper bound.
+     * @return A collection of Map.Entry<K, V>, in ascending order of index values.
+     */
+    @Accessor
+    public @Nonnull
+    <I extends Comparable<I>>
+    Collection<Entry<K, V>> getByIndexRange(@Nonnull IndexName indexName, I from, I to) {
+        NavigableMap<Comparable, Map<K, V>> secondaryMap =
+                getOrderedIndex(secondaryIndexes, indexName);
+        NavigableMap<Comparable, Map<K, V>> range;
+        if (from == null) {
+            range = to == null ? secondaryMap : secondaryMap.headMap(to, false);
+        } else {
+            range = to == null ? secondaryMap.tailMap(from, true)
+                    : secondaryMap.subMap(from, true, to, false);
+        }
+        return collectEntries(range.values(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the entries whose index values start with a prefix, using an ordered index
+     * of strings.
+     *
+     * @param indexName Name of the the ordered secondary index to query, whose index
+     *                  values must be strings.
+     * @param prefix    The prefix of the index values.
+     * @return A collection of Map.Entry<K, V>, in ascending order of index values.
+     */
+    @Accessor
+    public @Nonnull
+    Collection<Entry<K, V>> getByIndexPrefix(@Nonnull IndexName indexName,
+                                             @Nonnull String prefix) {
+        NavigableMap<Comparable, Map<K, V>> secondaryMap =
+                getOrderedIndex(secondaryIndexes, indexName);
+        if (indexSpec.stream().noneMatch(index -> index.getName().get().equals(indexName.get())
+                && index.orderedType == String.class)) {
+            log.error("CorfuTable: secondary index " + indexName.get() + " is not an ordered"
+                    + " index of strings, cannot complete the get by index prefix.");
+            throw new IllegalArgumentException("Secondary Index " + indexName.get()
+                    + " does not index strings.");
+        }
+        List<Map<K, V>> slots = new ArrayList<>();
+        for (Map.Entry<Comparable, Map<K, V>> slot
+                : secondaryMap.tailMap(prefix, true).entrySet()) {
+            if (!((String) slot.getKey()).startsWith(prefix)) {
+                break;
+            }
+            slots.add(slot.getValue());
+        }
+        return collectEntries(slots, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the entries with the highest index values, using an ordered index.
+     *
+     * @param indexName Name of the the ordered secondary index to query.
+     * @param limit     The maximum number of entries to return.
+     * @return A collection of Map.Entry<K, V>, in descending order of index values.
+     */
+    @Accessor
+    public @Nonnull
+    Collection<Entry<K, V>> getByIndexTop(@Nonnull IndexName indexName, int limit) {
+        NavigableMap<Comparable, Map<K, V>> secondaryMap =
+                getOrderedIndex(secondaryIndexes, indexName);
+        return collectEntries(secondaryMap.descendingMap().values(), limit);
+    }
+
+    /**
+     * Get the slot of an index value, if the index has one. Ordered indexes have no
+     * slot for null.
+     */
+    private static <K, V> Map<K, V> getSlot(Map<Comparable, Map<K, V>> secondaryMap,
+                                            Comparable indexKey) {
+        if (indexKey == null && secondaryMap instanceof NavigableMap) {
+            return null;
+        }
+        return secondaryMap.get(indexKey);
+    }
+
+    /**
+     * Get an ordered secondary index, failing if it is not defined or not ordered.
+     */
+    private static <K, V> NavigableMap<Comparable, Map<K, V>> getOrderedIndex(
+            Map<String, Map<Comparable, Map<K, V>>> secondaryIndexes, IndexName indexName) {
+        String secondaryIndex = indexName.get();
+        Map<Comparable, Map<K, V>> secondaryMap = secondaryIndexes.get(secondaryIndex);
+        if (secondaryMap instanceof NavigableMap) {
+            return (NavigableMap<Comparable, Map<K, V>>) secondaryMap;
+        }
+
+        log.error("CorfuTable: secondary index " + secondaryIndex + " is not an ordered index"
+                + " of this table, cannot complete the ordered get by index.");
+        throw new IllegalArgumentException("Secondary Index " + secondaryIndex
+                + (secondaryMap == null ? " is not defined." : " is not ordered."));
+    }
+
+    /**
+     * Copy the entries of index slots, in the order of the slots.
+     */
+    private static <K, V> Collection<Entry<K, V>> collectEntries(Iterable<Map<K, V>> slots,
+                                                                 int limit) {
+        List<Entry<K, V>> entries = new ArrayList<>();
+        for (Map<K, V> slot : slots) {
+            for (Map.Entry<K, V> entry : slot.entrySet()) {
+                if (entries.size() >= limit) {
+                    return entries;
+                }
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+                        entry.getValue()));
+            }
+        }
+        return entries;
+    }
+
     /** {@inheritDoc} */
     @Override
     @MutatorAccessor(name = "put", undoFunction = "undoPut", undoRecordFunction = "undoPutRecord")
@@ -488,26 +696,91 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
      * This method has a memory/CPU advantage over the map iterators as no deep copy
      * is actually performed.
      *
+     * <p>If the table is backed by a persistent map, the values are filtered on a
+     * snapshot of the table, without holding the table.
+     *
      * @param p java predicate (function to evaluate)
      * @return a view of the values contained in this map meeting the predicate condition.
      */
-    @Accessor
+    @PassThrough
     public List<V> scanAndFilter(Predicate<? super V> p) {
+        if (persistent) {
+            return snapshot().values().parallelStream()
+                    .filter(p)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        return filterValues(p);
+    }
+
+    /** Filter the values of the table, while holding the table.
+     *
+     * @param p java predicate (function to evaluate)
+     * @return the values contained in this map meeting the predicate condition.
+     */
+    @Accessor
+    protected List<V> filterValues(Predicate<? super V> p) {
         return mainMap.values().parallelStream()
                                     .filter(p)
                                     .collect(Collectors.toCollection(ArrayList::new));
     }
 
-    /** {@inheritDoc} */
+    /** {@inheritDoc}
+     *
+     * <p>If the table is backed by a persistent map, the entries are filtered on a
+     * snapshot of the table, without holding the table.
+     */
     @Override
-    @Accessor
+    @PassThrough
     public Collection<Map.Entry<K, V>> scanAndFilterByEntry(Predicate<? super Map.Entry<K, V>>
                                                                     entryPredicate) {
+        if (persistent) {
+            return snapshot().entrySet().parallelStream()
+                    .filter(entryPredicate)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        return filterEntries(entryPredicate);
+    }
+
+    /** Filter the entries of the table, while holding the table.
+     *
+     * @param entryPredicate java predicate (function to evaluate)
+     * @return the entries contained in this map meeting the predicate condition.
+     */
+    @Accessor
+    protected Collection<Map.Entry<K, V>> filterEntries(Predicate<? super Map.Entry<K, V>>
+                                                                entryPredicate) {
         return mainMap.entrySet().parallelStream()
                                     .filter(entryPredicate)
                                     .collect(Collectors.toCollection(ArrayList::new));
     }
 
+    /** Get an immutable snapshot of the mappings of the table.
+     *
+     * <p>If the table is backed by a persistent map, the snapshot is taken in constant
+     * time and shares its structure with the table. Otherwise, the mappings are copied.
+     *
+     * @return  An immutable map of the mappings of the table.
+     */
+    @Accessor
+    public @Nonnull Map<K, V> snapshot() {
+        if (persistent) {
+            return ((PersistentMainMap<K, V>) mainMap).getVersion();
+        }
+        return Collections.unmodifiableMap(new HashMap<>(mainMap));
+    }
+
+    /** Stream the entries of a snapshot of the table.
+     *
+     * <p>If the table is backed by a persistent map, the stream is lazy, and doesn't
+     * hold the table while it is consumed.
+     *
+     * @return  A stream of the entries of a snapshot of the table.
+     */
+    @PassThrough
+    public @Nonnull Stream<Entry<K, V>> entryStream() {
+        return snapshot().entrySet().stream();
+    }
+
     /** {@inheritDoc} */
     @Override
     @MutatorAccessor(name = "remove", undoFunction = "undoRemove",
@@ -756,16 +1029,14 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
                     Map<Comparable, Map<K, V>> secondaryIndex = secondaryIndexes.get(indexName);
                     if (index.isMonoIndex()) {
                         Comparable indexKey = index.indexFunction.apply(key, value);
-                        Map<K, V> slot = secondaryIndex.get(indexKey);
-                        if (slot != null) {
-                            slot.remove(key, value);
+                        if (index.isIndexed(indexKey)) {
+                            unmapSlot(secondaryIndex, indexKey, key, value);
                         }
                     } else {
                         for (Comparable<?> indexKey
                                 : index.getMultiValueIndexFunction().apply(key, value)) {
-                            Map<K, V> slot = secondaryIndex.get(indexKey);
-                            if (slot != null) {
-                                slot.remove(key, value);
+                            if (index.isIndexed(indexKey)) {
+                                unmapSlot(secondaryIndex, indexKey, key, value);
                             }
                         }
                     }
@@ -781,6 +1052,36 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
         }
     }
 
+    /**
+     * Unmaps a key value pair from the slot of an index value, dropping the slot once
+     * it is empty, so that ordered lookups don't visit empty slots.
+     */
+    private static <K, V> void unmapSlot(Map<Comparable, Map<K, V>> secondaryIndex,
+                                         Comparable indexKey, K key, V value) {
+        Map<K, V> slot = secondaryIndex.get(indexKey);
+        if (slot != null) {
+            slot.remove(key, value);
+            if (slot.isEmpty()) {
+                secondaryIndex.remove(indexKey);
+            }
+        }
+    }
+
+    /**
+     * Maps a key value pair to the slot of an index value, unless the index doesn't keep
+     * that value.
+     */
+    private static <K, V> void mapSlot(Index<K, V, ? extends Comparable> index,
+                                       Map<Comparable, Map<K, V>> secondaryIndex,
+                                       Comparable indexKey, K key, V value) {
+        if (!index.isIndexed(indexKey)) {
+            log.trace("mapSecondaryIndexes: {} is not indexed by ordered index {}, key {}",
+                    indexKey, index.getName().get(), key);
+            return;
+        }
+        secondaryIndex.computeIfAbsent(indexKey, k -> new HashMap<>()).put(key, value);
+    }
+
     /**
      * Maps the secondary indexes for a given key value pair.
      *
@@ -797,14 +1098,11 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
                     Map<Comparable, Map<K, V>> secondaryIndex = secondaryIndexes.get(indexName);
                     if (index.isMonoIndex()) {
                         Comparable indexKey = index.getIndexFunction().apply(key, value);
-                        Map<K, V> slot = secondaryIndex.computeIfAbsent(indexKey, k -> new HashMap<>());
-                        slot.put(key, value);
+                        mapSlot(index, secondaryIndex, indexKey, key, value);
                     } else {
                         for (Comparable<?> indexKey
                                 : index.getMultiValueIndexFunction().apply(key, value)) {
-                            Map<K, V> slot = secondaryIndex
-                                    .computeIfAbsent(indexKey, k -> new HashMap<>());
-                            slot.put(key, value);
+                            mapSlot(index, secondaryIndex, indexKey, key, value);
                         }
                     }
                 }
@@ -818,4 +1116,57 @@ public class CorfuTable<K ,V> implements ICorfuMap<K, V> {
         }
     }
 
+    /**
+     * The main map of a table backed by a persistent map. Each update replaces the
+     * version of the map, so that the versions it hands out are never modified.
+     *
+     * <p>The views of this map are views of the version at the time they are taken.
+     *
+     * @param <K>   The type of the primary key.
+     * @param <V>   The type of the values.
+     */
+    private static final class PersistentMainMap<K, V> extends AbstractMap<K, V> {
+
+        @Getter
+        private volatile PersistentHashMap<K, V> version = PersistentHashMap.empty();
+
+        @Override
+        public int size() {
+            return version.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return version.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return version.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            PersistentHashMap<K, V> current = version;
+            version = current.plus(key, value);
+            return current.get(key);
+        }
+
+        @Override
+        public V remove(Object key) {
+            PersistentHashMap<K, V> current = version;
+            version = current.minus(key);
+            return current.get(key);
+        }
+
+        @Override
+        public void clear() {
+            version = PersistentHashMap.empty();
+        }
+
+        @Override
+        public @Nonnull Set<Entry<K, V>> entrySet() {
+            return version.entrySet();
+        }
+    }
 }
@@ -0,0 +1,442 @@
+package org.corfudb.runtime.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * An immutable hash map, which is updated by creating new versions of the map that share
+ * the unchanged parts of their structure with the version they were derived from.
+ *
+ * <p>The map is a hash array mapped trie: each level of the trie consumes 5 bits of the
+ * hash of a key, and a node only stores the children which are present, given a bitmap of
+ * the present children. An update copies the nodes on the path to the updated key, so it
+ * costs O(log32(n)), and every version of the map remains readable, without locking, while
+ * new versions are derived from it. Keys which have the same hash are stored in collision
+ * nodes.
+ *
+ * <p>The mutators of the {@link Map} interface are not supported, {@link #plus(Object,
+ * Object)} and {@link #minus(Object)} return the updated versions of the map instead.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+@Immutable
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * The maximum depth of the trie, collision nodes excluded.
+     */
+    private static final int MAX_DEPTH = (Integer.SIZE + BITS - 1) / BITS;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    /**
+     * The root of the trie: null, a {@link Leaf}, a {@link BitmapNode}
+     * or a {@link CollisionNode}.
+     */
+    private final Object root;
+
+    private final int size;
+
+    private transient Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a version of this map which maps the key to the value.
+     *
+     * @param key   The key to map.
+     * @param value The value to map the key to.
+     * @return The updated map, this map if the key is already mapped to the value.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        int hash = hash(key);
+        Leaf<K, V> previous = find(root, hash, key);
+        if (previous != null && previous.value == value) {
+            return this;
+        }
+        Leaf<K, V> leaf = new Leaf<>(hash, key, value);
+        return new PersistentHashMap<>(root == null ? leaf : insert(root, leaf, 0),
+                previous == null ? size + 1 : size);
+    }
+
+    /**
+     * Returns a version of this map which doesn't map the key.
+     *
+     * @param key The key to remove.
+     * @return The updated map, this map if the key is not mapped.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        int hash = hash(key);
+        if (find(root, hash, key) == null) {
+            return this;
+        }
+        return size == 1 ? empty() : new PersistentHashMap<>(remove(root, hash, key, 0),
+                size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(root, hash(key), key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Leaf<K, V> leaf = find(root, hash(key), key);
+        return leaf == null ? null : leaf.value;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        Leaf<K, V> leaf = find(root, hash(key), key);
+        return leaf == null ? defaultValue : leaf.value;
+    }
+
+    @Override
+    @Nonnull
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> entries = entrySet;
+        if (entries == null) {
+            entries = new AbstractSet<Entry<K, V>>() {
+                @Override
+                @Nonnull
+                public Iterator<Entry<K, V>> iterator() {
+                    return new TrieIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            entrySet = entries;
+        }
+        return entries;
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> Short.SIZE);
+    }
+
+    private static int fragment(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Leaf<K, V> find(Object node, int hash, Object key) {
+        int shift = 0;
+        while (node != null) {
+            if (node instanceof Leaf) {
+                Leaf<K, V> leaf = (Leaf<K, V>) node;
+                return leaf.matches(hash, key) ? leaf : null;
+            } else if (node instanceof BitmapNode) {
+                BitmapNode bitmapNode = (BitmapNode) node;
+                int bit = 1 << fragment(hash, shift);
+                if ((bitmapNode.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = bitmapNode.children[bitmapNode.index(bit)];
+                shift += BITS;
+            } else {
+                CollisionNode collisionNode = (CollisionNode) node;
+                int index = collisionNode.indexOf(hash, key);
+                return index < 0 ? null : (Leaf<K, V>) collisionNode.leaves[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Insert a leaf in a node, replacing the leaf of the same key if any.
+     *
+     * @return The updated node.
+     */
+    private static Object insert(Object node, Leaf<?, ?> leaf, int shift) {
+        if (node instanceof Leaf) {
+            Leaf<?, ?> existing = (Leaf<?, ?>) node;
+            return existing.matches(leaf.hash, leaf.key) ? leaf : merge(existing, leaf, shift);
+        } else if (node instanceof BitmapNode) {
+            BitmapNode bitmapNode = (BitmapNode) node;
+            int bit = 1 << fragment(leaf.hash, shift);
+            int index = bitmapNode.index(bit);
+            if ((bitmapNode.bitmap & bit) == 0) {
+                Object[] children = new Object[bitmapNode.children.length + 1];
+                System.arraycopy(bitmapNode.children, 0, children, 0, index);
+                children[index] = leaf;
+                System.arraycopy(bitmapNode.children, index, children, index + 1,
+                        bitmapNode.children.length - index);
+                return new BitmapNode(bitmapNode.bitmap | bit, children);
+            }
+            Object[] children = bitmapNode.children.clone();
+            children[index] = insert(children[index], leaf, shift + BITS);
+            return new BitmapNode(bitmapNode.bitmap, children);
+        } else {
+            CollisionNode collisionNode = (CollisionNode) node;
+            if (collisionNode.hash != leaf.hash) {
+                // Push the collision node one level down, next to the leaf
+                BitmapNode parent = new BitmapNode(1 << fragment(collisionNode.hash, shift),
+                        new Object[] {collisionNode});
+                return insert(parent, leaf, shift);
+            }
+            int index = collisionNode.indexOf(leaf.hash, leaf.key);
+            Object[] leaves;
+            if (index < 0) {
+                leaves = new Object[collisionNode.leaves.length + 1];
+                System.arraycopy(collisionNode.leaves, 0, leaves, 0,
+                        collisionNode.leaves.length);
+                leaves[collisionNode.leaves.length] = leaf;
+            } else {
+                leaves = collisionNode.leaves.clone();
+                leaves[index] = leaf;
+            }
+            return new CollisionNode(collisionNode.hash, leaves);
+        }
+    }
+
+    /**
+     * Create the node holding two leaves of different keys.
+     */
+    private static Object merge(Leaf<?, ?> first, Leaf<?, ?> second, int shift) {
+        if (first.hash == second.hash) {
+            return new CollisionNode(first.hash, new Object[] {first, second});
+        }
+        int firstFragment = fragment(first.hash, shift);
+        int secondFragment = fragment(second.hash, shift);
+        if (firstFragment == secondFragment) {
+            return new BitmapNode(1 << firstFragment,
+                    new Object[] {merge(first, second, shift + BITS)});
+        }
+        return new BitmapNode((1 << firstFragment) | (1 << secondFragment),
+                firstFragment < secondFragment
+                        ? new Object[] {first, second} : new Object[] {second, first});
+    }
+
+    /**
+     * Remove the leaf of a key, which is present, from a node.
+     *
+     * @return The updated node, which is collapsed into its only child if that child
+     *         doesn't need the node to be found, or null if the node is empty.
+     */
+    private static Object remove(Object node, int hash, Object key, int shift) {
+        if (node instanceof Leaf) {
+            return null;
+        } else if (node instanceof BitmapNode) {
+            BitmapNode bitmapNode = (BitmapNode) node;
+            int bit = 1 << fragment(hash, shift);
+            int index = bitmapNode.index(bit);
+            Object child = remove(bitmapNode.children[index], hash, key, shift + BITS);
+            if (child == null) {
+                if (bitmapNode.children.length == 1) {
+                    return null;
+                }
+                Object[] children = new Object[bitmapNode.children.length - 1];
+                System.arraycopy(bitmapNode.children, 0, children, 0, index);
+                System.arraycopy(bitmapNode.children, index + 1, children, index,
+                        children.length - index);
+                if (children.length == 1 && !(children[0] instanceof BitmapNode)) {
+                    return children[0];
+                }
+                return new BitmapNode(bitmapNode.bitmap & ~bit, children);
+            }
+            if (bitmapNode.children.length == 1 && !(child instanceof BitmapNode)) {
+                return child;
+            }
+            Object[] children = bitmapNode.children.clone();
+            children[index] = child;
+            return new BitmapNode(bitmapNode.bitmap, children);
+        } else {
+            CollisionNode collisionNode = (CollisionNode) node;
+            int index = collisionNode.indexOf(hash, key);
+            if (collisionNode.leaves.length == 2) {
+                return collisionNode.leaves[1 - index];
+            }
+            Object[] leaves = new Object[collisionNode.leaves.length - 1];
+            System.arraycopy(collisionNode.leaves, 0, leaves, 0, index);
+            System.arraycopy(collisionNode.leaves, index + 1, leaves, index,
+                    leaves.length - index);
+            return new CollisionNode(collisionNode.hash, leaves);
+        }
+    }
+
+    /**
+     * A mapping of the map.
+     */
+    private static final class Leaf<K, V> implements Map.Entry<K, V> {
+        final int hash;
+        final K key;
+        final V value;
+
+        Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(int hash, Object key) {
+            return this.hash == hash && Objects.equals(this.key, key);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("PersistentHashMap is immutable");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * A node of the trie, which stores the children present for the next bits of the hash.
+     */
+    private static final class BitmapNode {
+        final int bitmap;
+        final Object[] children;
+
+        BitmapNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * A node of the leaves of keys which have the same hash.
+     */
+    private static final class CollisionNode {
+        final int hash;
+        final Object[] leaves;
+
+        CollisionNode(int hash, Object[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        int indexOf(int hash, Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (((Leaf<?, ?>) leaves[i]).matches(hash, key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Iterates over the leaves of a trie, depth first.
+     */
+    private static final class TrieIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Object[][] nodes = new Object[MAX_DEPTH + 1][];
+        private final int[] positions = new int[MAX_DEPTH + 1];
+        private int depth = -1;
+        private Leaf<K, V> next;
+
+        TrieIterator(Object root) {
+            if (root != null) {
+                push(root);
+                advance();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void push(Object node) {
+            if (node instanceof Leaf) {
+                next = (Leaf<K, V>) node;
+                return;
+            }
+            depth++;
+            nodes[depth] = node instanceof BitmapNode
+                    ? ((BitmapNode) node).children : ((CollisionNode) node).leaves;
+            positions[depth] = 0;
+        }
+
+        private void advance() {
+            while (next == null && depth >= 0) {
+                if (positions[depth] == nodes[depth].length) {
+                    nodes[depth] = null;
+                    depth--;
+                } else {
+                    push(nodes[depth][positions[depth]++]);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf<K, V> leaf = next;
+            next = null;
+            advance();
+            return leaf;
+        }
+    }
+}
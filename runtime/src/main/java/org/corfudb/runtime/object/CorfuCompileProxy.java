@@ -149,7 +149,11 @@ public class CorfuCompileProxy<T> implements ICorfuSMRProxyInternal<T> {
         underlyingObject = new VersionLockedObject<T>(this::getNewInstance,
                 new StreamViewSMRAdapter(rt, rt.getStreamsView().getUnsafe(streamID)),
                 upcallTargetMap, undoRecordTargetMap,
-                undoTargetMap, resetSet);
+                undoTargetMap, resetSet,
+                rt.getParameters().getMaxSnapshotVersions(),
+                rt.getParameters().getMaxSnapshotBytes(),
+                () -> new StreamViewSMRAdapter(rt, rt.getStreamsView().getUnsafe(streamID)),
+                o -> (T) serializer.clone(o, rt));
 
         metrics = rt.getMetrics() != null ? rt.getMetrics() : CorfuRuntime.getDefaultMetrics();
         mpObj = CorfuComponent.OBJECT.toString();
@@ -232,6 +236,7 @@ public class CorfuCompileProxy<T> implements ICorfuSMRProxyInternal<T> {
             try {
                 // We generate an entry to avoid exposing the serializer to the tx context.
                 SMREntry entry = new SMREntry(smrUpdateFunction, args, serializer);
+                entry.setRuntime(rt);
                 return TransactionalContext.getCurrentContext()
                         .logUpdate(this, entry, conflictObject);
             } catch (Exception e) {
@@ -243,6 +248,7 @@ public class CorfuCompileProxy<T> implements ICorfuSMRProxyInternal<T> {
         // If we aren't in a transaction, we can just write the modification.
         // We need to add the acquired token into the pending upcall list.
         SMREntry smrEntry = new SMREntry(smrUpdateFunction, args, serializer);
+        smrEntry.setRuntime(rt);
         long address = underlyingObject.logUpdate(smrEntry, keepUpcallResult);
         log.trace("Update[{}] {}@{} ({}) conflictObj={}",
                 this, smrUpdateFunction, address, args, conflictObject);
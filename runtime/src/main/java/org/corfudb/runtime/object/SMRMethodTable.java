@@ -0,0 +1,108 @@
+package org.corfudb.runtime.object;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The SMR methods of an object, indexed by their {@link SMRMethodIds id}.
+ *
+ * <p>The table is built once from the maps generated by the annotation processor, so
+ * applying an update takes a binary search over the ids of the object's methods and
+ * array lookups, instead of hashing the method name in several maps.
+ *
+ * @param <T> The type of the object.
+ */
+@SuppressWarnings("checkstyle:abbreviation")
+class SMRMethodTable<T> {
+
+    private final int[] ids;
+
+    private final String[] names;
+
+    private final ICorfuSMRUpcallTarget<T>[] upcallTargets;
+
+    private final IUndoRecordFunction<T>[] undoRecordFunctions;
+
+    private final IUndoFunction<T>[] undoFunctions;
+
+    private final boolean[] resets;
+
+    /**
+     * Build the table of an object.
+     *
+     * @param upcallTargets     UpCall map of the object.
+     * @param undoRecordTargets Undo record function map of the object.
+     * @param undoTargets       Undo functions map of the object.
+     * @param resetSet          Reset set of the object.
+     */
+    @SuppressWarnings("unchecked")
+    SMRMethodTable(Map<String, ICorfuSMRUpcallTarget<T>> upcallTargets,
+                   Map<String, IUndoRecordFunction<T>> undoRecordTargets,
+                   Map<String, IUndoFunction<T>> undoTargets,
+                   Set<String> resetSet) {
+        // Methods sorted by id
+        Map<Integer, String> methods = new TreeMap<>();
+        for (Set<String> keys : Arrays.asList(upcallTargets.keySet(),
+                undoRecordTargets.keySet(), undoTargets.keySet(), resetSet)) {
+            for (String method : keys) {
+                String other = methods.putIfAbsent(SMRMethodIds.register(method), method);
+                if (other != null && !other.equals(method)) {
+                    throw new IllegalStateException("SMR methods " + method + " and "
+                            + other + " have the same id");
+                }
+            }
+        }
+
+        final int size = methods.size();
+        ids = new int[size];
+        names = new String[size];
+        this.upcallTargets = new ICorfuSMRUpcallTarget[size];
+        undoRecordFunctions = new IUndoRecordFunction[size];
+        undoFunctions = new IUndoFunction[size];
+        resets = new boolean[size];
+
+        int i = 0;
+        for (Map.Entry<Integer, String> e : methods.entrySet()) {
+            final String method = e.getValue();
+            ids[i] = e.getKey();
+            names[i] = method;
+            this.upcallTargets[i] = upcallTargets.get(method);
+            undoRecordFunctions[i] = undoRecordTargets.get(method);
+            undoFunctions[i] = undoTargets.get(method);
+            resets[i] = resetSet.contains(method);
+            i++;
+        }
+    }
+
+    /**
+     * Get the index of a method in the table.
+     *
+     * @param id The id of the method.
+     * @return The index of the method, or a negative value if the object has no such method.
+     */
+    int indexOf(int id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    String getName(int index) {
+        return names[index];
+    }
+
+    ICorfuSMRUpcallTarget<T> getUpcallTarget(int index) {
+        return upcallTargets[index];
+    }
+
+    IUndoRecordFunction<T> getUndoRecordFunction(int index) {
+        return undoRecordFunctions[index];
+    }
+
+    IUndoFunction<T> getUndoFunction(int index) {
+        return undoFunctions[index];
+    }
+
+    boolean isReset(int index) {
+        return resets[index];
+    }
+}
@@ -0,0 +1,209 @@
+package org.corfudb.runtime.object;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.corfudb.runtime.view.Address;
+
+/**
+ * Retains a bounded set of recent versions of an object, which snapshot reads are served
+ * from instead of the object itself.
+ *
+ * <p>Each version is materialized in a replica: a VersionLockedObject backed by its own
+ * stream over the same log, and synced to the version independently of the object the
+ * online readers and writers use. Readers at the version a replica is at share it under
+ * its optimistic read lock.
+ *
+ * <p>A read at a version no replica is at creates a new replica, which starts from a copy
+ * of the replica closest to the version, preferably one below it, so that only the updates
+ * in between are applied (or undone), rather than all the updates of the stream. Replicas
+ * are evicted, least recently used first, to stay within the bounds on their number and on
+ * their estimated size. If the object cannot be copied, the closest replica is moved to the
+ * version instead once the bounds are reached.
+ */
+@Slf4j
+@ThreadSafe
+class SnapshotVersionCache<T> {
+
+    /**
+     * The maximum number of replicas.
+     */
+    @Getter
+    private final int maxVersions;
+
+    /**
+     * The maximum estimated size of the replicas, in bytes, or 0 if only their number
+     * is bounded.
+     */
+    @Getter
+    private final long maxBytes;
+
+    /**
+     * Creates a replica, at no version.
+     */
+    private final Supplier<VersionLockedObject<T>> replicaFactory;
+
+    /**
+     * Copies the state of an object, or null if objects cannot be copied.
+     */
+    @Nullable
+    private volatile UnaryOperator<T> copyFn;
+
+    /**
+     * The replicas, most recently used first.
+     */
+    private final Deque<VersionLockedObject<T>> replicas = new ArrayDeque<>();
+
+    SnapshotVersionCache(int maxVersions, long maxBytes,
+                         Supplier<VersionLockedObject<T>> replicaFactory,
+                         @Nullable UnaryOperator<T> copyFn) {
+        if (maxVersions <= 0) {
+            throw new IllegalArgumentException("maxVersions must be positive, was "
+                    + maxVersions);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative, was "
+                    + maxBytes);
+        }
+        this.maxVersions = maxVersions;
+        this.maxBytes = maxBytes;
+        this.replicaFactory = replicaFactory;
+        this.copyFn = copyFn;
+    }
+
+    /**
+     * Get the replica to read a version from.
+     *
+     * <p>The version of the returned replica is a hint, the caller syncs the replica to the
+     * version under its lock.
+     *
+     * @param version The version to read.
+     * @return The replica at the version, or the replica to move to the version.
+     */
+    VersionLockedObject<T> get(long version) {
+        final UnaryOperator<T> copyFn = this.copyFn;
+        final VersionLockedObject<T> replica;
+        final VersionLockedObject<T> source;
+        synchronized (this) {
+            Iterator<VersionLockedObject<T>> it = replicas.iterator();
+            while (it.hasNext()) {
+                VersionLockedObject<T> cached = it.next();
+                if (cached.getVersionUnsafe() == version) {
+                    it.remove();
+                    replicas.addFirst(cached);
+                    return cached;
+                }
+            }
+
+            VersionLockedObject<T> closest = getClosest(version);
+            if (closest != null && copyFn == null && isFull(0L)) {
+                log.trace("get: moving replica {} to version {}", closest, version);
+                replicas.remove(closest);
+                replicas.addFirst(closest);
+                return closest;
+            }
+
+            source = copyFn == null ? null : closest;
+            while (!replicas.isEmpty()
+                    && isFull(source == null ? 0L : source.getSizeEstimate())) {
+                log.trace("get: evicting replica {}", replicas.peekLast());
+                replicas.pollLast();
+            }
+            replica = replicaFactory.get();
+            replicas.addFirst(replica);
+        }
+
+        if (source != null) {
+            log.trace("get: new replica for version {} from {}", version, source);
+            try {
+                replica.update(r -> r.copyUnsafe(source, copyFn));
+            } catch (RuntimeException e) {
+                // The replica is synced from the start of the stream instead
+                log.warn("get: unable to copy {}, replicas will no longer be copied",
+                        source, e);
+                this.copyFn = null;
+            }
+        } else {
+            log.trace("get: new replica for version {}", version);
+        }
+        return replica;
+    }
+
+    /**
+     * Get the replica closest to a version: the one with the highest version below it,
+     * or if there is none, the one with the lowest version above it.
+     *
+     * @param version The version to find the closest replica to.
+     * @return The closest replica, or null if no replica is at any version.
+     */
+    @Nullable
+    private VersionLockedObject<T> getClosest(long version) {
+        VersionLockedObject<T> below = null;
+        VersionLockedObject<T> above = null;
+        for (VersionLockedObject<T> replica : replicas) {
+            final long replicaVersion = replica.getVersionUnsafe();
+            if (replicaVersion == Address.NEVER_READ) {
+                continue;
+            }
+            if (replicaVersion < version) {
+                if (below == null || replicaVersion > below.getVersionUnsafe()) {
+                    below = replica;
+                }
+            } else if (above == null || replicaVersion < above.getVersionUnsafe()) {
+                above = replica;
+            }
+        }
+        return below != null ? below : above;
+    }
+
+    /**
+     * Whether adding a replica would exceed the bounds of the cache.
+     *
+     * @param sizeEstimate The estimated size of the added replica.
+     */
+    private boolean isFull(long sizeEstimate) {
+        if (replicas.size() >= maxVersions) {
+            return true;
+        }
+        return maxBytes > 0 && getSizeEstimate() + sizeEstimate > maxBytes;
+    }
+
+    /**
+     * Get the estimated size of the replicas, in bytes.
+     */
+    synchronized long getSizeEstimate() {
+        long size = 0L;
+        for (VersionLockedObject<T> replica : replicas) {
+            size += replica.getSizeEstimate();
+        }
+        return size;
+    }
+
+    /**
+     * Run gc on the replicas.
+     *
+     * @param trimMark The trim mark to gc up to.
+     */
+    void gc(long trimMark) {
+        for (VersionLockedObject<T> replica : getReplicas()) {
+            replica.gc(trimMark);
+        }
+    }
+
+    /**
+     * Get the replicas, most recently used first.
+     */
+    synchronized List<VersionLockedObject<T>> getReplicas() {
+        return new ArrayList<>(replicas);
+    }
+}
@@ -11,9 +11,13 @@ import java.util.concurrent.locks.StampedLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import javax.annotation.Nullable;
 
 import lombok.extern.slf4j.Slf4j;
 import org.corfudb.protocols.logprotocol.SMREntry;
+import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.runtime.exceptions.NoRollbackException;
 import org.corfudb.runtime.exceptions.unrecoverable.UnrecoverableCorfuError;
 import org.corfudb.runtime.object.transactions.WriteSetSMRStream;
@@ -88,29 +92,31 @@ public class VersionLockedObject<T> {
     private WriteSetSMRStream optimisticStream;
 
     /**
-     * The upcall map for this object.
+     * The SMR methods of this object, indexed by id.
      */
-    private final Map<String, ICorfuSMRUpcallTarget<T>> upcallTargetMap;
+    private final SMRMethodTable<T> methods;
 
     /**
-     * The undo record function map for this object.
+     * A function that generates a new instance of this object.
      */
-    private final Map<String, IUndoRecordFunction<T>> undoRecordFunctionMap;
+    private final Supplier<T> newObjectFn;
 
     /**
-     * The undo target map for this object.
+     * The recent versions snapshot reads are served from, if any.
      */
-    private final Map<String, IUndoFunction<T>> undoFunctionMap;
+    @Nullable
+    private final SnapshotVersionCache<T> snapshotVersions;
 
     /**
-     * The reset set for this object.
+     * An estimate of the memory used by the object, in bytes of the log entries
+     * applied to it since it was reset.
      */
-    private final Set<String> resetSet;
+    private volatile long sizeEstimate;
 
     /**
-     * A function that generates a new instance of this object.
+     * The address of the last log entry counted in the size estimate.
      */
-    private final Supplier<T> newObjectFn;
+    private long lastSizedAddress = Address.NON_ADDRESS;
 
     /**
      * Correctness Logging
@@ -134,12 +140,57 @@ public class VersionLockedObject<T> {
                                Map<String, IUndoRecordFunction<T>> undoRecordTargets,
                                Map<String, IUndoFunction<T>> undoTargets,
                                Set<String> resetSet) {
+        this(newObjectFn, smrStream, upcallTargets, undoRecordTargets, undoTargets, resetSet,
+                0, 0L, null, null);
+    }
+
+    /**
+     * The VersionLockedObject maintains a versioned object which is backed by an ISMRStream,
+     * and is optionally backed by an additional optimistic update stream. Snapshot reads
+     * are served from a bounded set of recent versions, materialized over streams of their
+     * own, so that they do not roll back this object.
+     *
+     * @param newObjectFn         A function passed to instantiate a new instance of this object.
+     * @param smrStream           Stream View backing this object.
+     * @param upcallTargets       UpCall map for this object.
+     * @param undoRecordTargets   Undo record function map for this object.
+     * @param undoTargets         Undo functions map.
+     * @param resetSet            Reset set for this object.
+     * @param maxSnapshotVersions The maximum number of versions retained for snapshot reads,
+     *                            0 to serve them from this object.
+     * @param maxSnapshotBytes    The maximum estimated size of the versions retained for
+     *                            snapshot reads, 0 to bound them by number only.
+     * @param snapshotStreamFn    A function which opens a new stream view over the stream
+     *                            backing this object, for the retained versions.
+     * @param copyFn              A function which copies an instance of this object, so
+     *                            that new versions are built from retained ones, or null
+     *                            if the object cannot be copied.
+     */
+    public VersionLockedObject(Supplier<T> newObjectFn,
+                               StreamViewSMRAdapter smrStream,
+                               Map<String, ICorfuSMRUpcallTarget<T>> upcallTargets,
+                               Map<String, IUndoRecordFunction<T>> undoRecordTargets,
+                               Map<String, IUndoFunction<T>> undoTargets,
+                               Set<String> resetSet,
+                               int maxSnapshotVersions,
+                               long maxSnapshotBytes,
+                               @Nullable Supplier<StreamViewSMRAdapter> snapshotStreamFn,
+                               @Nullable UnaryOperator<T> copyFn) {
+        this(newObjectFn, smrStream,
+                new SMRMethodTable<>(upcallTargets, undoRecordTargets, undoTargets, resetSet),
+                maxSnapshotVersions, maxSnapshotBytes, snapshotStreamFn, copyFn);
+    }
+
+    private VersionLockedObject(Supplier<T> newObjectFn,
+                                StreamViewSMRAdapter smrStream,
+                                SMRMethodTable<T> methods,
+                                int maxSnapshotVersions,
+                                long maxSnapshotBytes,
+                                @Nullable Supplier<StreamViewSMRAdapter> snapshotStreamFn,
+                                @Nullable UnaryOperator<T> copyFn) {
         this.smrStream = smrStream;
 
-        this.upcallTargetMap = upcallTargets;
-        this.undoRecordFunctionMap = undoRecordTargets;
-        this.undoFunctionMap = undoTargets;
-        this.resetSet = resetSet;
+        this.methods = methods;
 
         this.newObjectFn = newObjectFn;
         this.object = newObjectFn.get();
@@ -147,6 +198,12 @@ public class VersionLockedObject<T> {
         this.upcallResults = new ConcurrentHashMap<>();
 
         lock = new StampedLock();
+
+        this.snapshotVersions = maxSnapshotVersions > 0 && snapshotStreamFn != null
+                ? new SnapshotVersionCache<>(maxSnapshotVersions, maxSnapshotBytes,
+                    () -> new VersionLockedObject<>(newObjectFn, snapshotStreamFn.get(),
+                            methods, 0, 0L, null, null), copyFn)
+                : null;
     }
 
     /**
@@ -163,6 +220,10 @@ public class VersionLockedObject<T> {
         } finally {
             lock.unlock(ts);
         }
+
+        if (snapshotVersions != null) {
+            snapshotVersions.gc(trimMark);
+        }
     }
 
     /**
@@ -256,6 +317,56 @@ public class VersionLockedObject<T> {
         }
     }
 
+    /**
+     * Access the state of the object at a snapshot version.
+     *
+     * <p>If this object is at the version, it is accessed under an optimistic read lock.
+     * Otherwise, if versions are retained for snapshot reads, the version is accessed
+     * through the replica of that version, which the updateFunction brings to the version
+     * if needed, so that this object is not rolled back. Without retained versions, this
+     * object is brought to the version, like with access().
+     *
+     * @param version        The snapshot version to access.
+     * @param updateFunction A function which brings the object (or the replica) it is
+     *                       given to the version, executed under a write lock.
+     * @param accessFunction A function which allows the user to directly access the object
+     *                       at the version.
+     * @param <R>            The type of the access function return.
+     * @return Returns the access function.
+     */
+    public <R> R snapshotAccess(long version,
+                                Consumer<VersionLockedObject<T>> updateFunction,
+                                Function<T, R> accessFunction) {
+        if (snapshotVersions == null) {
+            return access(o -> o.getVersionUnsafe() == version
+                            && !o.isOptimisticallyModifiedUnsafe(),
+                    updateFunction, accessFunction);
+        }
+
+        long ts = lock.tryOptimisticRead();
+        if (ts != 0) {
+            try {
+                if (getVersionUnsafe() == version && !isOptimisticallyModifiedUnsafe()) {
+                    R ret = accessFunction.apply(object);
+                    if (lock.validate(ts)) {
+                        return ret;
+                    }
+                }
+            } catch (Exception e) {
+                // As in access(), the exception only stands if it was on a correct
+                // view of the object.
+                if (lock.validate(ts)) {
+                    throw e;
+                }
+            }
+        }
+
+        VersionLockedObject<T> replica = snapshotVersions.get(version);
+        log.trace("SnapshotAccess[{}] at {} from {}", this, version, replica);
+        return replica.access(o -> o.getVersionUnsafe() == version,
+                updateFunction, accessFunction);
+    }
+
     /**
      * Update the object under a write lock.
      *
@@ -291,6 +402,54 @@ public class VersionLockedObject<T> {
         log.trace("Rollback[{}] completed", this);
     }
 
+    /**
+     * Copy the state of another object, over the same stream, into this object, which
+     * is at no version. This object is then at the version of the other object, and
+     * is synced from there rather than from the start of the stream.
+     *
+     * <p>Unsafe, requires that the caller has acquired a write lock.
+     *
+     * @param source The object to copy.
+     * @param copyFn A function which copies an instance of the object.
+     * @return True if the state was copied, false if either object moved in the meantime.
+     */
+    boolean copyUnsafe(VersionLockedObject<T> source, UnaryOperator<T> copyFn) {
+        if (getVersionUnsafe() != Address.NEVER_READ) {
+            return false;
+        }
+        long ts = source.lock.readLock();
+        try {
+            final long version = source.getVersionUnsafe();
+            if (version == Address.NEVER_READ || source.optimisticStream != null) {
+                return false;
+            }
+            object = copyFn.apply(source.object);
+            sizeEstimate = source.sizeEstimate;
+            lastSizedAddress = source.lastSizedAddress;
+            smrStream.seek(version + 1);
+            log.trace("Copy[{}] from {}", this, source);
+            return true;
+        } finally {
+            source.lock.unlockRead(ts);
+        }
+    }
+
+    /**
+     * Get the versions retained for snapshot reads, if any.
+     */
+    @Nullable
+    SnapshotVersionCache<T> getSnapshotVersions() {
+        return snapshotVersions;
+    }
+
+    /**
+     * Get an estimate of the memory used by the object, in bytes of the log entries
+     * applied to it since it was reset.
+     */
+    long getSizeEstimate() {
+        return sizeEstimate;
+    }
+
     /**
      * Move the pointer for this object (effectively, forcefuly
      * change the version of this object without playing
@@ -447,6 +606,8 @@ public class VersionLockedObject<T> {
         object = newObjectFn.get();
         smrStream.reset();
         optimisticStream = null;
+        sizeEstimate = 0L;
+        lastSizedAddress = Address.NON_ADDRESS;
     }
 
     /**
@@ -485,17 +646,18 @@ public class VersionLockedObject<T> {
      * @param record The record to undo.
      */
     protected void applyUndoRecordUnsafe(SMREntry record) {
-        log.trace("Undo[{}] of {}@{} ({})", this, record.getSMRMethod(),
+        final int method = methods.indexOf(record.getSMRMethodId());
+        log.trace("Undo[{}] of {}@{} ({})", this,
+                method < 0 ? record.getSMRMethodId() : methods.getName(method),
                 record.getEntry() != null ? record.getEntry().getGlobalAddress() : "OPT",
                 record.getUndoRecord());
-        IUndoFunction<T> undoFunction =
-                undoFunctionMap.get(record.getSMRMethod());
+        IUndoFunction<T> undoFunction = method < 0 ? null : methods.getUndoFunction(method);
         // If the undo function exists, apply it.
         if (undoFunction != null) {
             undoFunction.doUndo(object, record.getUndoRecord(),
                     record.getSMRArguments());
             return;
-        } else if (resetSet.contains(record.getSMRMethod())) {
+        } else if (method >= 0 && methods.isReset(method)) {
             // If this is a reset, undo by restoring the
             // previous state.
             object = (T) record.getUndoRecord();
@@ -518,13 +680,16 @@ public class VersionLockedObject<T> {
      * @param entry The entry to apply.
      */
     public Object applyUpdateUnsafe(SMREntry entry) {
-        log.trace("Apply[{}] of {}@{} ({})", this, entry.getSMRMethod(),
+        final int method = methods.indexOf(entry.getSMRMethodId());
+        log.trace("Apply[{}] of {}@{} ({})", this,
+                method < 0 ? entry.getSMRMethodId() : methods.getName(method),
                 entry.getEntry() != null ? entry.getEntry().getGlobalAddress() : "OPT",
                 entry.getSMRArguments());
 
-        ICorfuSMRUpcallTarget<T> target = upcallTargetMap.get(entry.getSMRMethod());
+        ICorfuSMRUpcallTarget<T> target = method < 0 ? null : methods.getUpcallTarget(method);
         if (target == null) {
-            throw new RuntimeException("Unknown upcall " + entry.getSMRMethod());
+            throw new RuntimeException("Unknown upcall " + entry.getSMRMethod()
+                    + " (id " + entry.getSMRMethodId() + ")");
         }
 
         // No undo record is present
@@ -537,15 +702,14 @@ public class VersionLockedObject<T> {
         if (!entry.isUndoable() || entry.getEntry() == null) {
             // Can we generate an undo record?
             IUndoRecordFunction<T> undoRecordTarget =
-                    undoRecordFunctionMap
-                            .get(entry.getSMRMethod());
+                    methods.getUndoRecordFunction(method);
             // If there was no previously calculated undo entry
             if (undoRecordTarget != null) {
                 // calculate the undo record
                 entry.setUndoRecord(undoRecordTarget
                         .getUndoRecord(object, entry.getSMRArguments()));
                 log.trace("Apply[{}] Undo->{}", this, entry.getUndoRecord());
-            } else if (resetSet.contains(entry.getSMRMethod())) {
+            } else if (methods.isReset(method)) {
                 // This entry actually resets the object. So here
                 // we can safely get a new instance, and add the
                 // previous instance to the undo log.
@@ -625,6 +789,7 @@ public class VersionLockedObject<T> {
                 .forEachOrdered(entry -> {
                     try {
                         Object res = applyUpdateUnsafe(entry);
+                        addToSizeEstimate(entry.getEntry());
                         if (timestamp == Address.OPTIMISTIC) {
                             entry.setUpcallResult(res);
                         } else if (pendingUpcalls.contains(entry.getEntry().getGlobalAddress())) {
@@ -642,6 +807,20 @@ public class VersionLockedObject<T> {
                 });
     }
 
+    /**
+     * Count a log entry applied to the object in its size estimate. An entry which
+     * holds several updates of the object is counted once.
+     *
+     * @param entry The log entry applied, or null for an optimistic update.
+     */
+    private void addToSizeEstimate(@Nullable ILogData entry) {
+        if (entry == null || entry.getGlobalAddress() == lastSizedAddress) {
+            return;
+        }
+        lastSizedAddress = entry.getGlobalAddress();
+        sizeEstimate += entry.getSizeEstimate();
+    }
+
     /**
      * Roll back the optimistic stream, resetting the object if it can not
      * be restored.
@@ -19,7 +19,6 @@ import javax.annotation.Nullable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -320,9 +319,9 @@ public abstract class AbstractTransactionalContext implements
      * collect all the conflict-params from the write-set for this transaction
      * into a set.
      *
-     * @return A set of longs representing all the conflict params
+     * @return The fingerprints of all the conflict params, arranged by stream IDs
      */
-    Map<UUID, Set<byte[]>> collectWriteConflictParams() {
+    Map<UUID, long[]> collectWriteConflictParams() {
         return getWriteSetInfo().getHashedConflictSet();
     }
 
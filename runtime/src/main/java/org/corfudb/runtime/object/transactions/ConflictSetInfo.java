@@ -6,7 +6,10 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+
+import com.google.common.primitives.Longs;
+
+import net.openhft.hashing.LongHashFunction;
 
 import org.corfudb.runtime.object.ICorfuSMRProxyInternal;
 
@@ -28,25 +31,30 @@ public class ConflictSetInfo {
         return p.getSerializer().hash(o);
     }
 
+    /** Get a fixed-width (64-bit) fingerprint for the object, given a proxy. */
+    public static long generateFingerprintFromObject(ICorfuSMRProxyInternal p, Object o) {
+        return LongHashFunction.xx().hashBytes(generateHashFromObject(p, o));
+    }
+
     /** Get the hashed conflict set.
+     *
+     * <p>The conflict parameters of each stream are fingerprinted, and the fingerprints
+     * of a stream are returned sorted and without duplicates.
+     *
      * @return              The hashed conflict set.
      */
-    public Map<UUID, Set<byte[]>> getHashedConflictSet() {
-        return conflicts.entrySet().stream()
-                .collect(Collectors.toMap(
-                        // Key = UUID
-                        e -> e.getKey().getStreamID(),
-                        // Value = Generated hash.
-                        e -> e.getValue().stream()
-                                .map(o -> ConflictSetInfo.generateHashFromObject(e.getKey(), o))
-                                .collect(Collectors.toSet()),
-                        // Merge function, in case key was already mapped
-                        // (If two proxies have the same stream).
-                        (v1,v2) -> {
-                            // Combine the two sets.
-                            v1.addAll(v2);
-                            return v1;
-                        }));
+    public Map<UUID, long[]> getHashedConflictSet() {
+        Map<UUID, long[]> hashedConflictSet = new HashMap<>();
+        conflicts.forEach((proxy, objects) -> hashedConflictSet.merge(
+                proxy.getStreamID(),
+                objects.stream()
+                        .mapToLong(o -> ConflictSetInfo.generateFingerprintFromObject(proxy, o))
+                        .toArray(),
+                // Merge function, in case two proxies have the same stream.
+                Longs::concat));
+        hashedConflictSet.replaceAll((streamId, fingerprints) ->
+                Arrays.stream(fingerprints).sorted().distinct().toArray());
+        return hashedConflictSet;
     }
 
     /** Merge a conflict set into this conflict set.
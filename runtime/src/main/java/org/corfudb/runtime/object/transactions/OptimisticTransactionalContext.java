@@ -3,18 +3,14 @@ package org.corfudb.runtime.object.transactions;
 import static org.corfudb.runtime.view.ObjectsView.TRANSACTION_STREAM_ID;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
-import java.util.stream.IntStream;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import org.corfudb.protocols.logprotocol.ISMRConsumable;
 import org.corfudb.protocols.logprotocol.SMREntry;
-import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.protocols.wireprotocol.Token;
 import org.corfudb.protocols.wireprotocol.TxResolutionInfo;
 import org.corfudb.runtime.exceptions.AbortCause;
@@ -318,14 +314,13 @@ public class OptimisticTransactionalContext extends AbstractTransactionalContext
         return address;
     }
 
-    /** Try to commit the optimistic updates to each proxy. */
+    /** Try to commit the optimistic updates to each proxy.
+     *
+     * <p>The committed entry is the write set itself, whose SMR entries already carry
+     * the undo records of the optimistic updates. The write cached it in the address
+     * space (write-through), so it doesn't need to be read back from the log.
+     */
     protected void tryCommitAllProxies() {
-        // First, get the committed entry
-        // in order to get the backpointers
-        // and the underlying SMREntries.
-        ILogData committedEntry = this.transaction.getRuntime()
-                .getAddressSpaceView().read(commitAddress);
-
         updateAllProxies(x -> {
             log.trace("Commit[{}] Committing {}", this,  x);
             // Commit all the optimistic updates
@@ -334,28 +329,6 @@ public class OptimisticTransactionalContext extends AbstractTransactionalContext
             // it forward to grab those updates
             x.getUnderlyingObject().syncObjectUnsafe(
                         commitAddress - 1);
-            // Also, be nice and transfer the undo
-            // log from the optimistic updates
-            // for this to work the write sets better
-            // be the same
-            List<SMREntry> committedWrites =
-                    getWriteSetEntryList(x.getStreamID());
-            List<SMREntry> entryWrites =
-                    ((ISMRConsumable) committedEntry
-                            .getPayload(this.transaction.getRuntime()))
-                    .getSMRUpdates(x.getStreamID());
-            if (committedWrites.size()
-                    == entryWrites.size()) {
-                IntStream.range(0, committedWrites.size())
-                        .forEach(i -> {
-                            if (committedWrites.get(i)
-                                    .isUndoable()) {
-                                entryWrites.get(i)
-                                        .setUndoRecord(committedWrites.get(i)
-                                                .getUndoRecord());
-                            }
-                        });
-            }
             // and move the stream pointer to "skip" this commit entry
             x.getUnderlyingObject().seek(commitAddress + 1);
             log.trace("Commit[{}] Committed {}", this,  x);
@@ -47,9 +47,9 @@ public class SnapshotTransactionalContext extends AbstractTransactionalContext {
         // In snapshot transactions, there are no conflicts.
         // Hence, we do not need to add this access to a conflict set
         // do not add: addToReadSet(proxy, conflictObject);
-        return proxy.getUnderlyingObject().access(o -> o.getVersionUnsafe()
-                        == getSnapshotTimestamp().getSequence()
-                        && !o.isOptimisticallyModifiedUnsafe(),
+        // Read from a retained version of the object if there is one, rather than rolling
+        // the object back to the snapshot.
+        return proxy.getUnderlyingObject().snapshotAccess(getSnapshotTimestamp().getSequence(),
                 o -> {
                     syncWithRetryUnsafe(o, getSnapshotTimestamp(), proxy, null);
                 },
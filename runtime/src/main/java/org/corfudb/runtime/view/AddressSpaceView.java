@@ -7,30 +7,44 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Iterables;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import io.netty.handler.timeout.TimeoutException;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import org.corfudb.protocols.wireprotocol.DataType;
 import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.protocols.wireprotocol.IToken;
 import org.corfudb.protocols.wireprotocol.LogData;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
+import org.corfudb.protocols.wireprotocol.StreamAddressResponse;
 import org.corfudb.protocols.wireprotocol.TailsResponse;
 import org.corfudb.protocols.wireprotocol.Token;
 import org.corfudb.runtime.CorfuRuntime;
@@ -43,6 +57,8 @@ import org.corfudb.runtime.exceptions.TrimmedException;
 import org.corfudb.runtime.exceptions.WriteSizeException;
 import org.corfudb.runtime.exceptions.WrongEpochException;
 import org.corfudb.runtime.exceptions.unrecoverable.UnrecoverableCorfuError;
+import org.corfudb.runtime.exceptions.unrecoverable.UnrecoverableCorfuInterruptedError;
+import org.corfudb.runtime.view.replication.ReplicaReadRouter;
 import org.corfudb.util.CFUtils;
 import org.corfudb.util.CorfuComponent;
 import org.corfudb.util.Sleep;
@@ -57,24 +73,39 @@ import org.corfudb.util.Sleep;
 public class AddressSpaceView extends AbstractView {
 
     /**
-     * A cache for read results.
+     * Estimated memory used by a read cache entry, besides its payload.
      */
-    final LoadingCache<Long, ILogData> readCache = CacheBuilder.newBuilder()
-            .maximumSize(runtime.getParameters().getNumCacheEntries())
-            .expireAfterAccess(runtime.getParameters().getCacheExpiryTime(), TimeUnit.SECONDS)
-            .expireAfterWrite(runtime.getParameters().getCacheExpiryTime(), TimeUnit.SECONDS)
-            .recordStats()
-            .build(new CacheLoader<Long, ILogData>() {
-                @Override
-                public ILogData load(Long value) throws Exception {
-                    return cacheFetch(value);
-                }
+    private static final int CACHE_ENTRY_OVERHEAD = 128;
 
-                @Override
-                public Map<Long, ILogData> loadAll(Iterable<? extends Long> keys) throws Exception {
-                    return cacheFetch((Iterable<Long>) keys);
-                }
-            });
+    /**
+     * Executes the concurrent batches of bulk reads.
+     */
+    private final ExecutorService fetchExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("AddressSpaceView-fetch-%d")
+                    .build());
+
+    /**
+     * Routes the reads of chain replication to the units of a chain.
+     */
+    @Getter
+    private final ReplicaReadRouter readRouter = new ReplicaReadRouter(runtime);
+
+    /**
+     * The second tier of the read cache, which keeps entries evicted from the read cache
+     * serialized outside of the heap, or null if it is disabled.
+     */
+    @Nullable
+    private final OffHeapReadCache offHeapCache =
+            runtime.getParameters().getOffHeapCacheBytes() > 0
+                    ? new OffHeapReadCache(runtime.getParameters().getOffHeapCacheBytes())
+                    : null;
+
+    /**
+     * A cache for read results.
+     */
+    final LoadingCache<Long, ILogData> readCache = buildReadCache();
 
     /**
      * Constructor for the Address Space View.
@@ -85,25 +116,102 @@ public class AddressSpaceView extends AbstractView {
         final String pfx = String.format("%s0x%x.cache.", CorfuComponent.ADDRESS_SPACE_VIEW.toString(),
                                          this.hashCode());
         metrics.register(pfx + "cache-size", (Gauge<Long>) readCache::size);
+        metrics.register(pfx + "cache-bytes", (Gauge<Long>) () -> readCache.asMap().values()
+                .stream().mapToLong(AddressSpaceView::weigh).sum());
         metrics.register(pfx + "evictions", (Gauge<Long>) () -> readCache.stats().evictionCount());
         metrics.register(pfx + "hit-rate", (Gauge<Double>) () -> readCache.stats().hitRate());
         metrics.register(pfx + "hits", (Gauge<Long>) () -> readCache.stats().hitCount());
         metrics.register(pfx + "misses", (Gauge<Long>) () -> readCache.stats().missCount());
+        if (offHeapCache != null) {
+            metrics.register(pfx + "offheap-size", (Gauge<Long>) offHeapCache::size);
+            metrics.register(pfx + "offheap-bytes", (Gauge<Long>) offHeapCache::bytes);
+            metrics.register(pfx + "offheap-evictions",
+                    (Gauge<Long>) () -> offHeapCache.stats().evictionCount());
+            metrics.register(pfx + "offheap-hits",
+                    (Gauge<Long>) () -> offHeapCache.stats().hitCount());
+            metrics.register(pfx + "offheap-misses",
+                    (Gauge<Long>) () -> offHeapCache.stats().missCount());
+        }
     }
 
+    /**
+     * Build the read cache. It is bounded by the estimated size of its entries if
+     * maxCacheBytes is set, or by their number otherwise. Entries evicted because the
+     * cache is full move to the off-heap cache, if it is enabled, and are looked up
+     * there before being fetched from the log units.
+     */
+    private LoadingCache<Long, ILogData> buildReadCache() {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        final long maxCacheBytes = runtime.getParameters().getMaxCacheBytes();
+        if (maxCacheBytes > 0) {
+            builder.maximumWeight(maxCacheBytes)
+                    .weigher((Long address, ILogData ld) -> weigh(ld));
+        } else {
+            builder.maximumSize(runtime.getParameters().getNumCacheEntries());
+        }
+
+        return builder
+                .expireAfterAccess(runtime.getParameters().getCacheExpiryTime(), TimeUnit.SECONDS)
+                .expireAfterWrite(runtime.getParameters().getCacheExpiryTime(), TimeUnit.SECONDS)
+                .removalListener((RemovalNotification<Long, ILogData> notification) -> {
+                    if (offHeapCache != null && notification.getCause() == RemovalCause.SIZE) {
+                        offHeapCache.put(notification.getKey(), notification.getValue());
+                    }
+                })
+                .recordStats()
+                .build(new CacheLoader<Long, ILogData>() {
+                    @Override
+                    public ILogData load(Long value) throws Exception {
+                        ILogData ld = offHeapCache == null ? null : offHeapCache.take(value);
+                        return ld != null ? ld : cacheFetch(value);
+                    }
+
+                    @Override
+                    public Map<Long, ILogData> loadAll(Iterable<? extends Long> keys) throws Exception {
+                        if (offHeapCache == null) {
+                            return cacheFetch((Iterable<Long>) keys);
+                        }
+
+                        Map<Long, ILogData> result = new HashMap<>();
+                        List<Long> missing = new ArrayList<>();
+                        for (Long address : keys) {
+                            ILogData ld = offHeapCache.take(address);
+                            if (ld != null) {
+                                result.put(address, ld);
+                            } else {
+                                missing.add(address);
+                            }
+                        }
+                        if (!missing.isEmpty()) {
+                            result.putAll(cacheFetch(missing));
+                        }
+                        return result;
+                    }
+                });
+    }
+
+    /**
+     * Estimate the memory used by a cached entry, in bytes.
+     */
+    private static int weigh(ILogData ld) {
+        return CACHE_ENTRY_OVERHEAD + (ld.getType() == DataType.DATA ? ld.getSizeEstimate() : 0);
+    }
 
     /**
      * Remove all log entries that are less than the trim mark
      */
     public void gc(long trimMark) {
         readCache.asMap().entrySet().removeIf(e -> e.getKey() < trimMark);
+        if (offHeapCache != null) {
+            offHeapCache.invalidateBelow(trimMark);
+        }
     }
 
     /**
      * Reset all in-memory caches.
      */
     public void resetCaches() {
-        readCache.invalidateAll();
+        invalidateClientCache();
     }
 
 
@@ -149,7 +257,7 @@ public class AddressSpaceView extends AbstractView {
      * @throws WrongEpochException  If the token epoch is invalid.
      */
     public void write(@Nonnull IToken token, @Nonnull Object data, @Nonnull CacheOption cacheOption) {
-        final ILogData ld = new LogData(DataType.DATA, data);
+        final LogData ld = new LogData(DataType.DATA, data);
 
         layoutHelper(e -> {
             Layout l = e.getLayout();
@@ -163,7 +271,7 @@ public class AddressSpaceView extends AbstractView {
             // Set the data to use the token
             ld.useToken(token);
             ld.setId(runtime.getParameters().getClientId());
-
+            ld.encodePayload(getPayloadCodec(l, token.getSequence()));
 
             // Do the write
             try {
@@ -197,6 +305,64 @@ public class AddressSpaceView extends AbstractView {
         }
     }
 
+    /** Write the given log data using a token, without blocking.
+     *
+     * <p>The returned future completes once the write is committed. It completes
+     * exceptionally if the token is stale for the given layout, or if the write
+     * fails for any reason, including when it was overwritten. In that case the
+     * outcome of the write is not known, and the caller should retry it with
+     * {@link #write(IToken, Object, CacheOption)}, which determines it.
+     *
+     * @param runtimeLayout The layout to write with.
+     * @param token         The token to use for the write.
+     * @param data          The data to write.
+     * @param cacheOption   The caching behaviour for this write
+     * @return A future which completes once the write is committed.
+     */
+    public CompletableFuture<Void> writeAsync(@Nonnull RuntimeLayout runtimeLayout,
+                                              @Nonnull IToken token, @Nonnull Object data,
+                                              @Nonnull CacheOption cacheOption) {
+        final Layout l = runtimeLayout.getLayout();
+        if (token.getEpoch() != l.getEpoch()) {
+            CompletableFuture<Void> stale = new CompletableFuture<>();
+            stale.completeExceptionally(new StaleTokenException(l.getEpoch()));
+            return stale;
+        }
+
+        final LogData ld = new LogData(DataType.DATA, data);
+        ld.useToken(token);
+        ld.setId(runtime.getParameters().getClientId());
+        ld.encodePayload(getPayloadCodec(l, token.getSequence()));
+
+        return l.getReplicationMode(token.getSequence())
+                .getReplicationProtocol(runtime)
+                .writeAsync(runtimeLayout, ld)
+                .thenRun(() -> {
+                    // Cache the successful write
+                    if (!runtime.getParameters().isCacheDisabled()
+                            && cacheOption == CacheOption.WRITE_THROUGH) {
+                        readCache.put(token.getSequence(), ld);
+                    }
+                });
+    }
+
+    /**
+     * The codec to compress an entry written at the given address with, which is
+     * the configured codec if every log unit of the address accepts it, or NONE.
+     */
+    private PayloadCodec getPayloadCodec(@Nonnull Layout layout, long address) {
+        final PayloadCodec codec = runtime.getParameters().getPayloadCodec();
+        if (codec == PayloadCodec.NONE) {
+            return codec;
+        }
+        for (String server : layout.getStripe(address).getLogServers()) {
+            if (!runtime.getRouter(server).getPayloadCodecs().contains(codec)) {
+                return PayloadCodec.NONE;
+            }
+        }
+        return codec;
+    }
+
     /**
      * Write the given log data and then add it to the address
      * space cache (i.e. WRITE_THROUGH option)
@@ -287,6 +453,75 @@ public class AddressSpaceView extends AbstractView {
         return addressesMap;
     }
 
+    /**
+     * Asynchronously load addresses into the read cache, skipping those which are
+     * already cached. Failures are ignored, the addresses are just read again on demand.
+     *
+     * @param addresses The addresses to load, which must have been written.
+     * @return A future which completes once the addresses are cached.
+     */
+    public CompletableFuture<Void> prefetch(@Nonnull List<Long> addresses) {
+        if (runtime.getParameters().isCacheDisabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return CompletableFuture.runAsync(() -> {
+            List<Long> missing = new ArrayList<>(addresses.size());
+            for (Long address : addresses) {
+                if (readCache.getIfPresent(address) == null) {
+                    missing.add(address);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+
+            log.trace("prefetch: {} addresses from {}", missing.size(), missing.get(0));
+            try {
+                readCache.getAll(missing);
+            } catch (ExecutionException | RuntimeException | ExecutionError e) {
+                log.debug("prefetch: Failed to prefetch addresses from {}", missing.get(0), e);
+            }
+        }, fetchExecutor);
+    }
+
+    /**
+     * Resolve the addresses of a stream in a range from the stream address index of the
+     * log units, rather than by following the backpointers of the stream.
+     *
+     * <p>Only a prefix of the range may be resolved. The index is used for segments
+     * replicated by a single chain, whose tail resolves the range up to its contiguous
+     * tail. The range is never resolved past the segment of its first address.
+     *
+     * @param streamId The stream to resolve.
+     * @param start    The first address of the range, inclusive.
+     * @param end      The last address of the range, inclusive.
+     * @return The addresses of the stream in the resolved prefix of the range, or null
+     *         if the range cannot be resolved from the index.
+     */
+    @Nullable
+    public StreamAddressResponse getStreamAddresses(@Nonnull UUID streamId, long start,
+                                                    long end) {
+        return layoutHelper(e -> {
+            Layout.LayoutSegment segment = e.getLayout().getSegment(start);
+            if (segment.getReplicationMode() != Layout.ReplicationMode.CHAIN_REPLICATION
+                    || segment.getNumberOfStripes() != 1) {
+                return null;
+            }
+
+            List<String> chain = segment.getStripes().get(0).getLogServers();
+            long segmentEnd = segment.getEnd() == -1 ? end : Math.min(end, segment.getEnd() - 1);
+            StreamAddressResponse response = CFUtils.getUninterruptibly(
+                    e.getLogUnitClient(chain.get(chain.size() - 1))
+                            .getStreamAddresses(streamId, start, segmentEnd));
+            // The index doesn't hold the addresses below the trim mark
+            if (response.getTrimMark() > start || response.getResolvedTail() < start) {
+                return null;
+            }
+            return response;
+        });
+    }
+
     /**
      * Get the first address in the address space.
      */
@@ -398,6 +633,9 @@ public class AddressSpaceView extends AbstractView {
     /** Force the client cache to be invalidated. */
     public void invalidateClientCache() {
         readCache.invalidateAll();
+        if (offHeapCache != null) {
+            offHeapCache.invalidateAll();
+        }
     }
 
     /**
@@ -419,33 +657,74 @@ public class AddressSpaceView extends AbstractView {
     /**
      * Fetch a collection of addresses for insertion into the cache.
      *
+     * <p>The addresses are grouped by the stripe they belong to, so that each bulk read
+     * targets a single chain, and split in batches of bulkReadSize. Up to
+     * bulkReadConcurrency batches are read concurrently.
+     *
      * @param addresses collection of addresses to read from.
      * @return A result to be cached
      */
     public @Nonnull
     Map<Long, ILogData> cacheFetch(Iterable<Long> addresses) {
-        Map<Long, ILogData> allAddresses = new HashMap<>();
+        final Layout layout = runtime.getLayoutView().getLayout();
+        final Map<Layout.LayoutStripe, List<Long>> stripes = new IdentityHashMap<>();
+        for (Long address : addresses) {
+            stripes.computeIfAbsent(layout.getStripe(address), s -> new ArrayList<>())
+                    .add(address);
+        }
 
-        Iterable<List<Long>> batches = Iterables.partition(addresses,
-            runtime.getParameters().getBulkReadSize());
+        final List<List<Long>> batches = new ArrayList<>();
+        for (List<Long> stripe : stripes.values()) {
+            Iterables.addAll(batches, Iterables.partition(stripe,
+                    runtime.getParameters().getBulkReadSize()));
+        }
 
-        for (List<Long> batch : batches) {
-            try {
-                //doesn't handle the case where some address have a different replication mode
-                allAddresses.putAll(layoutHelper(e -> e.getLayout()
-                        .getReplicationMode(batch.iterator().next())
-                        .getReplicationProtocol(runtime)
-                        .readAll(e, batch)));
-            } catch (Exception e) {
-                log.error("cacheFetch: Couldn't read addresses {}", batch, e);
-                throw new UnrecoverableCorfuError(
-                    "Unexpected error during cacheFetch", e);
+        final Map<Long, ILogData> allAddresses = new ConcurrentHashMap<>();
+        final int concurrency = runtime.getParameters().getBulkReadConcurrency();
+        if (batches.size() <= 1 || concurrency <= 1) {
+            batches.forEach(batch -> allAddresses.putAll(fetchBatch(batch)));
+            return allAddresses;
+        }
+
+        // Issue the batches with a bounded number in flight, the calling thread
+        // blocks until a batch completes once the window is full.
+        final Semaphore window = new Semaphore(concurrency);
+        final List<CompletableFuture<Void>> inFlight = new ArrayList<>(batches.size());
+        try {
+            for (List<Long> batch : batches) {
+                window.acquire();
+                inFlight.add(CompletableFuture
+                        .runAsync(() -> allAddresses.putAll(fetchBatch(batch)), fetchExecutor)
+                        .whenComplete((r, ex) -> window.release()));
             }
+        } catch (InterruptedException ie) {
+            throw new UnrecoverableCorfuInterruptedError(
+                    "Interrupted while fetching addresses", ie);
         }
 
+        CFUtils.getUninterruptibly(CompletableFuture.allOf(
+                inFlight.toArray(new CompletableFuture[inFlight.size()])),
+                UnrecoverableCorfuError.class);
         return allAddresses;
     }
 
+    /**
+     * Read a batch of addresses which belong to a single stripe.
+     */
+    private Map<Long, ILogData> fetchBatch(List<Long> batch) {
+        try {
+            //doesn't handle the case where some address have a different replication mode
+            return layoutHelper(e -> e.getLayout()
+                    .getReplicationMode(batch.iterator().next())
+                    .getReplicationProtocol(runtime)
+                    .readAll(e, batch));
+        } catch (Exception e) {
+            log.error("cacheFetch: Couldn't read addresses {}", batch, e);
+            throw new UnrecoverableCorfuError(
+                "Unexpected error during cacheFetch", e);
+        }
+    }
+
     /**
      * Fetch a collection of addresses.
      *
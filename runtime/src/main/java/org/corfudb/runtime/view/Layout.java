@@ -16,6 +16,7 @@ import org.corfudb.runtime.view.replication.IReplicationProtocol;
 import org.corfudb.runtime.view.replication.NeverHoleFillPolicy;
 import org.corfudb.runtime.view.replication.QuorumReplicationProtocol;
 import org.corfudb.runtime.view.replication.ReadWaitHoleFillPolicy;
+import org.corfudb.runtime.view.replication.ReplicaReadRouter;
 import org.corfudb.runtime.view.stream.BackpointerStreamView;
 import org.corfudb.runtime.view.stream.IStreamView;
 import org.corfudb.runtime.view.stream.ThreadSafeStreamView;
@@ -351,12 +352,17 @@ public class Layout {
 
             @Override
             public IReplicationProtocol getReplicationProtocol(CorfuRuntime r) {
+                final boolean parallelPropagation =
+                        r.getParameters().isParallelChainPropagation();
+                final ReplicaReadRouter readRouter = r.getAddressSpaceView().getReadRouter();
                 if (r.getParameters().isHoleFillingDisabled()) {
-                    return new ChainReplicationProtocol(new NeverHoleFillPolicy(100));
+                    return new ChainReplicationProtocol(new NeverHoleFillPolicy(100),
+                            parallelPropagation, readRouter);
                 } else {
                     return new ChainReplicationProtocol(
                             new ReadWaitHoleFillPolicy(r.getParameters().getRequestTimeout(),
-                                    r.getParameters().getHoleFillRetryThreshold()));
+                                    r.getParameters().getHoleFillRetryThreshold()),
+                            parallelPropagation, readRouter);
                 }
             }
 
@@ -0,0 +1,124 @@
+package org.corfudb.runtime.view;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.corfudb.protocols.wireprotocol.DataType;
+import org.corfudb.protocols.wireprotocol.ILogData;
+import org.corfudb.protocols.wireprotocol.LogData;
+
+/**
+ * The second tier of the address space view read cache.
+ *
+ * <p>Entries evicted from the first tier are kept serialized in direct buffers, outside of
+ * the heap, and bounded by their serialized size. An entry is only deserialized when it is
+ * read again, at which point it moves back to the first tier.
+ *
+ * <p>Buffers are released when their entry is removed for any reason. Since a buffer may
+ * be released by an eviction caused by another thread, every operation is synchronized.
+ */
+@Slf4j
+@ThreadSafe
+class OffHeapReadCache {
+
+    private final Cache<Long, ByteBuf> cache;
+
+    private long bytes = 0;
+
+    /**
+     * Returns a new off-heap read cache.
+     *
+     * @param maxBytes The maximum number of serialized bytes to keep.
+     */
+    OffHeapReadCache(long maxBytes) {
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .<Long, ByteBuf>weigher((address, buf) -> buf.readableBytes())
+                .removalListener(this::release)
+                .recordStats()
+                .build();
+    }
+
+    private void release(RemovalNotification<Long, ByteBuf> notification) {
+        bytes -= notification.getValue().readableBytes();
+        notification.getValue().release();
+    }
+
+    /**
+     * Serialize an entry evicted from the first tier into the cache. Only data entries
+     * are kept, holes and trimmed entries are cheap to fetch again.
+     *
+     * @param address The address of the entry.
+     * @param ld      The entry.
+     */
+    synchronized void put(long address, ILogData ld) {
+        if (ld.getType() != DataType.DATA || !(ld instanceof LogData)) {
+            return;
+        }
+
+        ByteBuf buf = Unpooled.directBuffer();
+        try {
+            ((LogData) ld).doSerialize(buf);
+        } catch (RuntimeException e) {
+            // The entry may be deserialized concurrently, in which case it is just dropped.
+            log.trace("put[{}]: Failed to serialize evicted entry", address, e);
+            buf.release();
+            return;
+        }
+        bytes += buf.readableBytes();
+        cache.put(address, buf);
+    }
+
+    /**
+     * Remove an entry from the cache and deserialize it.
+     *
+     * @param address The address of the entry.
+     * @return The entry, or null if it is not in the cache.
+     */
+    @Nullable
+    synchronized ILogData take(long address) {
+        ByteBuf buf = cache.getIfPresent(address);
+        if (buf == null) {
+            return null;
+        }
+        LogData ld = new LogData(buf.duplicate());
+        cache.invalidate(address);
+        return ld;
+    }
+
+    /**
+     * Remove all the entries below an address.
+     */
+    synchronized void invalidateBelow(long address) {
+        cache.asMap().keySet().removeIf(a -> a < address);
+    }
+
+    synchronized void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    synchronized long size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of serialized bytes in the cache.
+     */
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,168 @@
+package org.corfudb.runtime.view;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.corfudb.protocols.wireprotocol.TokenRequest;
+import org.corfudb.protocols.wireprotocol.TokenResponse;
+import org.corfudb.runtime.exceptions.unrecoverable.UnrecoverableCorfuInterruptedError;
+
+/**
+ * Coalesces the token requests of concurrent threads into batches, so that many
+ * threads share a single round trip to the sequencer.
+ *
+ * <p>There is no background thread and no batching delay: the first thread to find
+ * no batch in flight sends every request queued so far (up to the batch size), and
+ * requests that arrive in the meantime are sent together in the next batch. Once its
+ * own request is served, the sending thread hands the next batch over to one of the
+ * waiting threads.
+ */
+@Slf4j
+@ThreadSafe
+class SequencerTokenBatcher {
+
+    /**
+     * Sends a batch of token requests and returns their responses, in order.
+     */
+    private final Function<List<TokenRequest>, List<TokenResponse>> sender;
+
+    private final ConcurrentLinkedQueue<PendingRequest> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Set while a thread is sending a batch.
+     */
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    SequencerTokenBatcher(Function<List<TokenRequest>, List<TokenResponse>> sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Get the response to a token request, sending it along with the requests of
+     * other threads.
+     *
+     * @param request      token request
+     * @param maxBatchSize maximum number of requests sent in a single batch
+     * @return the token response
+     */
+    TokenResponse next(TokenRequest request, int maxBatchSize) {
+        final PendingRequest pendingRequest = new PendingRequest(request, Thread.currentThread());
+        pending.add(pendingRequest);
+
+        while (!pendingRequest.isDone()) {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    sendBatch(maxBatchSize);
+                } finally {
+                    sending.set(false);
+                }
+
+                // A request queued while the batch was in flight must not be stranded,
+                // its thread may have given up on the flag before it was released.
+                PendingRequest next = pending.peek();
+                if (next != null && next != pendingRequest) {
+                    LockSupport.unpark(next.waiter);
+                }
+            } else {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    abandon(pendingRequest);
+                    throw new UnrecoverableCorfuInterruptedError(
+                            "Interrupted while waiting for a token",
+                            new InterruptedException());
+                }
+            }
+        }
+
+        return pendingRequest.getResponse();
+    }
+
+    /**
+     * Withdraw a request that is no longer waited for, and wake up the next waiting
+     * thread in case the batch was handed over to this one.
+     */
+    private void abandon(PendingRequest pendingRequest) {
+        pending.remove(pendingRequest);
+        PendingRequest next = pending.peek();
+        if (next != null) {
+            LockSupport.unpark(next.waiter);
+        }
+    }
+
+    /**
+     * Send the oldest queued requests, and complete them with the responses or the
+     * error of the batch.
+     */
+    private void sendBatch(int maxBatchSize) {
+        final List<PendingRequest> batch = new ArrayList<>(Math.min(maxBatchSize,
+                pending.size()));
+        PendingRequest next;
+        while (batch.size() < maxBatchSize && (next = pending.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final List<TokenRequest> requests = new ArrayList<>(batch.size());
+        for (PendingRequest pendingRequest : batch) {
+            requests.add(pendingRequest.request);
+        }
+
+        try {
+            List<TokenResponse> responses = sender.apply(requests);
+            if (responses.size() != requests.size()) {
+                throw new IllegalStateException("Expected " + requests.size()
+                        + " token responses, got " + responses.size());
+            }
+            log.trace("sendBatch: sent {} token requests", requests.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).response = responses.get(i);
+            }
+        } catch (RuntimeException | Error e) {
+            for (PendingRequest pendingRequest : batch) {
+                pendingRequest.error = e;
+            }
+        } finally {
+            for (PendingRequest pendingRequest : batch) {
+                LockSupport.unpark(pendingRequest.waiter);
+            }
+        }
+    }
+
+    /**
+     * A queued token request and its outcome.
+     */
+    private static class PendingRequest {
+        final TokenRequest request;
+        final Thread waiter;
+        volatile TokenResponse response;
+        volatile Throwable error;
+
+        PendingRequest(TokenRequest request, Thread waiter) {
+            this.request = request;
+            this.waiter = waiter;
+        }
+
+        boolean isDone() {
+            return response != null || error != null;
+        }
+
+        TokenResponse getResponse() {
+            if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null) {
+                throw (RuntimeException) error;
+            }
+            return response;
+        }
+    }
+}
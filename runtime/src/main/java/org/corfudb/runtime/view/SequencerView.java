@@ -3,6 +3,7 @@ package org.corfudb.runtime.view;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.google.common.collect.Lists;
+import org.corfudb.protocols.wireprotocol.TokenRequest;
 import org.corfudb.protocols.wireprotocol.TokenResponse;
 import org.corfudb.protocols.wireprotocol.TxResolutionInfo;
 import org.corfudb.runtime.CorfuRuntime;
@@ -12,6 +13,7 @@ import org.corfudb.util.MetricsUtils;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -29,8 +31,14 @@ public class SequencerView extends AbstractView {
     private Timer sequencerDeprecatedNextOneStream;
     private Timer sequencerDeprecatedNextMultipleStream;
     private Timer sequencerTrimCache;
+    private Timer sequencerNextBatch;
     private static MetricRegistry metricRegistry = CorfuRuntime.getDefaultMetrics();
 
+    /**
+     * Coalesces concurrent token requests, if {@code tokenBatchSize} is greater than 1.
+     */
+    private final SequencerTokenBatcher tokenBatcher = new SequencerTokenBatcher(this::nextTokens);
+
     public SequencerView(CorfuRuntime runtime) {
         super(runtime);
 
@@ -54,6 +62,8 @@ public class SequencerView extends AbstractView {
                 "deprecated-particular-next");
         sequencerDeprecatedNextMultipleStream = metricRegistry.timer(CorfuComponent.CLIENT_SEQUENCER +
                 "deprecated-multiple-next");
+        sequencerNextBatch = metricRegistry.timer(CorfuComponent.CLIENT_SEQUENCER +
+                "batch-next");
     }
 
     /**
@@ -83,6 +93,10 @@ public class SequencerView extends AbstractView {
      */
     public TokenResponse next(UUID ... streamIds) {
         try (Timer.Context context = MetricsUtils.getConditionalContext(sequencerNextOneStream)){
+            if (isBatchingEnabled()) {
+                return tokenBatcher.next(new TokenRequest(1L, Arrays.asList(streamIds)),
+                        runtime.getParameters().getTokenBatchSize());
+            }
             return layoutHelper(e -> CFUtils.getUninterruptibly(e.getPrimarySequencerClient()
                     .nextToken(Arrays.asList(streamIds), 1)));
         }
@@ -98,6 +112,10 @@ public class SequencerView extends AbstractView {
      */
     public TokenResponse next(TxResolutionInfo conflictInfo, UUID ... streamIds) {
         try (Timer.Context context = MetricsUtils.getConditionalContext(sequencerNextMultipleStream)) {
+            if (isBatchingEnabled()) {
+                return tokenBatcher.next(new TokenRequest(1L, Arrays.asList(streamIds),
+                        conflictInfo), runtime.getParameters().getTokenBatchSize());
+            }
             return layoutHelper(e -> CFUtils.getUninterruptibly(e.getPrimarySequencerClient()
                     .nextToken(Arrays.asList(streamIds), 1, conflictInfo)));
         }
@@ -131,6 +149,23 @@ public class SequencerView extends AbstractView {
         }
     }
 
+    private boolean isBatchingEnabled() {
+        return runtime.getParameters().getTokenBatchSize() > 1;
+    }
+
+    /**
+     * Send a batch of token requests to the primary sequencer in a single message.
+     *
+     * @param requests token requests, served in this order
+     * @return the token responses, in the order of the requests
+     */
+    private List<TokenResponse> nextTokens(List<TokenRequest> requests) {
+        try (Timer.Context context = MetricsUtils.getConditionalContext(sequencerNextBatch)) {
+            return layoutHelper(e -> CFUtils.getUninterruptibly(e.getPrimarySequencerClient()
+                    .nextTokens(requests)));
+        }
+    }
+
     public void trimCache(long address) {
         try (Timer.Context context = MetricsUtils.getConditionalContext(sequencerTrimCache)){
             runtime.getLayoutView().getRuntimeLayout().getPrimarySequencerClient().trimCache(address);
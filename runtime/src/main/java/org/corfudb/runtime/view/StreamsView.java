@@ -2,9 +2,15 @@ package org.corfudb.runtime.view;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
@@ -14,6 +20,7 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.TreeMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -29,6 +36,7 @@ import org.corfudb.runtime.exceptions.StaleTokenException;
 import org.corfudb.runtime.exceptions.TransactionAbortedException;
 import org.corfudb.runtime.object.CorfuCompileProxy;
 import org.corfudb.runtime.object.ICorfuSMR;
+import org.corfudb.runtime.object.transactions.AbstractTransactionalContext;
 import org.corfudb.runtime.object.transactions.TransactionalContext;
 import org.corfudb.runtime.view.stream.IStreamView;
 import org.corfudb.util.Utils;
@@ -48,8 +56,26 @@ public class StreamsView extends AbstractView {
     @Getter
     Multimap<UUID, IStreamView> streamCache = Multimaps.synchronizedMultimap(HashMultimap.create());
 
+    /**
+     * Retries the asynchronous appends whose write failed, which may block.
+     */
+    private final ExecutorService appendExecutor;
+
     public StreamsView(final CorfuRuntime runtime) {
         super(runtime);
+        appendExecutor = Executors.newFixedThreadPool(
+                runtime.getParameters().getAppendRetryThreads(),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("StreamsView-append-%d")
+                        .build());
+    }
+
+    /**
+     * Stop retrying asynchronous appends. Appends whose retry hasn't started are not retried.
+     */
+    public void shutdown() {
+        appendExecutor.shutdownNow();
     }
 
     /**
@@ -120,39 +146,283 @@ public class StreamsView extends AbstractView {
      */
     public long append(@Nonnull Object object, @Nullable TxResolutionInfo conflictInfo,
                        @Nonnull CacheOption cacheOption, @Nonnull UUID ... streamIDs) {
-        // Go to the sequencer, grab an initial token.
-        TokenResponse tokenResponse = conflictInfo == null
+        return append(acquireToken(conflictInfo, streamIDs), object, conflictInfo, cacheOption,
+                TransactionalContext.getCurrentContext(), streamIDs);
+    }
+
+    /**
+     * Go to the sequencer, grab an initial token.
+     */
+    private TokenResponse acquireToken(@Nullable TxResolutionInfo conflictInfo,
+                                       @Nonnull UUID ... streamIDs) {
+        return conflictInfo == null
                 ? runtime.getSequencerView().next(streamIDs) // Token w/o conflict info
                 : runtime.getSequencerView().next(conflictInfo, streamIDs); // Token w/ conflict info
+    }
+
+    /**
+     * Append to multiple streams simultaneously without blocking, possibly providing
+     * information on how to resolve conflicts.
+     *
+     * <p>The token request and the write are pipelined: this returns as soon as the
+     * token is requested, so a single thread can have many appends in flight. If the
+     * write fails (e.g. it was overwritten), the append is retried exactly like
+     * {@link #append(Object, TxResolutionInfo, CacheOption, UUID...)} would, on a
+     * separate thread.
+     *
+     * @param streamIDs    The streams to append to.
+     * @param object       The object to append to each stream.
+     * @param conflictInfo Conflict information for the sequencer to check.
+     * @param cacheOption  The caching mode for write/append
+     * @return A future which completes with the address the entry was written to,
+     *     or exceptionally with a {@link TransactionAbortedException} if the
+     *     transaction was aborted by the sequencer.
+     */
+    public CompletableFuture<Long> appendAsync(@Nonnull Object object,
+                                               @Nullable TxResolutionInfo conflictInfo,
+                                               @Nonnull CacheOption cacheOption,
+                                               @Nonnull UUID ... streamIDs) {
+        // The transactional context is thread local, so it is captured here
+        final AbstractTransactionalContext txContext = TransactionalContext.getCurrentContext();
+        final RuntimeLayout runtimeLayout = runtime.getLayoutView().getRuntimeLayout();
+        final List<UUID> streams = Arrays.asList(streamIDs);
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        CompletableFuture<TokenResponse> tokenFuture;
+        try {
+            tokenFuture = conflictInfo == null
+                    ? runtimeLayout.getPrimarySequencerClient().nextToken(streams, 1)
+                    : runtimeLayout.getPrimarySequencerClient().nextToken(streams, 1, conflictInfo);
+        } catch (RuntimeException e) {
+            log.debug("appendAsync: failed to request a token, retrying synchronously", e);
+            retry(result, () -> append(acquireToken(conflictInfo, streamIDs), object,
+                    conflictInfo, cacheOption, txContext, streamIDs));
+            return result;
+        }
+
+        tokenFuture.whenComplete((tokenResponse, tokenError) -> {
+            if (tokenError != null) {
+                // Take the same path as a synchronous append, which retries the
+                // token request on a new layout if needed.
+                log.debug("appendAsync: failed to acquire a token, retrying synchronously",
+                        tokenError);
+                retry(result, () -> append(acquireToken(conflictInfo, streamIDs), object,
+                        conflictInfo, cacheOption, txContext, streamIDs));
+                return;
+            }
+
+            try {
+                checkToken(tokenResponse, conflictInfo, txContext);
+            } catch (TransactionAbortedException tae) {
+                result.completeExceptionally(tae);
+                return;
+            }
+
+            // The entry records the thread which writes it, see ILogData#setId
+            final long writerThreadId = Thread.currentThread().getId();
+            CompletableFuture<Void> writeFuture;
+            try {
+                writeFuture = runtime.getAddressSpaceView()
+                        .writeAsync(runtimeLayout, tokenResponse, object, cacheOption);
+            } catch (RuntimeException e) {
+                writeFuture = new CompletableFuture<>();
+                writeFuture.completeExceptionally(e);
+            }
+
+            writeFuture.whenComplete((v, writeError) -> {
+                if (writeError == null) {
+                    result.complete(tokenResponse.getSequence());
+                    return;
+                }
+
+                // The outcome of the write is unknown, it may have reached part of the chain
+                log.debug("appendAsync[{}]: write failed, retrying synchronously",
+                        tokenResponse.getSequence(), writeError);
+                retry(result, () -> retryAppend(tokenResponse, writerThreadId, object,
+                        conflictInfo, cacheOption, txContext, streamIDs));
+            });
+        });
+
+        return result;
+    }
+
+    /**
+     * Append to multiple streams without blocking, and cache the result.
+     *
+     * @see StreamsView#appendAsync(Object, TxResolutionInfo, CacheOption, UUID...)
+     */
+    public CompletableFuture<Long> appendAsync(@Nonnull Object object,
+                                               @Nullable TxResolutionInfo conflictInfo,
+                                               @Nonnull UUID ... streamIDs) {
+        return appendAsync(object, conflictInfo, CacheOption.WRITE_THROUGH, streamIDs);
+    }
+
+    /**
+     * Retry an asynchronous append on the append executor, completing its result with
+     * the outcome of the retry.
+     */
+    private void retry(CompletableFuture<Long> result, Supplier<Long> append) {
+        try {
+            appendExecutor.execute(() -> {
+                try {
+                    result.complete(append.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            // The runtime is shutting down
+            result.completeExceptionally(ree);
+        }
+    }
+
+    /**
+     * Throw a {@link TransactionAbortedException} if a token request was rejected.
+     */
+    private void checkToken(TokenResponse tokenResponse, @Nullable TxResolutionInfo conflictInfo,
+                            AbstractTransactionalContext txContext) {
+        if (tokenResponse.getRespType() == TokenType.TX_ABORT_CONFLICT) {
+            throw new TransactionAbortedException(
+                    conflictInfo,
+                    tokenResponse.getConflictKey(),
+                    AbortCause.CONFLICT,
+                    txContext);
+        } else if (tokenResponse.getRespType() == TokenType.TX_ABORT_NEWSEQ) {
+            throw new TransactionAbortedException(
+                    conflictInfo,
+                    tokenResponse.getConflictKey(),
+                    AbortCause.NEW_SEQUENCER,
+                    txContext);
+        } else if (tokenResponse.getRespType() == TokenType.TX_ABORT_SEQ_OVERFLOW) {
+            throw new TransactionAbortedException(
+                    conflictInfo,
+                    tokenResponse.getConflictKey(),
+                    AbortCause.SEQUENCER_OVERFLOW,
+                    txContext);
+        } else if (tokenResponse.getRespType() == TokenType.TX_ABORT_SEQ_TRIM) {
+            throw new TransactionAbortedException(
+                    conflictInfo,
+                    tokenResponse.getConflictKey(),
+                    AbortCause.SEQUENCER_TRIM,
+                    txContext);
+        }
+    }
+
+    /**
+     * Retry an append whose write failed with an unknown outcome.
+     *
+     * <p>The entry is written again with the same token. If that write is overwritten,
+     * the first write may have reached part of the chain before failing, and the address
+     * may hold our own entry, in which case the append is complete. A new token is only
+     * acquired if the address holds another writer's entry.
+     *
+     * @param tokenResponse  The token of the failed write.
+     * @param writerThreadId The id of the thread which issued the failed write.
+     * @param txContext      The transactional context to report aborts with.
+     * @see StreamsView#append(TokenResponse, Object, TxResolutionInfo, CacheOption,
+     *     AbstractTransactionalContext, UUID...)
+     */
+    private long retryAppend(TokenResponse tokenResponse, long writerThreadId,
+                             @Nonnull Object object,
+                             @Nullable TxResolutionInfo conflictInfo,
+                             @Nonnull CacheOption cacheOption,
+                             AbstractTransactionalContext txContext,
+                             @Nonnull UUID ... streamIDs) {
+        try {
+            runtime.getAddressSpaceView().write(tokenResponse, object, cacheOption);
+            return tokenResponse.getSequence();
+        } catch (OverwriteException oe) {
+            if (isOwnEntry(tokenResponse.getSequence(), writerThreadId)) {
+                log.debug("retryAppend[{}]: failed write was committed",
+                        tokenResponse.getSequence());
+                return tokenResponse.getSequence();
+            }
+            log.warn("retryAppend[{}]: Overwritten, streams {}", tokenResponse.getSequence(),
+                    Arrays.stream(streamIDs).map(Utils::toReadableId).collect(Collectors.toSet()));
+            return append(nextToken(tokenResponse, conflictInfo, streamIDs), object,
+                    conflictInfo, cacheOption, txContext, streamIDs);
+        } catch (StaleTokenException se) {
+            throw staleTokenAbort(tokenResponse, conflictInfo, txContext, streamIDs);
+        }
+    }
+
+    /**
+     * Whether an address holds an entry written by this client, from the given thread.
+     * Only the writer of the token of an address writes data to it, so the writer id
+     * identifies the entry.
+     */
+    private boolean isOwnEntry(long address, long writerThreadId) {
+        ILogData logData = runtime.getAddressSpaceView().read(address);
+        if (logData.isHole() || logData.isEmpty() || logData.isTrimmed()) {
+            return false;
+        }
+        return runtime.getParameters().getClientId().equals(logData.getClientId())
+                && Long.valueOf(writerThreadId).equals(logData.getThreadId());
+    }
+
+    /**
+     * Acquire a new token for an entry which was overwritten.
+     *
+     * @param tokenResponse The token the entry was overwritten at.
+     */
+    private TokenResponse nextToken(TokenResponse tokenResponse,
+                                    @Nullable TxResolutionInfo conflictInfo,
+                                    @Nonnull UUID ... streamIDs) {
+        TokenResponse temp;
+        if (conflictInfo == null) {
+            // Token w/o conflict info
+            temp = runtime.getSequencerView().next(streamIDs);
+        } else {
+
+            // On retry, check for conflicts only from the previous
+            // attempt position
+            conflictInfo.setSnapshotTimestamp(tokenResponse.getToken());
+
+            // Token w/ conflict info
+            temp = runtime.getSequencerView().next(conflictInfo, streamIDs);
+        }
+
+        // We need to fix the token (to use the stream addresses- may
+        // eventually be deprecated since these are no longer used)
+        return new TokenResponse(
+                temp.getRespType(), tokenResponse.getConflictKey(),
+                temp.getToken(), temp.getBackpointerMap(), Collections.emptyList());
+    }
+
+    /**
+     * The abort of an append whose token was issued in an older epoch.
+     */
+    private TransactionAbortedException staleTokenAbort(TokenResponse tokenResponse,
+                                                        @Nullable TxResolutionInfo conflictInfo,
+                                                        AbstractTransactionalContext txContext,
+                                                        @Nonnull UUID ... streamIDs) {
+        // the epoch changed from when we grabbed the token from sequencer
+        log.warn("append[{}]: StaleToken , streams {}", tokenResponse.getSequence(),
+                Arrays.stream(streamIDs).map(Utils::toReadableId).collect(Collectors.toSet()));
+
+        return new TransactionAbortedException(
+                conflictInfo,
+                tokenResponse.getConflictKey(),
+                AbortCause.NEW_SEQUENCER, // in the future, perhaps define a new AbortCause?
+                txContext);
+    }
 
+    /**
+     * Write an entry with an acquired token, acquiring new tokens if overwritten.
+     *
+     * @param tokenResponse The initial token.
+     * @param txContext     The transactional context to report aborts with.
+     * @see StreamsView#append(Object, TxResolutionInfo, CacheOption, UUID...)
+     */
+    private long append(TokenResponse tokenResponse, @Nonnull Object object,
+                        @Nullable TxResolutionInfo conflictInfo,
+                        @Nonnull CacheOption cacheOption,
+                        AbstractTransactionalContext txContext,
+                        @Nonnull UUID ... streamIDs) {
         for (int x = 0; x < runtime.getParameters().getWriteRetry(); x++) {
 
             // Is our token a valid type?
-            if (tokenResponse.getRespType() == TokenType.TX_ABORT_CONFLICT) {
-                throw new TransactionAbortedException(
-                        conflictInfo,
-                        tokenResponse.getConflictKey(),
-                        AbortCause.CONFLICT,
-                        TransactionalContext.getCurrentContext());
-            } else if (tokenResponse.getRespType() == TokenType.TX_ABORT_NEWSEQ) {
-                throw new TransactionAbortedException(
-                        conflictInfo,
-                        tokenResponse.getConflictKey(),
-                        AbortCause.NEW_SEQUENCER,
-                        TransactionalContext.getCurrentContext());
-            } else if (tokenResponse.getRespType() == TokenType.TX_ABORT_SEQ_OVERFLOW) {
-                throw new TransactionAbortedException(
-                        conflictInfo,
-                        tokenResponse.getConflictKey(),
-                        AbortCause.SEQUENCER_OVERFLOW,
-                        TransactionalContext.getCurrentContext());
-            } else if (tokenResponse.getRespType() == TokenType.TX_ABORT_SEQ_TRIM) {
-                throw new TransactionAbortedException(
-                        conflictInfo,
-                        tokenResponse.getConflictKey(),
-                        AbortCause.SEQUENCER_TRIM,
-                        TransactionalContext.getCurrentContext());
-            }
+            checkToken(tokenResponse, conflictInfo, txContext);
 
             // Attempt to write to the log
             try {
@@ -167,36 +437,10 @@ public class StreamsView extends AbstractView {
                         x,
                         Arrays.stream(streamIDs).map(Utils::toReadableId).collect(Collectors.toSet()));
 
-                TokenResponse temp;
-                if (conflictInfo == null) {
-                    // Token w/o conflict info
-                    temp = runtime.getSequencerView().next(streamIDs);
-                } else {
-
-                    // On retry, check for conflicts only from the previous
-                    // attempt position
-                    conflictInfo.setSnapshotTimestamp(tokenResponse.getToken());
-
-                    // Token w/ conflict info
-                    temp = runtime.getSequencerView().next(conflictInfo, streamIDs);
-                }
-
-                // We need to fix the token (to use the stream addresses- may
-                // eventually be deprecated since these are no longer used)
-                tokenResponse = new TokenResponse(
-                        temp.getRespType(), tokenResponse.getConflictKey(),
-                        temp.getToken(), temp.getBackpointerMap(), Collections.emptyList());
+                tokenResponse = nextToken(tokenResponse, conflictInfo, streamIDs);
 
             } catch (StaleTokenException se) {
-                // the epoch changed from when we grabbed the token from sequencer
-                log.warn("append[{}]: StaleToken , streams {}", tokenResponse.getSequence(),
-                        Arrays.stream(streamIDs).map(Utils::toReadableId).collect(Collectors.toSet()));
-
-                throw new TransactionAbortedException(
-                        conflictInfo,
-                        tokenResponse.getConflictKey(),
-                        AbortCause.NEW_SEQUENCER, // in the future, perhaps define a new AbortCause?
-                        TransactionalContext.getCurrentContext());
+                throw staleTokenAbort(tokenResponse, conflictInfo, txContext, streamIDs);
             }
         }
 
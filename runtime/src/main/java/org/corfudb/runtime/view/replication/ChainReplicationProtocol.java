@@ -2,15 +2,25 @@ package org.corfudb.runtime.view.replication;
 
 import com.google.common.collect.Range;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import lombok.extern.slf4j.Slf4j;
 import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.protocols.wireprotocol.LogData;
+import org.corfudb.protocols.wireprotocol.ReadResponse;
 import org.corfudb.protocols.wireprotocol.Token;
+import org.corfudb.runtime.clients.LogUnitClient;
 import org.corfudb.runtime.exceptions.OverwriteException;
 import org.corfudb.runtime.exceptions.RecoveryException;
 import org.corfudb.runtime.view.RuntimeLayout;
@@ -25,8 +35,47 @@ import org.corfudb.util.CFUtils;
 @Slf4j
 public class ChainReplicationProtocol extends AbstractReplicationProtocol {
 
+    /**
+     * Chains of up to this many units are always written sequentially. With three units,
+     * the middle stage is a single unit, so writing it "concurrently" saves nothing.
+     */
+    private static final int MAX_SEQUENTIAL_CHAIN_LENGTH = 3;
+
+    /**
+     * Whether the middle units of chains longer than three units are written concurrently.
+     */
+    private final boolean parallelPropagation;
+
+    /**
+     * Routes reads to the units of the chain, or NULL to always read from the tail.
+     */
+    @Nullable
+    private final ReplicaReadRouter readRouter;
+
     public ChainReplicationProtocol(IHoleFillPolicy holeFillPolicy) {
+        this(holeFillPolicy, false);
+    }
+
+    public ChainReplicationProtocol(IHoleFillPolicy holeFillPolicy, boolean parallelPropagation) {
+        this(holeFillPolicy, parallelPropagation, null);
+    }
+
+    /**
+     * Returns a new chain replication protocol.
+     *
+     * @param holeFillPolicy      The hole fill policy to use for reads.
+     * @param parallelPropagation True, if once the head of a chain longer than three units
+     *                            is written, the middle units are written concurrently and
+     *                            then the tail. False, if every unit is written after its
+     *                            predecessor.
+     * @param readRouter          The router selecting the unit reads are served from,
+     *                            or NULL, if reads are always served by the tail.
+     */
+    public ChainReplicationProtocol(IHoleFillPolicy holeFillPolicy, boolean parallelPropagation,
+                                    @Nullable ReplicaReadRouter readRouter) {
         super(holeFillPolicy);
+        this.parallelPropagation = parallelPropagation;
+        this.readRouter = readRouter;
     }
 
     /**
@@ -59,6 +108,38 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Each unit of the chain is written once the previous one acknowledged,
+     * from completion callbacks rather than by blocking the calling thread.
+     */
+    @Override
+    public CompletableFuture<Void> writeAsync(RuntimeLayout runtimeLayout, ILogData data) {
+        final long globalAddress = data.getGlobalAddress();
+        final int numUnits = runtimeLayout.getLayout().getSegmentLength(globalAddress);
+
+        final ILogData.SerializationHandle sh = data.getSerializedForm();
+        log.trace("WriteAsync[{}]: chain head {}/{}", globalAddress, 1, numUnits);
+        CompletableFuture<Boolean> head;
+        try {
+            head = runtimeLayout.getLogUnitClient(globalAddress, 0).write(sh.getSerialized());
+        } catch (RuntimeException e) {
+            sh.close();
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        return head.thenCompose(ok -> propagateAsync(runtimeLayout, globalAddress,
+                sh.getSerialized()))
+                .whenComplete((ok, ex) -> sh.close());
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -66,12 +147,10 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
     public ILogData peek(RuntimeLayout runtimeLayout, long globalAddress) {
         int numUnits = runtimeLayout.getLayout().getSegmentLength(globalAddress);
         log.trace("Read[{}]: chain {}/{}", globalAddress, numUnits, numUnits);
-        // In chain replication, we read from the last unit, though we can optimize if we
-        // know where the committed tail is.
-        ILogData ret = CFUtils.getUninterruptibly(
-                runtimeLayout
-                        .getLogUnitClient(globalAddress, numUnits - 1)
-                        .read(globalAddress)).getAddresses()
+        // In chain replication, we read from the last unit, unless the address is
+        // known to be committed, in which case any unit can serve it.
+        ILogData ret = routedRead(runtimeLayout, globalAddress, globalAddress,
+                Collections.singletonList(globalAddress), client -> client.read(globalAddress))
                 .getOrDefault(globalAddress, null);
         return ret == null || ret.isEmpty() ? null : ret;
     }
@@ -85,10 +164,9 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
         int numUnits = runtimeLayout.getLayout().getSegmentLength(startAddress);
         log.trace("readAll[{}]: chain {}/{}", globalAddresses, numUnits, numUnits);
 
-        Map<Long, LogData> logResult = CFUtils.getUninterruptibly(
-                runtimeLayout
-                        .getLogUnitClient(startAddress, numUnits - 1)
-                        .read(globalAddresses)).getAddresses();
+        Map<Long, LogData> logResult = routedRead(runtimeLayout, startAddress,
+                Collections.max(globalAddresses), globalAddresses,
+                client -> client.read(globalAddresses));
 
         //in case of a hole, do a normal read and use its hole fill policy
         Map<Long, ILogData> returnResult = new TreeMap<>();
@@ -112,10 +190,8 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
         int numUnits = runtimeLayout.getLayout().getSegmentLength(startAddress);
         log.trace("readRange[{}-{}]: chain {}/{}", startAddress, endAddress, numUnits, numUnits);
 
-        Map<Long, LogData> logResult = CFUtils.getUninterruptibly(
-                runtimeLayout
-                        .getLogUnitClient(startAddress, numUnits - 1)
-                        .read(range)).getAddresses();
+        Map<Long, LogData> logResult = routedRead(runtimeLayout, startAddress, endAddress,
+                globalAddresses, client -> client.read(range));
 
         //in case of a hole, do a normal read and use its hole fill policy
         Map<Long, ILogData> returnResult = new TreeMap<>();
@@ -131,6 +207,61 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
         return returnResult;
     }
 
+    /**
+     * Read addresses of a stripe from the unit selected by the read router.
+     *
+     * <p>Addresses which the selected unit doesn't return (e.g. a unit catching up after
+     * a reconfiguration) or a unit which fails to respond are read again from the tail.
+     *
+     * @param runtimeLayout The epoch stamped client containing the layout to use.
+     * @param startAddress  The first address to read, which determines the stripe.
+     * @param maxAddress    The highest address to read.
+     * @param addresses     The addresses to read.
+     * @param read          A function issuing the read to a log unit client.
+     * @return The entries read, by address.
+     */
+    private Map<Long, LogData> routedRead(RuntimeLayout runtimeLayout, long startAddress,
+                                          long maxAddress, Collection<Long> addresses,
+                                          Function<LogUnitClient,
+                                                  CompletableFuture<ReadResponse>> read) {
+        final List<String> chain = runtimeLayout.getLayout().getStripe(startAddress)
+                .getLogServers();
+        final String tail = chain.get(chain.size() - 1);
+        if (readRouter == null) {
+            return CFUtils.getUninterruptibly(read.apply(runtimeLayout.getLogUnitClient(tail)))
+                    .getAddresses();
+        }
+
+        final String endpoint = readRouter.select(runtimeLayout, startAddress, maxAddress);
+        if (!endpoint.equals(tail)) {
+            try {
+                Map<Long, LogData> result = CFUtils.getUninterruptibly(readRouter.track(endpoint,
+                        () -> read.apply(runtimeLayout.getLogUnitClient(endpoint))))
+                        .getAddresses();
+                List<Long> missing = addresses.stream()
+                        .filter(address -> result.get(address) == null
+                                || result.get(address).isEmpty())
+                        .collect(Collectors.toList());
+                if (!missing.isEmpty()) {
+                    log.trace("routedRead[{}]: {} missing {}, reading from tail", startAddress,
+                            endpoint, missing);
+                    Map<Long, LogData> merged = new HashMap<>(result);
+                    merged.putAll(CFUtils.getUninterruptibly(readRouter.track(tail,
+                            () -> runtimeLayout.getLogUnitClient(tail).read(missing)))
+                            .getAddresses());
+                    return merged;
+                }
+                return result;
+            } catch (RuntimeException e) {
+                log.debug("routedRead[{}]: read from {} failed, reading from tail",
+                        startAddress, endpoint, e);
+            }
+        }
+
+        return CFUtils.getUninterruptibly(readRouter.track(tail,
+                () -> read.apply(runtimeLayout.getLogUnitClient(tail)))).getAddresses();
+    }
+
     /**
      * Propagate a write down the chain, ignoring
      * any overwrite errors. It is expected that the
@@ -146,28 +277,71 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
     protected void propagate(RuntimeLayout runtimeLayout,
                              long globalAddress,
                              @Nullable ILogData data) {
-        int numUnits = runtimeLayout.getLayout().getSegmentLength(globalAddress);
+        CFUtils.getUninterruptibly(propagateAsync(runtimeLayout, globalAddress, data));
+    }
 
+    /**
+     * Propagate a write down the chain without blocking, ignoring any overwrite errors.
+     *
+     * <p>Either way the units are written, the tail only receives the data once every
+     * other unit holds it, so that data which is visible at the tail (where reads are
+     * served from) is never lost if other units fail.
+     *
+     * @param runtimeLayout The epoch stamped client containing the layout to use for propagation.
+     * @param globalAddress The global address to write at.
+     * @param data          The data to propagate, or NULL, if it is to be a hole.
+     * @return A future which completes once every unit holds the data.
+     */
+    private CompletableFuture<Void> propagateAsync(RuntimeLayout runtimeLayout,
+                                                   long globalAddress,
+                                                   @Nullable ILogData data) {
+        final int numUnits = runtimeLayout.getLayout().getSegmentLength(globalAddress);
+        final int tail = numUnits - 1;
+
+        if (parallelPropagation && numUnits > MAX_SEQUENTIAL_CHAIN_LENGTH) {
+            CompletableFuture<?>[] middle = IntStream.range(1, tail)
+                    .mapToObj(i -> propagateTo(runtimeLayout, globalAddress, i, data))
+                    .toArray(CompletableFuture[]::new);
+            return CompletableFuture.allOf(middle)
+                    .thenCompose(v -> propagateTo(runtimeLayout, globalAddress, tail, data));
+        }
+
+        // In chain replication, we write to every unit in the chain in order.
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
         for (int i = 1; i < numUnits; i++) {
-            log.trace("Propogate[{}]: chain {}/{}", globalAddress, i + 1, numUnits);
-            // In chain replication, we write synchronously to every unit
-            // in the chain.
-            try {
-                if (data != null) {
-                    CFUtils.getUninterruptibly(
-                            runtimeLayout.getLogUnitClient(globalAddress, i)
-                                    .write(data),
-                            OverwriteException.class);
-                } else {
-                    Token token = new Token(runtimeLayout.getLayout().getEpoch(), globalAddress);
-                    CFUtils.getUninterruptibly(runtimeLayout
-                            .getLogUnitClient(globalAddress, i)
-                            .fillHole(token), OverwriteException.class);
+            final int unit = i;
+            chain = chain.thenCompose(v -> propagateTo(runtimeLayout, globalAddress, unit, data));
+        }
+        return chain;
+    }
+
+    /**
+     * Write the data (or a hole) to a unit of the chain, ignoring overwrite errors.
+     */
+    private CompletableFuture<Void> propagateTo(RuntimeLayout runtimeLayout,
+                                                long globalAddress,
+                                                int unit,
+                                                @Nullable ILogData data) {
+        log.trace("Propogate[{}]: chain {}/{}", globalAddress, unit + 1,
+                runtimeLayout.getLayout().getSegmentLength(globalAddress));
+        final LogUnitClient client = runtimeLayout.getLogUnitClient(globalAddress, unit);
+        final CompletableFuture<Boolean> write;
+        if (data != null) {
+            write = client.write(data);
+        } else {
+            write = client.fillHole(new Token(runtimeLayout.getLayout().getEpoch(), globalAddress));
+        }
+
+        return write.handle((ok, ex) -> {
+            if (ex != null) {
+                Throwable cause = unwrap(ex);
+                if (!(cause instanceof OverwriteException)) {
+                    throw new CompletionException(cause);
                 }
-            } catch (OverwriteException oe) {
                 log.trace("Propogate[{}]: Completed by other writer", globalAddress);
             }
-        }
+            return null;
+        });
     }
 
     /** Recover a failed write at the given global address,
@@ -209,23 +383,11 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
         if (ld == null || ld.isEmpty()) {
             throw new RecoveryException("Failed to read data during recovery at chain head.");
         }
-        // now we go down the chain and write, ignoring any overwrite exception we get.
-        for (int i = 1; i < numUnits; i++) {
-            log.debug("Recover[{}]: write chain {}/{}", layout, i + 1, numUnits);
-            // In chain replication, we write synchronously to every unit
-            // in the chain.
-            try {
-                CFUtils.getUninterruptibly(
-                        runtimeLayout.getLogUnitClient(globalAddress, i).write(ld),
-                        OverwriteException.class);
-                // We successfully recovered a write to this member of the chain
-                log.debug("Recover[{}]: recovered write at chain {}/{}", layout, i + 1, numUnits);
-            } catch (OverwriteException oe) {
-                // This member already had this data (in some cases, the write might have
-                // been committed to all members, so this is normal).
-                log.debug("Recover[{}]: overwritten at chain {}/{}", layout, i + 1, numUnits);
-            }
-        }
+        // now we go down the chain and write, ignoring any overwrite exception we get,
+        // members may already have this data (in some cases, the write might have
+        // been committed to all members, so this is normal).
+        log.debug("Recover[{}]: write chain {}/{}", globalAddress, numUnits, numUnits);
+        propagate(runtimeLayout, globalAddress, ld);
     }
 
     /**
@@ -238,6 +400,21 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
         // In chain replication, we write synchronously to every unit in
         // the chain.
         try {
+            if (parallelPropagation && numUnits > 2) {
+                // Middle units are written concurrently, so if the head which accepted a
+                // write was removed, a middle unit may hold data that the new head lacks.
+                // Such data must be adopted rather than hidden under a hole. This holds for
+                // a chain of three units too, since it may have been longer when the
+                // address was written.
+                ILogData middleData = readMiddleUnits(runtimeLayout, globalAddress);
+                if (middleData != null) {
+                    CFUtils.getUninterruptibly(runtimeLayout
+                            .getLogUnitClient(globalAddress, 0)
+                            .write(middleData), OverwriteException.class);
+                    propagate(runtimeLayout, globalAddress, middleData);
+                    return;
+                }
+            }
             Token token = new Token(runtimeLayout.getLayout().getEpoch(), globalAddress);
             CFUtils.getUninterruptibly(runtimeLayout
                     .getLogUnitClient(globalAddress, 0)
@@ -249,4 +426,23 @@ public class ChainReplicationProtocol extends AbstractReplicationProtocol {
             recover(runtimeLayout, globalAddress);
         }
     }
+
+    /**
+     * Read an address from the units between the head and the tail of the chain.
+     *
+     * @return The data held by the first of these units which holds any, or NULL.
+     */
+    @Nullable
+    private ILogData readMiddleUnits(RuntimeLayout runtimeLayout, long globalAddress) {
+        int numUnits = runtimeLayout.getLayout().getSegmentLength(globalAddress);
+        for (int i = 1; i < numUnits - 1; i++) {
+            ILogData ld = CFUtils.getUninterruptibly(runtimeLayout
+                    .getLogUnitClient(globalAddress, i)
+                    .read(globalAddress)).getAddresses().getOrDefault(globalAddress, null);
+            if (ld != null && !ld.isEmpty()) {
+                return ld;
+            }
+        }
+        return null;
+    }
 }
@@ -4,6 +4,7 @@ import java.util.AbstractMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 
@@ -39,6 +40,30 @@ public interface IReplicationProtocol {
      */
     void write(RuntimeLayout runtimeLayout, ILogData data) throws OverwriteException;
 
+    /** Write data to the log at the given address, without blocking.
+     *
+     * <p>The returned future completes normally once this write is committed
+     * to the log. Unlike {@link #write(RuntimeLayout, ILogData)}, this function
+     * does not drive recovery: if the write is overwritten, or fails for any
+     * other reason, the future completes exceptionally and the caller should
+     * retry with {@link #write(RuntimeLayout, ILogData)}, which determines the
+     * outcome of the write.
+     *
+     * <p>The default implementation is for protocols which can't write without blocking:
+     * it doesn't write, and fails with an {@link UnsupportedOperationException}, so the
+     * caller falls back to {@link #write(RuntimeLayout, ILogData)} on its own threads.
+     *
+     * @param  runtimeLayout        The RuntimeLayout stamped with layout to use for the write.
+     * @param  data                 The ILogData to write to the log.
+     * @return                      A future which completes once the write is committed.
+     */
+    default CompletableFuture<Void> writeAsync(RuntimeLayout runtimeLayout, ILogData data) {
+        CompletableFuture<Void> unsupported = new CompletableFuture<>();
+        unsupported.completeExceptionally(new UnsupportedOperationException(
+                getClass().getSimpleName() + " doesn't support asynchronous writes"));
+        return unsupported;
+    }
+
     /** Read data from a given address.
      *
      * <p>This function only returns committed data. If the
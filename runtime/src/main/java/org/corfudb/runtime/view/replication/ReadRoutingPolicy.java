@@ -0,0 +1,24 @@
+package org.corfudb.runtime.view.replication;
+
+/**
+ * Policies choosing the unit of a chain which serves a read.
+ *
+ * <p>Whatever the policy, only addresses known to be committed on every unit of the
+ * chain are read from units other than the tail, see {@link ReplicaReadRouter}.
+ */
+public enum ReadRoutingPolicy {
+    /** Always read from the tail of the chain. */
+    TAIL,
+
+    /** Read committed addresses from each unit of the chain in turn. */
+    ROUND_ROBIN,
+
+    /** Read committed addresses from the unit with the fewest reads in flight from this client. */
+    LEAST_OUTSTANDING,
+
+    /**
+     * Read committed addresses from a unit on the same host as this client, or from the unit
+     * with the fewest reads in flight if there is none.
+     */
+    LOCALITY
+}
@@ -0,0 +1,200 @@
+package org.corfudb.runtime.view.replication;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.view.Address;
+import org.corfudb.runtime.view.RuntimeLayout;
+import org.corfudb.util.NetworkUtils;
+import org.corfudb.util.NodeLocator;
+
+/**
+ * Routes the reads of chain replication to the units of a chain.
+ *
+ * <p>The tail of a chain is only written once every other unit of the chain holds the
+ * data, so an address held by the tail is committed and may be read from any unit. The
+ * router keeps, for every chain tail, the contiguous tail last reported by it: every
+ * address up to it is committed. Reads of addresses up to the contiguous tail are spread
+ * over the chain according to the {@link ReadRoutingPolicy} of the runtime, the others
+ * (i.e. the addresses near the log tail) are read from the tail of the chain. Contiguous
+ * tails are refreshed in the background, at most once per refresh interval, when a read
+ * has to go to the tail.
+ *
+ * <p>The router is shared by the replication protocols of a runtime, see
+ * {@link org.corfudb.runtime.view.AddressSpaceView#getReadRouter()}.
+ */
+@Slf4j
+public class ReplicaReadRouter {
+
+    private final CorfuRuntime runtime;
+
+    /**
+     * The contiguous tail of each chain tail, by endpoint.
+     */
+    private final Map<String, ContiguousTail> contiguousTails = new ConcurrentHashMap<>();
+
+    /**
+     * The number of reads in flight from this client, by endpoint.
+     */
+    private final Map<String, AtomicInteger> outstandingReads = new ConcurrentHashMap<>();
+
+    /**
+     * Whether each endpoint is on the same host as this client.
+     */
+    private final Map<String, Boolean> localEndpoints = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaReadRouter(CorfuRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    /**
+     * Select the log unit to read addresses of a stripe from.
+     *
+     * @param runtimeLayout The epoch stamped client containing the layout to use.
+     * @param globalAddress An address of the stripe.
+     * @param maxAddress    The highest address to read.
+     * @return The endpoint of the log unit to read from.
+     */
+    public String select(RuntimeLayout runtimeLayout, long globalAddress, long maxAddress) {
+        final List<String> chain = runtimeLayout.getLayout().getStripe(globalAddress)
+                .getLogServers();
+        final String tail = chain.get(chain.size() - 1);
+        final ReadRoutingPolicy policy = runtime.getParameters().getReadRoutingPolicy();
+        if (policy == ReadRoutingPolicy.TAIL || chain.size() == 1
+                || !isCommitted(runtimeLayout, tail, maxAddress)) {
+            return tail;
+        }
+
+        switch (policy) {
+            case ROUND_ROBIN:
+                return chain.get(Math.floorMod(nextReplica.getAndIncrement(), chain.size()));
+            case LEAST_OUTSTANDING:
+                return leastOutstanding(chain);
+            case LOCALITY:
+                List<String> local = chain.stream()
+                        .filter(this::isLocal)
+                        .collect(Collectors.toList());
+                return leastOutstanding(local.isEmpty() ? chain : local);
+            default:
+                throw new IllegalArgumentException("Unknown read routing policy " + policy);
+        }
+    }
+
+    /**
+     * Issue a read to a log unit, counting it as outstanding until it completes.
+     *
+     * @param endpoint The endpoint of the log unit read from.
+     * @param read     A supplier issuing the read.
+     * @param <T>      The type of the read result.
+     * @return The future of the read.
+     */
+    public <T> CompletableFuture<T> track(String endpoint, Supplier<CompletableFuture<T>> read) {
+        final AtomicInteger outstanding =
+                outstandingReads.computeIfAbsent(endpoint, e -> new AtomicInteger());
+        outstanding.incrementAndGet();
+        try {
+            return read.get().whenComplete((r, ex) -> outstanding.decrementAndGet());
+        } catch (RuntimeException e) {
+            outstanding.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the highest address known to be committed on a chain.
+     *
+     * @param tail The endpoint of the tail of the chain.
+     * @return The contiguous tail of the chain tail, or {@link Address#NON_ADDRESS}.
+     */
+    public long getCommittedTail(String tail) {
+        ContiguousTail contiguousTail = contiguousTails.get(tail);
+        return contiguousTail == null ? Address.NON_ADDRESS : contiguousTail.address;
+    }
+
+    private boolean isCommitted(RuntimeLayout runtimeLayout, String tail, long address) {
+        final ContiguousTail contiguousTail =
+                contiguousTails.computeIfAbsent(tail, e -> new ContiguousTail());
+        if (address <= contiguousTail.address) {
+            return true;
+        }
+        contiguousTail.refresh(runtimeLayout, tail);
+        return false;
+    }
+
+    private String leastOutstanding(List<String> endpoints) {
+        // Start from a rotating position, so that ties are spread over the endpoints.
+        final int start = Math.floorMod(nextReplica.getAndIncrement(), endpoints.size());
+        String selected = null;
+        int fewest = Integer.MAX_VALUE;
+        for (int i = 0; i < endpoints.size(); i++) {
+            final String endpoint = endpoints.get((start + i) % endpoints.size());
+            final AtomicInteger outstanding = outstandingReads.get(endpoint);
+            final int count = outstanding == null ? 0 : outstanding.get();
+            if (count < fewest) {
+                selected = endpoint;
+                fewest = count;
+            }
+        }
+        return selected;
+    }
+
+    private boolean isLocal(String endpoint) {
+        return localEndpoints.computeIfAbsent(endpoint, e -> {
+            try {
+                return NetworkUtils.isLocalHost(NodeLocator.parseString(e).getHost());
+            } catch (RuntimeException ex) {
+                log.debug("isLocal: Unable to parse endpoint {}", e, ex);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * The contiguous tail last reported by a chain tail.
+     */
+    private class ContiguousTail {
+
+        volatile long address = Address.NON_ADDRESS;
+
+        private volatile long nextRefresh = System.nanoTime();
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        void refresh(RuntimeLayout runtimeLayout, String tail) {
+            final long now = System.nanoTime();
+            if (now - nextRefresh < 0 || !refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            nextRefresh = now + runtime.getParameters().getReadRoutingRefreshInterval().toNanos();
+
+            final CompletableFuture<Long> query;
+            try {
+                query = runtimeLayout.getLogUnitClient(tail).getContiguousTail();
+            } catch (RuntimeException e) {
+                log.debug("refresh: Failed to query the contiguous tail of {}", tail, e);
+                refreshing.set(false);
+                return;
+            }
+            query.whenComplete((reported, ex) -> {
+                if (ex != null) {
+                    log.debug("refresh: Failed to query the contiguous tail of {}", tail, ex);
+                } else if (reported > address) {
+                    // Committed addresses stay committed, so the contiguous tail only moves up.
+                    address = reported;
+                }
+                refreshing.set(false);
+            });
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package org.corfudb.runtime.view.stream;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.NavigableSet;
 import java.util.Optional;
-import java.util.TreeSet;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -16,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.corfudb.protocols.wireprotocol.DataType;
 import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.CorfuRuntime.CorfuRuntimeParameters;
 import org.corfudb.runtime.exceptions.TrimmedException;
 import org.corfudb.runtime.view.Address;
 
@@ -88,7 +88,7 @@ public abstract class AbstractQueuedStreamView extends
         }
 
         // If checkpoint data is available, get from readCpQueue first
-        NavigableSet<Long> getFrom;
+        StreamAddressSet getFrom;
         if (context.readCpQueue.size() > 0) {
             getFrom = context.readCpQueue;
             context.globalPointer = context.checkpointSuccessStartAddr;
@@ -108,6 +108,7 @@ public abstract class AbstractQueuedStreamView extends
             ILogData ld = read(thisRead);
             if (getFrom == context.readQueue) {
                 addToResolvedQueue(context, thisRead, ld);
+                readAhead(context, thisRead, 1, ld.getSizeEstimate());
             }
             return ld;
         }
@@ -117,6 +118,32 @@ public abstract class AbstractQueuedStreamView extends
         return null;
     }
 
+    /** Prefetch the addresses following a read from the read queue into the
+     * address space view cache, if read-ahead is enabled and the context is
+     * consumed sequentially.
+     *
+     * @param context   The context which was read from.
+     * @param address   The highest address which was read.
+     * @param count     The number of entries which were read, up to the address.
+     * @param sizeEst   The estimated size of the entries which were read.
+     */
+    private void readAhead(QueuedStreamContext context, long address, int count,
+                           long sizeEst) {
+        final CorfuRuntimeParameters parameters = runtime.getParameters();
+        if (!parameters.isReadAheadEnabled()) {
+            return;
+        }
+
+        List<Long> addresses = context.readAhead.next(address, count, sizeEst,
+                context.readQueue, parameters.getReadAheadMaxEntries(),
+                parameters.getReadAheadMaxBytes());
+        if (!addresses.isEmpty()) {
+            log.trace("readAhead[{}]: prefetch {} addresses after {}", this,
+                    addresses.size(), address);
+            context.readAhead.setPending(runtime.getAddressSpaceView().prefetch(addresses));
+        }
+    }
+
     /** {@inheritDoc}
      *
      * <p>In the queued implementation, we just read all entries in the read queue
@@ -126,7 +153,7 @@ public abstract class AbstractQueuedStreamView extends
     @Override
     protected List<ILogData> getNextEntries(QueuedStreamContext context, long maxGlobal,
                                             Function<ILogData, Boolean> contextCheckFn) {
-        NavigableSet<Long> readSet = new TreeSet<>();
+        StreamAddressSet readSet = new StreamAddressSet();
 
         // Scan backward in the stream to find interesting
         // log records less than or equal to maxGlobal.
@@ -147,7 +174,7 @@ public abstract class AbstractQueuedStreamView extends
 
         // If we witnessed a checkpoint during our scan that
         // we should pay attention to, then start with them.
-        readSet.addAll(context.readCpQueue);
+        readSet.addAll(context.readCpQueue, 0L, Long.MAX_VALUE);
 
         if (!context.readQueue.isEmpty() && context.readQueue.first() > maxGlobal) {
             // If the lowest element is greater than maxGlobal, there's nothing
@@ -155,10 +182,10 @@ public abstract class AbstractQueuedStreamView extends
         } else {
             // Select everything in the read queue between
             // the start and maxGlobal
-            readSet.addAll(context.readQueue.headSet(maxGlobal, true));
+            readSet.addAll(context.readQueue, 0L, maxGlobal);
         }
-        List<Long> toRead = readSet.stream()
-                .collect(Collectors.toList());
+        List<Long> toRead = new ArrayList<>(readSet.size());
+        readSet.forEach(toRead::add);
 
         // The list to store read results in
         List<ILogData> readFrom = readAll(toRead).stream()
@@ -177,20 +204,22 @@ public abstract class AbstractQueuedStreamView extends
             int idx = readFrom.indexOf(contextEntry.get());
             readFrom = readFrom.subList(0, idx + 1);
             // NOTE: readSet's clear() changed underlying context.readQueue
-            readSet.headSet(contextEntry.get().getGlobalAddress(), true).clear();
+            readSet.removeUpTo(contextEntry.get().getGlobalAddress());
         } else {
             // Clear the entries which were read
-            context.readQueue.headSet(maxGlobal, true).clear();
+            context.readQueue.removeUpTo(maxGlobal);
         }
 
         // Transfer the addresses of the read entries to the resolved queue
         readFrom.stream()
                 .forEach(x -> addToResolvedQueue(context, x.getGlobalAddress(), x));
 
-        // Update the global pointer
+        // Update the global pointer, and prefetch what follows in the read queue
         if (readFrom.size() > 0) {
             context.globalPointer = readFrom.get(readFrom.size() - 1)
                     .getGlobalAddress();
+            readAhead(context, context.globalPointer, readFrom.size(),
+                    readFrom.stream().mapToLong(ILogData::getSizeEstimate).sum());
         }
 
         return readFrom;
@@ -255,7 +284,7 @@ public abstract class AbstractQueuedStreamView extends
         }
         // Next, check all elements excluding
         // in the correct direction.
-        Long result;
+        long result;
         if (direction.isForward()) {
             result = context.resolvedQueue.higher(globalAddress);
         }  else {
@@ -263,7 +292,7 @@ public abstract class AbstractQueuedStreamView extends
         }
 
         // Convert the address to never read if there was no result.
-        return result == null ? Address.NOT_FOUND : result;
+        return result == StreamAddressSet.ABSENT ? Address.NOT_FOUND : result;
     }
 
     /**
@@ -291,13 +320,14 @@ public abstract class AbstractQueuedStreamView extends
 
         // Otherwise, the previous entry should be resolved, so get
         // one less than the current.
-        Long prevAddress = context
+        long prevAddress = context
                 .resolvedQueue.lower(context.globalPointer);
         // If the pointer is before our min resolution, we need to resolve
         // to get the correct previous entry.
-        if (prevAddress == null && Address.isAddress(context.minResolution)
-                || prevAddress != null && prevAddress <= context.minResolution) {
-            context.globalPointer = prevAddress == null ? Address.NEVER_READ :
+        if (prevAddress == StreamAddressSet.ABSENT && Address.isAddress(context.minResolution)
+                || prevAddress != StreamAddressSet.ABSENT
+                && prevAddress <= context.minResolution) {
+            context.globalPointer = prevAddress == StreamAddressSet.ABSENT ? Address.NEVER_READ :
                     prevAddress - 1L;
 
             remainingUpTo(context.minResolution);
@@ -310,8 +340,9 @@ public abstract class AbstractQueuedStreamView extends
 
         // Clear the read queue, it may no longer be valid
         context.readQueue.clear();
+        context.readAhead.reset();
 
-        if (prevAddress != null) {
+        if (prevAddress != StreamAddressSet.ABSENT) {
             log.trace("previous[{}]: updated read queue {}", this, context.readQueue);
             // Update the global pointer
             context.globalPointer = prevAddress;
@@ -371,8 +402,7 @@ public abstract class AbstractQueuedStreamView extends
 
 
         /** A queue of addresses which have already been resolved. */
-        final NavigableSet<Long> resolvedQueue
-                = new TreeSet<>();
+        final StreamAddressSet resolvedQueue = new StreamAddressSet();
 
         /** The minimum global address which we have resolved this
          * stream to.
@@ -387,12 +417,11 @@ public abstract class AbstractQueuedStreamView extends
         /**
          * A priority queue of potential addresses to be read from.
          */
-        final NavigableSet<Long> readQueue
-                = new TreeSet<>();
+        final StreamAddressSet readQueue = new StreamAddressSet();
 
         /** List of checkpoint records, if a successful checkpoint has been observed.
          */
-        final NavigableSet<Long> readCpQueue = new TreeSet<>();
+        final StreamAddressSet readCpQueue = new StreamAddressSet();
 
         /** Info on checkpoint we used for initial stream replay,
          *  other checkpoint-related info & stats.  Hodgepodge, clarify.
@@ -410,6 +439,9 @@ public abstract class AbstractQueuedStreamView extends
          */
         long checkpointSnapshotAddress = Address.NEVER_READ;
 
+        /** The read-ahead of the read queue. */
+        final ReadAheadWindow readAhead = new ReadAheadWindow();
+
         /** Create a new stream context with the given ID and maximum address
          * to read to.
          * @param id                  The ID of the stream to read from
@@ -439,6 +471,7 @@ public abstract class AbstractQueuedStreamView extends
             checkpointSuccessNumEntries = 0;
             checkpointSuccessBytes = 0;
             resolvedEstBytes = 0;
+            readAhead.reset();
         }
 
         /**
@@ -459,11 +492,12 @@ public abstract class AbstractQueuedStreamView extends
             }
             // remove anything in the read queue LESS
             // than global address.
-            readQueue.headSet(globalAddress).clear();
+            readQueue.removeBelow(globalAddress);
             // transfer from the resolved queue into
             // the read queue anything equal to or
             // greater than the global address
-            readQueue.addAll(resolvedQueue.tailSet(globalAddress, true));
+            readQueue.addAll(resolvedQueue, globalAddress, Long.MAX_VALUE);
+            readAhead.reset();
             super.seek(globalAddress);
         }
     }
@@ -2,8 +2,8 @@ package org.corfudb.runtime.view.stream;
 
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -13,6 +13,7 @@ import com.google.common.annotations.VisibleForTesting;
 import lombok.extern.slf4j.Slf4j;
 import org.corfudb.protocols.logprotocol.CheckpointEntry;
 import org.corfudb.protocols.wireprotocol.ILogData;
+import org.corfudb.protocols.wireprotocol.StreamAddressResponse;
 import org.corfudb.protocols.wireprotocol.TokenResponse;
 import org.corfudb.runtime.CorfuRuntime;
 import org.corfudb.runtime.exceptions.AppendException;
@@ -21,6 +22,7 @@ import org.corfudb.runtime.exceptions.StaleTokenException;
 import org.corfudb.runtime.exceptions.TrimmedException;
 import org.corfudb.runtime.object.transactions.TransactionalContext;
 import org.corfudb.runtime.view.Address;
+import org.corfudb.runtime.view.CacheOption;
 import org.corfudb.runtime.view.StreamOptions;
 import org.corfudb.util.Utils;
 
@@ -60,9 +62,9 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
     public void gc(long trimMark) {
         // Remove all the entries that are strictly less than
         // the trim mark
-        getCurrentContext().readCpQueue.headSet(trimMark).clear();
-        getCurrentContext().readQueue.headSet(trimMark).clear();
-        getCurrentContext().resolvedQueue.headSet(trimMark).clear();
+        getCurrentContext().readCpQueue.removeBelow(trimMark);
+        getCurrentContext().readQueue.removeBelow(trimMark);
+        getCurrentContext().resolvedQueue.removeBelow(trimMark);
 
         if (!getCurrentContext().resolvedQueue.isEmpty()) {
             getCurrentContext().minResolution = getCurrentContext()
@@ -70,6 +72,14 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> appendAsync(Object object) {
+        return runtime.getStreamsView().appendAsync(object, null, CacheOption.WRITE_THROUGH, id);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -209,13 +219,9 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
         if (maxGlobal < context.globalPointer) {
             return false;
         }
-        // Get the subset of the resolved queue, which starts at
-        // globalPointer and ends at maxAddress inclusive.
-        NavigableSet<Long> resolvedSet =
-                context.resolvedQueue.subSet(context.globalPointer,
-                        false, maxGlobal, true);
-        // Put those elements in the read queue
-        context.readQueue.addAll(resolvedSet);
+        // Put the subset of the resolved queue, which starts after
+        // globalPointer and ends at maxAddress inclusive, in the read queue.
+        context.readQueue.addAll(context.resolvedQueue, context.globalPointer + 1, maxGlobal);
         return !context.readQueue.isEmpty();
     }
 
@@ -232,7 +238,7 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
     }
 
     protected boolean followBackpointers(final UUID streamId,
-                                      final NavigableSet<Long> queue,
+                                      final StreamAddressSet queue,
                                       final long startAddress,
                                       final long stopAddress,
                                       final Function<ILogData, BackpointerOp> filter) {
@@ -309,6 +315,52 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
 
     }
 
+    /**
+     * Resolve a prefix of the addresses of a stream between a stop address and a start
+     * address from the stream address index of the log units. The addresses above the
+     * resolved prefix are left to be resolved by following backpointers. A log unit
+     * returns a bounded number of addresses per request, so the rest of the range is
+     * requested from the continuation address of each response.
+     *
+     * @param streamId      The stream to resolve.
+     * @param queue         The queue to add the addresses of the stream to.
+     * @param startAddress  The highest address to resolve.
+     * @param stopAddress   The address to resolve from, exclusive.
+     * @return The address backpointers should be followed down to.
+     */
+    protected long resolveFromIndex(final UUID streamId,
+                                    final StreamAddressSet queue,
+                                    final long startAddress,
+                                    final long stopAddress) {
+        long resolvedTail = stopAddress;
+        long next = stopAddress + 1;
+        while (next <= startAddress) {
+            final StreamAddressResponse response;
+            try {
+                response = runtime.getAddressSpaceView()
+                        .getStreamAddresses(streamId, next, startAddress);
+            } catch (RuntimeException e) {
+                log.warn("resolveFromIndex: stream[{}] failed to query the index, "
+                        + "following backpointers", streamId, e);
+                break;
+            }
+
+            if (response == null) {
+                break;
+            }
+
+            log.trace("resolveFromIndex: stream[{}] resolved {} addresses in [{}, {}]", streamId,
+                    response.getAddresses().length, next, response.getResolvedTail());
+            queue.addAll(response.getAddresses());
+            resolvedTail = Long.max(resolvedTail, response.getResolvedTail());
+            if (!Address.isAddress(response.getContinuation())) {
+                break;
+            }
+            next = response.getContinuation();
+        }
+        return resolvedTail;
+    }
+
     protected BackpointerOp resolveCheckpoint(final QueuedStreamContext context, ILogData data,
                                               long maxGlobal) {
         if (data.hasCheckpointMetadata()) {
@@ -407,7 +459,7 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
             return fillFromResolved(maxGlobal, context);
         }
 
-        Long latestTokenValue = null;
+        long latestTokenValue = StreamAddressSet.ABSENT;
 
         // If the max has been resolved, use it.
         if (maxGlobal != Address.MAX) {
@@ -416,7 +468,7 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
 
         // If we don't have a larger token in resolved, or the request was for
         // a linearized read, fetch the token from the sequencer.
-        if (latestTokenValue == null || maxGlobal == Address.MAX) {
+        if (latestTokenValue == StreamAddressSet.ABSENT || maxGlobal == Address.MAX) {
             latestTokenValue = runtime.getSequencerView().query(context.id)
                     .getToken().getSequence();
             log.trace("Read_Fill_Queue[{}] Fetched tail {} from sequencer", this, latestTokenValue);
@@ -449,9 +501,15 @@ public class BackpointerStreamView extends AbstractQueuedStreamView {
         // should be reflected. For each address which is less than
         // maxGlobalAddress, we insert it into the read queue.
 
+        long stopAddress = Long.max(context.globalPointer, context.checkpointSnapshotAddress);
+        if (runtime.getParameters().isStreamAddressIndexEnabled()) {
+            stopAddress = resolveFromIndex(context.id, context.readQueue,
+                    latestTokenValue, stopAddress);
+        }
+
         followBackpointers(context.id, context.readQueue,
                 latestTokenValue,
-                Long.max(context.globalPointer, context.checkpointSnapshotAddress),
+                stopAddress,
                 d -> BackpointerOp.INCLUDE);
 
         return ! context.readCpQueue.isEmpty() || !context.readQueue.isEmpty();
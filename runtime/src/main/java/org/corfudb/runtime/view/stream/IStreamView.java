@@ -4,6 +4,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Spliterator;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -115,6 +116,18 @@ public interface IStreamView extends
         return append(object, null, null);
     }
 
+    /** Append an object to the stream without blocking.
+     *
+     * <p>The token request and the write are pipelined, so that a single thread
+     * can have many appends in flight. Failed writes are retried as they would
+     * be by {@link #append(Object)}.</p>
+     *
+     * @param   object Object to append/write
+     * @return  A future which completes with the (global) address the object
+     *          was written at.
+     */
+    CompletableFuture<Long> appendAsync(Object object);
+
     /** Retrieve the next entry from this stream, up to the tail of the stream
      * If there are no entries present, this function will return NULL. If there
      * are holes present in the log, they will be filled.
@@ -0,0 +1,136 @@
+package org.corfudb.runtime.view.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import org.corfudb.runtime.view.Address;
+
+/**
+ * Sizes the read-ahead of a stream context, which prefetches the next addresses of its
+ * read queue while it is consumed sequentially.
+ *
+ * <p>Read-ahead starts once a few addresses were consumed in ascending order. A window of
+ * addresses following the consumer is then prefetched, and when the consumer reaches the
+ * middle of that window the next window is prefetched, twice as large. A consumer that
+ * keeps catching up with the prefetched addresses thus gets larger windows, while a
+ * window is not issued until the previous one was loaded. Windows are bounded by a
+ * number of entries and by a byte budget, given the average size of the consumed
+ * entries. Any other access pattern (a seek, a previous or a reset) closes the window.
+ *
+ * <p>A consumer which reads a range of addresses at once, rather than one at a time, gets
+ * a window at least as large as that range, so its next read is served from the cache.
+ */
+@NotThreadSafe
+@ToString
+class ReadAheadWindow {
+
+    /**
+     * The number of ascending reads after which read-ahead starts.
+     */
+    static final int SEQUENTIAL_READS = 2;
+
+    /**
+     * The size of the first window.
+     */
+    static final int INITIAL_WINDOW = 4;
+
+    private long lastRead = Address.NON_ADDRESS;
+
+    private int sequentialReads = 0;
+
+    @Getter
+    private int window = 0;
+
+    /**
+     * The highest prefetched address.
+     */
+    private long prefetchedUpTo = Address.NON_ADDRESS;
+
+    /**
+     * The address from which the next window is prefetched.
+     */
+    private long trigger = Address.NON_ADDRESS;
+
+    private long consumedBytes = 0L;
+
+    /**
+     * The prefetch of the last window.
+     */
+    @Getter
+    @Setter
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+
+    /**
+     * Record the read of a range of addresses of the read queue, and return the addresses
+     * which should be prefetched.
+     *
+     * @param address    The highest address which was read.
+     * @param count      The number of addresses which were read, up to the address.
+     * @param sizeEst    The estimated size of the entries which were read.
+     * @param readQueue  The read queue, which no longer contains the addresses.
+     * @param maxEntries The maximum number of addresses to prefetch ahead of the consumer.
+     * @param maxBytes   The maximum estimated bytes to prefetch ahead of the consumer.
+     * @return The addresses to prefetch, in ascending order.
+     */
+    List<Long> next(long address, int count, long sizeEst, StreamAddressSet readQueue,
+                    int maxEntries, long maxBytes) {
+        if (address <= lastRead) {
+            reset();
+        }
+        lastRead = address;
+        sequentialReads += count;
+        consumedBytes += sizeEst;
+
+        if (sequentialReads < SEQUENTIAL_READS
+                || (window > 0 && address < trigger)
+                || !pending.isDone()) {
+            return Collections.emptyList();
+        }
+
+        int nextWindow = Math.max(window == 0 ? INITIAL_WINDOW : window * 2, count);
+        long averageBytes = consumedBytes / sequentialReads;
+        if (averageBytes > 0) {
+            nextWindow = (int) Math.min(nextWindow, maxBytes / averageBytes);
+        }
+        nextWindow = Math.min(nextWindow, maxEntries);
+        if (nextWindow <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Long> addresses = new ArrayList<>(nextWindow);
+        for (long next = readQueue.higher(Long.max(address, prefetchedUpTo));
+             next != StreamAddressSet.ABSENT && addresses.size() < nextWindow;
+             next = readQueue.higher(next)) {
+            addresses.add(next);
+        }
+        if (addresses.isEmpty()) {
+            // The consumer is at the end of the read queue, retry on the next read.
+            return addresses;
+        }
+
+        window = nextWindow;
+        prefetchedUpTo = addresses.get(addresses.size() - 1);
+        trigger = addresses.get(addresses.size() / 2);
+        return addresses;
+    }
+
+    /**
+     * Close the window, read-ahead only resumes after the next sequential reads.
+     */
+    void reset() {
+        lastRead = Address.NON_ADDRESS;
+        sequentialReads = 0;
+        window = 0;
+        prefetchedUpTo = Address.NON_ADDRESS;
+        trigger = Address.NON_ADDRESS;
+        consumedBytes = 0L;
+    }
+}
@@ -0,0 +1,558 @@
+package org.corfudb.runtime.view.stream;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A compact sorted set of the global addresses of a stream, used for the queues of the
+ * stream contexts.
+ *
+ * <p>Addresses are split in chunks of 2^16 addresses by their high bits. A chunk keeps
+ * the low 16 bits of its addresses in a sorted char array while it is sparse, and in a
+ * bitmap once it holds more than {@link #MAX_ARRAY_CARDINALITY} addresses, so an address
+ * takes at most two bytes instead of a boxed tree entry. Lookups return
+ * {@link #ABSENT} rather than null, so that addresses are never boxed.
+ *
+ * <p>Addresses must not be negative.
+ */
+@NotThreadSafe
+class StreamAddressSet implements Iterable<Long> {
+
+    /**
+     * Returned by lookups when there is no such address in the set.
+     */
+    static final long ABSENT = Long.MIN_VALUE;
+
+    private static final int CHUNK_BITS = 16;
+
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    /**
+     * Chunks with more addresses than this are kept as bitmaps, which take 8KB.
+     */
+    private static final int MAX_ARRAY_CARDINALITY = 4096;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private Chunk[] chunks = new Chunk[INITIAL_CAPACITY];
+
+    private int numChunks = 0;
+
+    private int size = 0;
+
+    private static long keyOf(long address) {
+        return address >>> CHUNK_BITS;
+    }
+
+    private static int lowOf(long address) {
+        return (int) (address & CHUNK_MASK);
+    }
+
+    private static long addressOf(long key, int low) {
+        return (key << CHUNK_BITS) | low;
+    }
+
+    /**
+     * Returns the index of the chunk with a key, or -1 - the index it should be inserted at.
+     */
+    private int indexOf(long key) {
+        // Addresses are mostly added in ascending order, check the last chunk first
+        if (numChunks > 0 && keys[numChunks - 1] == key) {
+            return numChunks - 1;
+        }
+        return Arrays.binarySearch(keys, 0, numChunks, key);
+    }
+
+    /**
+     * Add an address to the set.
+     *
+     * @param address The address to add.
+     * @return True, if the address was not already in the set.
+     */
+    boolean add(long address) {
+        if (address < 0) {
+            throw new IllegalArgumentException("Negative address " + address);
+        }
+
+        final long key = keyOf(address);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -1 - index;
+            insertChunk(index, key, new ArrayChunk());
+        }
+
+        if (chunks[index].cardinality() == MAX_ARRAY_CARDINALITY
+                && chunks[index] instanceof ArrayChunk) {
+            chunks[index] = ((ArrayChunk) chunks[index]).toBitmap();
+        }
+
+        if (chunks[index].add(lowOf(address))) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Add addresses to the set.
+     *
+     * @param addresses The addresses to add.
+     */
+    void addAll(long[] addresses) {
+        for (long address : addresses) {
+            add(address);
+        }
+    }
+
+    /**
+     * Add the addresses of another set in a range to this set. Chunks which are entirely
+     * in the range and not in this set are copied, rather than added address by address.
+     *
+     * @param source The set to add the addresses of.
+     * @param from   The first address of the range, inclusive.
+     * @param to     The last address of the range, inclusive.
+     */
+    void addAll(StreamAddressSet source, long from, long to) {
+        final long start = Long.max(from, 0L);
+        if (start > to) {
+            return;
+        }
+
+        int sourceIndex = Arrays.binarySearch(source.keys, 0, source.numChunks, keyOf(start));
+        if (sourceIndex < 0) {
+            sourceIndex = -1 - sourceIndex;
+        }
+
+        for (; sourceIndex < source.numChunks; sourceIndex++) {
+            final long key = source.keys[sourceIndex];
+            final Chunk chunk = source.chunks[sourceIndex];
+            final long chunkFirst = addressOf(key, 0);
+            final long chunkLast = addressOf(key, CHUNK_MASK);
+            if (chunkFirst > to) {
+                return;
+            }
+
+            final int index = indexOf(key);
+            if (index < 0 && start <= chunkFirst && chunkLast <= to) {
+                insertChunk(-1 - index, key, chunk.copy());
+                size += chunk.cardinality();
+                continue;
+            }
+
+            int low = chunk.ceiling(start <= chunkFirst ? 0 : lowOf(start));
+            while (low >= 0) {
+                final long address = addressOf(key, low);
+                if (address > to) {
+                    return;
+                }
+                add(address);
+                low = low == CHUNK_MASK ? -1 : chunk.ceiling(low + 1);
+            }
+        }
+    }
+
+    private void insertChunk(int index, long key, Chunk chunk) {
+        if (numChunks == keys.length) {
+            keys = Arrays.copyOf(keys, numChunks * 2);
+            chunks = Arrays.copyOf(chunks, numChunks * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, numChunks - index);
+        System.arraycopy(chunks, index, chunks, index + 1, numChunks - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        numChunks++;
+    }
+
+    private void removeChunks(int count) {
+        System.arraycopy(keys, count, keys, 0, numChunks - count);
+        System.arraycopy(chunks, count, chunks, 0, numChunks - count);
+        Arrays.fill(chunks, numChunks - count, numChunks, null);
+        numChunks -= count;
+    }
+
+    boolean contains(long address) {
+        if (address < 0) {
+            return false;
+        }
+        final int index = indexOf(keyOf(address));
+        return index >= 0 && chunks[index].contains(lowOf(address));
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the lowest address in the set.
+     *
+     * @throws NoSuchElementException if the set is empty
+     */
+    long first() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return addressOf(keys[0], chunks[0].ceiling(0));
+    }
+
+    /**
+     * Returns the highest address in the set.
+     *
+     * @throws NoSuchElementException if the set is empty
+     */
+    long last() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return addressOf(keys[numChunks - 1], chunks[numChunks - 1].floor(CHUNK_MASK));
+    }
+
+    /**
+     * Remove and return the lowest address in the set.
+     *
+     * @throws NoSuchElementException if the set is empty
+     */
+    long pollFirst() {
+        final long first = first();
+        removeBelow(first + 1);
+        return first;
+    }
+
+    /**
+     * Returns the lowest address greater than or equal to an address, or {@link #ABSENT}.
+     */
+    long ceiling(long address) {
+        final long start = Long.max(address, 0L);
+        int index = Arrays.binarySearch(keys, 0, numChunks, keyOf(start));
+        if (index >= 0) {
+            final int low = chunks[index].ceiling(lowOf(start));
+            if (low >= 0) {
+                return addressOf(keys[index], low);
+            }
+            index++;
+        } else {
+            index = -1 - index;
+        }
+        return index < numChunks ? addressOf(keys[index], chunks[index].ceiling(0)) : ABSENT;
+    }
+
+    /**
+     * Returns the lowest address strictly greater than an address, or {@link #ABSENT}.
+     */
+    long higher(long address) {
+        return address == Long.MAX_VALUE ? ABSENT : ceiling(address + 1);
+    }
+
+    /**
+     * Returns the highest address less than or equal to an address, or {@link #ABSENT}.
+     */
+    long floor(long address) {
+        if (address < 0) {
+            return ABSENT;
+        }
+        int index = Arrays.binarySearch(keys, 0, numChunks, keyOf(address));
+        if (index >= 0) {
+            final int low = chunks[index].floor(lowOf(address));
+            if (low >= 0) {
+                return addressOf(keys[index], low);
+            }
+            index--;
+        } else {
+            index = -2 - index;
+        }
+        return index >= 0 ? addressOf(keys[index], chunks[index].floor(CHUNK_MASK)) : ABSENT;
+    }
+
+    /**
+     * Returns the highest address strictly less than an address, or {@link #ABSENT}.
+     */
+    long lower(long address) {
+        return address == Long.MIN_VALUE ? ABSENT : floor(address - 1);
+    }
+
+    /**
+     * Remove all the addresses strictly less than an address.
+     */
+    void removeBelow(long address) {
+        if (address <= 0 || size == 0) {
+            return;
+        }
+
+        final long key = keyOf(address);
+        int index = Arrays.binarySearch(keys, 0, numChunks, key);
+        int removedChunks = index >= 0 ? index : -1 - index;
+        for (int i = 0; i < removedChunks; i++) {
+            size -= chunks[i].cardinality();
+        }
+        if (index >= 0) {
+            size -= chunks[index].removeBelow(lowOf(address));
+            if (chunks[index].cardinality() == 0) {
+                removedChunks++;
+            }
+        }
+        removeChunks(removedChunks);
+    }
+
+    /**
+     * Remove all the addresses less than or equal to an address.
+     */
+    void removeUpTo(long address) {
+        if (address == Long.MAX_VALUE) {
+            clear();
+        } else {
+            removeBelow(address + 1);
+        }
+    }
+
+    void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        chunks = new Chunk[INITIAL_CAPACITY];
+        numChunks = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over the addresses of the set, in ascending order. The set
+     * must not be modified during the iteration.
+     */
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private long next = size == 0 ? ABSENT : first();
+
+            @Override
+            public boolean hasNext() {
+                return next != ABSENT;
+            }
+
+            @Override
+            public long nextLong() {
+                if (next == ABSENT) {
+                    throw new NoSuchElementException();
+                }
+                final long current = next;
+                next = higher(current);
+                return current;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return size == 0 ? "[]" : "[" + first() + ".." + last() + "](" + size + ")";
+    }
+
+    /**
+     * The low 16 bits of the addresses of a chunk.
+     */
+    private abstract static class Chunk {
+
+        abstract int cardinality();
+
+        abstract boolean add(int low);
+
+        abstract boolean contains(int low);
+
+        /**
+         * Returns the lowest value greater than or equal to low, or -1.
+         */
+        abstract int ceiling(int low);
+
+        /**
+         * Returns the highest value less than or equal to low, or -1.
+         */
+        abstract int floor(int low);
+
+        /**
+         * Remove the values strictly less than low, and return how many were removed.
+         */
+        abstract int removeBelow(int low);
+
+        abstract Chunk copy();
+    }
+
+    /**
+     * A chunk which keeps its values in a sorted array.
+     */
+    private static final class ArrayChunk extends Chunk {
+        private char[] values;
+        private int cardinality;
+
+        ArrayChunk() {
+            this(new char[INITIAL_CAPACITY], 0);
+        }
+
+        private ArrayChunk(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        private int search(int low) {
+            return Arrays.binarySearch(values, 0, cardinality, (char) low);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean add(int low) {
+            int index = cardinality;
+            if (cardinality > 0 && values[cardinality - 1] >= low) {
+                index = search(low);
+                if (index >= 0) {
+                    return false;
+                }
+                index = -1 - index;
+            }
+
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, MAX_ARRAY_CARDINALITY));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = (char) low;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return search(low) >= 0;
+        }
+
+        @Override
+        int ceiling(int low) {
+            int index = search(low);
+            if (index < 0) {
+                index = -1 - index;
+            }
+            return index < cardinality ? values[index] : -1;
+        }
+
+        @Override
+        int floor(int low) {
+            int index = search(low);
+            if (index < 0) {
+                index = -2 - index;
+            }
+            return index >= 0 ? values[index] : -1;
+        }
+
+        @Override
+        int removeBelow(int low) {
+            int index = search(low);
+            if (index < 0) {
+                index = -1 - index;
+            }
+            System.arraycopy(values, index, values, 0, cardinality - index);
+            cardinality -= index;
+            return index;
+        }
+
+        @Override
+        Chunk copy() {
+            return new ArrayChunk(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * A chunk which keeps its values in a bitmap.
+     */
+    private static final class BitmapChunk extends Chunk {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapChunk() {
+            this(new long[(CHUNK_MASK + 1) / Long.SIZE], 0);
+        }
+
+        private BitmapChunk(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean add(int low) {
+            final long mask = 1L << low;
+            if ((words[low / Long.SIZE] & mask) != 0) {
+                return false;
+            }
+            words[low / Long.SIZE] |= mask;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low / Long.SIZE] & (1L << low)) != 0;
+        }
+
+        @Override
+        int ceiling(int low) {
+            int word = low / Long.SIZE;
+            long bits = words[word] & (-1L << low);
+            while (bits == 0) {
+                if (++word == words.length) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+            return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        }
+
+        @Override
+        int floor(int low) {
+            int word = low / Long.SIZE;
+            long bits = words[word] & (-1L >>> (Long.SIZE - 1 - (low % Long.SIZE)));
+            while (bits == 0) {
+                if (--word < 0) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+            return word * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(bits);
+        }
+
+        @Override
+        int removeBelow(int low) {
+            final int word = low / Long.SIZE;
+            int removed = 0;
+            for (int i = 0; i < word; i++) {
+                removed += Long.bitCount(words[i]);
+                words[i] = 0L;
+            }
+            final long mask = (1L << low) - 1;
+            removed += Long.bitCount(words[word] & mask);
+            words[word] &= ~mask;
+            cardinality -= removed;
+            return removed;
+        }
+
+        @Override
+        Chunk copy() {
+            return new BitmapChunk(words.clone(), cardinality);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.corfudb.runtime.view.StreamOptions;
 import javax.annotation.Nonnull;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
@@ -64,6 +65,12 @@ public class ThreadSafeStreamView implements IStreamView {
         return stream.append(object, acquisitionCallback, deacquisitionCallback);
     }
 
+    @Override
+    public CompletableFuture<Long> appendAsync(Object object) {
+        // Appends don't move the stream pointer, so there's nothing to synchronize on
+        return stream.appendAsync(object);
+    }
+
     @Override
     public synchronized ILogData next() {
         return stream.next();
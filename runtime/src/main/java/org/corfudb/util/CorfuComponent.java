@@ -13,6 +13,7 @@ public enum CorfuComponent {
     LOG_UNIT_CLIENT("corfu.runtime.log-unit-client."),
     OBJECT("corfu.runtime.object."),
     CLIENT_SEQUENCER("corfu.runtime.sequencer."),
+    FAST_LOADER("corfu.runtime.fast-loader."),
 
     // Infrastructure components
     INFRA_MSG_HANDLER("corfu.infrastructure.message-handler."),
@@ -1,9 +1,11 @@
 package org.corfudb.util;
 
 import java.net.Inet4Address;
+import java.net.InetAddress;
 import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -66,6 +68,23 @@ public class NetworkUtils {
                 + interfaceName + " found.");
     }
 
+    /**
+     * Checks whether a host name resolves to an address of this machine.
+     *
+     * @param host Host name or address.
+     * @return True, if the host is local, false if it isn't or can't be resolved.
+     */
+    public static boolean isLocalHost(String host) {
+        try {
+            InetAddress address = InetAddress.getByName(host);
+            return address.isLoopbackAddress() || address.isAnyLocalAddress()
+                    || NetworkInterface.getByInetAddress(address) != null;
+        } catch (UnknownHostException | SocketException e) {
+            log.debug("isLocalHost: Unable to resolve host {}", host, e);
+            return false;
+        }
+    }
+
     /**
      * Collects all subinterface addreses for an interface
      */
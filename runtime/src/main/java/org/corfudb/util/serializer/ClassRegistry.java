@@ -0,0 +1,269 @@
+package org.corfudb.util.serializer;
+
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.collections.SMRMap;
+import org.corfudb.runtime.exceptions.RetryExhaustedException;
+import org.corfudb.runtime.exceptions.TransactionAbortedException;
+import org.corfudb.runtime.exceptions.unrecoverable.UnrecoverableCorfuInterruptedError;
+
+/**
+ * The dictionary of the classes serialized by the {@link CompactSerializer} in a cluster.
+ *
+ * <p>Each class is assigned a small integer id the first time it is serialized, which is
+ * written instead of its name. The dictionary is a map from class names to ids, persisted
+ * in a system stream, so ids are the same for all the clients of the cluster. Ids are
+ * assigned in transactions, so two classes never share one.
+ *
+ * <p>Classes are registered while serializing, which can happen in the middle of a
+ * transaction commit, or on a network thread. So registrations never block the writer:
+ * they run in the background, on a thread of the runtime, and a class is written by name
+ * until its id is cached. Lookups of the classes of ids read from the log wait for the
+ * registry, up to the request timeout of the runtime for each attempt.
+ */
+@Slf4j
+public class ClassRegistry {
+
+    /**
+     * The name of the stream the dictionary is persisted in.
+     */
+    public static final String REGISTRY_STREAM_NAME = "CORFU_CLASS_REGISTRY";
+
+    /**
+     * The id of a class whose registration hasn't completed.
+     */
+    public static final int NO_ID = -1;
+
+    /**
+     * The number of times the lookup of the class of an id is attempted.
+     */
+    private static final int LOOKUP_ATTEMPTS = 3;
+
+    private final CorfuRuntime runtime;
+
+    /**
+     * Runs the operations on the registry, which are only accessed from this thread.
+     */
+    private final ExecutorService registrar = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("class-registrar-%d")
+                    .build());
+
+    private final Map<Class<?>, Integer> ids = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Class<?>> classes = new ConcurrentHashMap<>();
+
+    /**
+     * The registrations in progress.
+     */
+    private final Map<Class<?>, CompletableFuture<Integer>> registrations =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The names of the classes of the registry, by id. Only accessed by the registrar.
+     */
+    private final Map<Integer, String> names = new HashMap<>();
+
+    private Map<String, Integer> registry;
+
+    public ClassRegistry(CorfuRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    /**
+     * Get the id of a class, without waiting for it to be registered. The registration of
+     * a class which has no id yet is started in the background.
+     *
+     * @param cls The class.
+     * @return The id of the class, or {@link #NO_ID} if its registration hasn't completed.
+     */
+    public int getId(Class<?> cls) {
+        Integer id = ids.get(cls);
+        if (id == null) {
+            register(cls);
+            return NO_ID;
+        }
+        return id;
+    }
+
+    /**
+     * Register a class, if it doesn't have an id yet.
+     *
+     * @param cls The class.
+     * @return A future which completes with the id of the class once it is cached.
+     */
+    public CompletableFuture<Integer> register(Class<?> cls) {
+        Integer id = ids.get(cls);
+        if (id != null) {
+            return CompletableFuture.completedFuture(id);
+        }
+        CompletableFuture<Integer> registration = new CompletableFuture<>();
+        CompletableFuture<Integer> inProgress = registrations.putIfAbsent(cls, registration);
+        if (inProgress != null) {
+            return inProgress;
+        }
+        try {
+            registrar.execute(() -> {
+                try {
+                    int assigned = assign(cls.getName());
+                    cache(cls, assigned);
+                    registration.complete(assigned);
+                } catch (RuntimeException e) {
+                    // The registration is retried the next time the class is written
+                    log.warn("register: registration of class {} failed, writing its name",
+                            cls.getName(), e);
+                    registration.completeExceptionally(e);
+                } finally {
+                    registrations.remove(cls, registration);
+                }
+            });
+        } catch (RejectedExecutionException ree) {
+            registrations.remove(cls, registration);
+            registration.completeExceptionally(ree);
+        }
+        return registration;
+    }
+
+    /**
+     * Get the class with an id.
+     *
+     * @param id The id of the class.
+     * @return The class.
+     * @throws RetryExhaustedException If the registry couldn't be read in time.
+     * @throws IllegalStateException If no class has this id or if it can't be loaded.
+     */
+    public Class<?> getClass(int id) {
+        Class<?> cls = classes.get(id);
+        if (cls == null) {
+            String className = null;
+            for (int attempt = 1; className == null; attempt++) {
+                try {
+                    className = onRegistrar(() -> lookup(id));
+                } catch (TimeoutException te) {
+                    log.warn("getClass: lookup of class id {} timed out, attempt {}",
+                            id, attempt);
+                    if (attempt == LOOKUP_ATTEMPTS) {
+                        throw new RetryExhaustedException("Lookup of class id " + id
+                                + " timed out");
+                    }
+                    continue;
+                }
+                if (className == null) {
+                    throw new IllegalStateException("No class registered with id " + id);
+                }
+            }
+            try {
+                cls = Class.forName(className);
+            } catch (ClassNotFoundException cnfe) {
+                throw new IllegalStateException("Class " + className + " with id " + id
+                        + " can't be loaded", cnfe);
+            }
+            cache(cls, id);
+        }
+        return cls;
+    }
+
+    /**
+     * Stop the registrar, the registrations in progress are abandoned.
+     */
+    public void shutdown() {
+        registrar.shutdownNow();
+    }
+
+    private void cache(Class<?> cls, int id) {
+        ids.put(cls, id);
+        classes.put(id, cls);
+    }
+
+    /**
+     * Run an operation on the registry on the registrar thread, waiting at most the
+     * request timeout of the runtime for it to complete.
+     */
+    private <T> T onRegistrar(Supplier<T> supplier) throws TimeoutException {
+        try {
+            return CompletableFuture.supplyAsync(supplier, registrar)
+                    .get(runtime.getParameters().getRequestTimeout().toMillis(),
+                            TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new IllegalStateException(ee.getCause());
+        } catch (InterruptedException ie) {
+            throw new UnrecoverableCorfuInterruptedError(ie);
+        }
+    }
+
+    private Map<String, Integer> getRegistry() {
+        if (registry == null) {
+            registry = runtime.getObjectsView().build()
+                    .setStreamName(REGISTRY_STREAM_NAME)
+                    .setTypeToken(new TypeToken<SMRMap<String, Integer>>() {})
+                    .open();
+        }
+        return registry;
+    }
+
+    /**
+     * Get the name of the class with an id. The registry is only scanned for ids which
+     * were assigned since it was last scanned.
+     */
+    private String lookup(int id) {
+        String className = names.get(id);
+        if (className == null) {
+            getRegistry().forEach((name, registered) -> names.put(registered, name));
+            className = names.get(id);
+        }
+        return className;
+    }
+
+    private int assign(String className) {
+        Map<String, Integer> registry = getRegistry();
+        for (int retry = 0; retry < runtime.getParameters().getWriteRetry(); retry++) {
+            Integer id = registry.get(className);
+            if (id != null) {
+                names.put(id, className);
+                return id;
+            }
+
+            runtime.getObjectsView().TXBegin();
+            try {
+                id = registry.get(className);
+                if (id == null) {
+                    // Ids are dense, reading the size conflicts with any concurrent registration
+                    id = registry.size();
+                    registry.put(className, id);
+                }
+                runtime.getObjectsView().TXEnd();
+                log.debug("assign: class {} has id {}", className, id);
+                names.put(id, className);
+                return id;
+            } catch (TransactionAbortedException tae) {
+                log.debug("assign: retrying registration of class {}, {}", className,
+                        tae.getAbortCause());
+            } finally {
+                if (runtime.getObjectsView().TXActive()) {
+                    runtime.getObjectsView().TXAbort();
+                }
+            }
+        }
+        throw new RetryExhaustedException("Failed to register class " + className);
+    }
+}
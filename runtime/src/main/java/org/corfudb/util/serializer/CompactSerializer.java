@@ -0,0 +1,296 @@
+package org.corfudb.util.serializer;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import lombok.extern.slf4j.Slf4j;
+
+import net.openhft.hashing.LongHashFunction;
+
+import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.object.ICorfuSMR;
+import org.corfudb.util.Utils;
+
+/**
+ * A compact binary serializer.
+ *
+ * <p>Every object starts with a varint tag. Null, {@link String}, {@link Long},
+ * {@link Integer}, {@link UUID}, byte arrays and Corfu objects have dedicated tags and
+ * encodings. Any other object is encoded with Kryo, and tagged with the id its class has
+ * in the {@link ClassRegistry} of the cluster of the runtime writing the object. The class
+ * name is written instead if that runtime is unknown, or until the registration of the
+ * class, which runs in the background, completes.
+ *
+ * <p>Tags and lengths are unsigned varints, longs and integers are zig-zag encoded varints,
+ * so small values take one or two bytes.
+ */
+@Slf4j
+public class CompactSerializer implements ISerializer {
+
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int LONG = 2;
+    static final int INTEGER = 3;
+    static final int UUID_TAG = 4;
+    static final int BYTE_ARRAY = 5;
+    static final int CORFU_OBJECT = 6;
+    static final int UNREGISTERED_CLASS = 7;
+
+    /**
+     * Tags from this one on are class ids, offset by this value.
+     */
+    static final int FIRST_CLASS_TAG = 16;
+
+    private static final int OUTPUT_BUFFER_SIZE = 256;
+
+    private static final ThreadLocal<Output> outputs =
+            ThreadLocal.withInitial(() -> new Output(OUTPUT_BUFFER_SIZE, -1));
+
+    private final byte type;
+
+    public CompactSerializer(byte type) {
+        this.type = type;
+    }
+
+    @Override
+    public byte getType() {
+        return type;
+    }
+
+    /**
+     * Deserialize an object from a given byte buffer.
+     *
+     * @param b The bytebuf to deserialize.
+     * @return The deserialized object.
+     */
+    @Override
+    public Object deserialize(ByteBuf b, CorfuRuntime rt) {
+        int tag = readVarInt(b);
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(b);
+            case LONG:
+                long l = readVarLong(b);
+                return (l >>> 1) ^ -(l & 1);
+            case INTEGER:
+                int i = readVarInt(b);
+                return (i >>> 1) ^ -(i & 1);
+            case UUID_TAG:
+                return new UUID(b.readLong(), b.readLong());
+            case BYTE_ARRAY:
+                byte[] bytes = new byte[readVarInt(b)];
+                b.readBytes(bytes);
+                return bytes;
+            case CORFU_OBJECT:
+                String smrClassName = readString(b);
+                try {
+                    return rt.getObjectsView().build()
+                            .setStreamID(new UUID(b.readLong(), b.readLong()))
+                            .setType(Class.forName(smrClassName))
+                            .open();
+                } catch (ClassNotFoundException cnfe) {
+                    log.error("Exception during deserialization!", cnfe);
+                    throw new RuntimeException(cnfe);
+                }
+            case UNREGISTERED_CLASS:
+                String className = readString(b);
+                try {
+                    return readObject(b, Class.forName(className));
+                } catch (ClassNotFoundException cnfe) {
+                    log.error("Exception during deserialization!", cnfe);
+                    throw new RuntimeException(cnfe);
+                }
+            default:
+                if (tag < FIRST_CLASS_TAG) {
+                    throw new IllegalStateException("Unknown tag " + tag);
+                }
+                return readObject(b, rt.getClassRegistry().getClass(tag - FIRST_CLASS_TAG));
+        }
+    }
+
+    /**
+     * Serialize an object into a given byte buffer. Without a runtime, classes are
+     * written by name.
+     *
+     * @param o The object to serialize.
+     * @param b The bytebuf to serialize it into.
+     */
+    @Override
+    public void serialize(Object o, ByteBuf b) {
+        write(o, b, null);
+    }
+
+    /**
+     * Serialize an object into a given byte buffer, with the class registry of the
+     * cluster of the runtime writing it.
+     *
+     * @param o  The object to serialize.
+     * @param b  The bytebuf to serialize it into.
+     * @param rt The runtime the object is written by, or null if it is unknown.
+     */
+    @Override
+    public void serialize(Object o, ByteBuf b, CorfuRuntime rt) {
+        write(o, b, rt == null ? null : rt.getClassRegistry());
+    }
+
+    /**
+     * Given an object, generate a hash for it.
+     *
+     * <p>Objects without a dedicated hashing method are hashed with their class name
+     * instead of their class id, since the id a class has depends on the cluster.
+     *
+     * @param o The object to hash.
+     * @return The hashed object value, as a byte array.
+     */
+    @Override
+    public byte[] hash(Object o) {
+        Class<?> cls = o.getClass();
+        if (hashConversionMap.containsKey(cls) || getCustomHasher(cls) != null
+                || o instanceof ICorfuHashable) {
+            return ISerializer.super.hash(o);
+        }
+
+        ByteBuf b = Unpooled.buffer();
+        try {
+            write(o, b, null);
+            return Utils.longToBigEndianByteArray(LongHashFunction.xx().hashBytes(b.nioBuffer()));
+        } finally {
+            b.release();
+        }
+    }
+
+    private void write(Object o, ByteBuf b, ClassRegistry registry) {
+        if (o == null) {
+            writeVarInt(b, NULL);
+        } else if (o instanceof String) {
+            writeVarInt(b, STRING);
+            writeString(b, (String) o);
+        } else if (o instanceof Long) {
+            long l = (Long) o;
+            writeVarInt(b, LONG);
+            writeVarLong(b, (l << 1) ^ (l >> 63));
+        } else if (o instanceof Integer) {
+            int i = (Integer) o;
+            writeVarInt(b, INTEGER);
+            writeVarInt(b, (i << 1) ^ (i >> 31));
+        } else if (o instanceof UUID) {
+            writeVarInt(b, UUID_TAG);
+            b.writeLong(((UUID) o).getMostSignificantBits());
+            b.writeLong(((UUID) o).getLeastSignificantBits());
+        } else if (o instanceof byte[]) {
+            writeVarInt(b, BYTE_ARRAY);
+            writeVarInt(b, ((byte[]) o).length);
+            b.writeBytes((byte[]) o);
+        } else if (o instanceof ICorfuSMR) {
+            String className = o.getClass().getName();
+            UUID id = ((ICorfuSMR) o).getCorfuStreamID();
+            writeVarInt(b, CORFU_OBJECT);
+            writeString(b, className.endsWith(ICorfuSMR.CORFUSMR_SUFFIX)
+                    ? className.substring(0,
+                            className.length() - ICorfuSMR.CORFUSMR_SUFFIX.length())
+                    : className);
+            b.writeLong(id.getMostSignificantBits());
+            b.writeLong(id.getLeastSignificantBits());
+        } else {
+            int id = registry == null ? ClassRegistry.NO_ID : registry.getId(o.getClass());
+            if (id == ClassRegistry.NO_ID) {
+                writeVarInt(b, UNREGISTERED_CLASS);
+                writeString(b, o.getClass().getName());
+            } else {
+                writeVarInt(b, FIRST_CLASS_TAG + id);
+            }
+            writeObject(b, o);
+        }
+    }
+
+    /**
+     * Write an object with Kryo, prefixed by the length of its encoding.
+     */
+    private static void writeObject(ByteBuf b, Object o) {
+        Output output = outputs.get();
+        output.clear();
+        kryos.get().writeObject(output, o);
+        writeVarInt(b, output.position());
+        b.writeBytes(output.getBuffer(), 0, output.position());
+    }
+
+    private static Object readObject(ByteBuf b, Class<?> cls) {
+        int length = readVarInt(b);
+        Input input;
+        if (b.hasArray()) {
+            input = new Input(b.array(), b.arrayOffset() + b.readerIndex(), length);
+        } else {
+            byte[] bytes = new byte[length];
+            b.getBytes(b.readerIndex(), bytes);
+            input = new Input(bytes);
+        }
+        Object o = kryos.get().readObject(input, cls);
+        b.skipBytes(length);
+        return o;
+    }
+
+    private static void writeString(ByteBuf b, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(b, bytes.length);
+        b.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuf b) {
+        int length = readVarInt(b);
+        String s = b.toString(b.readerIndex(), length, StandardCharsets.UTF_8);
+        b.skipBytes(length);
+        return s;
+    }
+
+    /**
+     * Write an int as an unsigned varint.
+     */
+    static void writeVarInt(ByteBuf b, int v) {
+        while ((v & ~0x7F) != 0) {
+            b.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        b.writeByte(v);
+    }
+
+    static int readVarInt(ByteBuf b) {
+        int v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = b.readByte();
+            v |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+    }
+
+    /**
+     * Write a long as an unsigned varint.
+     */
+    static void writeVarLong(ByteBuf b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.writeByte((int) v);
+    }
+
+    static long readVarLong(ByteBuf b) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = b.readByte();
+            v |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+    }
+}
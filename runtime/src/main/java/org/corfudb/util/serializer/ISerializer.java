@@ -65,6 +65,17 @@ public interface ISerializer {
      */
     void serialize(Object o, ByteBuf b);
 
+    /**
+     * Serialize an object into a given byte buffer, on behalf of a runtime.
+     *
+     * @param o  The object to serialize.
+     * @param b  The bytebuf to serialize it into.
+     * @param rt The runtime the object is written by, or null if it is unknown.
+     */
+    default void serialize(Object o, ByteBuf b, CorfuRuntime rt) {
+        serialize(o, b);
+    }
+
     Map<Class<?>, Function<?, byte[]>> customHashingMap =
             new ConcurrentHashMap<>();
 
@@ -18,6 +18,7 @@ public class Serializers {
     public static final ISerializer JAVA = new JavaSerializer((byte) 1);
     public static final ISerializer JSON = new JsonSerializer((byte) 2);
     public static final ISerializer PRIMITIVE = new PrimitiveSerializer((byte) 3);
+    public static final CompactSerializer COMPACT = new CompactSerializer((byte) 4);
 
     private static final Map<Byte, ISerializer> serializersMap;
 
@@ -27,6 +28,7 @@ public class Serializers {
         serializersMap.put(JAVA.getType(), JAVA);
         serializersMap.put(JSON.getType(), JSON);
         serializersMap.put(PRIMITIVE.getType(), PRIMITIVE);
+        serializersMap.put(COMPACT.getType(), COMPACT);
     }
 
     private static final Map<Byte, ISerializer> customSerializers = new HashMap<>();
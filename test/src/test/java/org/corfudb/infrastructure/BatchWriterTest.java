@@ -0,0 +1,75 @@
+package org.corfudb.infrastructure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.corfudb.AbstractCorfuTest;
+import org.corfudb.infrastructure.log.InMemoryStreamLog;
+import org.corfudb.infrastructure.log.StreamLogFiles;
+import org.corfudb.protocols.wireprotocol.DataType;
+import org.corfudb.protocols.wireprotocol.LogData;
+import org.corfudb.util.serializer.Serializers;
+import org.junit.Test;
+
+public class BatchWriterTest extends AbstractCorfuTest {
+
+    /**
+     * A stream log whose appends to an address block until they are released.
+     */
+    static class BlockingStreamLog extends InMemoryStreamLog {
+        final CountDownLatch released = new CountDownLatch(1);
+        final long blockedAddress;
+
+        BlockingStreamLog(long blockedAddress) {
+            this.blockedAddress = blockedAddress;
+        }
+
+        @Override
+        public void append(long address, LogData entry) {
+            if (address == blockedAddress) {
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            super.append(address, entry);
+        }
+    }
+
+    private LogData getEntry(long address) {
+        ByteBuf b = Unpooled.buffer();
+        Serializers.CORFU.serialize("Payload".getBytes(), b);
+        LogData ld = new LogData(DataType.DATA, b);
+        ld.setGlobalAddress(address);
+        return ld;
+    }
+
+    @Test
+    public void crossLaneOperationFailsWhenALaneIsStuck() {
+        // The second segment is written by the second lane
+        final long blockedAddress = StreamLogFiles.RECORDS_PER_LOG_FILE;
+        BlockingStreamLog streamLog = new BlockingStreamLog(blockedAddress);
+        BatchWriter batchWriter = new BatchWriter(streamLog, 0L, false,
+                BatchWriter.GroupCommitConfig.builder()
+                        .barrierTimeoutMillis(PARAMETERS.TIMEOUT_VERY_SHORT.toMillis())
+                        .build(), 2);
+
+        CompletableFuture<Void> write = batchWriter.write(blockedAddress,
+                getEntry(blockedAddress));
+        assertThatThrownBy(() -> batchWriter.queryTails(0L))
+                .isInstanceOf(IllegalStateException.class);
+
+        // Once the lane is unblocked, cross-lane operations go through again
+        streamLog.released.countDown();
+        write.join();
+        assertThat(batchWriter.queryTails(0L).getLogTail()).isEqualTo(blockedAddress);
+        batchWriter.close();
+    }
+}
@@ -37,6 +37,25 @@ public class LogUnitServerTest extends AbstractServerTest {
         return new LogUnitServer(new ServerContextBuilder().build());
     }
 
+    /**
+     * Writes are acknowledged asynchronously, once they have been synced by the
+     * batch writer, so wait for the response before returning.
+     */
+    @Override
+    public void sendMessage(UUID clientId, CorfuMsg message) {
+        super.sendMessage(clientId, message);
+        final long requestId = message.getRequestID();
+        final long deadline = System.currentTimeMillis() + PARAMETERS.TIMEOUT_NORMAL.toMillis();
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (getResponseMessages()) {
+                if (getResponseMessages().stream().anyMatch(m -> m.getRequestID() == requestId)) {
+                    return;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
     @Test
     public void checkOverwritesFail() throws Exception {
         String serviceDir = PARAMETERS.TEST_TEMP_DIR;
@@ -143,6 +162,80 @@ public class LogUnitServerTest extends AbstractServerTest {
 
     }
 
+    @Test
+    public void checkWritesWithGroupCommitWindow() throws Exception {
+        String serviceDir = PARAMETERS.TEST_TEMP_DIR;
+
+        // Batches are synced after two writes, or after the window elapses
+        LogUnitServer s1 = new LogUnitServer(new ServerContextBuilder()
+                .setLogPath(serviceDir)
+                .setMemory(false)
+                .setWriteBatchEntries("2")
+                .setWriteBatchWindow("1000")
+                .build());
+
+        this.router.reset();
+        this.router.addServer(s1);
+
+        final long START_ADDRESS = 0L; final String payload = "0";
+        final int numIterations = PARAMETERS.NUM_ITERATIONS_VERY_LOW;
+        final String streamName = "a";
+
+        for (int i = 0; i < numIterations; i++) {
+            rawWrite(START_ADDRESS + i, payload + i, streamName);
+            Assertions.assertThat(getLastMessage().getMsgType())
+                    .isEqualTo(CorfuMsgType.WRITE_OK);
+        }
+
+        for (int i = 0; i < numIterations; i++) {
+            assertThat(s1)
+                    .matchesDataAtAddress(START_ADDRESS + i, (payload + i).getBytes());
+        }
+    }
+
+    @Test
+    public void checkWritesAcrossWriteLanes() throws Exception {
+        String serviceDir = PARAMETERS.TEST_TEMP_DIR;
+
+        LogUnitServer s1 = new LogUnitServer(new ServerContextBuilder()
+                .setLogPath(serviceDir)
+                .setMemory(false)
+                .setWriteLanes("4")
+                .build());
+
+        this.router.reset();
+        this.router.addServer(s1);
+
+        final String payload = "0";
+        final int numIterations = PARAMETERS.NUM_ITERATIONS_VERY_LOW;
+        final String streamName = "a";
+
+        // Every write goes to a different segment, so the writes are spread across lanes
+        for (int i = 0; i < numIterations; i++) {
+            rawWrite(i * StreamLogFiles.RECORDS_PER_LOG_FILE + i, payload + i, streamName);
+            Assertions.assertThat(getLastMessage().getMsgType())
+                    .isEqualTo(CorfuMsgType.WRITE_OK);
+        }
+
+        // The seal is applied once all the lanes have synced their writes
+        s1.sealServerWithEpoch(1L);
+        s1.shutdown();
+
+        LogUnitServer s2 = new LogUnitServer(new ServerContextBuilder()
+                .setLogPath(serviceDir)
+                .setMemory(false)
+                .setWriteLanes("4")
+                .build());
+        this.router.reset();
+        this.router.addServer(s2);
+
+        for (int i = 0; i < numIterations; i++) {
+            assertThat(s2)
+                    .matchesDataAtAddress(i * StreamLogFiles.RECORDS_PER_LOG_FILE + i,
+                            (payload + i).getBytes());
+        }
+    }
+
     @Test
     public void checkThatMoreWritesArePersisted()
             throws Exception {
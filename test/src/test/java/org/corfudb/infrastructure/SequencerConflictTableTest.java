@@ -0,0 +1,124 @@
+package org.corfudb.infrastructure;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.openhft.hashing.LongHashFunction;
+
+import org.corfudb.AbstractCorfuTest;
+import org.junit.Test;
+
+public class SequencerConflictTableTest extends AbstractCorfuTest {
+
+    private static long key(int i) {
+        return LongHashFunction.xx().hashInt(i);
+    }
+
+    @Test
+    public void tableMatchesMap() {
+        final int numKeys = 5_000;
+        final int numOps = 50_000;
+        final long seed = 7L;
+        SequencerConflictTable table = new SequencerConflictTable(Long.MAX_VALUE, v -> { });
+        Map<String, Long> expected = new HashMap<>();
+        UUID[] streams = {UUID.randomUUID(), UUID.randomUUID()};
+        Random random = new Random(seed);
+
+        for (long address = 0; address < numOps; address++) {
+            UUID stream = streams[random.nextInt(streams.length)];
+            int k = random.nextInt(numKeys);
+            table.put(stream, key(k), address);
+            expected.put(stream.toString() + k, address);
+        }
+
+        assertThat(table.size()).isEqualTo(expected.size());
+        for (UUID stream : streams) {
+            for (int k = 0; k < numKeys; k++) {
+                Long v = expected.get(stream.toString() + k);
+                assertThat(table.get(stream, key(k)))
+                        .isEqualTo(v == null ? SequencerConflictTable.ABSENT : v);
+            }
+        }
+    }
+
+    @Test
+    public void evictionAndInvalidationNotifyListener() {
+        final int maxSize = 100;
+        final int numKeys = 1_000;
+        final long trimMark = 950;
+        List<Long> removed = new ArrayList<>();
+        SequencerConflictTable table = new SequencerConflictTable(maxSize, removed::add);
+        UUID stream = UUID.randomUUID();
+
+        for (int k = 0; k < numKeys; k++) {
+            table.put(stream, key(k), k);
+        }
+        assertThat(table.size()).isEqualTo(maxSize);
+        assertThat(removed).hasSize(numKeys - maxSize);
+
+        // Every key is either still in the table or was reported as removed
+        int present = 0;
+        for (int k = 0; k < numKeys; k++) {
+            long v = table.get(stream, key(k));
+            if (v != SequencerConflictTable.ABSENT) {
+                assertThat(v).isEqualTo(k);
+                present++;
+            }
+        }
+        assertThat(present).isEqualTo(maxSize);
+
+        removed.clear();
+        long invalidated = table.invalidateBelow(trimMark);
+        assertThat(removed).hasSize((int) invalidated);
+        assertThat(removed).allMatch(v -> v < trimMark);
+        assertThat(table.size()).isEqualTo(maxSize - invalidated);
+        for (int k = (int) trimMark; k < numKeys; k++) {
+            long v = table.get(stream, key(k));
+            assertThat(v == SequencerConflictTable.ABSENT || v == k).isTrue();
+        }
+    }
+
+    /**
+     * A lookup that misses an evicted entry must see the wildcard raised to its address,
+     * otherwise the sequencer could commit a transaction which conflicts with it.
+     */
+    @Test
+    public void evictedEntriesAreCoveredByTheWildcard() throws Exception {
+        final int maxSize = 64;
+        final long numKeys = PARAMETERS.NUM_ITERATIONS_MODERATE * 10L;
+        final AtomicLong wildcard = new AtomicLong(SequencerConflictTable.ABSENT);
+        final AtomicLong written = new AtomicLong();
+        SequencerConflictTable table = new SequencerConflictTable(maxSize,
+                v -> wildcard.accumulateAndGet(v, Math::max));
+        UUID stream = UUID.randomUUID();
+
+        // Key k is written at address k
+        scheduleConcurrently(t -> {
+            for (int k = 0; k < numKeys; k++) {
+                table.put(stream, key(k), k);
+                written.set(k + 1);
+            }
+        });
+        scheduleConcurrently(PARAMETERS.CONCURRENCY_SOME, t -> {
+            while (written.get() < numKeys) {
+                long n = written.get();
+                if (n == 0) {
+                    continue;
+                }
+                int k = (int) ThreadLocalRandom.current().nextLong(n);
+                if (table.get(stream, key(k)) == SequencerConflictTable.ABSENT) {
+                    assertThat(wildcard.get()).isGreaterThanOrEqualTo(k);
+                }
+            }
+        });
+        executeScheduled(PARAMETERS.CONCURRENCY_SOME + 1, PARAMETERS.TIMEOUT_LONG);
+    }
+}
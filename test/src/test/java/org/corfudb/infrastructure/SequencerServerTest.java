@@ -2,19 +2,27 @@ package org.corfudb.infrastructure;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.corfudb.protocols.wireprotocol.CorfuMsgType;
 import org.corfudb.protocols.wireprotocol.CorfuPayloadMsg;
 import org.corfudb.protocols.wireprotocol.SequencerTailsRecoveryMsg;
 import org.corfudb.protocols.wireprotocol.Token;
+import org.corfudb.protocols.wireprotocol.TokenBatchRequest;
+import org.corfudb.protocols.wireprotocol.TokenBatchResponse;
 import org.corfudb.protocols.wireprotocol.TokenRequest;
 import org.corfudb.protocols.wireprotocol.TokenResponse;
 import org.corfudb.protocols.wireprotocol.TokenType;
+import org.corfudb.protocols.wireprotocol.TxResolutionInfo;
 import org.corfudb.runtime.view.Address;
+import org.corfudb.util.Utils;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -185,6 +193,100 @@ public class SequencerServerTest extends AbstractServerTest {
         }
     }
 
+    /**
+     * Concurrent allocations on a stream must produce a single chain of backpointers.
+     */
+    @Test
+    public void concurrentBackpointersFormAChain() throws Exception {
+        UUID streamA = UUID.nameUUIDFromBytes("streamA".getBytes());
+        UUID streamB = UUID.nameUUIDFromBytes("streamB".getBytes());
+
+        scheduleConcurrently(PARAMETERS.NUM_ITERATIONS_LOW, t ->
+                sendMessage(new CorfuPayloadMsg<>(CorfuMsgType.TOKEN_REQ,
+                        new TokenRequest(1L, Collections.singletonList(streamA)))));
+        scheduleConcurrently(PARAMETERS.NUM_ITERATIONS_LOW, t ->
+                sendMessage(new CorfuPayloadMsg<>(CorfuMsgType.TOKEN_REQ,
+                        new TokenRequest(1L, Collections.singletonList(streamB)))));
+        executeScheduled(PARAMETERS.CONCURRENCY_SOME, PARAMETERS.TIMEOUT_NORMAL);
+
+        for (UUID stream : new UUID[]{streamA, streamB}) {
+            List<TokenResponse> responses;
+            synchronized (getResponseMessages()) {
+                responses = getResponseMessages().stream()
+                        .map(m -> ((CorfuPayloadMsg<TokenResponse>) m).getPayload())
+                        .filter(r -> r.getBackpointerMap().containsKey(stream))
+                        .sorted(Comparator.comparingLong(r -> r.getToken().getSequence()))
+                        .collect(Collectors.toList());
+            }
+
+            assertThat(responses).hasSize(PARAMETERS.NUM_ITERATIONS_LOW);
+            long previous = Address.NON_EXIST;
+            for (TokenResponse response : responses) {
+                assertThat(response.getBackpointerMap().get(stream)).isEqualTo(previous);
+                previous = response.getToken().getSequence();
+            }
+        }
+    }
+
+    /**
+     * The requests of a batch are served in order, each with its own backpointers and
+     * conflict resolution.
+     */
+    @Test
+    public void batchedRequestsAreServedInOrder() {
+        UUID streamA = UUID.nameUUIDFromBytes("streamA".getBytes());
+        final long conflictKey = 42L;
+        Map<UUID, long[]> conflictParams =
+                Collections.singletonMap(streamA, new long[]{conflictKey});
+        // Both transactions read the log up to the raw token
+        Token snapshot = new Token(0L, 1L);
+
+        TxResolutionInfo firstTx = new TxResolutionInfo(UUID.randomUUID(), snapshot,
+                conflictParams, conflictParams);
+        TxResolutionInfo secondTx = new TxResolutionInfo(UUID.randomUUID(), snapshot,
+                conflictParams, conflictParams);
+
+        sendMessage(new CorfuPayloadMsg<>(CorfuMsgType.TOKEN_BATCH_REQ, new TokenBatchRequest(
+                Arrays.asList(
+                        new TokenRequest(1L, Collections.singletonList(streamA)),
+                        new TokenRequest(1L, Collections.emptyList()),
+                        new TokenRequest(1L, Collections.singletonList(streamA), firstTx),
+                        new TokenRequest(1L, Collections.singletonList(streamA), secondTx),
+                        new TokenRequest(0L, Collections.singletonList(streamA))))));
+
+        assertThat(getLastMessage().getMsgType()).isEqualTo(CorfuMsgType.TOKEN_BATCH_RES);
+        List<TokenResponse> responses =
+                getLastPayloadMessageAs(TokenBatchResponse.class).getResponses();
+        final int numRequests = 5;
+        assertThat(responses).hasSize(numRequests);
+
+        TokenResponse first = responses.get(0);
+        assertThat(first.getToken()).isEqualTo(new Token(0L, 0L));
+        assertThat(first.getBackpointerMap()).containsEntry(streamA, Address.NON_EXIST);
+
+        TokenResponse raw = responses.get(1);
+        assertThat(raw.getToken()).isEqualTo(new Token(0L, 1L));
+
+        // The first transaction commits, with a backpointer to the first allocation
+        final int committedIndex = 2;
+        final long committedAddress = 2L;
+        TokenResponse committed = responses.get(committedIndex);
+        assertThat(committed.getRespType()).isEqualTo(TokenType.NORMAL);
+        assertThat(committed.getToken()).isEqualTo(new Token(0L, committedAddress));
+        assertThat(committed.getBackpointerMap()).containsEntry(streamA, 0L);
+
+        // The second one conflicts with the write of the first one, earlier in the batch
+        final int abortedIndex = 3;
+        TokenResponse aborted = responses.get(abortedIndex);
+        assertThat(aborted.getRespType()).isEqualTo(TokenType.TX_ABORT_CONFLICT);
+        assertThat(aborted.getConflictKey())
+                .isEqualTo(Utils.longToBigEndianByteArray(conflictKey));
+
+        final int queryIndex = 4;
+        assertThat(responses.get(queryIndex).getToken())
+                .isEqualTo(new Token(0L, committedAddress));
+    }
+
     @Test
     public void SequencerWillResetTails() throws Exception {
         UUID streamA = UUID.nameUUIDFromBytes("streamA".getBytes());
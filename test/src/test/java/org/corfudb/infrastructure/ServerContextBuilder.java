@@ -21,6 +21,11 @@ public class ServerContextBuilder {
     String logPath = null;
     boolean noVerify = false;
     boolean noSync = false;
+    boolean mmapReads = false;
+    String writeBatchEntries = "50";
+    String writeBatchBytes = "8388608";
+    String writeBatchWindow = "0";
+    String writeLanes = "1";
 
     boolean tlsEnabled = false;
     boolean tlsMutualAuthEnabled = false;
@@ -38,6 +43,7 @@ public class ServerContextBuilder {
     String address = "test";
     int port = 9000;
     String seqCache = "1000";
+    String sequencerThreads = "1";
     String batchSize = "100";
     String managementBootstrapEndpoint = null;
     IServerRouter serverRouter;
@@ -62,6 +68,7 @@ public class ServerContextBuilder {
                 .put("--Threads", numThreads)
                 .put("--HandshakeTimeout", handshakeTimeout)
                 .put("--sequencer-cache-size", seqCache)
+                .put("--sequencer-threads", sequencerThreads)
                 .put("--batch-size", batchSize)
                 .put("--metadata-retention", retention);
         if (logPath != null) {
@@ -73,6 +80,11 @@ public class ServerContextBuilder {
          builder
                  .put("--no-verify", noVerify)
                  .put("--no-sync", noSync)
+                 .put("--mmap-reads", mmapReads)
+                 .put("--write-batch-entries", writeBatchEntries)
+                 .put("--write-batch-bytes", writeBatchBytes)
+                 .put("--write-batch-window", writeBatchWindow)
+                 .put("--write-lanes", writeLanes)
                  .put("--address", address)
                  .put("--cache-heap-ratio", cacheSizeHeapRatio)
                  .put("--enable-tls", tlsEnabled)
@@ -12,6 +12,7 @@ import org.corfudb.runtime.clients.TestChannelContext;
 import org.corfudb.runtime.clients.TestRule;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -52,7 +53,7 @@ public class TestServerRouter implements IServerRouter {
     }
 
     public void reset() {
-        this.responseMessages = new ArrayList<>();
+        this.responseMessages = Collections.synchronizedList(new ArrayList<>());
         this.requestCounter = new AtomicLong();
         this.servers = new ArrayList<>();
         this.handlerMap = new ConcurrentHashMap<>();
@@ -0,0 +1,71 @@
+package org.corfudb.infrastructure.log;
+
+import org.corfudb.AbstractCorfuTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SegmentAddressIndexTest extends AbstractCorfuTest {
+
+    private static final int CAPACITY = 100;
+    private static final long FIRST_ADDRESS = 300L;
+
+    @Test
+    public void indexStoresRecordMetadata() {
+        SegmentAddressIndex index = new SegmentAddressIndex(FIRST_ADDRESS, CAPACITY);
+        final int checksum = -7;
+        final int length = 42;
+        final long offset = Integer.MAX_VALUE + 1L;
+
+        assertThat(index.contains(FIRST_ADDRESS)).isFalse();
+        assertThat(index.get(FIRST_ADDRESS)).isNull();
+
+        index.put(FIRST_ADDRESS, checksum, length, offset);
+        assertThat(index.contains(FIRST_ADDRESS)).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+
+        AddressMetaData metaData = index.get(FIRST_ADDRESS);
+        assertThat(metaData.checksum).isEqualTo(checksum);
+        assertThat(metaData.length).isEqualTo(length);
+        assertThat(metaData.offset).isEqualTo(offset);
+
+        // Overwriting a record (i.e. ranked writes) replaces it without changing the size
+        index.put(FIRST_ADDRESS, checksum + 1, length + 1, offset + 1);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get(FIRST_ADDRESS).length).isEqualTo(length + 1);
+        assertThat(index.get(FIRST_ADDRESS).offset).isEqualTo(offset + 1);
+
+        final long lastAddress = FIRST_ADDRESS + CAPACITY - 1;
+        index.put(lastAddress, checksum, length, offset);
+        List<Long> addresses = new ArrayList<>();
+        index.forEach(addresses::add);
+        assertThat(addresses).containsExactly(FIRST_ADDRESS, lastAddress);
+
+        assertThatThrownBy(() -> index.get(FIRST_ADDRESS + CAPACITY))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.contains(FIRST_ADDRESS - 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void addressSetTracksAddresses() {
+        SegmentAddressIndex.AddressSet set =
+                new SegmentAddressIndex.AddressSet(FIRST_ADDRESS, CAPACITY);
+        final long address = FIRST_ADDRESS + Long.SIZE + 1;
+
+        assertThat(set.add(address)).isTrue();
+        assertThat(set.add(address)).isFalse();
+        assertThat(set.add(FIRST_ADDRESS)).isTrue();
+        assertThat(set.contains(address)).isTrue();
+        assertThat(set.contains(address - 1)).isFalse();
+        assertThat(set.size()).isEqualTo(2);
+
+        List<Long> addresses = new ArrayList<>();
+        set.forEach(addresses::add);
+        assertThat(addresses).containsExactly(FIRST_ADDRESS, address);
+    }
+}
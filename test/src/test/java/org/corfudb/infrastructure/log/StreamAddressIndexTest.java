@@ -0,0 +1,66 @@
+package org.corfudb.infrastructure.log;
+
+import org.corfudb.AbstractCorfuTest;
+import org.corfudb.runtime.CorfuRuntime;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamAddressIndexTest extends AbstractCorfuTest {
+
+    private static final int MAX_ADDRESSES = 8;
+
+    private static final UUID STREAM_A = CorfuRuntime.getStreamID("a");
+    private static final UUID STREAM_B = CorfuRuntime.getStreamID("b");
+
+    @Test
+    public void rangeIsLimited() {
+        StreamAddressIndex index = new StreamAddressIndex(MAX_ADDRESSES);
+        final long end = 10;
+        final int limit = 2;
+
+        index.add(STREAM_A, 0L);
+        index.add(STREAM_A, 2L);
+        index.add(STREAM_A, 4L);
+        index.add(STREAM_A, 3L);
+
+        assertThat(index.get(STREAM_A, 0L, end, Integer.MAX_VALUE)).containsExactly(0L, 2L, 3L, 4L);
+        assertThat(index.get(STREAM_A, 1L, end, limit)).containsExactly(2L, 3L);
+        assertThat(index.get(STREAM_B, 0L, end, limit)).isEmpty();
+    }
+
+    @Test
+    public void coldStreamsAreEvicted() {
+        StreamAddressIndex index = new StreamAddressIndex(MAX_ADDRESSES);
+        final long end = 100;
+
+        // Stream A is cold, stream B is written after it
+        long address = 0;
+        for (int i = 0; i < MAX_ADDRESSES / 2; i++) {
+            index.add(STREAM_A, address++);
+        }
+        for (int i = 0; i < MAX_ADDRESSES / 2; i++) {
+            index.add(STREAM_B, address++);
+        }
+        assertThat(index.size()).isEqualTo(2);
+
+        // Exceeding the bound evicts the coldest stream
+        index.add(STREAM_B, address);
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get(STREAM_B, 0L, end, Integer.MAX_VALUE)).hasSize(MAX_ADDRESSES / 2 + 1);
+
+        // The evicted stream is no longer covered below its last address
+        final long lastOfA = MAX_ADDRESSES / 2 - 1;
+        assertThat(index.get(STREAM_A, 0L, end, Integer.MAX_VALUE)).isNull();
+        assertThat(index.get(STREAM_A, lastOfA, end, Integer.MAX_VALUE)).isNull();
+        assertThat(index.get(STREAM_A, lastOfA + 1, end, Integer.MAX_VALUE)).isEmpty();
+
+        // Once written again, it is only covered above the eviction mark
+        final long next = address + 1;
+        index.add(STREAM_A, next);
+        assertThat(index.get(STREAM_A, 0L, end, Integer.MAX_VALUE)).isNull();
+        assertThat(index.get(STREAM_A, lastOfA + 1, end, Integer.MAX_VALUE)).containsExactly(next);
+    }
+}
@@ -6,6 +6,7 @@ import static org.corfudb.infrastructure.log.StreamLogFiles.METADATA_SIZE;
 import static org.corfudb.infrastructure.log.StreamLogFiles.RECORDS_PER_LOG_FILE;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 
 import java.io.File;
@@ -13,9 +14,11 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 import org.apache.commons.io.FileUtils;
 import org.corfudb.AbstractCorfuTest;
@@ -26,6 +29,8 @@ import org.corfudb.infrastructure.ServerContextBuilder;
 import org.corfudb.protocols.wireprotocol.DataType;
 import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.protocols.wireprotocol.LogData;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
+import org.corfudb.protocols.wireprotocol.WriteRequest;
 import org.corfudb.runtime.exceptions.DataCorruptionException;
 import org.corfudb.runtime.exceptions.OverwriteException;
 import org.corfudb.runtime.view.Address;
@@ -72,6 +77,64 @@ public class StreamLogFilesTest extends AbstractCorfuTest {
         assertThat(log.read(address0).getPayload(null)).isEqualTo(streamEntry);
     }
 
+    @Test
+    public void testCompressedPayload() {
+        StreamLog log = new StreamLogFiles(getContext(), false);
+        final int payloadSize = 4096;
+        byte[] streamEntry = new byte[payloadSize];
+        Arrays.fill(streamEntry, (byte) 'a');
+
+        // Entries are received from the runtime already compressed
+        LogData compressed = new LogData(DataType.DATA, streamEntry);
+        compressed.encodePayload(PayloadCodec.DEFLATE);
+        ByteBuf b = Unpooled.buffer();
+        compressed.doSerialize(b);
+        long address0 = 0;
+        log.append(address0, new LogData(b));
+
+        // They are stored as is, and only decompressed when deserialized
+        LogData read = log.read(address0);
+        assertThat(read.getPayloadCodec()).isEqualTo(PayloadCodec.DEFLATE);
+        assertThat(read.getData().length).isLessThan(payloadSize);
+        assertThat(read.getPayload(null)).isEqualTo(streamEntry);
+
+        // The codec survives a restart of the log
+        StreamLog newLog = new StreamLogFiles(getContext(), false);
+        assertThat(newLog.read(address0).getPayloadCodec()).isEqualTo(PayloadCodec.DEFLATE);
+        assertThat(newLog.read(address0).getPayload(null)).isEqualTo(streamEntry);
+    }
+
+    @Test
+    public void testWriteFromReceivedBuffer() {
+        StreamLog log = new StreamLogFiles(getContext(), false);
+        ByteBuf b = Unpooled.buffer();
+        byte[] streamEntry = "Payload".getBytes();
+        Serializers.CORFU.serialize(streamEntry, b);
+        final long address0 = 0;
+
+        // The entry is decoded from a pooled buffer, which the decoder releases
+        ByteBuf frame = PooledByteBufAllocator.DEFAULT.directBuffer();
+        new WriteRequest(new LogData(DataType.DATA, b)).doSerialize(frame);
+        WriteRequest request = new WriteRequest(frame);
+        frame.release();
+        assertThat(frame.refCnt()).isEqualTo(1);
+
+        LogData entry = (LogData) request.getData();
+        entry.setGlobalAddress(address0);
+        log.append(address0, entry);
+        assertThat(frame.refCnt()).isEqualTo(1);
+
+        // Once detached, the entry no longer holds on to the buffer
+        request.detach();
+        assertThat(frame.refCnt()).isZero();
+        assertThat(entry.getPayload(null)).isEqualTo(streamEntry);
+
+        // The record is read back, and passes verification when the log is reloaded
+        assertThat(log.read(address0).getPayload(null)).isEqualTo(streamEntry);
+        StreamLog newLog = new StreamLogFiles(getContext(), false);
+        assertThat(newLog.read(address0).getPayload(null)).isEqualTo(streamEntry);
+    }
+
     @Test
     public void testBatchWrite() throws Exception {
         ServerContext sc = getContext();
@@ -93,6 +156,139 @@ public class StreamLogFilesTest extends AbstractCorfuTest {
         assertThat(writeEntries).isEqualTo(readEntries);
     }
 
+    @Test
+    public void testMemoryMappedReads() throws Exception {
+        ServerContext sc = getContext();
+        StreamLogFiles log = new StreamLogFiles(sc, false, true);
+
+        // Fill the first segment so that it can be mapped, and partially
+        // write the second one, which should be read through the channel
+        final int numEntries = StreamLogFiles.RECORDS_PER_LOG_FILE + 1;
+        List<LogData> writeEntries = new ArrayList<>();
+        for (int x = 0; x < numEntries; x++) {
+            writeEntries.add(getEntry(x));
+        }
+
+        log.append(writeEntries.subList(0, StreamLogFiles.RECORDS_PER_LOG_FILE));
+        log.append(writeEntries.subList(StreamLogFiles.RECORDS_PER_LOG_FILE, numEntries));
+        log.sync(true);
+
+        assertThat(readRange(0, numEntries, log)).isEqualTo(writeEntries);
+        SegmentHandle first = log.getSegmentHandleForAddress(0L);
+        SegmentHandle second = log.getSegmentHandleForAddress(StreamLogFiles.RECORDS_PER_LOG_FILE);
+        assertThat(first.getMappedReadBuffer()).isNotNull();
+        assertThat(second.getMappedReadBuffer()).isNull();
+
+        // Closed handles are unmapped once released, and can't be retained anymore
+        second.release();
+        log.close();
+        assertThat(first.getMappedReadBuffer()).isNotNull();
+        first.release();
+        assertThat(first.getMappedReadBuffer()).isNull();
+        assertThat(first.tryRetain()).isFalse();
+
+        // A restarted log should map complete segments as well
+        StreamLogFiles log2 = new StreamLogFiles(sc, false, true);
+        assertThat(readRange(0, numEntries, log2)).isEqualTo(writeEntries);
+    }
+
+    @Test
+    public void testSegmentIndex() throws Exception {
+        ServerContext sc = getContext();
+        String logDir = sc.getServerConfig().get("--log-path") + File.separator + "log";
+        StreamLogFiles log = new StreamLogFiles(sc, false);
+
+        // Only complete segments are indexed
+        final int numEntries = StreamLogFiles.RECORDS_PER_LOG_FILE + 1;
+        List<LogData> writeEntries = new ArrayList<>();
+        for (int x = 0; x < numEntries; x++) {
+            writeEntries.add(getEntry(x));
+        }
+        log.append(writeEntries);
+        log.sync(true);
+
+        File firstIndex = new File(logDir, StreamLogFiles.getIndexFilePath("0.log"));
+        File secondIndex = new File(logDir, StreamLogFiles.getIndexFilePath("1.log"));
+        assertThat(firstIndex).exists();
+        assertThat(secondIndex).doesNotExist();
+        log.close();
+
+        // A restarted log loads the first segment from its index
+        log = new StreamLogFiles(sc, false);
+        assertThat(readRange(0, numEntries, log)).isEqualTo(writeEntries);
+        assertThat(log.getTails().getLogTail()).isEqualTo(numEntries - 1);
+        log.close();
+
+        // A corrupted index is ignored and rewritten after scanning the segment
+        final int corruptedOffset = 20;
+        try (RandomAccessFile file = new RandomAccessFile(firstIndex, "rw")) {
+            file.seek(corruptedOffset);
+            file.writeLong(-1L);
+        }
+        log = new StreamLogFiles(sc, false);
+        assertThat(readRange(0, numEntries, log)).isEqualTo(writeEntries);
+        log.close();
+
+        log = new StreamLogFiles(sc, false);
+        assertThat(readRange(0, numEntries, log)).isEqualTo(writeEntries);
+    }
+
+    @Test
+    public void testLogMetadataLoadedFromSegmentIndex() throws Exception {
+        ServerContext sc = getContext();
+        String logDir = sc.getServerConfig().get("--log-path") + File.separator + "log";
+        StreamLogFiles log = new StreamLogFiles(sc, false);
+
+        final UUID streamId = UUID.randomUUID();
+        final int numEntries = StreamLogFiles.RECORDS_PER_LOG_FILE + 1;
+        List<LogData> writeEntries = new ArrayList<>();
+        for (int x = 0; x < numEntries; x++) {
+            LogData entry = getEntry(x);
+            if (x % 2 == 0) {
+                entry.setBackpointerMap(Collections.singletonMap(streamId, Address.NON_ADDRESS));
+            }
+            writeEntries.add(entry);
+        }
+        log.append(writeEntries);
+        log.sync(true);
+        log.close();
+
+        // Corrupt the payload of a record of the indexed segment, scanning the
+        // segment would detect it, while loading the segment index doesn't read it
+        File firstSegment = new File(logDir, "0.log");
+        byte[] payload = "Payload".getBytes();
+        byte[] segmentBytes = FileUtils.readFileToByteArray(firstSegment);
+        int payloadOffset = indexOf(segmentBytes, payload);
+        assertThat(payloadOffset).isPositive();
+        try (RandomAccessFile file = new RandomAccessFile(firstSegment, "rw")) {
+            file.seek(payloadOffset);
+            file.write(new byte[payload.length]);
+        }
+
+        log = new StreamLogFiles(sc, false);
+        final long lastStreamAddress = StreamLogFiles.RECORDS_PER_LOG_FILE;
+        assertThat(log.getTails().getLogTail()).isEqualTo(numEntries - 1);
+        assertThat(log.getTails().getStreamTails()).containsEntry(streamId, lastStreamAddress);
+        assertThat(log.getStreamAddresses(streamId, 0, lastStreamAddress,
+                Integer.MAX_VALUE))
+                .hasSize(numEntries / 2 + 1);
+        log.close();
+
+        // Without the index, the segment is scanned
+        assertThat(new File(logDir, StreamLogFiles.getIndexFilePath("0.log")).delete()).isTrue();
+        assertThatThrownBy(() -> new StreamLogFiles(sc, false))
+                .isInstanceOf(DataCorruptionException.class);
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, i, i + pattern.length), pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     @Test
     public void testRangeWriteTrim() throws Exception {
         StreamLog log = new StreamLogFiles(getContext(), false);
@@ -543,7 +739,8 @@ public class StreamLogFilesTest extends AbstractCorfuTest {
 
         // Write 50 segments and trim the first 25
         final long numSegments = 50;
-        final long filesPerSegment = 3;
+        // log, trimmed, pending and index files
+        final long filesPerSegment = 4;
         for(long x = 0; x < numSegments * StreamLogFiles.RECORDS_PER_LOG_FILE; x++) {
             writeToLog(log, x);
         }
@@ -578,10 +775,12 @@ public class StreamLogFilesTest extends AbstractCorfuTest {
             String logFile = Long.toString(x) + ".log";
             String trimmedLogFile = StreamLogFiles.getTrimmedFilePath(logFile);
             String pendingLogFile = StreamLogFiles.getPendingTrimsFilePath(logFile);
+            String indexFile = StreamLogFiles.getIndexFilePath(logFile);
 
             assertThat(fileNames).contains(logFile);
             assertThat(fileNames).contains(trimmedLogFile);
             assertThat(fileNames).contains(pendingLogFile);
+            assertThat(fileNames).contains(indexFile);
         }
 
         // Try to trim an address that is less than the new starting address
@@ -642,7 +841,7 @@ public class StreamLogFilesTest extends AbstractCorfuTest {
         log.compact();
 
         File logs = new File(logDir);
-        final int lastTwoSegmentsFiles = 3 * 2;
+        final int lastTwoSegmentsFiles = 4 * 2;
         assertThat(logs.list()).hasSize(lastTwoSegmentsFiles);
     }
 
@@ -665,7 +864,7 @@ public class StreamLogFilesTest extends AbstractCorfuTest {
 
         File logsDir = new File(logDir);
 
-        final int expectedFilesBeforeReset = (int) ((numSegments - filesToBeTrimmed) * 3);
+        final int expectedFilesBeforeReset = (int) ((numSegments - filesToBeTrimmed) * 4);
         final long globalTailBeforeReset = (RECORDS_PER_LOG_FILE * numSegments) - 1;
         final long trimMarkBeforeReset = (RECORDS_PER_LOG_FILE * (filesToBeTrimmed + 1)) + 1;
         assertThat(logsDir.list()).hasSize(expectedFilesBeforeReset);
@@ -0,0 +1,70 @@
+package org.corfudb.protocols.logprotocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.CorfuRuntime.CorfuRuntimeParameters;
+import org.corfudb.runtime.object.SMRMethodIds;
+import org.corfudb.util.serializer.Serializers;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SMREntryTest {
+
+    @Test
+    public void methodIsLoggedAsName() {
+        final String method = "put";
+        SMREntry entry = new SMREntry(method, new Object[]{"key", "value"},
+                Serializers.JSON);
+        ByteBuf b = Unpooled.buffer();
+        entry.serialize(b);
+        // The type of the entry, then the length of the method name
+        assertThat(b.getShort(1)).isEqualTo((short) method.length());
+
+        SMREntry deserialized = (SMREntry) LogEntry.deserialize(b, null);
+        assertThat(deserialized.getSMRMethod()).isEqualTo(method);
+        assertThat(deserialized.getSMRMethodId()).isEqualTo(SMRMethodIds.getId(method));
+        assertThat(deserialized.getSMRArguments()).containsExactly("key", "value");
+    }
+
+    @Test
+    public void methodIsLoggedAsIdWhenEnabled() {
+        CorfuRuntime runtime = CorfuRuntime.fromParameters(CorfuRuntimeParameters.builder()
+                .smrMethodIdsEnabled(true)
+                .build());
+        try {
+            final String method = "put";
+            SMREntry entry = new SMREntry(method, new Object[]{"key", "value"},
+                    Serializers.JSON);
+            entry.setRuntime(runtime);
+            ByteBuf b = Unpooled.buffer();
+            entry.serialize(b);
+            // The type of the entry, then the method id flagged by the sign bit
+            assertThat(b.getInt(1)).isEqualTo(SMRMethodIds.getId(method) | Integer.MIN_VALUE);
+
+            SMREntry deserialized = (SMREntry) LogEntry.deserialize(b, null);
+            assertThat(deserialized.getSMRMethodId()).isEqualTo(SMRMethodIds.getId(method));
+            assertThat(deserialized.getSMRMethod()).isEqualTo(method);
+            assertThat(deserialized.getSMRArguments()).containsExactly("key", "value");
+        } finally {
+            runtime.shutdown();
+        }
+    }
+
+    @Test
+    public void canReadEntriesWithMethodNames() {
+        final String method = "legacyMethod";
+        ByteBuf b = Unpooled.buffer();
+        b.writeByte(LogEntry.LogEntryType.SMR.asByte());
+        b.writeShort(method.length());
+        b.writeBytes(method.getBytes());
+        b.writeByte(Serializers.JSON.getType());
+        b.writeByte(0);
+
+        SMREntry deserialized = (SMREntry) LogEntry.deserialize(b, null);
+        assertThat(deserialized.getSMRMethod()).isEqualTo(method);
+        assertThat(deserialized.getSMRMethodId()).isEqualTo(SMRMethodIds.getId(method));
+        assertThat(deserialized.getSMRArguments()).isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package org.corfudb.protocols.wireprotocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.corfudb.util.serializer.Serializers;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PayloadCodecTest {
+
+    private static final int PAYLOAD_SIZE = 4096;
+
+    private byte[] getCompressiblePayload() {
+        byte[] payload = new byte[PAYLOAD_SIZE];
+        Arrays.fill(payload, (byte) 'a');
+        return payload;
+    }
+
+    @Test
+    public void deflateRoundTrip() {
+        byte[] payload = getCompressiblePayload();
+        byte[] encoded = PayloadCodec.DEFLATE.compress(payload);
+
+        assertThat(encoded.length).isLessThan(payload.length);
+        assertThat(PayloadCodec.DEFLATE.decompress(encoded)).isEqualTo(payload);
+        assertThat(PayloadCodec.DEFLATE.decompress(PayloadCodec.DEFLATE.compress(new byte[0])))
+                .isEmpty();
+    }
+
+    @Test
+    public void logDataIsDecompressedOnRead() {
+        byte[] payload = getCompressiblePayload();
+        LogData ld = new LogData(DataType.DATA, payload);
+        ld.encodePayload(PayloadCodec.DEFLATE);
+
+        ByteBuf buf = Unpooled.buffer();
+        ld.doSerialize(buf);
+        LogData read = new LogData(buf);
+
+        assertThat(read.getPayloadCodec()).isEqualTo(PayloadCodec.DEFLATE);
+        assertThat(read.getData().length).isLessThan(PAYLOAD_SIZE);
+        assertThat(read.getPayload(null)).isEqualTo(payload);
+    }
+
+    @Test
+    public void logDataIsCompressedOnce() {
+        LogData ld = new LogData(DataType.DATA, getCompressiblePayload());
+        ld.encodePayload(PayloadCodec.DEFLATE);
+
+        // The codec is set when the entry is built, and the encoded payload is kept
+        assertThat(ld.getPayloadCodec()).isEqualTo(PayloadCodec.DEFLATE);
+        byte[] encoded = ld.getData();
+        assertThat(encoded.length).isLessThan(PAYLOAD_SIZE);
+
+        ByteBuf first = Unpooled.buffer();
+        ld.doSerialize(first);
+        ByteBuf second = Unpooled.buffer();
+        ld.doSerialize(second);
+        assertThat(ld.getData()).isSameAs(encoded);
+        assertThat(first).isEqualTo(second);
+    }
+
+    @Test
+    public void smallLogDataIsNotCompressed() {
+        byte[] payload = "Payload".getBytes();
+        LogData ld = new LogData(DataType.DATA, payload);
+        ld.encodePayload(PayloadCodec.DEFLATE);
+
+        ByteBuf buf = Unpooled.buffer();
+        ld.doSerialize(buf);
+        LogData read = new LogData(buf);
+
+        assertThat(read.getPayloadCodec()).isEqualTo(PayloadCodec.NONE);
+        assertThat(read.getPayload(null)).isEqualTo(payload);
+    }
+
+    @Test
+    public void handshakeNegotiatesKnownCodecs() {
+        ByteBuf buf = Unpooled.buffer();
+        new HandshakeMsg(UUID.randomUUID(), UUID.randomUUID(), PayloadCodec.SUPPORTED)
+                .doSerialize(buf);
+        assertThat(new HandshakeMsg(buf).getPayloadCodecs())
+                .isEqualTo(PayloadCodec.SUPPORTED);
+
+        // A handshake from a client which predates payload codecs
+        buf = Unpooled.buffer();
+        ICorfuPayload.serialize(buf, UUID.randomUUID());
+        ICorfuPayload.serialize(buf, UUID.randomUUID());
+        assertThat(new HandshakeMsg(buf).getPayloadCodecs())
+                .isEqualTo(EnumSet.of(PayloadCodec.NONE));
+    }
+}
@@ -0,0 +1,53 @@
+package org.corfudb.protocols.wireprotocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TxResolutionInfoTest {
+
+    private static final int NUM_FINGERPRINTS = 1000;
+
+    @Test
+    public void fingerprintsArePacked() {
+        UUID streamA = UUID.randomUUID();
+        UUID streamB = UUID.randomUUID();
+        long[] fingerprints = new long[NUM_FINGERPRINTS];
+        for (int i = 0; i < fingerprints.length; i++) {
+            fingerprints[i] = i * Long.MAX_VALUE / NUM_FINGERPRINTS;
+        }
+        Map<UUID, long[]> conflictSet = new HashMap<>();
+        conflictSet.put(streamA, fingerprints);
+        // A conflict on the whole stream
+        conflictSet.put(streamB, new long[0]);
+        Map<UUID, long[]> writeConflictParams =
+                Collections.singletonMap(streamA, new long[]{fingerprints[0]});
+
+        TxResolutionInfo txInfo = new TxResolutionInfo(UUID.randomUUID(), new Token(1L, 2L),
+                conflictSet, writeConflictParams);
+        ByteBuf buf = Unpooled.buffer();
+        txInfo.doSerialize(buf);
+
+        // Each fingerprint takes exactly a long on the wire
+        final int streamEntrySize = 2 * Long.BYTES + Integer.BYTES;
+        final int headerSize = 2 * Long.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+        assertThat(buf.readableBytes()).isEqualTo(headerSize + 3 * streamEntrySize
+                + (NUM_FINGERPRINTS + 1) * Long.BYTES);
+
+        TxResolutionInfo deserialized = new TxResolutionInfo(buf);
+        assertThat(deserialized.getTXid()).isEqualTo(txInfo.getTXid());
+        assertThat(deserialized.getSnapshotTimestamp()).isEqualTo(new Token(1L, 2L));
+        assertThat(deserialized.getConflictSet()).containsOnlyKeys(streamA, streamB);
+        assertThat(deserialized.getConflictSet().get(streamA)).containsExactly(fingerprints);
+        assertThat(deserialized.getConflictSet().get(streamB)).isEmpty();
+        assertThat(deserialized.getWriteConflictParams().get(streamA))
+                .containsExactly(fingerprints[0]);
+    }
+}
@@ -248,6 +248,32 @@ public class FastObjectLoaderTest extends AbstractViewTest {
         assertThatObjectCacheIsTheSameSize(getDefaultRuntime(), rt2);
     }
 
+    /**
+     * Load checkpoints and entries of several streams with more pending reads and
+     * apply workers than streams, the updates of each stream must still be applied in order.
+     */
+    @Test
+    public void canLoadWithParallelReadsAndApplyWorkers() throws Exception {
+        populateMaps(MORE, getDefaultRuntime(), CorfuTable.class, true, SOME);
+        checkPointAll(getDefaultRuntime());
+
+        // Clear are interesting because if applied in wrong order the map might end up wrong
+        clearAllMaps();
+        populateMaps(MORE, getDefaultRuntime(), CorfuTable.class, false, SOME);
+
+        CorfuRuntime rt2 = getNewRuntime(getDefaultNode())
+                .connect();
+        FastObjectLoader fsm = new FastObjectLoader(rt2)
+                .setBatchReadSize(2)
+                .setNumberOfPendingReads(MORE)
+                .setNumberOfApplyWorkers(SOME)
+                .setDefaultObjectsType(CorfuTable.class);
+        fsm.loadMaps();
+
+        assertThatMapsAreBuilt(rt2);
+        assertThatObjectCacheIsTheSameSize(getDefaultRuntime(), rt2);
+    }
+
     @Test
     public void canReadCheckpointWithoutTrim() throws Exception {
         populateMaps(1, getDefaultRuntime(), CorfuTable.class, true, MORE);
@@ -33,6 +33,7 @@ import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.protocols.wireprotocol.IMetadata;
 import org.corfudb.protocols.wireprotocol.LogData;
 import org.corfudb.protocols.wireprotocol.ReadResponse;
+import org.corfudb.protocols.wireprotocol.StreamAddressResponse;
 import org.corfudb.protocols.wireprotocol.Token;
 import org.corfudb.runtime.CorfuRuntime;
 import org.corfudb.runtime.CorfuRuntime.CorfuRuntimeParameters;
@@ -41,6 +42,7 @@ import org.corfudb.runtime.exceptions.DataOutrankedException;
 import org.corfudb.runtime.exceptions.OverwriteCause;
 import org.corfudb.runtime.exceptions.OverwriteException;
 import org.corfudb.runtime.exceptions.ValueAdoptedException;
+import org.corfudb.runtime.view.Address;
 import org.corfudb.util.serializer.Serializers;
 import org.junit.Test;
 
@@ -346,6 +348,97 @@ public class LogUnitHandlerTest extends AbstractClientTest {
                 .has(conditionOverwrite);
     }
 
+    @Test
+    public void contiguousTailSkipsGaps() throws Exception {
+        byte[] testString = "hello world".getBytes();
+        final long address0 = 0;
+        final long address1 = 1;
+        final long address2 = 2;
+        final long address3 = 3;
+        assertThat(client.getContiguousTail().get()).isEqualTo(Address.NON_ADDRESS);
+
+        client.write(address0, Collections.<UUID>emptySet(), null, testString, Collections.emptyMap()).get();
+        client.write(address1, Collections.<UUID>emptySet(), null, testString, Collections.emptyMap()).get();
+        client.write(address3, Collections.<UUID>emptySet(), null, testString, Collections.emptyMap()).get();
+        assertThat(client.getContiguousTail().get()).isEqualTo(address1);
+
+        // A hole fill closes the gap
+        client.fillHole(new Token(0L, address2)).get();
+        assertThat(client.getContiguousTail().get()).isEqualTo(address3);
+
+        // "Restart" the logging unit, the contiguous tail is recovered from the log
+        LogUnitServer server2 = new LogUnitServer(serverContext);
+        serverRouter.reset();
+        serverRouter.addServer(server2);
+        assertThat(client.getContiguousTail().get()).isEqualTo(address3);
+    }
+
+    @Test
+    public void contiguousTailAdvancesPastTrimmedGap() throws Exception {
+        byte[] testString = "hello world".getBytes();
+        final long address0 = 0;
+        final long address1 = 1;
+        final long address2 = 2;
+        final long address3 = 3;
+
+        client.write(address0, Collections.<UUID>emptySet(), null, testString, Collections.emptyMap()).get();
+        client.write(address2, Collections.<UUID>emptySet(), null, testString, Collections.emptyMap()).get();
+        client.write(address3, Collections.<UUID>emptySet(), null, testString, Collections.emptyMap()).get();
+        assertThat(client.getContiguousTail().get()).isEqualTo(address0);
+
+        // Trimming the gap at address1 advances past the writes which completed above it
+        client.prefixTrim(new Token(0L, address1)).get();
+        assertThat(client.getContiguousTail().get()).isEqualTo(address3);
+    }
+
+    @Test
+    public void streamAddressesAreIndexed() throws Exception {
+        byte[] testString = "hello world".getBytes();
+        final UUID streamA = CorfuRuntime.getStreamID("a");
+        final UUID streamB = CorfuRuntime.getStreamID("b");
+        final long address0 = 0;
+        final long address1 = 1;
+        final long address2 = 2;
+        final long address3 = 3;
+        final long address4 = 4;
+        final long end = 10;
+
+        client.write(address0, Collections.singleton(streamA), null, testString,
+                Collections.singletonMap(streamA, Address.NON_EXIST)).get();
+        client.write(address1, Collections.singleton(streamB), null, testString,
+                Collections.singletonMap(streamB, Address.NON_EXIST)).get();
+        client.write(address2, Collections.singleton(streamA), null, testString,
+                Collections.singletonMap(streamA, Address.NON_EXIST)).get();
+        client.write(address4, Collections.singleton(streamA), null, testString,
+                Collections.singletonMap(streamA, Address.NON_EXIST)).get();
+
+        // The range is only resolved up to the first gap
+        StreamAddressResponse response = client.getStreamAddresses(streamA, address0, end).get();
+        assertThat(response.getResolvedTail()).isEqualTo(address2);
+        assertThat(response.getAddresses()).containsExactly(address0, address2);
+
+        client.fillHole(new Token(0L, address3)).get();
+        response = client.getStreamAddresses(streamA, address1, end).get();
+        assertThat(response.getResolvedTail()).isEqualTo(address4);
+        assertThat(response.getAddresses()).containsExactly(address2, address4);
+        assertThat(client.getStreamAddresses(streamB, address0, end).get().getAddresses())
+                .containsExactly(address1);
+
+        // "Restart" the logging unit, the index is rebuilt from the log
+        LogUnitServer server2 = new LogUnitServer(serverContext);
+        serverRouter.reset();
+        serverRouter.addServer(server2);
+        response = client.getStreamAddresses(streamA, address0, end).get();
+        assertThat(response.getResolvedTail()).isEqualTo(address4);
+        assertThat(response.getAddresses()).containsExactly(address0, address2, address4);
+
+        // Trimmed addresses are dropped from the index
+        client.prefixTrim(new Token(0L, address0)).get();
+        response = client.getStreamAddresses(streamA, address0, end).get();
+        assertThat(response.getTrimMark()).isEqualTo(address1);
+        assertThat(response.getAddresses()).containsExactly(address2, address4);
+    }
+
     @Test
     public void multiReadTest() throws Exception {
         byte[] payload = "payload".getBytes();
@@ -442,7 +535,7 @@ public class LogUnitHandlerTest extends AbstractClientTest {
         LogData ld = getLogDataWithoutId(address);
 
         ld.setId(clientId1);
-        client.write(ld);
+        client.write(ld).get();
 
         LogData ldPrime = client.read(address).get().getAddresses().get(address);
 
@@ -467,7 +560,7 @@ public class LogUnitHandlerTest extends AbstractClientTest {
 
         // Set clientId from another thread
         t1(() -> ldOtherThread.setId(clientId1));
-        client.write(ldOtherThread);
+        client.write(ldOtherThread).get();
 
         LogData ldPrime = client.read(address).get().getAddresses().get(address);
         assertThat(ldThisThread).isNotEqualTo(ldPrime);
@@ -489,7 +582,7 @@ public class LogUnitHandlerTest extends AbstractClientTest {
         ldOne.setId(clientId1);
         ldTwo.setId(clientId2);
 
-        client.write(ldOne);
+        client.write(ldOne).get();
 
         LogData ldRead = client.read(address).get().getAddresses().get(address);
         assertThat(ldRead).isEqualTo(ldOne);
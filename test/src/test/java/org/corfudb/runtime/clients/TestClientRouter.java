@@ -11,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.corfudb.infrastructure.TestServerRouter;
 import org.corfudb.protocols.wireprotocol.CorfuMsg;
 import org.corfudb.protocols.wireprotocol.CorfuMsgType;
+import org.corfudb.protocols.wireprotocol.PayloadCodec;
 import org.corfudb.runtime.CorfuRuntime;
 import org.corfudb.runtime.exceptions.NetworkException;
 import org.corfudb.util.CFUtils;
@@ -24,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -356,6 +358,14 @@ public class TestClientRouter implements IClientRouter {
         //TODO - pause pipeline
     }
 
+    /**
+     * Test servers run the same version, and accept every codec.
+     */
+    @Override
+    public Set<PayloadCodec> getPayloadCodecs() {
+        return PayloadCodec.SUPPORTED;
+    }
+
     public CorfuMsg simulateSerialization(CorfuMsg message) {
         /* simulate serialization/deserialization */
         ByteBuf oBuf = Unpooled.buffer();
@@ -1,12 +1,18 @@
 package org.corfudb.runtime.collections;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Streams;
 import com.google.common.reflect.TypeToken;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.assertj.core.data.MapEntry;
 import org.corfudb.runtime.view.AbstractViewTest;
@@ -181,4 +187,167 @@ public class CorfuTableTest extends AbstractViewTest {
                 .containsExactly("a");
     }
 
+    /**
+     * A table backed by a persistent map hands out snapshots which are not
+     * modified by later updates, and undoes aborted updates.
+     */
+    @Test
+    public void persistentTableSnapshots() {
+        CorfuTable<String, String>
+                corfuTable = getDefaultRuntime().getObjectsView().build()
+                .setTypeToken(CorfuTable.<String, String>getTableType())
+                .setArguments(new StringIndexer(), true)
+                .setStreamName("test")
+                .open();
+
+        corfuTable.put("k1", "a");
+        corfuTable.put("k2", "ab");
+        corfuTable.put("k3", "b");
+
+        Map<String, String> snapshot = corfuTable.snapshot();
+        corfuTable.put("k4", "ac");
+        corfuTable.remove("k1");
+
+        assertThat(snapshot)
+                .containsOnly(MapEntry.entry("k1", "a"),
+                        MapEntry.entry("k2", "ab"),
+                        MapEntry.entry("k3", "b"));
+        assertThat(corfuTable.scanAndFilter(v -> v.startsWith("a")))
+                .containsExactlyInAnyOrder("ab", "ac");
+        assertThat(corfuTable.entryStream().map(Map.Entry::getKey))
+                .containsExactlyInAnyOrder("k2", "k3", "k4");
+        assertThat(project(corfuTable.getByIndex(StringIndexer.BY_FIRST_LETTER, "a")))
+                .containsExactlyInAnyOrder("ab", "ac");
+
+        getDefaultRuntime().getObjectsView().TXBegin();
+        corfuTable.put("k2", "b");
+        corfuTable.remove("k3");
+        getDefaultRuntime().getObjectsView().TXAbort();
+
+        assertThat(corfuTable.snapshot())
+                .containsOnly(MapEntry.entry("k2", "ab"),
+                        MapEntry.entry("k3", "b"),
+                        MapEntry.entry("k4", "ac"));
+    }
+
+    /**
+     * Ordered indexes answer range, prefix and top-N queries in index order,
+     * and are maintained by updates and their undo.
+     */
+    @Test
+    public void canReadFromOrderedIndex() {
+        CorfuTable<String, String>
+                corfuTable = getDefaultRuntime().getObjectsView().build()
+                .setTypeToken(CorfuTable.<String, String>getTableType())
+                .setArguments(new OrderedStringIndexer())
+                .setStreamName("test")
+                .open();
+
+        corfuTable.put("k1", "ba");
+        corfuTable.put("k2", "ab");
+        corfuTable.put("k3", "bb");
+        corfuTable.put("k4", "c");
+        corfuTable.put("k5", "a");
+
+        assertThat(project(corfuTable.getByIndexRange(OrderedStringIndexer.BY_ORDERED_VALUE, "ab", "c")))
+                .containsExactly("ab", "ba", "bb");
+        assertThat(project(corfuTable.getByIndexRange(OrderedStringIndexer.BY_ORDERED_VALUE, null, "b")))
+                .containsExactly("a", "ab");
+        assertThat(project(corfuTable.getByIndexRange(OrderedStringIndexer.BY_ORDERED_VALUE, "bb", null)))
+                .containsExactly("bb", "c");
+        assertThat(project(corfuTable.getByIndexPrefix(OrderedStringIndexer.BY_ORDERED_VALUE, "b")))
+                .containsExactly("ba", "bb");
+        assertThat(project(corfuTable.getByIndexTop(OrderedStringIndexer.BY_ORDERED_VALUE, 2)))
+                .containsExactly("c", "bb");
+
+        corfuTable.remove("k3");
+        corfuTable.putAll(ImmutableMap.of("k6", "bc", "k4", "aa"));
+        assertThat(project(corfuTable.getByIndexRange(OrderedStringIndexer.BY_ORDERED_VALUE, null, null)))
+                .containsExactly("a", "aa", "ab", "ba", "bc");
+
+        getDefaultRuntime().getObjectsView().TXBegin();
+        corfuTable.put("k6", "d");
+        corfuTable.remove("k5");
+        getDefaultRuntime().getObjectsView().TXAbort();
+        assertThat(project(corfuTable.getByIndexTop(OrderedStringIndexer.BY_ORDERED_VALUE, 1)))
+                .containsExactly("bc");
+        assertThat(project(corfuTable.getByIndexPrefix(OrderedStringIndexer.BY_ORDERED_VALUE, "a")))
+                .containsExactly("a", "aa", "ab");
+
+        assertThatThrownBy(() -> corfuTable.getByIndexTop(OrderedStringIndexer.BY_VALUE, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Prefixes are only looked up in ordered indexes of strings
+        assertThat(project(corfuTable.getByIndexTop(OrderedStringIndexer.BY_LENGTH, 1)))
+                .hasSize(1);
+        assertThatThrownBy(() -> corfuTable.getByIndexPrefix(OrderedStringIndexer.BY_LENGTH, "a"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Indexes values by value, and orders the values which aren't "-".
+     */
+    static class PartiallyOrderedIndexer implements CorfuTable.IndexRegistry<String, String> {
+
+        static final CorfuTable.IndexName BY_SOME_VALUES = () -> "BY_SOME_VALUES";
+
+        private static final CorfuTable.Index<String, String, ? extends Comparable<?>> BY_SOME_VALUES_INDEX =
+                new CorfuTable.Index<>(BY_SOME_VALUES,
+                        (CorfuTable.IndexFunction<String, String, String>) (key, val) ->
+                                val.equals("-") ? null : val,
+                        String.class);
+
+        private final StringIndexer stringIndexer = new StringIndexer();
+
+        @Override
+        public Iterator<CorfuTable.Index<String, String, ? extends Comparable<?>>> iterator() {
+            return Stream.concat(Streams.stream(stringIndexer), Stream.of(BY_SOME_VALUES_INDEX))
+                    .iterator();
+        }
+
+        @Override
+        public Optional<CorfuTable.Index<String, String, ? extends Comparable<?>>> get(CorfuTable.IndexName name) {
+            if (name != null && BY_SOME_VALUES.get().equals(name.get())) {
+                return Optional.of(BY_SOME_VALUES_INDEX);
+            }
+            return stringIndexer.get(name);
+        }
+    }
+
+    @Test
+    public void orderedIndexSkipsNullValues() {
+        CorfuTable<String, String>
+                corfuTable = getDefaultRuntime().getObjectsView().build()
+                .setTypeToken(CorfuTable.<String, String>getTableType())
+                .setArguments(new PartiallyOrderedIndexer())
+                .setStreamName("test")
+                .open();
+
+        corfuTable.put("k1", "b");
+        corfuTable.put("k2", "-");
+        corfuTable.put("k3", "a");
+
+        assertThat(project(corfuTable.getByIndexRange(PartiallyOrderedIndexer.BY_SOME_VALUES, null, null)))
+                .containsExactly("a", "b");
+        assertThat(corfuTable.getByIndex(PartiallyOrderedIndexer.BY_SOME_VALUES, null)).isEmpty();
+        assertThat(project(corfuTable.getByIndex(StringIndexer.BY_VALUE, "-")))
+                .containsExactly("-");
+
+        // Unmapping the row without an index value doesn't fail either
+        corfuTable.put("k2", "c");
+        corfuTable.remove("k1");
+        assertThat(project(corfuTable.getByIndexRange(PartiallyOrderedIndexer.BY_SOME_VALUES, null, null)))
+                .containsExactly("a", "c");
+        assertThat(project(corfuTable.getByIndex(StringIndexer.BY_FIRST_LETTER, "c")))
+                .containsExactly("c");
+    }
+
+    @Test
+    public void orderedIndexNeedsComparableValues() {
+        assertThatThrownBy(() -> new CorfuTable.Index<String, String, Comparable>(
+                OrderedStringIndexer.BY_ORDERED_VALUE,
+                (CorfuTable.IndexFunction<String, String, Comparable>) (key, val) -> val,
+                Comparable.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -0,0 +1,53 @@
+package org.corfudb.runtime.collections;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Indexes strings by value, with a hash index and an ordered index, and orders them by length.
+ */
+public class OrderedStringIndexer implements CorfuTable.IndexRegistry<String, String> {
+
+    public static final CorfuTable.IndexName BY_VALUE = () -> "BY_VALUE";
+    public static final CorfuTable.IndexName BY_ORDERED_VALUE = () -> "BY_ORDERED_VALUE";
+    public static final CorfuTable.IndexName BY_LENGTH = () -> "BY_LENGTH";
+
+    private static final CorfuTable.Index<String, String, ? extends Comparable<?>> BY_VALUE_INDEX =
+            new CorfuTable.Index<>(
+                                   BY_VALUE,
+                                   (CorfuTable.IndexFunction<String, String, String>) (key, val) -> val);
+
+    private static final CorfuTable.Index<String, String, ? extends Comparable<?>> BY_ORDERED_VALUE_INDEX =
+            new CorfuTable.Index<>(
+                                   BY_ORDERED_VALUE,
+                                   (CorfuTable.IndexFunction<String, String, String>) (key, val) -> val,
+                                   String.class);
+
+    private static final CorfuTable.Index<String, String, ? extends Comparable<?>> BY_LENGTH_INDEX =
+            new CorfuTable.Index<>(
+                                   BY_LENGTH,
+                                   (CorfuTable.IndexFunction<String, String, Integer>) (key, val) -> val.length(),
+                                   Integer.class);
+
+    @Override
+    public Iterator<CorfuTable.Index<String, String, ? extends Comparable<?>>> iterator() {
+        return Stream.of(BY_VALUE_INDEX, BY_ORDERED_VALUE_INDEX, BY_LENGTH_INDEX).iterator();
+    }
+
+    @Override
+    public Optional<CorfuTable.Index<String, String, ? extends Comparable<?>>> get(CorfuTable.IndexName name) {
+        String indexName = (name != null)? name.get() : null;
+
+        if (BY_VALUE.get().equals(indexName)) {
+            return Optional.of(BY_VALUE_INDEX);
+        } else if (BY_ORDERED_VALUE.get().equals(indexName)) {
+            return Optional.of(BY_ORDERED_VALUE_INDEX);
+        } else if (BY_LENGTH.get().equals(indexName)) {
+            return Optional.of(BY_LENGTH_INDEX);
+        } else {
+            return Optional.empty();
+        }
+    }
+
+}
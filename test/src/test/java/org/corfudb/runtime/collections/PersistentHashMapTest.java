@@ -0,0 +1,124 @@
+package org.corfudb.runtime.collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.corfudb.AbstractCorfuTest;
+import org.junit.Test;
+
+public class PersistentHashMapTest extends AbstractCorfuTest {
+
+    /**
+     * A key with a small hash space, so that keys collide.
+     */
+    private static final class CollidingKey {
+        private final int id;
+
+        CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            final int hashes = 16;
+            return id % hashes;
+        }
+
+        @Override
+        public String toString() {
+            return "key" + id;
+        }
+    }
+
+    @Test
+    public void matchesHashMap() {
+        final int operations = 10_000;
+        final int keys = 2_000;
+        final int removeOneIn = 3;
+        Random random = new Random(0L);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+
+        for (int i = 0; i < operations; i++) {
+            Integer key = random.nextInt(keys);
+            if (random.nextInt(removeOneIn) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+
+        assertThat(map).isEqualTo(expected);
+        assertThat(map.size()).isEqualTo(expected.size());
+        assertThat(new HashMap<>(map)).isEqualTo(expected);
+        for (int key = 0; key < keys; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+            assertThat(map.containsKey(key)).isEqualTo(expected.containsKey(key));
+        }
+    }
+
+    @Test
+    public void collidingKeys() {
+        final int keys = 200;
+        PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < keys; i++) {
+            map = map.plus(new CollidingKey(i), i);
+        }
+        assertThat(map).hasSize(keys);
+
+        for (int i = 0; i < keys; i += 2) {
+            map = map.minus(new CollidingKey(i));
+        }
+        assertThat(map).hasSize(keys / 2);
+        for (int i = 0; i < keys; i++) {
+            assertThat(map.get(new CollidingKey(i))).isEqualTo(i % 2 == 0 ? null : i);
+        }
+
+        for (int i = 1; i < keys; i += 2) {
+            map = map.minus(new CollidingKey(i));
+        }
+        assertThat(map).isEmpty();
+        assertThat(map.entrySet()).isEmpty();
+    }
+
+    @Test
+    public void versionsAreNotModified() {
+        final int keys = 100;
+        List<PersistentHashMap<Integer, Integer>> versions = new ArrayList<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < keys; i++) {
+            versions.add(map);
+            map = map.plus(i, i);
+        }
+        for (int i = 0; i < keys; i++) {
+            versions.add(map);
+            map = map.minus(i);
+        }
+
+        for (int v = 0; v < keys; v++) {
+            assertThat(versions.get(v)).hasSize(v);
+            assertThat(versions.get(keys + v)).hasSize(keys - v);
+            assertThat(versions.get(keys + v).containsKey(v)).isTrue();
+            assertThat(versions.get(v).containsKey(v)).isFalse();
+        }
+
+        PersistentHashMap<Integer, Integer> last = versions.get(keys);
+        assertThat(last.plus(0, 0)).isSameAs(last);
+        assertThat(last.minus(keys)).isSameAs(last);
+        assertThatThrownBy(() -> last.put(keys, keys))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
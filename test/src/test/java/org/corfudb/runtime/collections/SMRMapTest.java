@@ -6,6 +6,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.reflect.TypeToken;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -26,6 +27,8 @@ import org.corfudb.runtime.exceptions.TransactionAbortedException;
 import org.corfudb.runtime.object.ICorfuSMR;
 import org.corfudb.runtime.view.AbstractViewTest;
 import org.corfudb.runtime.view.ObjectOpenOptions;
+import org.corfudb.util.NodeLocator;
+import org.corfudb.util.serializer.ClassRegistry;
 import org.corfudb.util.serializer.Serializers;
 import org.junit.Before;
 import org.junit.Test;
@@ -90,6 +93,78 @@ public class SMRMapTest extends AbstractViewTest {
                 .isEqualTo(PRIMITIVE_2);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void canReadWriteToSingleCompact()
+            throws Exception {
+        Map<Long, TestObject> testMap = getRuntime()
+                .getObjectsView()
+                .build()
+                .setStreamName("test")
+                .setSerializer(Serializers.COMPACT)
+                .setTypeToken(new TypeToken<SMRMap<Long, TestObject>>() {})
+                .open();
+
+        TestObject value = new TestObject("A", 2, ImmutableMap.of("A", "B"));
+        assertThat(testMap.put(1L, value))
+                .isNull();
+
+        // Another runtime reads the entry from the log, and resolves the class by its id
+        CorfuRuntime rt2 = getNewRuntime(getDefaultNode()).connect();
+        Map<Long, TestObject> testMap2 = rt2
+                .getObjectsView()
+                .build()
+                .setStreamName("test")
+                .setSerializer(Serializers.COMPACT)
+                .setTypeToken(new TypeToken<SMRMap<Long, TestObject>>() {})
+                .open();
+
+        assertThat(testMap2.get(1L))
+                .isEqualTo(value);
+        assertThat(rt2.getClassRegistry().getId(TestObject.class))
+                .isEqualTo(getRuntime().getClassRegistry().getId(TestObject.class));
+    }
+
+    private Map<Long, TestObject> openCompactMap(CorfuRuntime rt) {
+        return rt.getObjectsView()
+                .build()
+                .setStreamName("test")
+                .setSerializer(Serializers.COMPACT)
+                .setTypeToken(new TypeToken<SMRMap<Long, TestObject>>() {})
+                .open();
+    }
+
+    @Test
+    public void compactClassIdsAreResolvedPerCluster() {
+        // Two single node clusters, in which the class gets different ids
+        CorfuRuntime rtA = getDefaultRuntime();
+        addSingleServer(SERVERS.PORT_1);
+        NodeLocator nodeB = NodeLocator.builder()
+                .host("test")
+                .port(SERVERS.PORT_1)
+                .nodeId(getServer(SERVERS.PORT_1).serverContext.getNodeId())
+                .build();
+        CorfuRuntime rtB = getNewRuntime(nodeB).connect();
+        // Registrations don't block the writer, the class is written by name until then
+        assertThat(rtA.getClassRegistry().getId(Date.class)).isEqualTo(ClassRegistry.NO_ID);
+        rtA.getClassRegistry().register(Date.class).join();
+        assertThat(rtA.getClassRegistry().register(TestObject.class).join())
+                .isNotEqualTo(rtB.getClassRegistry().register(TestObject.class).join());
+        assertThat(rtA.getClassRegistry().getId(TestObject.class))
+                .isNotEqualTo(ClassRegistry.NO_ID);
+
+        TestObject valueA = new TestObject("A", 1, ImmutableMap.of("A", "A"));
+        TestObject valueB = new TestObject("B", 2, ImmutableMap.of("B", "B"));
+        openCompactMap(rtA).put(1L, valueA);
+        openCompactMap(rtB).put(1L, valueB);
+
+        // Each cluster resolves the ids of its own writer
+        assertThat(openCompactMap(getNewRuntime(getDefaultNode()).connect()).get(1L))
+                .isEqualTo(valueA);
+        assertThat(openCompactMap(getNewRuntime(nodeB).connect()).get(1L))
+                .isEqualTo(valueB);
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void canWriteScanAndFilterToSingle()
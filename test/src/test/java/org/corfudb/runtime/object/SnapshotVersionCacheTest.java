@@ -0,0 +1,85 @@
+package org.corfudb.runtime.object;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.reflect.TypeToken;
+import org.corfudb.protocols.wireprotocol.Token;
+import org.corfudb.runtime.collections.SMRMap;
+import org.corfudb.runtime.object.transactions.TransactionType;
+import org.junit.Test;
+
+public class SnapshotVersionCacheTest extends AbstractObjectTest {
+
+    private static final int NUM_VERSIONS = 4;
+
+    private final long[] versions = new long[NUM_VERSIONS];
+
+    private SMRMap<String, String> openMapWithVersions() {
+        @SuppressWarnings("unchecked")
+        SMRMap<String, String> map = (SMRMap<String, String>)
+                instantiateCorfuObject(new TypeToken<SMRMap<String, String>>() {}, "A");
+        for (int i = 0; i < NUM_VERSIONS; i++) {
+            map.put("k", "v" + i);
+            versions[i] = getRuntime().getSequencerView().query().getToken().getSequence();
+        }
+        return map;
+    }
+
+    private String getAt(SMRMap<String, String> map, long version) {
+        getRuntime().getObjectsView().TXBuild()
+                .type(TransactionType.SNAPSHOT)
+                .snapshot(new Token(getRuntime().getLayoutView().getLayout().getEpoch(),
+                        version))
+                .build()
+                .begin();
+        try {
+            return map.get("k");
+        } finally {
+            getRuntime().getObjectsView().TXEnd();
+        }
+    }
+
+    private SnapshotVersionCache<?> getSnapshotVersions(SMRMap<String, String> map) {
+        return ((ICorfuSMRProxyInternal<?>) ((ICorfuSMR<?>) map).getCorfuSMRProxy())
+                .getUnderlyingObject().getSnapshotVersions();
+    }
+
+    /**
+     * A new version is built from the closest retained version, so it doesn't read the
+     * log from its start, which is trimmed here.
+     */
+    @Test
+    public void newVersionsAreBuiltFromRetainedVersions() {
+        getDefaultRuntime().getParameters().setMaxSnapshotVersions(NUM_VERSIONS);
+        SMRMap<String, String> map = openMapWithVersions();
+        assertThat(getAt(map, versions[0])).isEqualTo("v0");
+
+        getRuntime().getAddressSpaceView().prefixTrim(
+                new Token(getRuntime().getLayoutView().getLayout().getEpoch(), versions[0]));
+        getRuntime().getAddressSpaceView().invalidateServerCaches();
+        getRuntime().getAddressSpaceView().invalidateClientCache();
+
+        assertThat(getAt(map, versions[2])).isEqualTo("v2");
+        assertThat(getSnapshotVersions(map).getReplicas()).hasSize(2);
+        // The version it was built from is unchanged
+        assertThat(getAt(map, versions[0])).isEqualTo("v0");
+        assertThat(getSnapshotVersions(map).getReplicas()).hasSize(2);
+    }
+
+    /**
+     * The retained versions are bounded by their estimated size.
+     */
+    @Test
+    public void versionsAreBoundedBySize() {
+        getDefaultRuntime().getParameters().setMaxSnapshotVersions(NUM_VERSIONS);
+        getRuntime().getParameters().setMaxSnapshotBytes(1L);
+        SMRMap<String, String> map = openMapWithVersions();
+
+        for (int i = 0; i < NUM_VERSIONS - 1; i++) {
+            assertThat(getAt(map, versions[i])).isEqualTo("v" + i);
+            assertThat(getSnapshotVersions(map).getReplicas()).hasSize(1);
+        }
+        assertThat(getAt(map, versions[0])).isEqualTo("v0");
+        assertThat(getSnapshotVersions(map).getReplicas()).hasSize(1);
+    }
+}
@@ -6,6 +6,8 @@ import com.google.common.reflect.TypeToken;
 import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import lombok.AllArgsConstructor;
@@ -452,6 +454,46 @@ public class OptimisticTransactionContextTest extends AbstractTransactionContext
                 .assertDoesNotThrow(TransactionAbortedException.class);
     }
 
+    /**
+     * Committing a transaction applies the write set to the objects it modified
+     * without reading the committed entry back from the log units, even when
+     * the runtime has no read cache.
+     */
+    @Test
+    public void commitDoesNotReadBackTheEntry() {
+        getDefaultRuntime();
+        CorfuRuntime rt = getNewRuntime(CorfuRuntime.CorfuRuntimeParameters.builder()
+                .cacheDisabled(true)
+                .build())
+                .parseConfigurationString(getDefaultConfigurationString())
+                .connect();
+
+        Map<String, String> map = rt.getObjectsView().build()
+                .setStreamName("test stream")
+                .setTypeToken(new TypeToken<SMRMap<String, String>>() {})
+                .open();
+
+        AtomicBoolean committing = new AtomicBoolean(false);
+        AtomicInteger reads = new AtomicInteger();
+        addClientRule(rt, new TestRule()
+                .matches(m -> {
+                    if (committing.get() && (m.getMsgType().equals(CorfuMsgType.READ_REQUEST)
+                            || m.getMsgType().equals(CorfuMsgType.MULTIPLE_READ_REQUEST))) {
+                        reads.incrementAndGet();
+                    }
+                    return false;
+                }));
+
+        rt.getObjectsView().TXBegin();
+        map.put("k1", "v1");
+        committing.set(true);
+        rt.getObjectsView().TXEnd();
+        committing.set(false);
+
+        assertThat(reads.get()).isZero();
+        assertThat(map).containsEntry("k1", "v1");
+    }
+
     /** In an optimistic transaction, we should be able to
      *  read our own writes in the same thread.
      */
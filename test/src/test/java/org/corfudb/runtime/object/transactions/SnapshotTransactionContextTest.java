@@ -1,9 +1,15 @@
 package org.corfudb.runtime.object.transactions;
 
 import com.google.common.reflect.TypeToken;
+import org.corfudb.protocols.wireprotocol.Token;
 import org.corfudb.runtime.collections.SMRMap;
+import org.corfudb.runtime.object.ICorfuSMR;
+import org.corfudb.runtime.object.ICorfuSMRProxyInternal;
+import org.corfudb.runtime.object.VersionLockedObject;
 import org.junit.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 /**
  * Created by mwei on 11/22/16.
  */
@@ -104,4 +110,52 @@ public class SnapshotTransactionContextTest extends AbstractTransactionContextTe
         t(0, this::TXEnd);
 
     }
+
+    /** Check that snapshots at distinct versions are read from retained
+     * versions, without rolling back the object.
+     */
+    @Test
+    public void snapshotsAreReadFromRetainedVersions() {
+        getRuntime().getParameters().setMaxSnapshotVersions(2);
+        SMRMap<String, String> map = (SMRMap<String, String>)
+                instantiateCorfuObject(
+                        new TypeToken<SMRMap<String, String>>() {
+                        },
+                        "A"
+                );
+        VersionLockedObject<?> vlo = ((ICorfuSMRProxyInternal<?>)
+                ((ICorfuSMR<?>) map).getCorfuSMRProxy()).getUnderlyingObject();
+
+        final int numVersions = 4;
+        long[] versions = new long[numVersions];
+        for (int i = 0; i < numVersions; i++) {
+            map.put("k", "v" + i);
+            versions[i] = getRuntime().getSequencerView().query().getToken().getSequence();
+        }
+        assertThat(map.get("k")).isEqualTo("v" + (numVersions - 1));
+        final long latest = vlo.getVersionUnsafe();
+
+        // Alternate between the snapshots, more of them than versions are retained
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < numVersions - 1; i++) {
+                getRuntime().getObjectsView().TXBuild()
+                        .type(TransactionType.SNAPSHOT)
+                        .snapshot(new Token(0L, versions[i]))
+                        .build()
+                        .begin();
+                assertThat(map.get("k")).isEqualTo("v" + i);
+                TXEnd();
+                assertThat(vlo.getVersionUnsafe()).isEqualTo(latest);
+            }
+        }
+
+        // The snapshot at the version of the object is read from the object
+        getRuntime().getObjectsView().TXBuild()
+                .type(TransactionType.SNAPSHOT)
+                .snapshot(new Token(0L, latest))
+                .build()
+                .begin();
+        assertThat(map.get("k")).isEqualTo("v" + (numVersions - 1));
+        TXEnd();
+    }
 }
@@ -8,6 +8,7 @@ import org.corfudb.infrastructure.LogUnitServerAssertions;
 import org.corfudb.infrastructure.TestLayoutBuilder;
 import org.corfudb.protocols.wireprotocol.*;
 import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.clients.TestRule;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -85,6 +86,26 @@ public class AddressSpaceViewTest extends AbstractViewTest {
                 .isEmptyAtAddress(0);
     }
 
+    @Test
+    public void compressedWriteIsReadByOtherRuntimes() {
+        CorfuRuntime r = getRuntime().connect();
+        r.getParameters().setPayloadCodec(PayloadCodec.DEFLATE);
+        UUID streamA = UUID.nameUUIDFromBytes("stream A".getBytes());
+        final int payloadSize = 4096;
+        byte[] testPayload = new byte[payloadSize];
+        Arrays.fill(testPayload, (byte) 'a');
+
+        final long epoch = r.getLayoutView().getLayout().getEpoch();
+        r.getAddressSpaceView().write(new TokenResponse(new Token(epoch, 0),
+                        Collections.singletonMap(streamA, Address.NO_BACKPOINTER)),
+                testPayload);
+
+        CorfuRuntime r2 = getNewRuntime(getDefaultNode()).connect();
+        ILogData read = r2.getAddressSpaceView().read(0L);
+        assertThat(read.getPayloadCodec()).isEqualTo(PayloadCodec.DEFLATE);
+        assertThat(read.getPayload(r2)).isEqualTo(testPayload);
+    }
+
     @Test
     public void testUncachedWrites() {
         CorfuRuntime r = getRuntime().connect();
@@ -116,6 +137,85 @@ public class AddressSpaceViewTest extends AbstractViewTest {
         assertThat(clientCache.getIfPresent(2L)).isNotNull();
     }
 
+    @Test
+    public void cacheIsBoundedByBytes() {
+        final int payloadSize = 1000;
+        final int numEntries = 100;
+        final long maxCacheBytes = 20 * payloadSize;
+        CorfuRuntime r = getNewRuntime(CorfuRuntime.CorfuRuntimeParameters.builder()
+                .maxCacheBytes(maxCacheBytes)
+                .offHeapCacheBytes(numEntries * 2 * payloadSize)
+                .build())
+                .parseConfigurationString(getDefaultConfigurationString())
+                .connect();
+
+        final long epoch = r.getLayoutView().getLayout().getEpoch();
+        for (int i = 0; i < numEntries; i++) {
+            byte[] payload = new byte[payloadSize];
+            Arrays.fill(payload, (byte) i);
+            r.getAddressSpaceView().write(new TokenResponse(new Token(epoch, i),
+                    Collections.singletonMap(CorfuRuntime.getStreamID("stream1"),
+                            Address.NO_BACKPOINTER)), payload);
+        }
+
+        // Entries were evicted by size, rather than kept up to the 5000 entries default
+        LoadingCache<Long, ILogData> clientCache = r.getAddressSpaceView().getReadCache();
+        assertThat(clientCache.size()).isLessThan(numEntries);
+        assertThat(clientCache.asMap().values().stream()
+                .mapToLong(ILogData::getSizeEstimate).sum()).isLessThanOrEqualTo(maxCacheBytes);
+
+        // Evicted entries are read back from the off-heap tier
+        for (int i = 0; i < numEntries; i++) {
+            byte[] payload = (byte[]) r.getAddressSpaceView().read(i).getPayload(r);
+            assertThat(payload).hasSize(payloadSize).containsOnly((byte) i);
+        }
+
+        assertThat(r.getMetrics().getGauges().entrySet().stream()
+                .filter(e -> e.getKey().endsWith("offheap-hits"))
+                .map(e -> (Long) e.getValue().getValue())
+                .findFirst()).hasValueSatisfying(hits -> assertThat(hits).isPositive());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bulkReadsAreGroupedByStripe() {
+        final int numEntries = 100;
+        final int numStripes = 3;
+        final int bulkReadSize = 4;
+        CorfuRuntime r = getRuntime().connect();
+        r.getParameters().setBulkReadSize(bulkReadSize);
+        r.getParameters().setBulkReadConcurrency(numStripes);
+
+        final long epoch = r.getLayoutView().getLayout().getEpoch();
+        List<Long> addresses = new ArrayList<>();
+        for (int i = 0; i < numEntries; i++) {
+            r.getAddressSpaceView().write(new TokenResponse(new Token(epoch, i),
+                    Collections.singletonMap(CorfuRuntime.getStreamID("stream1"),
+                            Address.NO_BACKPOINTER)), Integer.toString(i).getBytes(),
+                    CacheOption.WRITE_AROUND);
+            addresses.add((long) i);
+        }
+
+        List<List<Long>> requests = Collections.synchronizedList(new ArrayList<>());
+        addClientRule(r, new TestRule()
+                .matches(m -> m.getMsgType() == CorfuMsgType.MULTIPLE_READ_REQUEST)
+                .transform(m -> requests.add(((CorfuPayloadMsg<MultipleReadRequest>) m)
+                        .getPayload().getAddresses())));
+
+        Map<Long, ILogData> result = r.getAddressSpaceView().read(addresses);
+        assertThat(result).hasSize(numEntries);
+        result.forEach((address, ld) -> assertThat(ld.getPayload(r))
+                .isEqualTo(Long.toString(address).getBytes()));
+
+        // Every bulk read targets a single stripe
+        final int stripeSize = (numEntries + numStripes - 1) / numStripes;
+        assertThat(requests).hasSize(numStripes * ((stripeSize + bulkReadSize - 1) / bulkReadSize));
+        for (List<Long> request : requests) {
+            assertThat(request.size()).isLessThanOrEqualTo(bulkReadSize);
+            assertThat(request.stream().map(a -> a % numStripes).distinct()).hasSize(1);
+        }
+    }
+
     @Test
     public void testGetTrimMark() {
         CorfuRuntime r = getRuntime().connect();
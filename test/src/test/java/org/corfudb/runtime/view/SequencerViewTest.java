@@ -2,9 +2,14 @@ package org.corfudb.runtime.view;
 
 import lombok.Getter;
 import org.corfudb.protocols.wireprotocol.Token;
+import org.corfudb.protocols.wireprotocol.TokenResponse;
 import org.corfudb.runtime.CorfuRuntime;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -96,4 +101,29 @@ public class SequencerViewTest extends AbstractViewTest {
         assertThat(r.getSequencerView().next(streamB).getBackpointerMap())
                 .containsEntry(streamB, 1L);
     }
+
+    /**
+     * Concurrent token requests coalesced into batches must still get distinct tokens
+     * and a single chain of backpointers.
+     */
+    @Test
+    public void batchedTokensFormAChain() throws Exception {
+        CorfuRuntime r = getDefaultRuntime();
+        r.getParameters().setTokenBatchSize(PARAMETERS.CONCURRENCY_SOME);
+        UUID streamA = UUID.nameUUIDFromBytes("stream A".getBytes());
+
+        List<TokenResponse> responses = Collections.synchronizedList(new ArrayList<>());
+        scheduleConcurrently(PARAMETERS.NUM_ITERATIONS_LOW, t ->
+                responses.add(r.getSequencerView().next(streamA)));
+        executeScheduled(PARAMETERS.CONCURRENCY_SOME, PARAMETERS.TIMEOUT_NORMAL);
+
+        assertThat(responses).hasSize(PARAMETERS.NUM_ITERATIONS_LOW);
+        responses.sort(Comparator.comparingLong(TokenResponse::getSequence));
+        long previous = Address.NON_EXIST;
+        for (int i = 0; i < responses.size(); i++) {
+            assertThat(responses.get(i).getToken()).isEqualTo(new Token(0L, i));
+            assertThat(responses.get(i).getBackpointerMap()).containsEntry(streamA, previous);
+            previous = i;
+        }
+    }
 }
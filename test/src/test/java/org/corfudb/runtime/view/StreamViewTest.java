@@ -16,10 +16,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -309,6 +313,48 @@ public class StreamViewTest extends AbstractViewTest {
                 .isEqualTo(null);
     }
 
+    @Test
+    public void canPipelineAsyncAppends() {
+        UUID streamA = CorfuRuntime.getStreamID("stream A");
+        IStreamView sv = r.getStreamsView().get(streamA);
+
+        // A single thread keeps all the appends in flight
+        List<CompletableFuture<Long>> appends = new ArrayList<>();
+        for (int i = 0; i < PARAMETERS.NUM_ITERATIONS_LOW; i++) {
+            appends.add(sv.appendAsync(Integer.toString(i).getBytes()));
+        }
+
+        Set<Long> addresses = appends.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toSet());
+        assertThat(addresses).hasSize(PARAMETERS.NUM_ITERATIONS_LOW);
+
+        List<ILogData> entries = sv.remaining();
+        assertThat(entries).hasSize(PARAMETERS.NUM_ITERATIONS_LOW);
+        for (ILogData entry : entries) {
+            assertThat(addresses).contains(entry.getGlobalAddress());
+        }
+    }
+
+    @Test
+    public void asyncAppendSurvivesOverwriteException() {
+        UUID streamA = CorfuRuntime.getStreamID("stream A");
+        byte[] testPayload = "hello world".getBytes();
+
+        // read from an address that hasn't been written to
+        // causing a hole fill
+        r.getAddressSpaceView().read(0L);
+
+        // The write at the first token is overwritten, the append is retried
+        IStreamView sv = r.getStreamsView().get(streamA);
+        assertThat(sv.appendAsync(testPayload).join()).isEqualTo(1L);
+
+        assertThat(sv.next().getPayload(getRuntime()))
+                .isEqualTo("hello world".getBytes());
+        assertThat(sv.next())
+                .isEqualTo(null);
+    }
+
     @Test
     @SuppressWarnings("unchecked")
     public void streamWillHoleFill()
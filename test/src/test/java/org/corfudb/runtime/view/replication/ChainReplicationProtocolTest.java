@@ -1,15 +1,22 @@
 package org.corfudb.runtime.view.replication;
 
 import org.corfudb.infrastructure.TestLayoutBuilder;
+import org.corfudb.protocols.wireprotocol.CorfuMsgType;
 import org.corfudb.protocols.wireprotocol.ILogData;
 import org.corfudb.protocols.wireprotocol.LogData;
 import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.clients.TestRule;
 import org.corfudb.runtime.exceptions.OverwriteException;
 import org.corfudb.runtime.exceptions.WrongEpochException;
 import org.corfudb.runtime.view.RuntimeLayout;
 import org.corfudb.runtime.view.Layout;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;
@@ -82,6 +89,60 @@ public class ChainReplicationProtocolTest extends AbstractReplicationProtocolTes
     }
 
 
+    /** Check that an asynchronous write reaches every unit of the chain,
+     * and that an overwritten one fails without blocking.
+     */
+    @Test
+    public void asyncWriteReachesWholeChain() throws Exception {
+        setupNodes();
+        //begin tests
+        final CorfuRuntime r = getDefaultRuntime();
+        final IReplicationProtocol rp = getProtocol();
+        final RuntimeLayout runtimeLayout = r.getLayoutView().getRuntimeLayout();
+
+        rp.writeAsync(runtimeLayout, getLogData(0, "hello world".getBytes())).join();
+
+        for (String endpoint : new String[]{SERVERS.ENDPOINT_0, SERVERS.ENDPOINT_1,
+                SERVERS.ENDPOINT_2}) {
+            ILogData readResult = runtimeLayout.getLogUnitClient(endpoint)
+                    .read(0).get().getAddresses().get(0L);
+            assertThat(readResult.getPayload(r))
+                    .isEqualTo("hello world".getBytes());
+        }
+
+        assertThatThrownBy(() -> rp.writeAsync(runtimeLayout,
+                getLogData(0, "overwrite".getBytes())).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(OverwriteException.class);
+    }
+
+    /** Check that an async append whose write reached the head of the chain, but
+     * failed further down, is retried without being written twice.
+     */
+    @Test
+    public void failedAsyncAppendIsNotDuplicated() {
+        setupNodes();
+        //begin tests
+        final CorfuRuntime r = getDefaultRuntime();
+        final UUID streamA = CorfuRuntime.getStreamID("stream A");
+        r.getRouter(SERVERS.ENDPOINT_1).setTimeoutResponse(PARAMETERS.TIMEOUT_VERY_SHORT.toMillis());
+
+        // The first write to the middle of the chain is lost
+        AtomicBoolean dropped = new AtomicBoolean();
+        addClientRule(r, SERVERS.ENDPOINT_1, new TestRule()
+                .matches(m -> m.getMsgType() == CorfuMsgType.WRITE
+                        && dropped.compareAndSet(false, true))
+                .drop());
+
+        assertThat(r.getStreamsView().appendAsync("hello world".getBytes(), null, streamA)
+                .join()).isEqualTo(0L);
+        assertThat(dropped).isTrue();
+
+        List<ILogData> entries = r.getStreamsView().get(streamA).remaining();
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getPayload(r)).isEqualTo("hello world".getBytes());
+    }
+
     /** Check to see that a read correctly
      * completes a failed write from another client.
      */
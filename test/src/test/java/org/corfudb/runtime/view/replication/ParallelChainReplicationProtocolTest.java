@@ -0,0 +1,112 @@
+package org.corfudb.runtime.view.replication;
+
+import org.corfudb.infrastructure.TestLayoutBuilder;
+import org.corfudb.protocols.wireprotocol.ILogData;
+import org.corfudb.protocols.wireprotocol.LogData;
+import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.view.Layout;
+import org.corfudb.runtime.view.RuntimeLayout;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Test the chain replication protocol, with parallel propagation.
+ */
+public class ParallelChainReplicationProtocolTest extends ChainReplicationProtocolTest {
+
+    /** {@inheritDoc} */
+    @Override
+    IReplicationProtocol getProtocol() {
+        return new ChainReplicationProtocol(new AlwaysHoleFillPolicy(), true);
+    }
+
+    /** Setup a chain of four units, the shortest chain whose middle units are
+     * written concurrently.
+     */
+    private void setupLongChain() {
+        addServer(SERVERS.PORT_0);
+        addServer(SERVERS.PORT_1);
+        addServer(SERVERS.PORT_2);
+        addServer(SERVERS.PORT_3);
+
+        bootstrapAllServers(new TestLayoutBuilder()
+                .addLayoutServer(SERVERS.PORT_0)
+                .addSequencer(SERVERS.PORT_0)
+                .buildSegment()
+                .setReplicationMode(Layout.ReplicationMode.CHAIN_REPLICATION)
+                .buildStripe()
+                .addLogUnit(SERVERS.PORT_0)
+                .addLogUnit(SERVERS.PORT_1)
+                .addLogUnit(SERVERS.PORT_2)
+                .addLogUnit(SERVERS.PORT_3)
+                .addToSegment()
+                .addToLayout()
+                .build());
+    }
+
+    /** Check that a write to a chain of four units reaches every unit. */
+    @Test
+    public void writeReachesEveryUnitOfLongChain() throws Exception {
+        setupLongChain();
+        final CorfuRuntime r = getDefaultRuntime();
+        final IReplicationProtocol rp = getProtocol();
+        final RuntimeLayout runtimeLayout = r.getLayoutView().getRuntimeLayout();
+
+        rp.write(runtimeLayout, getLogData(0, "hello".getBytes()));
+
+        for (String endpoint : new String[]{SERVERS.ENDPOINT_0, SERVERS.ENDPOINT_1,
+                SERVERS.ENDPOINT_2, SERVERS.ENDPOINT_3}) {
+            assertThat(runtimeLayout.getLogUnitClient(endpoint)
+                    .read(0).get().getAddresses().get(0L).getPayload(r))
+                    .isEqualTo("hello".getBytes());
+        }
+    }
+
+    /** Check that a hole fill of a chain of four units adopts data that only reached
+     * its second middle unit.
+     */
+    @Test
+    public void holeFillAdoptsDataOfAnyMiddleUnit() throws Exception {
+        setupLongChain();
+        final CorfuRuntime r = getDefaultRuntime();
+        final IReplicationProtocol rp = getProtocol();
+        final RuntimeLayout runtimeLayout = r.getLayoutView().getRuntimeLayout();
+
+        LogData incompleteWrite = getLogData(0, "incomplete".getBytes());
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_2).write(incompleteWrite).get();
+
+        assertThat(rp.read(runtimeLayout, 0).getPayload(r))
+                .isEqualTo("incomplete".getBytes());
+        assertThat(runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_3)
+                .read(0).get().getAddresses().get(0L).getPayload(r))
+                .isEqualTo("incomplete".getBytes());
+    }
+
+    /** Check that a hole fill adopts data that only reached a middle unit
+     * of the chain, as happens when the head which accepted it is replaced.
+     */
+    @Test
+    public void holeFillAdoptsMiddleUnitData() throws Exception {
+        setupNodes();
+        //begin tests
+        final CorfuRuntime r = getDefaultRuntime();
+        final IReplicationProtocol rp = getProtocol();
+        final RuntimeLayout runtimeLayout = r.getLayoutView().getRuntimeLayout();
+
+        LogData incompleteWrite = getLogData(0, "incomplete".getBytes());
+
+        // Write the incomplete write to the middle of the chain only
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_1).write(incompleteWrite).get();
+
+        ILogData readResult = rp.read(runtimeLayout, 0);
+        assertThat(readResult.getPayload(r))
+                .isEqualTo("incomplete".getBytes());
+
+        for (String endpoint : new String[]{SERVERS.ENDPOINT_0, SERVERS.ENDPOINT_1,
+                SERVERS.ENDPOINT_2}) {
+            assertThat(runtimeLayout.getLogUnitClient(endpoint)
+                    .read(0).get().getAddresses().get(0L).getPayload(r))
+                    .isEqualTo("incomplete".getBytes());
+        }
+    }
+}
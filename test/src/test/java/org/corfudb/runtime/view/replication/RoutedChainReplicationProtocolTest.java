@@ -0,0 +1,77 @@
+package org.corfudb.runtime.view.replication;
+
+import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.view.RuntimeLayout;
+import org.corfudb.util.Sleep;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Test the chain replication protocol, with reads of committed addresses
+ * spread over the chain.
+ */
+public class RoutedChainReplicationProtocolTest extends ChainReplicationProtocolTest {
+
+    /** {@inheritDoc} */
+    @Override
+    IReplicationProtocol getProtocol() {
+        final CorfuRuntime r = getDefaultRuntime();
+        r.getParameters().setReadRoutingPolicy(ReadRoutingPolicy.ROUND_ROBIN);
+        return new ChainReplicationProtocol(new AlwaysHoleFillPolicy(), false,
+                r.getAddressSpaceView().getReadRouter());
+    }
+
+    private Set<String> readPayloads(CorfuRuntime r, IReplicationProtocol rp,
+                                     RuntimeLayout runtimeLayout, long address) {
+        final int numReads = 6;
+        Set<String> payloads = new HashSet<>();
+        for (int i = 0; i < numReads; i++) {
+            payloads.add(new String((byte[]) rp.read(runtimeLayout, address).getPayload(r)));
+        }
+        return payloads;
+    }
+
+    /** Check that committed addresses are read from every unit of the chain,
+     * falling back to the tail for the units that miss them, and that the other
+     * addresses are only read from the tail.
+     */
+    @Test
+    public void committedReadsAreSpreadOverTheChain() throws Exception {
+        setupNodes();
+        //begin tests
+        final CorfuRuntime r = getDefaultRuntime();
+        final IReplicationProtocol rp = getProtocol();
+        final RuntimeLayout runtimeLayout = r.getLayoutView().getRuntimeLayout();
+        final ReplicaReadRouter router = r.getAddressSpaceView().getReadRouter();
+        r.getParameters().setReadRoutingRefreshInterval(Duration.ofHours(1));
+
+        // Give each unit a different value, so that reads reveal the unit which served them
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_0).write(getLogData(0, "0".getBytes())).get();
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_1).write(getLogData(0, "1".getBytes())).get();
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_2).write(getLogData(0, "2".getBytes())).get();
+        // Address 1 is missing from the middle of the chain
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_0).write(getLogData(1, "0".getBytes())).get();
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_2).write(getLogData(1, "2".getBytes())).get();
+
+        // Nothing is known to be committed yet, so reads go to the tail,
+        // and the committed tail of the chain is queried.
+        assertThat(rp.read(runtimeLayout, 0).getPayload(r)).isEqualTo("2".getBytes());
+        while (router.getCommittedTail(SERVERS.ENDPOINT_2) < 1) {
+            Sleep.MILLISECONDS.sleepUninterruptibly(1);
+        }
+
+        assertThat(readPayloads(r, rp, runtimeLayout, 0)).containsExactlyInAnyOrder("0", "1", "2");
+        assertThat(readPayloads(r, rp, runtimeLayout, 1)).containsExactlyInAnyOrder("0", "2");
+
+        // Address 2 is written after the committed tail was queried
+        final long address2 = 2;
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_0).write(getLogData(address2, "0".getBytes())).get();
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_1).write(getLogData(address2, "1".getBytes())).get();
+        runtimeLayout.getLogUnitClient(SERVERS.ENDPOINT_2).write(getLogData(address2, "2".getBytes())).get();
+        assertThat(readPayloads(r, rp, runtimeLayout, address2)).containsExactly("2");
+    }
+}
@@ -1,10 +1,20 @@
 package org.corfudb.runtime.view.stream;
 
+import org.corfudb.protocols.wireprotocol.CorfuMsgType;
+import org.corfudb.protocols.wireprotocol.CorfuPayloadMsg;
+import org.corfudb.protocols.wireprotocol.ILogData;
+import org.corfudb.protocols.wireprotocol.MultipleReadRequest;
+import org.corfudb.protocols.wireprotocol.ReadRequest;
 import org.corfudb.protocols.wireprotocol.TokenResponse;
 import org.corfudb.runtime.CorfuRuntime;
+import org.corfudb.runtime.clients.TestRule;
 import org.corfudb.runtime.view.AbstractViewTest;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -162,6 +172,32 @@ public class BackpointerStreamViewTest extends AbstractViewTest {
         assertThat(((ThreadSafeStreamView) svB).getUnderlyingStream().getBackpointerCount()).isEqualTo(1L);
     }
 
+    /**
+     * Tests that a stream is resolved from the stream address index of the log units,
+     * without following backpointers.
+     */
+    @Test
+    public void streamIsResolvedFromIndex() {
+        CorfuRuntime runtime = getDefaultRuntime();
+        runtime.getParameters().setStreamAddressIndexEnabled(true);
+        IStreamView svA = runtime.getStreamsView().get(CorfuRuntime.getStreamID("streamA"));
+        IStreamView svB = runtime.getStreamsView().get(CorfuRuntime.getStreamID("streamB"));
+
+        for (int i = 0; i < PARAMETERS.NUM_ITERATIONS_LOW; i++) {
+            svA.append(String.valueOf(i).getBytes());
+            svB.append(String.valueOf(i).getBytes());
+        }
+
+        List<ILogData> entries = svA.remaining();
+        assertThat(entries).hasSize(PARAMETERS.NUM_ITERATIONS_LOW);
+        for (int i = 0; i < PARAMETERS.NUM_ITERATIONS_LOW; i++) {
+            assertThat(entries.get(i).getPayload(runtime))
+                    .isEqualTo(String.valueOf(i).getBytes());
+        }
+        assertThat(((ThreadSafeStreamView) svA).getUnderlyingStream().getBackpointerCount())
+                .isZero();
+    }
+
     @Test
     public void testStreamGC() throws Exception {
         CorfuRuntime runtime = getDefaultRuntime();
@@ -193,4 +229,99 @@ public class BackpointerStreamViewTest extends AbstractViewTest {
         assertThat(bpsvB.getContext().readCpQueue).isEmpty();
     }
 
+    /**
+     * Tests that a stream consumed sequentially prefetches the next entries of
+     * its read queue, so that they are not read one at a time.
+     */
+    @Test
+    public void sequentialReadsArePrefetched() {
+        CorfuRuntime runtime = getDefaultRuntime();
+        runtime.getParameters().setReadAheadEnabled(true);
+        IStreamView sv = runtime.getStreamsView().get(CorfuRuntime.getStreamID("streamA"));
+
+        for (int i = 0; i < PARAMETERS.NUM_ITERATIONS_LOW; i++) {
+            sv.append(String.valueOf(i).getBytes());
+        }
+        assertThat(sv.remaining()).hasSize(PARAMETERS.NUM_ITERATIONS_LOW);
+
+        // Replay the resolved stream with an empty cache
+        runtime.getAddressSpaceView().invalidateClientCache();
+        sv.seek(0L);
+
+        List<Long> singleReads = Collections.synchronizedList(new ArrayList<>());
+        addClientRule(runtime, new TestRule()
+                .matches(m -> m.getMsgType() == CorfuMsgType.READ_REQUEST)
+                .transform(m -> singleReads.add(((CorfuPayloadMsg<ReadRequest>) m)
+                        .getPayload().getRange().lowerEndpoint())));
+
+        BackpointerStreamView bpsv = ((ThreadSafeStreamView) sv).getUnderlyingStream();
+        for (int i = 0; i < ReadAheadWindow.SEQUENTIAL_READS; i++) {
+            assertThat(sv.next().getGlobalAddress()).isEqualTo(i);
+        }
+        assertThat(bpsv.getContext().readAhead.getWindow())
+                .isEqualTo(ReadAheadWindow.INITIAL_WINDOW);
+        bpsv.getContext().readAhead.getPending().join();
+
+        // The entries of the first window are read from the cache
+        singleReads.clear();
+        for (int i = 0; i < ReadAheadWindow.INITIAL_WINDOW; i++) {
+            assertThat(sv.next().getGlobalAddress())
+                    .isEqualTo(ReadAheadWindow.SEQUENTIAL_READS + i);
+        }
+        assertThat(singleReads).isEmpty();
+        assertThat(bpsv.getContext().readAhead.getWindow())
+                .isEqualTo(ReadAheadWindow.INITIAL_WINDOW * 2);
+
+        // Seeking closes the window
+        sv.seek(0L);
+        assertThat(bpsv.getContext().readAhead.getWindow()).isZero();
+    }
+
+    /**
+     * Tests that a stream synced in bulk reads its entries in batches, and prefetches
+     * what follows in its read queue, so that the next sync is served from the cache.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bulkReadsArePrefetched() {
+        CorfuRuntime runtime = getDefaultRuntime();
+        runtime.getParameters().setReadAheadEnabled(true);
+        runtime.getParameters().setStreamAddressIndexEnabled(true);
+        IStreamView sv = runtime.getStreamsView().get(CorfuRuntime.getStreamID("streamA"));
+
+        final int numEntries = PARAMETERS.NUM_ITERATIONS_LOW;
+        for (int i = 0; i < numEntries; i++) {
+            sv.append(String.valueOf(i).getBytes());
+        }
+        runtime.getAddressSpaceView().invalidateClientCache();
+
+        List<Long> singleReads = Collections.synchronizedList(new ArrayList<>());
+        List<List<Long>> batchedReads = Collections.synchronizedList(new ArrayList<>());
+        addClientRule(runtime, new TestRule()
+                .matches(m -> m.getMsgType() == CorfuMsgType.READ_REQUEST)
+                .transform(m -> singleReads.add(((CorfuPayloadMsg<ReadRequest>) m)
+                        .getPayload().getRange().lowerEndpoint())));
+        addClientRule(runtime, new TestRule()
+                .matches(m -> m.getMsgType() == CorfuMsgType.MULTIPLE_READ_REQUEST)
+                .transform(m -> batchedReads.add(((CorfuPayloadMsg<MultipleReadRequest>) m)
+                        .getPayload().getAddresses())));
+
+        // Sync the first half of the stream, the second half is prefetched
+        final int half = numEntries / 2;
+        assertThat(sv.remainingUpTo(half - 1)).hasSize(half);
+        BackpointerStreamView bpsv = ((ThreadSafeStreamView) sv).getUnderlyingStream();
+        bpsv.getContext().readAhead.getPending().join();
+
+        final int bulkReadSize = runtime.getParameters().getBulkReadSize();
+        assertThat(singleReads).isEmpty();
+        assertThat(batchedReads).hasSize((half + bulkReadSize - 1) / bulkReadSize
+                + (numEntries - half + bulkReadSize - 1) / bulkReadSize);
+        assertThat(batchedReads.stream().mapToInt(List::size).sum()).isEqualTo(numEntries);
+
+        // The rest of the stream is synced from the cache
+        batchedReads.clear();
+        assertThat(sv.remainingUpTo(numEntries - 1)).hasSize(numEntries - half);
+        assertThat(singleReads).isEmpty();
+        assertThat(batchedReads).isEmpty();
+    }
 }
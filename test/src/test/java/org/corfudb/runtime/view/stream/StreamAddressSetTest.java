@@ -0,0 +1,97 @@
+package org.corfudb.runtime.view.stream;
+
+import org.corfudb.AbstractCorfuTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StreamAddressSetTest extends AbstractCorfuTest {
+
+    private static final long CHUNK = 65_536L;
+
+    private static long orAbsent(Long address) {
+        return address == null ? StreamAddressSet.ABSENT : address;
+    }
+
+    private static void assertSameAs(StreamAddressSet set, NavigableSet<Long> expected) {
+        assertThat(set.size()).isEqualTo(expected.size());
+        assertThat(set).containsExactlyElementsOf(expected);
+        if (!expected.isEmpty()) {
+            assertThat(set.first()).isEqualTo(expected.first());
+            assertThat(set.last()).isEqualTo(expected.last());
+        }
+    }
+
+    @Test
+    public void setMatchesTreeSet() {
+        final int numAddresses = 20_000;
+        final long span = 5 * CHUNK;
+        Random random = new Random(0);
+        StreamAddressSet set = new StreamAddressSet();
+        NavigableSet<Long> expected = new TreeSet<>();
+
+        // Dense enough for some chunks to be kept as bitmaps
+        for (int i = 0; i < numAddresses; i++) {
+            long address = (long) (random.nextDouble() * random.nextDouble() * span);
+            assertThat(set.add(address)).isEqualTo(expected.add(address));
+        }
+        assertSameAs(set, expected);
+
+        for (int i = 0; i < numAddresses; i++) {
+            long address = random.nextInt((int) span + 2) - 1;
+            assertThat(set.contains(address)).isEqualTo(expected.contains(address));
+            assertThat(set.ceiling(address)).isEqualTo(orAbsent(expected.ceiling(address)));
+            assertThat(set.higher(address)).isEqualTo(orAbsent(expected.higher(address)));
+            assertThat(set.floor(address)).isEqualTo(orAbsent(expected.floor(address)));
+            assertThat(set.lower(address)).isEqualTo(orAbsent(expected.lower(address)));
+        }
+
+        // Bulk transfer of a range, which copies the chunks entirely in the range
+        final long from = CHUNK / 2;
+        final long to = 3 * CHUNK + CHUNK / 2;
+        StreamAddressSet copy = new StreamAddressSet();
+        copy.add(to - 1);
+        copy.addAll(set, from, to);
+        NavigableSet<Long> expectedCopy = new TreeSet<>(expected.subSet(from, true, to, true));
+        expectedCopy.add(to - 1);
+        assertSameAs(copy, expectedCopy);
+
+        // Removal of a prefix
+        final long trimMark = 2 * CHUNK + 1;
+        set.removeBelow(trimMark);
+        expected.headSet(trimMark).clear();
+        assertSameAs(set, expected);
+        final long first = expected.pollFirst();
+        assertThat(set.pollFirst()).isEqualTo(first);
+        set.removeUpTo(to);
+        expected.headSet(to, true).clear();
+        assertSameAs(set, expected);
+
+        set.clear();
+        assertThat(set).isEmpty();
+        assertThat(set.ceiling(0L)).isEqualTo(StreamAddressSet.ABSENT);
+    }
+
+    @Test
+    public void descendingInsertsAreSorted() {
+        final long numAddresses = 100;
+        final long stride = 997;
+        StreamAddressSet set = new StreamAddressSet();
+        List<Long> expected = new ArrayList<>();
+        for (long i = numAddresses - 1; i >= 0; i--) {
+            set.add(i * stride);
+            expected.add(0, i * stride);
+        }
+        assertThat(set).containsExactlyElementsOf(expected);
+        assertThatThrownBy(() -> set.add(-1L)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new StreamAddressSet().first())
+                .isInstanceOf(java.util.NoSuchElementException.class);
+    }
+}
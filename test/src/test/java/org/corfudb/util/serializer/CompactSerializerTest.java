@@ -0,0 +1,74 @@
+package org.corfudb.util.serializer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.Data;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactSerializerTest {
+
+    private final ISerializer serializer = new CompactSerializer((byte) 4);
+
+    private Object roundTrip(Object o) {
+        ByteBuf b = Unpooled.buffer();
+        serializer.serialize(o, b);
+        Object deserialized = serializer.deserialize(b, null);
+        assertThat(b.readableBytes()).isZero();
+        return deserialized;
+    }
+
+    private int serializedSize(Object o) {
+        ByteBuf b = Unpooled.buffer();
+        serializer.serialize(o, b);
+        return b.readableBytes();
+    }
+
+    @Test
+    public void primitivesRoundTrip() {
+        final long bigLong = Long.MIN_VALUE;
+        final int negativeInt = -42;
+        UUID uuid = UUID.randomUUID();
+        byte[] bytes = "bytes".getBytes();
+
+        assertThat(roundTrip(null)).isNull();
+        assertThat(roundTrip("a string")).isEqualTo("a string");
+        assertThat(roundTrip("")).isEqualTo("");
+        assertThat(roundTrip(1L)).isEqualTo(1L);
+        assertThat(roundTrip(bigLong)).isEqualTo(bigLong);
+        assertThat(roundTrip(negativeInt)).isEqualTo(negativeInt);
+        assertThat(roundTrip(uuid)).isEqualTo(uuid);
+        assertThat(roundTrip(bytes)).isEqualTo(bytes);
+    }
+
+    @Test
+    public void smallValuesAreCompact() {
+        final int smallLongSize = 2;
+        final int uuidSize = 1 + 2 * Long.BYTES;
+        assertThat(serializedSize(1L)).isEqualTo(smallLongSize);
+        assertThat(serializedSize(-1)).isEqualTo(smallLongSize);
+        assertThat(serializedSize("abc")).isEqualTo(2 + "abc".length());
+        assertThat(serializedSize(UUID.randomUUID())).isEqualTo(uuidSize);
+    }
+
+    @Test
+    public void objectsRoundTripWithoutRegistry() {
+        Point point = new Point();
+        point.setX(1);
+        point.setY(-1);
+        point.setLabel("origin");
+
+        assertThat(roundTrip(point)).isEqualTo(point);
+        assertThat(serializer.hash(point)).isEqualTo(serializer.hash(roundTrip(point)));
+    }
+
+    @Data
+    static class Point {
+        int x;
+        int y;
+        String label;
+    }
+}